@@ -0,0 +1,97 @@
+#!/bin/bash
+# Run the JMH benchmarks of two commits and compare the results
+#
+# Usage: compare.sh <base> <target> [jmh options]
+#
+#   <base>, <target>  a git revision (commit, branch, tag) or an existing JMH json result file,
+#                     e.g. addax-benchmarks/baseline.json
+#   [jmh options]     passed to the benchmark jar as is, e.g. a regexp selecting benchmarks
+#                     and "-f 1 -wi 2 -i 3"
+#
+# Every revision is built in a temporary git worktree, so the working copy is left untouched.
+# Results are kept in ${RESULT_DIR:-/tmp/addax-benchmarks}/<revision>.json
+
+set -e
+
+if [ $# -lt 2 ]; then
+    sed -n '2,13p' "$0" | sed 's/^# \{0,1\}//'
+    exit 1
+fi
+
+BASE="$1"
+TARGET="$2"
+shift 2
+JMH_OPTS="$*"
+
+REPO_DIR="$(git -C "$(dirname "$0")" rev-parse --show-toplevel)"
+RESULT_DIR="${RESULT_DIR:-/tmp/addax-benchmarks}"
+mkdir -p "${RESULT_DIR}"
+
+# run benchmarks of the given revision, print the result file
+run_revision() {
+    local rev="$1"
+    if [ -f "${rev}" ]; then
+        echo "${rev}"
+        return
+    fi
+    local commit
+    commit=$(git -C "${REPO_DIR}" rev-parse --short "${rev}^{commit}")
+    local worktree="${RESULT_DIR}/worktree-${commit}"
+    local result="${RESULT_DIR}/${commit}.json"
+
+    rm -rf "${worktree}"
+    git -C "${REPO_DIR}" worktree add --detach "${worktree}" "${commit}" >&2
+    if [ ! -f "${worktree}/addax-benchmarks/pom.xml" ]; then
+        git -C "${REPO_DIR}" worktree remove --force "${worktree}"
+        echo "revision ${rev} does not contain the addax-benchmarks module" >&2
+        exit 2
+    fi
+    echo "building ${rev} (${commit}) ..." >&2
+    (cd "${worktree}" && mvn -B -q -DskipTests -Dgpg.skip -Dmaven.javadoc.skip package -pl addax-benchmarks -am) >&2
+    echo "running benchmarks of ${rev} (${commit}) ..." >&2
+    java -jar "${worktree}/addax-benchmarks/target/benchmarks.jar" ${JMH_OPTS} -rf json -rff "${result}" >&2
+    git -C "${REPO_DIR}" worktree remove --force "${worktree}"
+    echo "${result}"
+}
+
+BASE_RESULT=$(run_revision "${BASE}")
+TARGET_RESULT=$(run_revision "${TARGET}")
+
+python3 - "${BASE_RESULT}" "${TARGET_RESULT}" <<'PYEOF'
+import json
+import sys
+
+
+def load(path):
+    result = {}
+    with open(path) as f:
+        for item in json.load(f):
+            name = item["benchmark"].rsplit(".", 2)
+            name = ".".join(name[-2:])
+            params = item.get("params") or {}
+            if params:
+                name += "(" + ",".join("%s=%s" % (k, params[k]) for k in sorted(params)) + ")"
+            metric = item["primaryMetric"]
+            result[name] = (item["mode"], metric["score"], metric.get("scoreError"), metric["scoreUnit"])
+    return result
+
+
+base = load(sys.argv[1])
+target = load(sys.argv[2])
+print("%-70s %5s %16s %16s %9s  %s" % ("Benchmark", "Mode", "Base", "Target", "Change", "Unit"))
+for name in sorted(set(base) | set(target)):
+    b = base.get(name)
+    t = target.get(name)
+    mode, unit = (b or t)[0], (b or t)[3]
+    change = ""
+    if b and t and b[1]:
+        # 吞吐量越大越好，耗时越小越好，统一为正数表示变快
+        delta = (t[1] - b[1]) / b[1] * 100
+        if mode in ("avgt", "sample", "ss"):
+            delta = -delta
+        change = "%+8.2f%%" % delta
+    print("%-70s %5s %16s %16s %9s  %s" % (name, mode,
+                                           "%.3f" % b[1] if b else "-",
+                                           "%.3f" % t[1] if t else "-",
+                                           change, unit))
+PYEOF
@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.wgzhao.addax.benchmark;
+
+import com.wgzhao.addax.common.element.BoolColumn;
+import com.wgzhao.addax.common.element.DateColumn;
+import com.wgzhao.addax.common.element.DoubleColumn;
+import com.wgzhao.addax.common.element.LongColumn;
+import com.wgzhao.addax.common.element.Record;
+import com.wgzhao.addax.common.element.StringColumn;
+import com.wgzhao.addax.common.plugin.TaskPluginCollector;
+import com.wgzhao.addax.common.util.Configuration;
+import com.wgzhao.addax.core.statistics.communication.Communication;
+import com.wgzhao.addax.core.transport.channel.Channel;
+import com.wgzhao.addax.core.transport.channel.memory.MemoryChannel;
+import com.wgzhao.addax.core.transport.record.DefaultRecord;
+import com.wgzhao.addax.core.util.container.CoreConstant;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 各个 benchmark 共用的配置和数据
+ */
+public final class BenchmarkSupport
+{
+    /**
+     * 每条记录的列数，与 {@link #fillRecord(Record, long)} 一致
+     */
+    public static final int COLUMN_NUMBER = 6;
+
+    // 2021-01-01 00:00:00 +08:00
+    private static final long BASE_TIME = 1609430400000L;
+    private static final String PAYLOAD = "The quick brown fox jumps over the lazy dog, 0123456789 abcdefghij";
+
+    public static final TaskPluginCollector NOOP_COLLECTOR = new TaskPluginCollector()
+    {
+        @Override
+        public void collectDirtyRecord(Record dirtyRecord, Throwable t, String errorMessage)
+        {
+            //
+        }
+
+        @Override
+        public void collectMessage(String key, String value)
+        {
+            //
+        }
+    };
+
+    private BenchmarkSupport() {}
+
+    /**
+     * channel 及 exchanger 需要的配置，不限速
+     *
+     * @param capacity channel 的容量(记录数)
+     * @param bufferSize exchanger 每批的记录数
+     * @return configuration
+     */
+    public static Configuration channelConfiguration(int capacity, int bufferSize)
+    {
+        Configuration configuration = Configuration.newDefault();
+        configuration.set(CoreConstant.CORE_CONTAINER_JOB_ID, 0);
+        configuration.set(CoreConstant.CORE_CONTAINER_TASK_GROUP_ID, 0);
+        configuration.set(CoreConstant.CORE_TRANSPORT_CHANNEL_CAPACITY, capacity);
+        configuration.set(CoreConstant.CORE_TRANSPORT_CHANNEL_CAPACITY_BYTE, 64 * 1024 * 1024);
+        configuration.set(CoreConstant.CORE_TRANSPORT_CHANNEL_SPEED_BYTE, -1);
+        configuration.set(CoreConstant.CORE_TRANSPORT_CHANNEL_SPEED_RECORD, -1);
+        configuration.set(CoreConstant.CORE_TRANSPORT_EXCHANGER_BUFFER_SIZE, bufferSize);
+        configuration.set(CoreConstant.CORE_TRANSPORT_RECORD_CLASS, DefaultRecord.class.getName());
+        return configuration;
+    }
+
+    public static Channel newChannel(Configuration configuration)
+    {
+        Channel channel = new MemoryChannel(configuration);
+        channel.setCommunication(new Communication());
+        return channel;
+    }
+
+    /**
+     * 按典型的业务表填充一条记录：id, name, score, created, active, remark
+     *
+     * @param record 空记录
+     * @param id 行号，决定各列的值
+     * @return record
+     */
+    public static Record fillRecord(Record record, long id)
+    {
+        record.addColumn(new LongColumn(id));
+        record.addColumn(new StringColumn("name-" + id));
+        record.addColumn(new DoubleColumn(id * 1.5d));
+        record.addColumn(new DateColumn(BASE_TIME + id * 1000L));
+        record.addColumn(new BoolColumn(id % 2 == 0));
+        record.addColumn(new StringColumn(PAYLOAD));
+        return record;
+    }
+
+    public static List<Record> newRecords(int count)
+    {
+        List<Record> records = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            records.add(fillRecord(new DefaultRecord(), i));
+        }
+        return records;
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.wgzhao.addax.benchmark;
+
+import com.wgzhao.addax.common.element.Column;
+import com.wgzhao.addax.common.element.DoubleColumn;
+import com.wgzhao.addax.common.element.LongColumn;
+import com.wgzhao.addax.common.element.StringColumn;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 各种 Column 之间的类型转换，reader 和 writer 的类型不一致时每个值都要经过一次
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ColumnBenchmark
+{
+    private final Column longString = new StringColumn("1234567890123");
+    private final Column doubleString = new StringColumn("12345.6789");
+    private final Column boolString = new StringColumn("true");
+    private final Column longColumn = new LongColumn(1234567890123L);
+    private final Column doubleColumn = new DoubleColumn(12345.6789d);
+    private final Column decimalColumn = new DoubleColumn(new BigDecimal("12345678901234567890.123456789"));
+
+    @Benchmark
+    public Long stringToLong()
+    {
+        return longString.asLong();
+    }
+
+    @Benchmark
+    public Double stringToDouble()
+    {
+        return doubleString.asDouble();
+    }
+
+    @Benchmark
+    public BigDecimal stringToBigDecimal()
+    {
+        return doubleString.asBigDecimal();
+    }
+
+    @Benchmark
+    public Boolean stringToBoolean()
+    {
+        return boolString.asBoolean();
+    }
+
+    @Benchmark
+    public String longToString()
+    {
+        return longColumn.asString();
+    }
+
+    @Benchmark
+    public Double longToDouble()
+    {
+        return longColumn.asDouble();
+    }
+
+    @Benchmark
+    public String doubleToString()
+    {
+        return doubleColumn.asString();
+    }
+
+    @Benchmark
+    public Long doubleToLong()
+    {
+        return doubleColumn.asLong();
+    }
+
+    @Benchmark
+    public BigDecimal decimalToBigDecimal()
+    {
+        return decimalColumn.asBigDecimal();
+    }
+}
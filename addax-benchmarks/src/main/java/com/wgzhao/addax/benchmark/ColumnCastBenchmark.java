@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.wgzhao.addax.benchmark;
+
+import com.wgzhao.addax.common.element.BytesColumn;
+import com.wgzhao.addax.common.element.Column;
+import com.wgzhao.addax.common.element.ColumnCast;
+import com.wgzhao.addax.common.element.DateColumn;
+import com.wgzhao.addax.common.element.StringColumn;
+import com.wgzhao.addax.common.util.Configuration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 依赖 ColumnCast 的转换：字符串与日期、字节之间的转换，使用与 core.json 相同的格式设置
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ColumnCastBenchmark
+{
+    private static final String CORE_COLUMN_CONF = "{\"common\":{\"column\":{"
+            + "\"datetimeFormat\":\"yyyy-MM-dd HH:mm:ss\",\"timeFormat\":\"HH:mm:ss\",\"dateFormat\":\"yyyy-MM-dd\","
+            + "\"extraFormats\":[\"yyyyMMdd\"],\"timeZone\":\"PRC\",\"encoding\":\"utf-8\"}}}";
+
+    private final Column datetimeString = new StringColumn("2021-07-30 06:18:42");
+    // 需要依次尝试 datetimeFormat、dateFormat、timeFormat 之后才能用 extraFormats 解析
+    private final Column extraFormatString = new StringColumn("20210730");
+    private final Column text = new StringColumn("The quick brown fox jumps over the lazy dog");
+    private final Column dateColumn = new DateColumn(1627597122000L);
+    private final Column bytesColumn = new BytesColumn("The quick brown fox jumps over the lazy dog".getBytes(StandardCharsets.UTF_8));
+
+    @Setup
+    public void setup()
+    {
+        ColumnCast.bind(Configuration.from(CORE_COLUMN_CONF));
+    }
+
+    @Benchmark
+    public Date stringToDate()
+    {
+        return datetimeString.asDate();
+    }
+
+    @Benchmark
+    public Date stringToDateExtraFormat()
+    {
+        return extraFormatString.asDate();
+    }
+
+    @Benchmark
+    public String dateToString()
+    {
+        return dateColumn.asString();
+    }
+
+    @Benchmark
+    public byte[] stringToBytes()
+    {
+        return text.asBytes();
+    }
+
+    @Benchmark
+    public String bytesToString()
+    {
+        return bytesColumn.asString();
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.wgzhao.addax.benchmark;
+
+import com.wgzhao.addax.common.util.Configuration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 模拟大量切分任务时 Configuration 的开销: 原始配置中包含 splitNumber 个文件路径，每个切分拷贝一次配置并设置各自的路径，
+ * 然后读取几个常用的配置项. 分别测试 clone 和基于 JSON 序列化的拷贝(clone 的原有实现)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ConfigurationBenchmark
+{
+    @Param({"1000", "10000"})
+    private int splitNumber;
+
+    private Configuration reader;
+    private List<String> paths;
+
+    @Setup
+    public void setup()
+    {
+        Configuration configuration = Configuration.from("{\"job\":{\"setting\":{\"speed\":{\"channel\":8}},"
+                + "\"content\":[{\"reader\":{\"name\":\"txtfilereader\",\"parameter\":{\"encoding\":\"UTF-8\","
+                + "\"fieldDelimiter\":\",\",\"column\":[{\"index\":0,\"type\":\"long\"},{\"index\":1,\"type\":\"string\"}]}},"
+                + "\"writer\":{\"name\":\"streamwriter\",\"parameter\":{\"print\":false}}}]}}");
+        List<String> files = new ArrayList<>(splitNumber);
+        for (int i = 0; i < splitNumber; i++) {
+            files.add("/data/input/part-" + i + ".csv");
+        }
+        configuration.set("job.content[0].reader.parameter.path", files);
+        reader = configuration.getConfiguration("job.content[0].reader.parameter");
+        paths = reader.getList("path", String.class);
+    }
+
+    @Benchmark
+    public List<Configuration> cloneSplit()
+    {
+        return split(false);
+    }
+
+    @Benchmark
+    public List<Configuration> jsonCopySplit()
+    {
+        return split(true);
+    }
+
+    private List<Configuration> split(boolean jsonCopy)
+    {
+        List<Configuration> splits = new ArrayList<>(splitNumber);
+        for (String path : paths) {
+            Configuration split = jsonCopy ? Configuration.from(reader.toJSON()) : reader.clone();
+            split.set("path", Collections.singletonList(path));
+            split.getString("encoding");
+            split.getString("column[1].type");
+            splits.add(split);
+        }
+        return splits;
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.wgzhao.addax.benchmark;
+
+import com.wgzhao.addax.common.element.Record;
+import com.wgzhao.addax.rdbms.util.DataBaseType;
+import com.wgzhao.addax.rdbms.writer.CommonRdbmsWriter;
+import org.apache.commons.lang3.tuple.ImmutableTriple;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CommonRdbmsWriter 把一条记录按目标表的字段类型设置到 PreparedStatement 中，
+ * PreparedStatement 为只记录参数的动态代理，因此结果包括一次代理调用的开销
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+@OperationsPerInvocation(FillPreparedStatementBenchmark.ROWS)
+public class FillPreparedStatementBenchmark
+{
+    static final int ROWS = 1024;
+
+    private BenchmarkWriterTask task;
+    private PreparedStatement preparedStatement;
+    private List<Record> records;
+    private long[] parameters;
+
+    @Setup
+    public void setup()
+    {
+        task = new BenchmarkWriterTask();
+        records = BenchmarkSupport.newRecords(ROWS);
+        parameters = new long[1];
+        preparedStatement = (PreparedStatement) Proxy.newProxyInstance(
+                FillPreparedStatementBenchmark.class.getClassLoader(),
+                new Class<?>[] {PreparedStatement.class},
+                (proxy, method, args) -> {
+                    // 只有 setXxx(int, value) 会被调用
+                    parameters[0] += args[1] == null ? 0 : args[1].hashCode();
+                    return null;
+                });
+    }
+
+    @Benchmark
+    public long fillPreparedStatement()
+            throws SQLException
+    {
+        for (Record record : records) {
+            task.fill(preparedStatement, record);
+        }
+        return parameters[0];
+    }
+
+    private static final class BenchmarkWriterTask
+            extends CommonRdbmsWriter.Task
+    {
+        BenchmarkWriterTask()
+        {
+            super(DataBaseType.MySql);
+            List<String> names = Arrays.asList("id", "name", "score", "created", "active", "remark");
+            List<Integer> types = Arrays.asList(Types.BIGINT, Types.VARCHAR, Types.DOUBLE, Types.TIMESTAMP, Types.BIT, Types.VARCHAR);
+            List<String> typeNames = Arrays.asList("BIGINT", "VARCHAR", "DOUBLE", "DATETIME", "BIT", "VARCHAR");
+            this.resultSetMetaData = new ImmutableTriple<>(names, types, typeNames);
+            this.columnNumber = BenchmarkSupport.COLUMN_NUMBER;
+            this.emptyAsNull = true;
+        }
+
+        void fill(PreparedStatement preparedStatement, Record record)
+                throws SQLException
+        {
+            fillPreparedStatement(preparedStatement, record);
+        }
+    }
+}
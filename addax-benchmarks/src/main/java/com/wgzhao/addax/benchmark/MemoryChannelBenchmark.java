@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.wgzhao.addax.benchmark;
+
+import com.wgzhao.addax.common.element.Record;
+import com.wgzhao.addax.core.transport.channel.Channel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MemoryChannel 单线程的 push/pull 开销，包括统计和限速检查，不包括线程间的等待
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+@OperationsPerInvocation(MemoryChannelBenchmark.BATCH)
+public class MemoryChannelBenchmark
+{
+    static final int BATCH = 1024;
+
+    @Param({"32", "256"})
+    public int bufferSize;
+
+    private Channel channel;
+    private List<Record> records;
+    private List<List<Record>> chunks;
+    private List<Record> pulled;
+
+    @Setup
+    public void setup()
+    {
+        channel = BenchmarkSupport.newChannel(BenchmarkSupport.channelConfiguration(BATCH * 2, bufferSize));
+        records = BenchmarkSupport.newRecords(BATCH);
+        chunks = new ArrayList<>();
+        for (int i = 0; i < BATCH; i += bufferSize) {
+            chunks.add(new ArrayList<>(records.subList(i, Math.min(i + bufferSize, BATCH))));
+        }
+        pulled = new ArrayList<>(bufferSize);
+    }
+
+    @Benchmark
+    public void pushPull(Blackhole bh)
+    {
+        for (Record record : records) {
+            channel.push(record);
+        }
+        for (int i = 0; i < BATCH; i++) {
+            bh.consume(channel.pull());
+        }
+    }
+
+    @Benchmark
+    public void pushAllPullAll(Blackhole bh)
+    {
+        for (List<Record> chunk : chunks) {
+            channel.pushAll(chunk);
+        }
+        int received = 0;
+        while (received < BATCH) {
+            channel.pullAll(pulled);
+            received += pulled.size();
+            bh.consume(pulled);
+        }
+    }
+}
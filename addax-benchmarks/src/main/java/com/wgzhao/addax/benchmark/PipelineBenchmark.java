@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.wgzhao.addax.benchmark;
+
+import com.wgzhao.addax.common.util.Configuration;
+import com.wgzhao.addax.core.transport.channel.Channel;
+import com.wgzhao.addax.core.transport.exchanger.BufferedRecordExchanger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 一个完整的 task：reader 线程生成记录，经 exchanger 和 MemoryChannel 交给 writer 线程，结果为每秒的记录数
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+@OperationsPerInvocation(PipelineBenchmark.RECORDS)
+public class PipelineBenchmark
+{
+    static final int RECORDS = 100_000;
+
+    @Param({"32", "256"})
+    public int bufferSize;
+
+    @Param({"2048"})
+    public int capacity;
+
+    @Benchmark
+    public long readerToWriter()
+            throws InterruptedException, ExecutionException
+    {
+        Configuration configuration = BenchmarkSupport.channelConfiguration(capacity, bufferSize);
+        Channel channel = BenchmarkSupport.newChannel(configuration);
+        BufferedRecordExchanger sender = new BufferedRecordExchanger(channel, BenchmarkSupport.NOOP_COLLECTOR);
+        BufferedRecordExchanger receiver = new BufferedRecordExchanger(channel, BenchmarkSupport.NOOP_COLLECTOR);
+
+        FutureTask<Long> writer = new FutureTask<>(() -> new SyntheticWriter().startWrite(receiver));
+        Thread writerThread = new Thread(writer, "synthetic-writer");
+        writerThread.start();
+
+        new SyntheticReader(RECORDS).startRead(sender);
+        sender.terminate();
+        return writer.get();
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.wgzhao.addax.benchmark;
+
+import com.wgzhao.addax.common.element.BoolColumn;
+import com.wgzhao.addax.common.element.Column;
+import com.wgzhao.addax.common.element.DateColumn;
+import com.wgzhao.addax.common.element.DoubleColumn;
+import com.wgzhao.addax.common.element.LongColumn;
+import com.wgzhao.addax.common.element.Record;
+import com.wgzhao.addax.common.element.StringColumn;
+import com.wgzhao.addax.core.transport.record.DefaultRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DefaultRecord 的创建以及列替换，每次添加或替换列都会重新计算记录的大小
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RecordBenchmark
+{
+    private long id;
+    private Record record;
+    private Column[] replacements;
+
+    @Setup
+    public void setup()
+    {
+        record = BenchmarkSupport.fillRecord(new DefaultRecord(), 1);
+        replacements = new Column[] {
+                new LongColumn(2L),
+                new StringColumn("name-2"),
+                new DoubleColumn(3.0d),
+                new DateColumn(1609430402000L),
+                new BoolColumn(true),
+                new StringColumn("replaced")
+        };
+    }
+
+    @Benchmark
+    public Record createRecord()
+    {
+        return BenchmarkSupport.fillRecord(new DefaultRecord(), id++);
+    }
+
+    @Benchmark
+    public int setColumn()
+    {
+        for (int i = 0; i < replacements.length; i++) {
+            record.setColumn(i, replacements[i]);
+        }
+        return record.getMemorySize();
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.wgzhao.addax.benchmark;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import com.wgzhao.addax.common.element.BoolColumn;
+import com.wgzhao.addax.common.element.BytesColumn;
+import com.wgzhao.addax.common.element.Column;
+import com.wgzhao.addax.common.element.DateColumn;
+import com.wgzhao.addax.common.element.DoubleColumn;
+import com.wgzhao.addax.common.element.LongColumn;
+import com.wgzhao.addax.common.element.Record;
+import com.wgzhao.addax.common.element.RecordCodec;
+import com.wgzhao.addax.common.element.StringColumn;
+import com.wgzhao.addax.core.transport.record.DefaultRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RecordCodec 与 JSON(DefaultRecord.toString 使用的 fastjson)编码、解码一条典型记录的对比
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RecordCodecBenchmark
+{
+    private final RecordCodec codec = new RecordCodec();
+    private Record record;
+    private Record reuse;
+    private byte[] binary;
+    private byte[] json;
+
+    @Setup
+    public void setup()
+    {
+        record = BenchmarkSupport.fillRecord(new DefaultRecord(), 1234567);
+        binary = codec.toByteArray(record);
+        json = record.toString().getBytes(StandardCharsets.UTF_8);
+        reuse = codec.decode(binary, new DefaultRecord());
+    }
+
+    @Benchmark
+    public int encodeBinary()
+    {
+        return codec.encode(record);
+    }
+
+    @Benchmark
+    public byte[] encodeJson()
+    {
+        return record.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public Record decodeBinary()
+    {
+        return codec.decode(binary, new DefaultRecord());
+    }
+
+    @Benchmark
+    public Record decodeBinaryReuse()
+    {
+        return codec.decode(binary, reuse);
+    }
+
+    /**
+     * 按 toString 输出的 type 及 rawData 重建记录
+     */
+    @Benchmark
+    public Record decodeJson()
+    {
+        JSONArray data = JSON.parseObject(new String(json, StandardCharsets.UTF_8)).getJSONArray("data");
+        Record result = new DefaultRecord();
+        for (int i = 0; i < data.size(); i++) {
+            JSONObject column = data.getJSONObject(i);
+            result.addColumn(column == null ? null : toColumn(column));
+        }
+        return result;
+    }
+
+    private static Column toColumn(JSONObject column)
+    {
+        switch (Column.Type.valueOf(column.getString("type"))) {
+            case LONG:
+                return new LongColumn(column.getBigInteger("rawData"));
+            case DOUBLE:
+                return new DoubleColumn(column.getString("rawData"));
+            case BOOL:
+                return new BoolColumn(column.getBoolean("rawData"));
+            case DATE:
+                DateColumn date = new DateColumn(column.getLong("rawData"));
+                date.setSubType(DateColumn.DateType.valueOf(column.getString("subType")));
+                return date;
+            case BYTES:
+                return new BytesColumn(column.getBytes("rawData"));
+            default:
+                return new StringColumn(column.getString("rawData"));
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.wgzhao.addax.benchmark;
+
+import com.wgzhao.addax.common.element.Record;
+import com.wgzhao.addax.common.util.Configuration;
+import com.wgzhao.addax.core.transport.channel.Channel;
+import com.wgzhao.addax.core.transport.exchanger.BufferedRecordExchanger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BufferedRecordExchanger 单线程的发送和接收，reader 与 writer 各自使用一个 exchanger，与 TaskExecutor 相同
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+@OperationsPerInvocation(RecordExchangerBenchmark.BATCH)
+public class RecordExchangerBenchmark
+{
+    static final int BATCH = 1024;
+
+    @Param({"32", "256"})
+    public int bufferSize;
+
+    private BufferedRecordExchanger sender;
+    private BufferedRecordExchanger receiver;
+    private List<Record> records;
+
+    @Setup
+    public void setup()
+    {
+        Configuration configuration = BenchmarkSupport.channelConfiguration(BATCH * 2, bufferSize);
+        Channel channel = BenchmarkSupport.newChannel(configuration);
+        sender = new BufferedRecordExchanger(channel, BenchmarkSupport.NOOP_COLLECTOR);
+        receiver = new BufferedRecordExchanger(channel, BenchmarkSupport.NOOP_COLLECTOR);
+        records = BenchmarkSupport.newRecords(BATCH);
+    }
+
+    @Benchmark
+    public void sendReceive(Blackhole bh)
+    {
+        for (Record record : records) {
+            sender.sendToWriter(record);
+        }
+        sender.flush();
+        for (int i = 0; i < BATCH; i++) {
+            bh.consume(receiver.getFromReader());
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.wgzhao.addax.benchmark;
+
+import com.wgzhao.addax.common.element.Record;
+import com.wgzhao.addax.common.plugin.RecordSender;
+import com.wgzhao.addax.common.util.Configuration;
+import com.wgzhao.addax.core.transport.record.DefaultRecord;
+import com.wgzhao.addax.storage.reader.StorageReaderUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * txtfilereader、ftpreader 等共用的 CSV 解析：分列以及按列配置转换类型，结果为每秒的行数
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+@OperationsPerInvocation(StorageReaderBenchmark.LINES)
+public class StorageReaderBenchmark
+{
+    static final int LINES = 10_000;
+
+    private static final String READER_CONF = "{\"fieldDelimiter\":\",\",\"encoding\":\"UTF-8\",\"nullFormat\":\"\\\\N\","
+            + "\"column\":[{\"index\":0,\"type\":\"long\"},{\"index\":1,\"type\":\"string\"},{\"index\":2,\"type\":\"double\"},"
+            + "{\"index\":3,\"type\":\"date\",\"format\":\"yyyy-MM-dd HH:mm:ss\"},{\"index\":4,\"type\":\"boolean\"},"
+            + "{\"index\":5,\"type\":\"string\"}]}";
+
+    private Configuration readerConfiguration;
+    private String content;
+    private String[] lines;
+
+    @Setup
+    public void setup()
+    {
+        readerConfiguration = Configuration.from(READER_CONF);
+        StringBuilder sb = new StringBuilder(LINES * 96);
+        lines = new String[LINES];
+        for (int i = 0; i < LINES; i++) {
+            lines[i] = String.format("%d,name-%d,%.2f,2021-07-30 06:%02d:%02d,%s,The quick brown fox jumps over the lazy dog",
+                    i, i, i * 1.5d, (i / 60) % 60, i % 60, i % 2 == 0);
+            sb.append(lines[i]).append('\n');
+        }
+        content = sb.toString();
+    }
+
+    @Benchmark
+    public long readCsv()
+    {
+        CountingRecordSender sender = new CountingRecordSender();
+        StorageReaderUtil.doReadFromStream(new BufferedReader(new StringReader(content)), "benchmark",
+                readerConfiguration, sender, BenchmarkSupport.NOOP_COLLECTOR);
+        return sender.columns;
+    }
+
+    @Benchmark
+    public long splitOneLine()
+    {
+        long columns = 0;
+        for (String line : lines) {
+            columns += StorageReaderUtil.splitOneLine(line, ',').length;
+        }
+        return columns;
+    }
+
+    private static final class CountingRecordSender
+            implements RecordSender
+    {
+        long columns = 0;
+
+        @Override
+        public Record createRecord()
+        {
+            return new DefaultRecord();
+        }
+
+        @Override
+        public void sendToWriter(Record record)
+        {
+            columns += record.getColumnNumber();
+        }
+
+        @Override
+        public void flush()
+        {
+            //
+        }
+
+        @Override
+        public void terminate()
+        {
+            //
+        }
+
+        @Override
+        public void shutdown()
+        {
+            //
+        }
+    }
+}
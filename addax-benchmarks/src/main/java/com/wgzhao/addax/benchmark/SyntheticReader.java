@@ -0,0 +1,48 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.wgzhao.addax.benchmark;
+
+import com.wgzhao.addax.common.plugin.RecordSender;
+
+/**
+ * 在内存中生成记录的 reader，与 streamreader 一样每条记录都创建新的 Column
+ */
+public final class SyntheticReader
+{
+    private final long records;
+
+    public SyntheticReader(long records)
+    {
+        this.records = records;
+    }
+
+    /**
+     * 发送所有记录，不调用 terminate，与 Reader.Task#startRead 相同
+     *
+     * @param recordSender sender
+     */
+    public void startRead(RecordSender recordSender)
+    {
+        for (long i = 0; i < records; i++) {
+            recordSender.sendToWriter(BenchmarkSupport.fillRecord(recordSender.createRecord(), i));
+        }
+    }
+}
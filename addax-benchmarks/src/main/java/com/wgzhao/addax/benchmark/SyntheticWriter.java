@@ -0,0 +1,46 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.wgzhao.addax.benchmark;
+
+import com.wgzhao.addax.common.element.Record;
+import com.wgzhao.addax.common.plugin.RecordReceiver;
+
+/**
+ * 只读取记录的 writer，读取每条记录的大小防止被 JIT 优化掉
+ */
+public final class SyntheticWriter
+{
+    /**
+     * 读取到 reader 结束为止
+     *
+     * @param recordReceiver receiver
+     * @return 所有记录的字节数之和
+     */
+    public long startWrite(RecordReceiver recordReceiver)
+    {
+        long bytes = 0;
+        Record record;
+        while ((record = recordReceiver.getFromReader()) != null) {
+            bytes += record.getByteSize();
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,414 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.wgzhao.addax.benchmark.e2e;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import com.alibaba.fastjson.serializer.SerializerFeature;
+import com.wgzhao.addax.common.util.Configuration;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+import java.util.regex.Pattern;
+
+/**
+ * 端到端的吞吐量测试：按测试矩阵运行一组作业，每次运行使用一个新的 JVM，
+ * 记录行数/秒、字节数/秒、CPU 以及 GC，输出 json 格式的报告，并可以与基线报告比较，用于发布前的性能检查
+ * <p>
+ * 作业使用已安装的 addax(-home)中的插件，真实的外部存储由测试进程中的 {@link StandIn} 代替
+ */
+public class EndToEndBenchmark
+{
+    private static final String DEFAULT_MATRIX = "e2e/matrix.json";
+    private static final double DEFAULT_TOLERANCE = 10.0;
+
+    private final File home;
+    private final File workDir;
+    private final List<String> jvmArgs;
+    private final long timeoutSeconds;
+    private final boolean keep;
+
+    private EndToEndBenchmark(File home, File workDir, List<String> jvmArgs, long timeoutSeconds, boolean keep)
+    {
+        this.home = home;
+        this.workDir = workDir;
+        this.jvmArgs = jvmArgs;
+        this.timeoutSeconds = timeoutSeconds;
+        this.keep = keep;
+    }
+
+    public static void main(String[] args)
+            throws Exception
+    {
+        Options options = new Options();
+        options.addOption("home", true, "addax home with the plugins to test, default $ADDAX_HOME");
+        options.addOption("matrix", true, "matrix file, default is the built-in " + DEFAULT_MATRIX);
+        options.addOption("scenario", true, "regexp to select scenarios");
+        options.addOption("repeat", true, "runs of every scenario and channel, overrides the matrix");
+        options.addOption("scale", true, "multiply the records of every scenario, e.g. 0.01 for a smoke test");
+        options.addOption("output", true, "report file, default e2e-report.json");
+        options.addOption("workDir", true, "directory for job files, logs and output data");
+        options.addOption("label", true, "label of this run recorded in the report, e.g. a commit id");
+        options.addOption("baseline", true, "baseline report to compare with");
+        options.addOption("tolerance", true, "allowed rows/s regression in percent against the baseline, default "
+                + DEFAULT_TOLERANCE);
+        options.addOption("keep", false, "keep the output data of every run");
+        options.addOption("help", false, "print this message");
+
+        CommandLine cl;
+        try {
+            cl = new DefaultParser().parse(options, args);
+        }
+        catch (ParseException e) {
+            System.err.println(e.getMessage());
+            new HelpFormatter().printHelp("EndToEndBenchmark", options);
+            System.exit(2);
+            return;
+        }
+        if (cl.hasOption("help")) {
+            new HelpFormatter().printHelp("EndToEndBenchmark", options);
+            return;
+        }
+        String homePath = cl.getOptionValue("home", System.getenv("ADDAX_HOME"));
+        if (homePath == null || !new File(homePath, "plugin").isDirectory()) {
+            System.err.println("-home or ADDAX_HOME must point to an installed addax, got " + homePath);
+            System.exit(2);
+        }
+
+        Configuration matrix;
+        File matrixDir = null;
+        if (cl.hasOption("matrix")) {
+            File matrixFile = new File(cl.getOptionValue("matrix"));
+            matrix = Configuration.from(matrixFile);
+            matrixDir = matrixFile.getAbsoluteFile().getParentFile();
+        }
+        else {
+            try (InputStream in = EndToEndBenchmark.class.getClassLoader().getResourceAsStream(DEFAULT_MATRIX)) {
+                matrix = Configuration.from(in);
+            }
+        }
+        double scale = Double.parseDouble(cl.getOptionValue("scale", "1"));
+        List<Scenario> scenarios = Scenario.parse(matrix, matrixDir, scale);
+        if (cl.hasOption("scenario")) {
+            Pattern pattern = Pattern.compile(cl.getOptionValue("scenario"));
+            scenarios.removeIf(s -> !pattern.matcher(s.name).find());
+        }
+        int repeat = Integer.parseInt(cl.getOptionValue("repeat", String.valueOf(matrix.getInt("repeat", 3))));
+
+        File workDir = cl.hasOption("workDir") ? new File(cl.getOptionValue("workDir"))
+                : new File(System.getProperty("java.io.tmpdir"), "addax-e2e-" + System.currentTimeMillis());
+        FileUtils.forceMkdir(workDir);
+
+        List<String> jvmArgs = matrix.getList("jvmArgs", new ArrayList<>(), String.class);
+        EndToEndBenchmark benchmark = new EndToEndBenchmark(new File(homePath).getAbsoluteFile(), workDir.getAbsoluteFile(),
+                jvmArgs, matrix.getLong("timeout", 1800L), cl.hasOption("keep"));
+
+        JSONObject report = new JSONObject(true);
+        report.put("label", cl.getOptionValue("label", ""));
+        report.put("startTime", new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date()));
+        report.put("environment", environment(jvmArgs, scale, repeat));
+        JSONArray runs = new JSONArray();
+        for (Scenario scenario : scenarios) {
+            runs.addAll(benchmark.run(scenario, repeat));
+        }
+        report.put("runs", runs);
+        JSONArray summary = summarize(runs);
+        report.put("summary", summary);
+        printSummary(summary);
+
+        boolean passed = true;
+        for (Object run : runs) {
+            passed &= ((JSONObject) run).getBooleanValue("success");
+        }
+        if (cl.hasOption("baseline")) {
+            double tolerance = Double.parseDouble(cl.getOptionValue("tolerance", String.valueOf(DEFAULT_TOLERANCE)));
+            JSONObject baseline = JSON.parseObject(FileUtils.readFileToString(new File(cl.getOptionValue("baseline")),
+                    StandardCharsets.UTF_8));
+            JSONObject gate = gate(baseline.getJSONArray("summary"), summary, tolerance);
+            report.put("gate", gate);
+            passed &= gate.getBooleanValue("passed");
+        }
+        report.put("passed", passed);
+
+        File output = new File(cl.getOptionValue("output", "e2e-report.json"));
+        FileUtils.writeStringToFile(output, JSON.toJSONString(report, SerializerFeature.PrettyFormat), StandardCharsets.UTF_8);
+        System.out.printf("%nreport: %s, work dir: %s, %s%n", output.getAbsolutePath(), workDir, passed ? "PASSED" : "FAILED");
+        System.exit(passed ? 0 : 1);
+    }
+
+    private List<JSONObject> run(Scenario scenario, int repeat)
+            throws Exception
+    {
+        List<JSONObject> results = new ArrayList<>();
+        StandIn standIn = scenario.standIn == null ? null : StandIn.create(scenario.standIn);
+        try {
+            Map<String, String> variables = new HashMap<>();
+            if (standIn != null) {
+                variables.putAll(standIn.start());
+            }
+            for (int channel : scenario.channels) {
+                for (int i = 1; i <= repeat; i++) {
+                    JSONObject result = runOnce(scenario, channel, i, standIn, variables);
+                    System.out.printf("%-28s channel %-3d run %d: %s%n", scenario.name, channel, i, result.getBooleanValue("success")
+                            ? String.format("%,.0f rows/s, %,.1f MB/s, cpu %.1fs, gc %dms", result.getDoubleValue("rowsPerSecond"),
+                            result.getDoubleValue("bytesPerSecond") / 1024 / 1024, result.getDoubleValue("cpuSeconds"),
+                            result.getLongValue("gcTimeMillis"))
+                            : "FAILED " + result.getString("error") + ", see " + result.getString("log"));
+                    results.add(result);
+                }
+            }
+        }
+        finally {
+            if (standIn != null) {
+                standIn.close();
+            }
+        }
+        return results;
+    }
+
+    private JSONObject runOnce(Scenario scenario, int channel, int iteration, StandIn standIn, Map<String, String> standInVariables)
+            throws Exception
+    {
+        File runDir = new File(workDir, String.format("%s-c%d-%d", scenario.name, channel, iteration));
+        File outputDir = new File(runDir, "output");
+        FileUtils.forceMkdir(outputDir);
+
+        Map<String, String> variables = new HashMap<>(standInVariables);
+        variables.put("records", String.valueOf(scenario.records));
+        variables.put("channel", String.valueOf(channel));
+        // streamreader 的每个 channel 各产生 sliceRecordCount 条记录
+        variables.put("sliceRecordCount", String.valueOf((scenario.records + channel - 1) / channel));
+        variables.put("outputDir", outputDir.getAbsolutePath());
+        File jobFile = new File(runDir, "job.json");
+        FileUtils.writeStringToFile(jobFile, scenario.render(variables), StandardCharsets.UTF_8);
+
+        if (standIn != null) {
+            standIn.beforeRun(scenario.records, scenario.preload);
+        }
+
+        File resultFile = new File(runDir, "result.json");
+        File logFile = new File(runDir, "console.log");
+        List<String> command = new ArrayList<>();
+        command.add(new File(System.getProperty("java.home"), "bin/java").getAbsolutePath());
+        command.addAll(jvmArgs);
+        command.add("-Dfile.encoding=UTF-8");
+        command.add("-Daddax.home=" + home);
+        command.add("-Daddax.log=" + runDir);
+        command.add("-Dlog.file.name=addax.log");
+        command.add("-Dlogback.configurationFile=" + new File(home, "conf/logback.xml"));
+        command.add("-classpath");
+        command.add(classpath());
+        command.add(JobRunner.class.getName());
+        command.add(jobFile.getAbsolutePath());
+        command.add(resultFile.getAbsolutePath());
+
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(logFile).start();
+        boolean finished = process.waitFor(timeoutSeconds, TimeUnit.SECONDS);
+        if (!finished) {
+            process.destroyForcibly().waitFor();
+        }
+
+        JSONObject result = new JSONObject(true);
+        result.put("scenario", scenario.name);
+        result.put("channel", channel);
+        result.put("iteration", iteration);
+        if (resultFile.exists()) {
+            result.putAll(JSON.parseObject(FileUtils.readFileToString(resultFile, StandardCharsets.UTF_8)));
+        }
+        else {
+            result.put("success", false);
+            result.put("error", finished ? "the job process exited with " + process.exitValue()
+                    : "timeout after " + timeoutSeconds + "s");
+        }
+        if (standIn != null) {
+            result.put("standIn", standIn.afterRun());
+        }
+        result.put("log", logFile.getAbsolutePath());
+        if (!keep) {
+            FileUtils.deleteQuietly(outputDir);
+        }
+        return result;
+    }
+
+    /*
+     * 作业进程只使用 addax 自身的 lib 目录，加上本模块(不含 shade 的依赖)以及 JDBC 驱动，
+     * 保证插件的类加载与正式运行时一致
+     */
+    private String classpath()
+            throws IOException, URISyntaxException
+    {
+        Properties properties = new Properties();
+        try (InputStream in = EndToEndBenchmark.class.getClassLoader().getResourceAsStream("e2e/runner.properties")) {
+            properties.load(in);
+        }
+        File jarDir = new File(EndToEndBenchmark.class.getProtectionDomain().getCodeSource().getLocation().toURI())
+                .getParentFile();
+        return String.join(File.pathSeparator,
+                new File(home, "lib").getAbsolutePath() + File.separator + "*",
+                new File(jarDir, properties.getProperty("jar")).getAbsolutePath(),
+                new File(jarDir, properties.getProperty("lib")).getAbsolutePath() + File.separator + "*");
+    }
+
+    private static Map<String, Object> environment(List<String> jvmArgs, double scale, int repeat)
+    {
+        Map<String, Object> environment = new LinkedHashMap<>();
+        environment.put("javaVersion", System.getProperty("java.version"));
+        environment.put("javaVm", System.getProperty("java.vm.name"));
+        environment.put("os", System.getProperty("os.name") + " " + System.getProperty("os.version") + " " + System.getProperty("os.arch"));
+        environment.put("processors", Runtime.getRuntime().availableProcessors());
+        environment.put("jvmArgs", jvmArgs);
+        environment.put("scale", scale);
+        environment.put("repeat", repeat);
+        return environment;
+    }
+
+    /*
+     * 按场景和 channel 汇总，取各次运行的中位数
+     */
+    private static JSONArray summarize(JSONArray runs)
+    {
+        Map<String, List<JSONObject>> groups = new LinkedHashMap<>();
+        for (Object run : runs) {
+            JSONObject r = (JSONObject) run;
+            groups.computeIfAbsent(r.getString("scenario") + "/" + r.getIntValue("channel"), k -> new ArrayList<>()).add(r);
+        }
+        JSONArray summary = new JSONArray();
+        for (List<JSONObject> group : groups.values()) {
+            List<JSONObject> succeeded = new ArrayList<>();
+            for (JSONObject r : group) {
+                if (r.getBooleanValue("success")) {
+                    succeeded.add(r);
+                }
+            }
+            JSONObject s = new JSONObject(true);
+            s.put("scenario", group.get(0).getString("scenario"));
+            s.put("channel", group.get(0).getIntValue("channel"));
+            s.put("runs", group.size());
+            s.put("failed", group.size() - succeeded.size());
+            if (!succeeded.isEmpty()) {
+                s.put("records", succeeded.get(0).getLongValue("records"));
+                s.put("rowsPerSecond", median(succeeded, r -> r.getDoubleValue("rowsPerSecond")));
+                s.put("minRowsPerSecond", succeeded.stream().mapToDouble(r -> r.getDoubleValue("rowsPerSecond")).min().orElse(0));
+                s.put("maxRowsPerSecond", succeeded.stream().mapToDouble(r -> r.getDoubleValue("rowsPerSecond")).max().orElse(0));
+                s.put("bytesPerSecond", median(succeeded, r -> r.getDoubleValue("bytesPerSecond")));
+                s.put("seconds", median(succeeded, r -> r.getDoubleValue("seconds")));
+                s.put("cpuSeconds", median(succeeded, r -> r.getDoubleValue("cpuSeconds")));
+                s.put("gcCount", median(succeeded, r -> r.getDoubleValue("gcCount")));
+                s.put("gcTimeMillis", median(succeeded, r -> r.getDoubleValue("gcTimeMillis")));
+                s.put("peakHeapBytes", median(succeeded, r -> r.getDoubleValue("peakHeapBytes")));
+            }
+            summary.add(s);
+        }
+        return summary;
+    }
+
+    private static double median(List<JSONObject> runs, ToDoubleFunction<JSONObject> metric)
+    {
+        double[] values = runs.stream().mapToDouble(metric).sorted().toArray();
+        int mid = values.length / 2;
+        return values.length % 2 == 1 ? values[mid] : (values[mid - 1] + values[mid]) / 2;
+    }
+
+    /*
+     * 与基线比较 rows/s 的中位数，下降超过 tolerance% 的场景视为退化。基线中没有的场景不参与比较
+     */
+    private static JSONObject gate(JSONArray baseline, JSONArray summary, double tolerance)
+    {
+        Map<String, JSONObject> base = new HashMap<>();
+        for (Object o : baseline) {
+            JSONObject s = (JSONObject) o;
+            base.put(s.getString("scenario") + "/" + s.getIntValue("channel"), s);
+        }
+        JSONArray comparisons = new JSONArray();
+        boolean passed = true;
+        for (Object o : summary) {
+            JSONObject s = (JSONObject) o;
+            JSONObject b = base.get(s.getString("scenario") + "/" + s.getIntValue("channel"));
+            if (b == null || !b.containsKey("rowsPerSecond")) {
+                continue;
+            }
+            if (s.containsKey("records") && s.getLongValue("records") != b.getLongValue("records")) {
+                // 记录数不同时作业启动等固定开销的占比不同，结果不可比
+                System.out.printf("%-28s channel %-3d skipped, %d records in baseline but %d now%n", s.getString("scenario"),
+                        s.getIntValue("channel"), b.getLongValue("records"), s.getLongValue("records"));
+                continue;
+            }
+            JSONObject c = new JSONObject(true);
+            c.put("scenario", s.getString("scenario"));
+            c.put("channel", s.getIntValue("channel"));
+            c.put("baseRowsPerSecond", b.getDoubleValue("rowsPerSecond"));
+            boolean regressed = true;
+            if (s.containsKey("rowsPerSecond")) {
+                double change = (s.getDoubleValue("rowsPerSecond") - b.getDoubleValue("rowsPerSecond"))
+                        / b.getDoubleValue("rowsPerSecond") * 100;
+                c.put("rowsPerSecond", s.getDoubleValue("rowsPerSecond"));
+                c.put("changePercent", change);
+                regressed = change < -tolerance;
+            }
+            c.put("regressed", regressed);
+            passed &= !regressed;
+            comparisons.add(c);
+            System.out.printf("%-28s channel %-3d %s%n", c.getString("scenario"), c.getIntValue("channel"), regressed
+                    ? String.format("REGRESSED %.1f%%", c.getDoubleValue("changePercent"))
+                    : String.format("%+.1f%%", c.getDoubleValue("changePercent")));
+        }
+        JSONObject gate = new JSONObject(true);
+        gate.put("tolerancePercent", tolerance);
+        gate.put("passed", passed);
+        gate.put("comparisons", comparisons);
+        return gate;
+    }
+
+    private static void printSummary(JSONArray summary)
+    {
+        System.out.printf("%n%-28s %7s %5s %14s %10s %9s %9s%n", "Scenario", "Channel", "Runs", "Rows/s", "MB/s", "CPU(s)", "GC(ms)");
+        for (Object o : summary) {
+            JSONObject s = (JSONObject) o;
+            if (!s.containsKey("rowsPerSecond")) {
+                System.out.printf("%-28s %7d %5d %14s%n", s.getString("scenario"), s.getIntValue("channel"), s.getIntValue("runs"), "FAILED");
+                continue;
+            }
+            System.out.printf("%-28s %7d %5d %,14.0f %10.1f %9.1f %9.0f%n", s.getString("scenario"), s.getIntValue("channel"),
+                    s.getIntValue("runs"), s.getDoubleValue("rowsPerSecond"), s.getDoubleValue("bytesPerSecond") / 1024 / 1024,
+                    s.getDoubleValue("cpuSeconds"), s.getDoubleValue("gcTimeMillis"));
+        }
+    }
+}
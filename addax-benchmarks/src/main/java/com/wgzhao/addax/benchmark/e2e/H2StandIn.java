@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.wgzhao.addax.benchmark.e2e;
+
+import org.h2.tools.Server;
+
+import java.net.ServerSocket;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 以 TCP 方式提供的 H2 内存数据库，代替 rdbmsreader、rdbmswriter 的真实数据库。
+ * 只有一张表 addax_bench，列与 streamreader 的模板一致
+ */
+class H2StandIn
+        implements StandIn
+{
+    static final String TABLE = "addax_bench";
+
+    private static final String CREATE_TABLE = "CREATE TABLE IF NOT EXISTS " + TABLE
+            + "(id BIGINT NOT NULL, name VARCHAR(64), score DOUBLE PRECISION, created TIMESTAMP, active BOOLEAN, remark VARCHAR(255))";
+
+    private static final String PRELOAD = "INSERT INTO " + TABLE
+            + " SELECT X, CONCAT('name-', X), X * 1.5, DATEADD(SECOND, X, TIMESTAMP '2021-07-30 06:30:00'), MOD(X, 2) = 0,"
+            + " 'The quick brown fox jumps over the lazy dog' FROM SYSTEM_RANGE(1, %d)";
+
+    private Server server;
+    // 持有一个连接，防止内存数据库在作业之间被关闭
+    private Connection connection;
+
+    @Override
+    public Map<String, String> start()
+            throws Exception
+    {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        server = Server.createTcpServer("-tcpPort", String.valueOf(port), "-ifNotExists").start();
+        String jdbcUrl = "jdbc:h2:tcp://127.0.0.1:" + port + "/mem:addax;DB_CLOSE_DELAY=-1";
+        connection = DriverManager.getConnection(jdbcUrl, "sa", "");
+        execute(CREATE_TABLE);
+
+        Map<String, String> variables = new HashMap<>();
+        variables.put("jdbcUrl", jdbcUrl);
+        variables.put("jdbcDriver", "org.h2.Driver");
+        variables.put("table", TABLE);
+        return variables;
+    }
+
+    @Override
+    public void beforeRun(long records, boolean preload)
+            throws SQLException
+    {
+        execute("TRUNCATE TABLE " + TABLE);
+        if (preload) {
+            execute(String.format(PRELOAD, records));
+        }
+    }
+
+    @Override
+    public Map<String, Object> afterRun()
+            throws SQLException
+    {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        try (Statement statement = connection.createStatement();
+                ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM " + TABLE)) {
+            rs.next();
+            stats.put("rows", rs.getLong(1));
+        }
+        return stats;
+    }
+
+    private void execute(String sql)
+            throws SQLException
+    {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        try {
+            if (connection != null) {
+                connection.close();
+            }
+        }
+        catch (SQLException ignored) {
+            //
+        }
+        if (server != null) {
+            server.stop();
+        }
+    }
+}
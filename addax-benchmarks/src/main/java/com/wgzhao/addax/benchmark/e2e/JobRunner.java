@@ -0,0 +1,166 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.wgzhao.addax.benchmark.e2e;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.serializer.SerializerFeature;
+import com.wgzhao.addax.common.util.Configuration;
+import com.wgzhao.addax.core.Engine;
+import com.wgzhao.addax.core.statistics.communication.Communication;
+import com.wgzhao.addax.core.statistics.communication.CommunicationTool;
+import com.wgzhao.addax.core.statistics.communication.LocalTGCommunicationManager;
+import com.wgzhao.addax.core.util.ConfigParser;
+import com.wgzhao.addax.core.util.ConfigurationValidate;
+import com.wgzhao.addax.core.util.container.CoreConstant;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.OperatingSystemMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 在独立的 JVM 中运行一个作业，并把吞吐量、CPU 及 GC 等统计信息写入结果文件。
+ * 由 {@link EndToEndBenchmark} 为每次运行启动一个新进程，统计只包括作业本身，不包括 JVM 的启动
+ * <p>
+ * 用法: JobRunner &lt;job.json&gt; &lt;result.json&gt;
+ */
+public class JobRunner
+{
+    private static final Logger LOG = LoggerFactory.getLogger(JobRunner.class);
+
+    private static final long JOB_ID = 0L;
+
+    private JobRunner() {}
+
+    public static void main(String[] args)
+            throws IOException
+    {
+        if (args.length != 2) {
+            System.err.println("usage: JobRunner <job.json> <result.json>");
+            System.exit(2);
+        }
+        Map<String, Object> result = run(args[0]);
+        Files.write(new File(args[1]).toPath(),
+                JSON.toJSONString(result, SerializerFeature.PrettyFormat).getBytes(StandardCharsets.UTF_8));
+        // 部分插件会遗留非 daemon 线程
+        System.exit(Boolean.TRUE.equals(result.get("success")) ? 0 : 1);
+    }
+
+    static Map<String, Object> run(String jobPath)
+    {
+        Map<String, Object> result = new LinkedHashMap<>();
+        OperatingSystemMXBean osBean = ManagementFactory.getOperatingSystemMXBean();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            pool.resetPeakUsage();
+        }
+        long startCpu = processCpuTime(osBean);
+        long startGcCount = gcCount();
+        long startGcTime = gcTime();
+        long start = System.nanoTime();
+        try {
+            Configuration configuration = ConfigParser.parse(jobPath);
+            configuration.set(CoreConstant.CORE_CONTAINER_JOB_ID, JOB_ID);
+            ConfigurationValidate.doValidate(configuration);
+            new Engine().start(configuration);
+            result.put("success", true);
+        }
+        catch (Throwable e) {
+            LOG.error("The job failed", e);
+            result.put("success", false);
+            result.put("error", String.valueOf(e.getMessage()));
+        }
+        long elapsed = System.nanoTime() - start;
+        long cpu = processCpuTime(osBean) - startCpu;
+
+        Communication communication = LocalTGCommunicationManager.getJobCommunication(JOB_ID);
+        long records = CommunicationTool.getTotalReadRecords(communication);
+        long bytes = CommunicationTool.getTotalReadBytes(communication);
+        double seconds = elapsed / 1e9;
+        result.put("seconds", seconds);
+        result.put("records", records);
+        result.put("bytes", bytes);
+        result.put("errorRecords", CommunicationTool.getTotalErrorRecords(communication));
+        result.put("rowsPerSecond", records / seconds);
+        result.put("bytesPerSecond", bytes / seconds);
+        result.put("waitReaderSeconds", communication.getLongCounter(CommunicationTool.WAIT_READER_TIME) / 1e9);
+        result.put("waitWriterSeconds", communication.getLongCounter(CommunicationTool.WAIT_WRITER_TIME) / 1e9);
+        if (cpu >= 0) {
+            result.put("cpuSeconds", cpu / 1e9);
+            // 相对于全部 CPU 核的利用率
+            result.put("cpuUtilization", cpu / (double) elapsed / osBean.getAvailableProcessors());
+        }
+        long gcTimeMillis = gcTime() - startGcTime;
+        result.put("gcCount", gcCount() - startGcCount);
+        result.put("gcTimeMillis", gcTimeMillis);
+        result.put("gcTimeRatio", gcTimeMillis / 1e3 / seconds);
+        result.put("peakHeapBytes", peakHeap());
+        return result;
+    }
+
+    private static long processCpuTime(OperatingSystemMXBean osBean)
+    {
+        if (osBean instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean) osBean).getProcessCpuTime();
+        }
+        return -1;
+    }
+
+    private static long gcCount()
+    {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(gc.getCollectionCount(), 0);
+        }
+        return count;
+    }
+
+    private static long gcTime()
+    {
+        long time = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            time += Math.max(gc.getCollectionTime(), 0);
+        }
+        return time;
+    }
+
+    /*
+     * 各个堆内存区域峰值之和，比实际的堆峰值略大
+     */
+    private static long peakHeap()
+    {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.getPeakUsage() != null) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.wgzhao.addax.benchmark.e2e;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * 只接收数据不做任何处理的 HTTP 服务，代替 doriswriter 的 Doris(stream load)以及 elasticsearchwriter 的 Elasticsearch(_bulk)。
+ * 收到的请求都返回成功，因此测试结果只反映写插件自身的编码、压缩和发送开销
+ */
+class MockHttpStandIn
+        implements StandIn
+{
+    private static final byte[] STREAM_LOAD_RESULT = "{\"Status\":\"Success\",\"Message\":\"OK\"}".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] BULK_RESULT = "{\"took\":1,\"errors\":false,\"items\":[]}".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] ACKNOWLEDGED = "{\"acknowledged\":true}".getBytes(StandardCharsets.UTF_8);
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicLong rows = new AtomicLong();
+
+    private HttpServer httpServer;
+    private ExecutorService executor;
+
+    @Override
+    public Map<String, String> start()
+            throws IOException
+    {
+        httpServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        httpServer.createContext("/", this::handle);
+        executor = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "mock-http");
+            t.setDaemon(true);
+            return t;
+        });
+        httpServer.setExecutor(executor);
+        httpServer.start();
+
+        Map<String, String> variables = new HashMap<>();
+        variables.put("httpEndpoint", "http://127.0.0.1:" + httpServer.getAddress().getPort());
+        return variables;
+    }
+
+    @Override
+    public void beforeRun(long records, boolean preload)
+    {
+        if (preload) {
+            throw new IllegalArgumentException("the http stand-in can not be used by readers");
+        }
+        requests.set(0);
+        bytes.set(0);
+        rows.set(0);
+    }
+
+    @Override
+    public Map<String, Object> afterRun()
+    {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("requests", requests.get());
+        stats.put("bytes", bytes.get());
+        stats.put("rows", rows.get());
+        return stats;
+    }
+
+    private void handle(HttpExchange exchange)
+            throws IOException
+    {
+        try {
+            String method = exchange.getRequestMethod();
+            String path = exchange.getRequestURI().getPath();
+            if ("HEAD".equals(method)) {
+                // elasticsearchwriter 判断索引是否存在
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            byte[] result = ACKNOWLEDGED;
+            if (path.endsWith("/_stream_load")) {
+                String compressType = exchange.getRequestHeaders().getFirst("compress_type");
+                if (compressType == null || "gz".equals(compressType)) {
+                    // csv 的行之间以换行分隔，最后一行之后没有换行
+                    long newlines = consume(exchange, "gz".equals(compressType));
+                    rows.addAndGet(newlines + 1);
+                }
+                else {
+                    consume(exchange, false);
+                }
+                result = STREAM_LOAD_RESULT;
+            }
+            else if (path.endsWith("/_bulk")) {
+                // 每个文档有 action 及 source 两行
+                long newlines = consume(exchange, "gzip".equals(exchange.getRequestHeaders().getFirst("Content-Encoding")));
+                rows.addAndGet(newlines / 2);
+                result = BULK_RESULT;
+            }
+            else {
+                consume(exchange, false);
+            }
+            requests.incrementAndGet();
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, result.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(result);
+            }
+        }
+        finally {
+            exchange.close();
+        }
+    }
+
+    /*
+     * 读取全部请求体，返回其中换行符的个数
+     */
+    private long consume(HttpExchange exchange, boolean gzip)
+            throws IOException
+    {
+        CountingInputStream counting = new CountingInputStream(exchange.getRequestBody());
+        long newlines = 0;
+        try (InputStream in = gzip ? new GZIPInputStream(counting) : counting) {
+            byte[] buffer = new byte[64 * 1024];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                for (int i = 0; i < n; i++) {
+                    if (buffer[i] == '\n') {
+                        newlines++;
+                    }
+                }
+            }
+        }
+        bytes.addAndGet(counting.count);
+        return newlines;
+    }
+
+    @Override
+    public void close()
+    {
+        if (httpServer != null) {
+            httpServer.stop(0);
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    private static final class CountingInputStream
+            extends InputStream
+    {
+        private final InputStream in;
+        long count;
+
+        CountingInputStream(InputStream in)
+        {
+            this.in = in;
+        }
+
+        @Override
+        public int read()
+                throws IOException
+        {
+            int b = in.read();
+            if (b != -1) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len)
+                throws IOException
+        {
+            int n = in.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        @Override
+        public void close()
+                throws IOException
+        {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.wgzhao.addax.benchmark.e2e;
+
+import com.wgzhao.addax.common.util.Configuration;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 测试矩阵中的一个场景：一个作业模板，以及要测试的 channel 数
+ * <p>
+ * 作业模板中可以使用 ${records}、${channel}、${sliceRecordCount}、${outputDir} 以及 stand-in 提供的变量，
+ * 如 ${jdbcUrl}、${httpEndpoint}
+ */
+class Scenario
+{
+    private static final Pattern VARIABLE = Pattern.compile("\\$\\{(\\w+)}");
+
+    final String name;
+    final String template;
+    final String standIn;
+    // 是否由 stand-in 预先准备 records 条数据，用于测试读插件
+    final boolean preload;
+    final long records;
+    final List<Integer> channels;
+
+    private Scenario(String name, String template, String standIn, boolean preload, long records, List<Integer> channels)
+    {
+        this.name = name;
+        this.template = template;
+        this.standIn = standIn;
+        this.preload = preload;
+        this.records = records;
+        this.channels = channels;
+    }
+
+    /**
+     * @param matrix 测试矩阵
+     * @param baseDir 矩阵文件所在目录，用于查找作业模板；为 null 时从 classpath 的 e2e 目录查找
+     * @param scale 记录数的缩放比例
+     * @return 矩阵中的所有场景
+     * @throws IOException 读取作业模板失败
+     */
+    static List<Scenario> parse(Configuration matrix, File baseDir, double scale)
+            throws IOException
+    {
+        List<Scenario> scenarios = new ArrayList<>();
+        for (Configuration conf : matrix.getListConfiguration("scenarios")) {
+            String name = conf.getString("name");
+            String job = conf.getString("job");
+            if (name == null || job == null) {
+                throw new IllegalArgumentException("every scenario requires name and job: " + conf.toJSON());
+            }
+            long records = Math.max(1, (long) (conf.getLong("records", 1_000_000L) * scale));
+            List<Integer> channels = conf.getList("channel", Collections.singletonList(1), Integer.class);
+            scenarios.add(new Scenario(name, loadTemplate(baseDir, job), conf.getString("standIn"),
+                    conf.getBool("preload", false), records, channels));
+        }
+        return scenarios;
+    }
+
+    private static String loadTemplate(File baseDir, String job)
+            throws IOException
+    {
+        if (baseDir != null) {
+            return FileUtils.readFileToString(new File(baseDir, job), StandardCharsets.UTF_8);
+        }
+        try (InputStream in = Scenario.class.getClassLoader().getResourceAsStream("e2e/" + job)) {
+            if (in == null) {
+                throw new IOException("job template e2e/" + job + " not found in classpath");
+            }
+            return IOUtils.toString(in, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * 替换作业模板中的变量
+     *
+     * @param variables 变量
+     * @return 作业配置
+     */
+    String render(Map<String, String> variables)
+    {
+        Matcher matcher = VARIABLE.matcher(template);
+        StringBuffer sb = new StringBuffer();
+        while (matcher.find()) {
+            String value = variables.get(matcher.group(1));
+            if (value == null) {
+                throw new IllegalArgumentException("scenario " + name + " uses an unknown variable " + matcher.group());
+            }
+            matcher.appendReplacement(sb, Matcher.quoteReplacement(value));
+        }
+        matcher.appendTail(sb);
+        return sb.toString();
+    }
+}
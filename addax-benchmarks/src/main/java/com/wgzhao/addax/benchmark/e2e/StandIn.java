@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.wgzhao.addax.benchmark.e2e;
+
+import java.io.Closeable;
+import java.util.Map;
+
+/**
+ * 代替真实存储的本地服务，在测试进程中启动，作业进程通过作业模板中的变量访问它
+ */
+interface StandIn
+        extends Closeable
+{
+    /**
+     * 启动服务
+     *
+     * @return 作业模板中可以引用的变量，如 jdbcUrl
+     * @throws Exception 启动失败
+     */
+    Map<String, String> start()
+            throws Exception;
+
+    /**
+     * 每次运行之前调用，清除上次运行写入的数据
+     *
+     * @param records 本次运行的记录数
+     * @param preload 是否预先写入 records 条记录供读插件读取
+     * @throws Exception 准备数据失败
+     */
+    void beforeRun(long records, boolean preload)
+            throws Exception;
+
+    /**
+     * 每次运行之后调用
+     *
+     * @return 服务端看到的统计信息，如收到的记录数、请求数，用于核对写插件的结果
+     * @throws Exception 获取统计信息失败
+     */
+    Map<String, Object> afterRun()
+            throws Exception;
+
+    static StandIn create(String name)
+    {
+        switch (name) {
+            case "h2":
+                return new H2StandIn();
+            case "http":
+                return new MockHttpStandIn();
+            default:
+                throw new IllegalArgumentException("unknown stand-in: " + name + ", available: h2, http");
+        }
+    }
+}
@@ -60,6 +60,8 @@ public class Constant
     public static final String QUERY_SQL_TEMPLATE_WITHOUT_WHERE = "select %s from %s ";
     public static final String TABLE_NAME_PLACEHOLDER = "@table";
     public static final String TABLE_NUMBER_MARK = "tableNumber";
+    // 增量读取时每个表需要追加的过滤条件，与 connection 中的 table 一一对应
+    public static final String INCREMENTAL_WHERE_MARK = "incrementalWhere";
 
     public static final Set<String> SUPPORTED_WRITE_MODE = new HashSet<>(Arrays.asList("append", "nonConflict", "overwrite", "truncate"));
     public static final Set<String> SUPPORTED_FILE_FORMAT = new HashSet<>(Arrays.asList("csv", "text"));
@@ -68,6 +68,21 @@ public class Key
     public static final String QUERY_SQL = "querySql";
     // The primary key will be split. string type
     public static final String SPLIT_PK = "splitPk";
+    // The timestamp column used to split by time range, mainly for time-series databases. string type
+    public static final String SPLIT_TIME_COLUMN = "splitTimeColumn";
+    // The inclusive lower bound of time range, format is 'yyyy-MM-dd HH:mm:ss'. string type
+    public static final String BEGIN_DATETIME = "beginDateTime";
+    // The exclusive upper bound of time range, format is 'yyyy-MM-dd HH:mm:ss'. string type
+    public static final String END_DATETIME = "endDateTime";
+    // Whether estimate the record count of each time window before splitting, default is true. boolean type
+    public static final String SPLIT_TIME_ESTIMATE = "splitTimeEstimate";
+    // The monotonically increasing column used to read the new records since the last run. string type
+    public static final String INCREMENTAL_COLUMN = "incrementalColumn";
+    // Read the records again whose incremental column is within this distance to the last watermark,
+    // in seconds for datetime column. number type
+    public static final String INCREMENTAL_LOOKBACK = "incrementalLookback";
+    // The directory where the watermarks are saved, default is ${addax.home}/watermark. string type
+    public static final String WATERMARK_PATH = "watermarkPath";
     // Auto guess table's split primary key, boolean type
     public static final String AUTO_PK = "autoPk";
     // The split number for each table, if primary key is present. numeric type
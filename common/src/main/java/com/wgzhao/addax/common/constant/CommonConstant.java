@@ -23,6 +23,12 @@ public final class CommonConstant
 {
     public static final String LOAD_BALANCE_RESOURCE_MARK = "loadBalanceResourceMark";
 
+    /**
+     * 用于插件对自身 split 的每个 task 估算其开销(如记录数、字节数)，只在同一个作业的 task 之间比较。
+     * core 会据此将 task 均衡地分配到各个 taskGroup 中，并优先运行开销大的 task
+     */
+    public static final String LOAD_BALANCE_COST = "loadBalanceCost";
+
     /**
      * 用于插件对自身 split 的每个 task 标识其使用的资源，以告知core 对 reader/writer split 之后的 task 进行拼接时需要根据资源标签进行更有意义的 shuffle 操作
      */
@@ -34,83 +34,108 @@ import java.util.TimeZone;
 
 public final class ColumnCast
 {
+    // 未绑定到线程时使用的全局转换设置
+    private static volatile Casts defaults = new Casts(Configuration.newDefault());
+    // 同一个进程中运行多个作业(server 模式)时，每个作业的线程及其创建的子线程使用各自的设置
+    private static final InheritableThreadLocal<Casts> current = new InheritableThreadLocal<>();
 
     private ColumnCast() {}
 
     public static void bind(final Configuration configuration)
     {
-        StringCast.init(configuration);
-        DateCast.init(configuration);
-        BytesCast.init(configuration);
+        defaults = new Casts(configuration);
+    }
+
+    /**
+     * 将转换设置绑定到当前线程，之后由当前线程创建的线程也使用该设置
+     *
+     * @param configuration 作业的完整配置
+     */
+    public static void bindCurrentThread(final Configuration configuration)
+    {
+        current.set(new Casts(configuration));
+    }
+
+    public static void unbindCurrentThread()
+    {
+        current.remove();
+    }
+
+    private static Casts casts()
+    {
+        Casts casts = current.get();
+        return casts == null ? defaults : casts;
     }
 
     public static Date string2Date(final StringColumn column)
             throws ParseException
     {
-        return StringCast.asDate(column);
+        return casts().stringCast.asDate(column);
     }
 
     public static byte[] string2Bytes(final StringColumn column)
             throws UnsupportedEncodingException
     {
-        return StringCast.asBytes(column);
+        return casts().stringCast.asBytes(column);
     }
 
     public static String date2String(final DateColumn column)
     {
-        return DateCast.asString(column);
+        return casts().dateCast.asString(column);
     }
 
     public static String bytes2String(final BytesColumn column)
             throws UnsupportedEncodingException
     {
-        return BytesCast.asString(column);
+        return casts().bytesCast.asString(column);
+    }
+
+    private static final class Casts
+    {
+        final StringCast stringCast;
+        final DateCast dateCast;
+        final BytesCast bytesCast;
+
+        Casts(final Configuration configuration)
+        {
+            this.stringCast = new StringCast(configuration);
+            this.dateCast = new DateCast(configuration);
+            this.bytesCast = new BytesCast(configuration);
+        }
     }
 }
 
 class StringCast
 {
 
-    static String datetimeFormat = "yyyy-MM-dd HH:mm:ss";
-    static String dateFormat = "yyyy-MM-dd";
-    static String timeFormat = "HH:mm:ss";
-    static List<String> extraFormats = Collections.emptyList();
-    static String timeZone = "GMT+8";
-    static FastDateFormat dateFormatter;
-    static FastDateFormat timeFormatter;
-    static FastDateFormat datetimeFormatter;
-    static TimeZone timeZoner;
-    static String encoding = "UTF-8";
-
-    private StringCast() {}
-
-    static void init(final Configuration configuration)
-    {
-        StringCast.datetimeFormat = configuration.getString(
-                "common.column.datetimeFormat", StringCast.datetimeFormat);
-        StringCast.dateFormat = configuration.getString(
-                "common.column.dateFormat", StringCast.dateFormat);
-        StringCast.timeFormat = configuration.getString(
-                "common.column.timeFormat", StringCast.timeFormat);
-        StringCast.extraFormats = configuration.getList(
+    private final List<String> extraFormats;
+    private final FastDateFormat dateFormatter;
+    private final FastDateFormat timeFormatter;
+    private final FastDateFormat datetimeFormatter;
+    private final TimeZone timeZoner;
+    private final String encoding;
+
+    StringCast(final Configuration configuration)
+    {
+        String datetimeFormat = configuration.getString(
+                "common.column.datetimeFormat", "yyyy-MM-dd HH:mm:ss");
+        String dateFormat = configuration.getString(
+                "common.column.dateFormat", "yyyy-MM-dd");
+        String timeFormat = configuration.getString(
+                "common.column.timeFormat", "HH:mm:ss");
+        this.extraFormats = configuration.getList(
                 "common.column.extraFormats", Collections.emptyList(), String.class);
 
-        StringCast.timeZone = configuration.getString("common.column.timeZone",
-                StringCast.timeZone);
-        StringCast.timeZoner = TimeZone.getTimeZone(StringCast.timeZone);
+        this.timeZoner = TimeZone.getTimeZone(configuration.getString("common.column.timeZone", "GMT+8"));
 
-        StringCast.datetimeFormatter = FastDateFormat.getInstance(
-                StringCast.datetimeFormat, StringCast.timeZoner);
-        StringCast.dateFormatter = FastDateFormat.getInstance(
-                StringCast.dateFormat, StringCast.timeZoner);
-        StringCast.timeFormatter = FastDateFormat.getInstance(
-                StringCast.timeFormat, StringCast.timeZoner);
+        this.datetimeFormatter = FastDateFormat.getInstance(datetimeFormat, this.timeZoner);
+        this.dateFormatter = FastDateFormat.getInstance(dateFormat, this.timeZoner);
+        this.timeFormatter = FastDateFormat.getInstance(timeFormat, this.timeZoner);
 
-        StringCast.encoding = configuration.getString("common.column.encoding",
-                StringCast.encoding);
+        this.encoding = configuration.getString("common.column.encoding", "UTF-8");
     }
 
-    static Date asDate(final StringColumn column)
+    Date asDate(final StringColumn column)
             throws ParseException
     {
         if (null == column.asString()) {
@@ -118,14 +143,14 @@ class StringCast
         }
 
         try {
-            return StringCast.datetimeFormatter.parse(column.asString());
+            return this.datetimeFormatter.parse(column.asString());
         }
         catch (ParseException ignored) {
             //
         }
 
         try {
-            return StringCast.dateFormatter.parse(column.asString());
+            return this.dateFormatter.parse(column.asString());
         }
         catch (ParseException ignored) {
             //
@@ -133,15 +158,15 @@ class StringCast
 
         ParseException e;
         try {
-            return StringCast.timeFormatter.parse(column.asString());
+            return this.timeFormatter.parse(column.asString());
         }
         catch (ParseException pe) {
             e = pe;
         }
 
-        for (String format : StringCast.extraFormats) {
+        for (String format : this.extraFormats) {
             try {
-                return FastDateFormat.getInstance(format, StringCast.timeZoner).parse(column.asString());
+                return FastDateFormat.getInstance(format, this.timeZoner).parse(column.asString());
             }
             catch (ParseException pe) {
                 e = pe;
@@ -150,14 +175,14 @@ class StringCast
         throw e;
     }
 
-    static byte[] asBytes(final StringColumn column)
+    byte[] asBytes(final StringColumn column)
             throws UnsupportedEncodingException
     {
         if (null == column.asString()) {
             return new byte[0];
         }
 
-        return column.asString().getBytes(StringCast.encoding);
+        return column.asString().getBytes(this.encoding);
     }
 }
 
@@ -168,28 +193,23 @@ class StringCast
  */
 class DateCast
 {
-    static String datetimeFormat = "yyyy-MM-dd HH:mm:ss";
-    static String dateFormat = "yyyy-MM-dd";
-    static String timeFormat = "HH:mm:ss";
-    static String timeZone = "GMT+8";
-    static TimeZone timeZoner = TimeZone.getTimeZone(DateCast.timeZone);
-
-    private DateCast() {}
+    private final String datetimeFormat;
+    private final String dateFormat;
+    private final String timeFormat;
+    private final TimeZone timeZoner;
 
-    static void init(final Configuration configuration)
+    DateCast(final Configuration configuration)
     {
-        DateCast.datetimeFormat = configuration.getString(
-                "common.column.datetimeFormat", datetimeFormat);
-        DateCast.timeFormat = configuration.getString(
-                "common.column.timeFormat", timeFormat);
-        DateCast.dateFormat = configuration.getString(
-                "common.column.dateFormat", dateFormat);
-        DateCast.timeZone = configuration.getString("common.column.timeZone",
-                DateCast.timeZone);
-        DateCast.timeZoner = TimeZone.getTimeZone(DateCast.timeZone);
+        this.datetimeFormat = configuration.getString(
+                "common.column.datetimeFormat", "yyyy-MM-dd HH:mm:ss");
+        this.timeFormat = configuration.getString(
+                "common.column.timeFormat", "HH:mm:ss");
+        this.dateFormat = configuration.getString(
+                "common.column.dateFormat", "yyyy-MM-dd");
+        this.timeZoner = TimeZone.getTimeZone(configuration.getString("common.column.timeZone", "GMT+8"));
     }
 
-    static String asString(final DateColumn column)
+    String asString(final DateColumn column)
     {
         if (null == column.asDate()) {
             return null;
@@ -197,14 +217,14 @@ class DateCast
 
         switch (column.getSubType()) {
             case DATE:
-                return DateFormatUtils.format(column.asDate(), DateCast.dateFormat,
-                        DateCast.timeZoner);
+                return DateFormatUtils.format(column.asDate(), this.dateFormat,
+                        this.timeZoner);
             case TIME:
-                return DateFormatUtils.format(column.asDate(), DateCast.timeFormat,
-                        DateCast.timeZoner);
+                return DateFormatUtils.format(column.asDate(), this.timeFormat,
+                        this.timeZoner);
             case DATETIME:
                 return DateFormatUtils.format(column.asDate(),
-                        DateCast.datetimeFormat, DateCast.timeZoner);
+                        this.datetimeFormat, this.timeZoner);
             default:
                 throw AddaxException
                         .asAddaxException(CommonErrorCode.CONVERT_NOT_SUPPORT,
@@ -215,23 +235,20 @@ class DateCast
 
 class BytesCast
 {
-    static String encoding = "utf-8";
+    private final String encoding;
 
-    private BytesCast() {}
-
-    static void init(final Configuration configuration)
+    BytesCast(final Configuration configuration)
     {
-        BytesCast.encoding = configuration.getString("common.column.encoding",
-                BytesCast.encoding);
+        this.encoding = configuration.getString("common.column.encoding", "utf-8");
     }
 
-    static String asString(final BytesColumn column)
+    String asString(final BytesColumn column)
             throws UnsupportedEncodingException
     {
         if (null == column.asBytes()) {
             return null;
         }
 
-        return new String(column.asBytes(), encoding);
+        return new String(column.asBytes(), this.encoding);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,550 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.wgzhao.addax.common.element;
+
+import com.wgzhao.addax.common.exception.AddaxException;
+import com.wgzhao.addax.common.exception.CommonErrorCode;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Record 的二进制编码，用于溢写文件、断点以及进程间传输等需要保存字段类型的场景
+ * <p>
+ * 编码格式(版本 1)：
+ * <pre>
+ * version(1 字节) | 字段数(varint) | 每个字段的类型标记(各 1 字节) | null 位图((字段数 + 7) / 8 字节) | 非 null 字段的值
+ * </pre>
+ * 类型标记的低 4 位为字段类型，0 表示该位置没有字段(Record 中为 null)；第 4、5 位为 {@link DateColumn.DateType}；
+ * 最高位表示值之后还有一个 varint 保存字段的 byteSize，只有 byteSize 与按值计算的结果不同时才写入，如通过字符串构造的 LongColumn。
+ * <p>
+ * 值的编码：long 和日期(epoch 毫秒)使用 zigzag varint，超出 long 范围的整数、字符串(UTF-8)及 byte[] 使用 varint 长度前缀，
+ * boolean 使用 1 字节。DoubleColumn 保存的是字符串，因此按字符串编码以保证精度不变。
+ * <p>
+ * 解码直接读取传入的 byte[]，不经过输入流；传入已有的 Record 时尽量复用其中同类型的字段对象。
+ * 每个实例持有编码及读取用的缓冲区，不是线程安全的。
+ */
+public final class RecordCodec
+{
+    public static final byte VERSION = 1;
+
+    private static final int ABSENT = 0;
+    private static final int LONG = 1;
+    private static final int BIG_INTEGER = 2;
+    private static final int DOUBLE = 3;
+    private static final int STRING = 4;
+    private static final int BOOL = 5;
+    private static final int DATE = 6;
+    private static final int BYTES = 7;
+
+    private static final int TYPE_MASK = 0x0f;
+    private static final int DATE_TYPE_SHIFT = 4;
+    private static final int DATE_TYPE_MASK = 0x30;
+    private static final int EXPLICIT_SIZE = 0x80;
+
+    private static final DateColumn.DateType[] DATE_TYPES = DateColumn.DateType.values();
+
+    private byte[] buf = new byte[256];
+    private int pos;
+
+    // read 使用的缓冲区
+    private byte[] frame = new byte[256];
+
+    // decode 的当前位置
+    private byte[] in;
+    private int offset;
+
+    /**
+     * 编码到内部缓冲区，结果通过 {@link #getBuffer()} 获取，下一次编码前有效
+     *
+     * @param record 要编码的记录
+     * @return 编码后的字节数
+     */
+    public int encode(Record record)
+    {
+        pos = 0;
+        int n = record.getColumnNumber();
+        ensure(1 + 5 + n + (n + 7) / 8);
+        buf[pos++] = VERSION;
+        writeVarInt(n);
+
+        int tags = pos;
+        int bitmap = tags + n;
+        pos = bitmap + (n + 7) / 8;
+        Arrays.fill(buf, bitmap, pos, (byte) 0);
+
+        for (int i = 0; i < n; i++) {
+            Column column = record.getColumn(i);
+            if (column != null && !isSupported(column)) {
+                // 其他 Column 实现无法还原，按字符串保存
+                column = new StringColumn(column.asString());
+            }
+            int tag;
+            if (column == null) {
+                tag = ABSENT;
+                buf[bitmap + (i >>> 3)] |= (byte) (1 << (i & 7));
+            }
+            else if (column.getRawData() == null) {
+                tag = typeOf(column);
+                buf[bitmap + (i >>> 3)] |= (byte) (1 << (i & 7));
+                if (column.getByteSize() != naturalSize(tag, null)) {
+                    tag |= EXPLICIT_SIZE;
+                    writeVarInt(column.getByteSize());
+                }
+            }
+            else {
+                tag = writeValue(column);
+            }
+            buf[tags + i] = (byte) tag;
+        }
+        return pos;
+    }
+
+    /**
+     * @return 最近一次 {@link #encode(Record)} 的结果，有效长度为其返回值
+     */
+    public byte[] getBuffer()
+    {
+        return buf;
+    }
+
+    public byte[] toByteArray(Record record)
+    {
+        // encode 可能会扩容 buf，需要在其之后再读取 buf
+        int length = encode(record);
+        return Arrays.copyOf(buf, length);
+    }
+
+    /**
+     * 写入 varint 长度前缀及编码后的记录，与 {@link #read(InputStream, Record)} 对应
+     *
+     * @return 写入的字节数
+     */
+    public int write(Record record, OutputStream out)
+            throws IOException
+    {
+        int length = encode(record);
+        int written = length + 1;
+        int value = length;
+        while ((value & ~0x7f) != 0) {
+            out.write((value & 0x7f) | 0x80);
+            value >>>= 7;
+            written++;
+        }
+        out.write(value);
+        out.write(buf, 0, length);
+        return written;
+    }
+
+    /**
+     * 读取 {@link #write(Record, OutputStream)} 写入的一条记录
+     *
+     * @param in 输入流
+     * @param target 解码的目标，参见 {@link #decode(byte[], int, int, Record)}
+     * @return 解码后的 target，输入流已经结束时返回 null
+     * @throws IOException 读取失败或者记录不完整
+     */
+    public Record read(InputStream in, Record target)
+            throws IOException
+    {
+        int b = in.read();
+        if (b < 0) {
+            return null;
+        }
+        int length = b & 0x7f;
+        for (int shift = 7; (b & 0x80) != 0; shift += 7) {
+            b = in.read();
+            if (b < 0 || shift > 28) {
+                throw new EOFException("记录的长度不完整");
+            }
+            length |= (b & 0x7f) << shift;
+        }
+        if (frame.length < length) {
+            frame = new byte[Math.max(length, frame.length * 2)];
+        }
+        int read = 0;
+        while (read < length) {
+            int count = in.read(frame, read, length - read);
+            if (count < 0) {
+                throw new EOFException(String.format("记录不完整, 需要 %d 字节, 只读到 %d 字节", length, read));
+            }
+            read += count;
+        }
+        return decode(frame, 0, length, target);
+    }
+
+    public Record decode(byte[] data, Record target)
+    {
+        return decode(data, 0, data.length, target);
+    }
+
+    /**
+     * 解码到 target 中。target 为空记录时依次添加字段；target 的字段数与编码的字段数相同时(如上一次解码的结果)，
+     * 同类型的字段对象直接修改其值，其他字段替换为新的对象。复用字段对象会改变 target 原有的值，
+     * 因此只应该复用已经处理完的记录。
+     *
+     * @param data 编码后的数据
+     * @param off 起始位置
+     * @param length 长度
+     * @param target 解码的目标
+     * @return target
+     */
+    public Record decode(byte[] data, int off, int length, Record target)
+    {
+        this.in = data;
+        this.offset = off;
+        try {
+            int version = data[offset++];
+            if (version != VERSION) {
+                throw AddaxException.asAddaxException(CommonErrorCode.RUNTIME_ERROR,
+                        String.format("不支持的记录编码版本[%d], 当前版本为[%d]", version, VERSION));
+            }
+            int n = readVarInt();
+            int current = target.getColumnNumber();
+            if (current != 0 && current != n) {
+                throw new IllegalArgumentException(String.format(
+                        "复用的记录有 %d 个字段, 与编码的字段数 %d 不一致", current, n));
+            }
+            int tags = offset;
+            int bitmap = tags + n;
+            offset = bitmap + (n + 7) / 8;
+            for (int i = 0; i < n; i++) {
+                int tag = data[tags + i] & 0xff;
+                boolean isNull = (data[bitmap + (i >>> 3)] & (1 << (i & 7))) != 0;
+                if (current == 0) {
+                    target.addColumn(readColumn(tag, isNull, null));
+                }
+                else {
+                    // 先移除再放回，使记录重新统计复用字段的大小
+                    Column column = target.getColumn(i);
+                    target.setColumn(i, null);
+                    target.setColumn(i, readColumn(tag, isNull, column));
+                }
+            }
+            if (offset - off != length) {
+                throw new IllegalArgumentException(String.format(
+                        "记录的长度为 %d 字节, 解码使用了 %d 字节", length, offset - off));
+            }
+            return target;
+        }
+        catch (ArrayIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("记录的编码不完整", e);
+        }
+        finally {
+            this.in = null;
+        }
+    }
+
+    private int writeValue(Column column)
+    {
+        Object raw = column.getRawData();
+        int tag;
+        if (column instanceof LongColumn) {
+            BigInteger value = (BigInteger) raw;
+            if (value.bitLength() < 64) {
+                tag = LONG;
+                writeVarLong(value.longValue());
+            }
+            else {
+                tag = BIG_INTEGER;
+                writeBytes(value.toByteArray());
+            }
+        }
+        else if (column instanceof DoubleColumn) {
+            tag = DOUBLE;
+            writeString((String) raw);
+        }
+        else if (column instanceof StringColumn) {
+            tag = STRING;
+            writeString((String) raw);
+        }
+        else if (column instanceof BoolColumn) {
+            tag = BOOL;
+            ensure(1);
+            buf[pos++] = (byte) ((Boolean) raw ? 1 : 0);
+        }
+        else if (column instanceof DateColumn) {
+            tag = DATE | (((DateColumn) column).getSubType().ordinal() << DATE_TYPE_SHIFT);
+            writeVarLong((Long) raw);
+        }
+        else {
+            tag = BYTES;
+            writeBytes((byte[]) raw);
+        }
+        if (column.getByteSize() != naturalSize(tag & TYPE_MASK, raw)) {
+            tag |= EXPLICIT_SIZE;
+            writeVarInt(column.getByteSize());
+        }
+        return tag;
+    }
+
+    private Column readColumn(int tag, boolean isNull, Column reuse)
+    {
+        int type = tag & TYPE_MASK;
+        Object raw = null;
+        Column column;
+        switch (type) {
+            case ABSENT:
+                return null;
+            case LONG:
+            case BIG_INTEGER:
+                if (!isNull) {
+                    raw = type == LONG ? BigInteger.valueOf(readVarLong()) : new BigInteger(readBytes());
+                }
+                column = reuse instanceof LongColumn ? reuse : new LongColumn();
+                break;
+            case DOUBLE:
+                if (!isNull) {
+                    raw = readString();
+                }
+                column = reuse instanceof DoubleColumn ? reuse : new DoubleColumn();
+                break;
+            case STRING:
+                if (!isNull) {
+                    raw = readString();
+                }
+                column = reuse instanceof StringColumn ? reuse : new StringColumn();
+                break;
+            case BOOL:
+                if (!isNull) {
+                    raw = in[offset++] != 0;
+                }
+                column = reuse instanceof BoolColumn ? reuse : new BoolColumn();
+                break;
+            case DATE:
+                if (!isNull) {
+                    raw = readVarLong();
+                }
+                column = reuse instanceof DateColumn ? reuse : new DateColumn();
+                ((DateColumn) column).setSubType(DATE_TYPES[(tag & DATE_TYPE_MASK) >>> DATE_TYPE_SHIFT]);
+                break;
+            case BYTES:
+                if (!isNull) {
+                    raw = readBytes();
+                }
+                column = reuse instanceof BytesColumn ? reuse : new BytesColumn();
+                break;
+            default:
+                throw new IllegalArgumentException(String.format("未知的字段类型标记[%d]", tag));
+        }
+        column.setRawData(raw);
+        column.setByteSize((tag & EXPLICIT_SIZE) != 0 ? readVarInt() : naturalSize(type, raw));
+        return column;
+    }
+
+    /**
+     * @return 各 Column 构造方法按值计算的 byteSize
+     */
+    private static int naturalSize(int type, Object raw)
+    {
+        switch (type) {
+            case BOOL:
+                return 1;
+            case LONG:
+            case BIG_INTEGER:
+            case DATE:
+                return raw == null ? 0 : 8;
+            case DOUBLE:
+            case STRING:
+                return raw == null ? 0 : ((String) raw).length();
+            case BYTES:
+                return raw == null ? 0 : ((byte[]) raw).length;
+            default:
+                return 0;
+        }
+    }
+
+    private static boolean isSupported(Column column)
+    {
+        return column instanceof LongColumn || column instanceof DoubleColumn || column instanceof StringColumn
+                || column instanceof BoolColumn || column instanceof DateColumn || column instanceof BytesColumn;
+    }
+
+    private static int typeOf(Column column)
+    {
+        if (column instanceof LongColumn) {
+            return LONG;
+        }
+        if (column instanceof DoubleColumn) {
+            return DOUBLE;
+        }
+        if (column instanceof BoolColumn) {
+            return BOOL;
+        }
+        if (column instanceof DateColumn) {
+            return DATE | (((DateColumn) column).getSubType().ordinal() << DATE_TYPE_SHIFT);
+        }
+        if (column instanceof BytesColumn) {
+            return BYTES;
+        }
+        return STRING;
+    }
+
+    private void ensure(int size)
+    {
+        if (pos + size > buf.length) {
+            buf = Arrays.copyOf(buf, Math.max(pos + size, buf.length * 2));
+        }
+    }
+
+    private void writeVarInt(int value)
+    {
+        ensure(5);
+        while ((value & ~0x7f) != 0) {
+            buf[pos++] = (byte) ((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        buf[pos++] = (byte) value;
+    }
+
+    private void writeVarLong(long value)
+    {
+        ensure(10);
+        // zigzag，使绝对值较小的负数也只占用较少的字节
+        long v = (value << 1) ^ (value >> 63);
+        while ((v & ~0x7fL) != 0) {
+            buf[pos++] = (byte) ((v & 0x7f) | 0x80);
+            v >>>= 7;
+        }
+        buf[pos++] = (byte) v;
+    }
+
+    private void writeBytes(byte[] value)
+    {
+        writeVarInt(value.length);
+        ensure(value.length);
+        System.arraycopy(value, 0, buf, pos, value.length);
+        pos += value.length;
+    }
+
+    private void writeString(String value)
+    {
+        int chars = value.length();
+        int length = utf8Length(value);
+        writeVarInt(length);
+        ensure(length);
+        if (length == chars) {
+            // 字节数与字符数相同时，除 ASCII 字符外只可能是不成对的代理字符
+            for (int i = 0; i < chars; i++) {
+                char c = value.charAt(i);
+                buf[pos++] = c < 0x80 ? (byte) c : (byte) '?';
+            }
+            return;
+        }
+        for (int i = 0; i < chars; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                buf[pos++] = (byte) c;
+            }
+            else if (c < 0x800) {
+                buf[pos++] = (byte) (0xc0 | (c >> 6));
+                buf[pos++] = (byte) (0x80 | (c & 0x3f));
+            }
+            else if (Character.isHighSurrogate(c) && i + 1 < chars && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, value.charAt(++i));
+                buf[pos++] = (byte) (0xf0 | (cp >> 18));
+                buf[pos++] = (byte) (0x80 | ((cp >> 12) & 0x3f));
+                buf[pos++] = (byte) (0x80 | ((cp >> 6) & 0x3f));
+                buf[pos++] = (byte) (0x80 | (cp & 0x3f));
+            }
+            else if (Character.isSurrogate(c)) {
+                // 不成对的代理字符，与 String.getBytes 一致替换为 '?'
+                buf[pos++] = '?';
+            }
+            else {
+                buf[pos++] = (byte) (0xe0 | (c >> 12));
+                buf[pos++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                buf[pos++] = (byte) (0x80 | (c & 0x3f));
+            }
+        }
+    }
+
+    private static int utf8Length(String value)
+    {
+        int chars = value.length();
+        int length = chars;
+        for (int i = 0; i < chars; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x80) {
+                if (c < 0x800) {
+                    length += 1;
+                }
+                else if (Character.isHighSurrogate(c) && i + 1 < chars && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    length += 2;
+                    i++;
+                }
+                else if (!Character.isSurrogate(c)) {
+                    length += 2;
+                }
+            }
+        }
+        return length;
+    }
+
+    private int readVarInt()
+    {
+        int b = in[offset++];
+        int value = b & 0x7f;
+        for (int shift = 7; b < 0; shift += 7) {
+            b = in[offset++];
+            value |= (b & 0x7f) << shift;
+        }
+        return value;
+    }
+
+    private long readVarLong()
+    {
+        long b = in[offset++];
+        long v = b & 0x7f;
+        for (int shift = 7; b < 0; shift += 7) {
+            b = in[offset++];
+            v |= (b & 0x7f) << shift;
+        }
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    private byte[] readBytes()
+    {
+        int length = readVarInt();
+        if (offset + length > in.length) {
+            throw new ArrayIndexOutOfBoundsException(offset + length);
+        }
+        byte[] value = Arrays.copyOfRange(in, offset, offset + length);
+        offset += length;
+        return value;
+    }
+
+    private String readString()
+    {
+        int length = readVarInt();
+        if (offset + length > in.length) {
+            throw new ArrayIndexOutOfBoundsException(offset + length);
+        }
+        String value = new String(in, offset, length, StandardCharsets.UTF_8);
+        offset += length;
+        return value;
+    }
+}
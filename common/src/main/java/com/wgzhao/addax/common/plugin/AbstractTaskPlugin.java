@@ -30,6 +30,7 @@ public abstract class AbstractTaskPlugin
     private int taskGroupId;
     private int taskId;
     private TaskPluginCollector taskPluginCollector;
+    private TaskCheckpoint taskCheckpoint = TaskCheckpoint.NONE;
 
     public TaskPluginCollector getTaskPluginCollector()
     {
@@ -42,6 +43,16 @@ public abstract class AbstractTaskPlugin
         this.taskPluginCollector = taskPluginCollector;
     }
 
+    public TaskCheckpoint getTaskCheckpoint()
+    {
+        return taskCheckpoint;
+    }
+
+    public void setTaskCheckpoint(TaskCheckpoint taskCheckpoint)
+    {
+        this.taskCheckpoint = taskCheckpoint == null ? TaskCheckpoint.NONE : taskCheckpoint;
+    }
+
     public int getTaskId()
     {
         return taskId;
@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.wgzhao.addax.common.plugin;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.List;
+
+/**
+ * 文件类 reader 的断点位置，格式为 {@code 记录数:文件名}，表示该文件的前若干条记录已经读取
+ * <p>
+ * 由于 task 按顺序读取文件，位置之前的文件都已经读完，继续读取时直接跳过
+ */
+public final class FilePosition
+{
+    private final String file;
+    private final long records;
+
+    public FilePosition(String file, long records)
+    {
+        this.file = file;
+        this.records = records;
+    }
+
+    public String getFile()
+    {
+        return file;
+    }
+
+    public long getRecords()
+    {
+        return records;
+    }
+
+    /**
+     * 解析 task 保存的位置
+     *
+     * @param position {@link TaskCheckpoint#getRestoredPosition()} 的返回值
+     * @param files 当前 task 需要读取的文件列表
+     * @return 位置，没有保存过位置或者位置中的文件不在列表中时返回 null
+     */
+    public static FilePosition restore(String position, List<String> files)
+    {
+        if (StringUtils.isBlank(position)) {
+            return null;
+        }
+        int idx = position.indexOf(':');
+        if (idx <= 0 || !StringUtils.isNumeric(position.substring(0, idx))) {
+            return null;
+        }
+        String file = position.substring(idx + 1);
+        if (files == null || !files.contains(file)) {
+            return null;
+        }
+        return new FilePosition(file, Long.parseLong(position.substring(0, idx)));
+    }
+
+    public static String toString(String file, long records)
+    {
+        return records + ":" + file;
+    }
+
+    @Override
+    public String toString()
+    {
+        return toString(file, records);
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.wgzhao.addax.common.plugin;
+
+/**
+ * task 的断点信息，task 重试或者作业重新运行时，reader 可以从上次确认过的位置继续读取
+ * <p>
+ * reader 每发送一条记录后调用 {@link #mark(String)} 记录当前读到的位置，位置的格式由 reader 自己决定，
+ * 但是必须有序，即从该位置继续读取时不会漏掉之后的记录；writer 在数据落地(如提交事务)后调用 {@link #ack()}，
+ * 只有 writer 确认收到的记录对应的位置才会被保存，因此重新读取时最多重复发送最后一次确认之后的记录
+ */
+public interface TaskCheckpoint
+{
+    /**
+     * 未开启断点续传时使用的实例，所有方法都不做任何事情
+     */
+    TaskCheckpoint NONE = new TaskCheckpoint()
+    {
+        @Override
+        public boolean isEnabled()
+        {
+            return false;
+        }
+
+        @Override
+        public String getRestoredPosition()
+        {
+            return null;
+        }
+
+        @Override
+        public void mark(String position)
+        {
+            //
+        }
+
+        @Override
+        public void ack()
+        {
+            //
+        }
+    };
+
+    boolean isEnabled();
+
+    /**
+     * @return 上次保存的位置，没有时返回 null
+     */
+    String getRestoredPosition();
+
+    /**
+     * reader 调用，表示该位置及之前的记录都已经发送给 writer
+     *
+     * @param position 当前读到的位置，null 表示当前记录没有可用的位置，会被忽略
+     */
+    void mark(String position);
+
+    /**
+     * writer 调用，表示已经收到的所有记录都已经写入目的端
+     */
+    void ack();
+}
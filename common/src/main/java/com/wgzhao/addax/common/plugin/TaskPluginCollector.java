@@ -71,4 +71,24 @@ public abstract class TaskPluginCollector
      * @param value message content
      */
     public abstract void collectMessage( String key,  String value);
+
+    /**
+     * 汇报写入端出现拥塞，如服务端限流(HTTP 429)、锁等待超时等 <br >
+     * 作业开启了全局自适应限速时，框架会据此降低作业的速度，否则忽略
+     */
+    public void reportBackpressure()
+    {
+        //
+    }
+
+    /**
+     * 汇报一次写入(通常是一个批次)的耗时 <br >
+     * 作业开启了全局自适应限速时，耗时明显升高会被视为拥塞，否则忽略
+     *
+     * @param millis 耗时，单位毫秒
+     */
+    public void reportLatency(long millis)
+    {
+        //
+    }
 }
@@ -56,27 +56,39 @@ public class PerfRecord
 
     public static void addPerfRecord(int taskGroupId, int taskId, PHASE phase, long startTime, long elapsedTimeInNs)
     {
-        if (PerfTrace.getInstance().isEnable()) {
+        PerfTrace perfTrace = PerfTrace.getInstance();
+        PerfRecordListener listener = perfTrace.getPerfRecordListener();
+        if (perfTrace.isEnable() || listener != null) {
             PerfRecord perfRecord = new PerfRecord(taskGroupId, taskId, phase);
             perfRecord.elapsedTimeInNs = elapsedTimeInNs;
             perfRecord.action = ACTION.END;
             perfRecord.startTime = new Date(startTime);
-            //在PerfTrace里注册
-            PerfTrace.getInstance().tracePerfRecord(perfRecord);
-            perf.info(perfRecord.toString());
+            if (perfTrace.isEnable()) {
+                //在PerfTrace里注册
+                perfTrace.tracePerfRecord(perfRecord);
+                perf.info(perfRecord.toString());
+            }
+            if (listener != null) {
+                listener.onEnd(perfRecord);
+            }
         }
     }
 
     public void start()
     {
-        if (PerfTrace.getInstance().isEnable()) {
+        PerfTrace perfTrace = PerfTrace.getInstance();
+        if (perfTrace.isEnable()) {
             this.startTime = new Date();
             this.startTimeInNs = System.nanoTime();
             this.action = ACTION.START;
             //在PerfTrace里注册
-            PerfTrace.getInstance().tracePerfRecord(this);
+            perfTrace.tracePerfRecord(this);
             perf.info(toString());
         }
+        else if (perfTrace.getPerfRecordListener() != null) {
+            this.startTimeInNs = System.nanoTime();
+            this.action = ACTION.START;
+        }
     }
 
     public void addCount(long count)
@@ -91,21 +103,27 @@ public class PerfRecord
 
     public void end()
     {
-        if (PerfTrace.getInstance().isEnable()) {
-            this.elapsedTimeInNs = System.nanoTime() - startTimeInNs;
-            this.action = ACTION.END;
-            PerfTrace.getInstance().tracePerfRecord(this);
-            perf.info(toString());
+        // start 时没有开启 PerfTrace 也没有监听者，没有计时
+        if (startTimeInNs == 0) {
+            return;
         }
+        end(System.nanoTime() - startTimeInNs);
     }
 
     public void end(long elapsedTimeInNs)
     {
-        if (PerfTrace.getInstance().isEnable()) {
+        PerfTrace perfTrace = PerfTrace.getInstance();
+        PerfRecordListener listener = perfTrace.getPerfRecordListener();
+        if (perfTrace.isEnable() || listener != null) {
             this.elapsedTimeInNs = elapsedTimeInNs;
             this.action = ACTION.END;
-            PerfTrace.getInstance().tracePerfRecord(this);
-            perf.info(toString());
+            if (perfTrace.isEnable()) {
+                perfTrace.tracePerfRecord(this);
+                perf.info(toString());
+            }
+            if (listener != null) {
+                listener.onEnd(this);
+            }
         }
     }
 
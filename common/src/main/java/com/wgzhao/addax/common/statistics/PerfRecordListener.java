@@ -0,0 +1,33 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.wgzhao.addax.common.statistics;
+
+/**
+ * 监听 PerfRecord 的结束事件，不论是否开启了 PerfTrace 都会通知，用于实时导出各阶段的耗时
+ */
+public interface PerfRecordListener
+{
+    /**
+     * 一个阶段结束，可能在多个线程中同时调用，实现需要线程安全且不能阻塞
+     *
+     * @param perfRecord 已结束的记录，elapsedTimeInNs 为该阶段的耗时
+     */
+    void onEnd(PerfRecord perfRecord);
+}
@@ -46,6 +46,8 @@ public class PerfTrace
 
     private static final Logger LOG = LoggerFactory.getLogger(PerfTrace.class);
     private static PerfTrace instance;
+    // server 模式下每个作业的线程及其子线程使用各自的实例
+    private static final InheritableThreadLocal<PerfTrace> current = new InheritableThreadLocal<>();
     //jobid_jobversion,instanceid,taskid, src_mark, dst_mark,
     private final Map<Integer, String> taskDetails = new ConcurrentHashMap<>();
     //PHASE => PerfRecord
@@ -64,6 +66,7 @@ public class PerfTrace
     private int priority;
     private int batchSize = 500;
     private volatile boolean perfReportEnable = true;
+    private volatile PerfRecordListener perfRecordListener;
     private Configuration jobInfo;
     private String cluster;
     private String jobDomain;
@@ -94,6 +97,10 @@ public class PerfTrace
 
     public static synchronized PerfTrace getInstance(boolean isJob, long jobId, int taskGroupId, int priority, boolean enable)
     {
+        PerfTrace bound = current.get();
+        if (bound != null) {
+            return bound;
+        }
         if (instance == null) {
             instance = new PerfTrace(isJob, jobId, taskGroupId, priority, enable);
         }
@@ -103,7 +110,16 @@ public class PerfTrace
     /*
      * 因为一个JVM只有一个，因此在getInstance(isJob,jobId,taskGroupId)调用完成实例化后，方便后续调用，直接返回该实例
      */
-    public static synchronized PerfTrace getInstance()
+    public static PerfTrace getInstance()
+    {
+        PerfTrace bound = current.get();
+        if (bound != null) {
+            return bound;
+        }
+        return getGlobalInstance();
+    }
+
+    private static synchronized PerfTrace getGlobalInstance()
     {
         if (instance == null) {
             LOG.error("PerfTrace instance not be init! must have some error! ");
@@ -112,6 +128,38 @@ public class PerfTrace
         return instance;
     }
 
+    /**
+     * 为当前线程(及其之后创建的子线程)创建一个独立的实例，用于在同一个 JVM 中同时运行多个作业
+     *
+     * @param isJob 是否为 job
+     * @param jobId job id
+     * @param taskGroupId task group id
+     * @param priority 优先级
+     * @param enable 是否开启 trace
+     * @return 绑定到当前线程的实例
+     */
+    public static PerfTrace bindCurrentThread(boolean isJob, long jobId, int taskGroupId, int priority, boolean enable)
+    {
+        PerfTrace perfTrace = new PerfTrace(isJob, jobId, taskGroupId, priority, enable);
+        current.set(perfTrace);
+        return perfTrace;
+    }
+
+    public static void unbindCurrentThread()
+    {
+        current.remove();
+    }
+
+    public PerfRecordListener getPerfRecordListener()
+    {
+        return perfRecordListener;
+    }
+
+    public void setPerfRecordListener(PerfRecordListener perfRecordListener)
+    {
+        this.perfRecordListener = perfRecordListener;
+    }
+
     //缺省传入的时间是nano
     public static String unitTime(long time)
     {
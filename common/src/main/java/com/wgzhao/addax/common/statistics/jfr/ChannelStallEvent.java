@@ -0,0 +1,63 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.wgzhao.addax.common.statistics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * 读写 channel 时发生的阻塞，只在需要等待时才创建，默认只记录超过 10ms 的事件
+ * <p>
+ * operation 为 push 时 reader 在等待 writer，为 pull 时 writer 在等待 reader，为 throttle 时为限速休眠
+ */
+@Name("com.wgzhao.addax.ChannelStall")
+@Label("Channel Stall")
+@Category("Addax")
+@Description("A channel push or pull that had to block, or a flow control sleep")
+@StackTrace(false)
+@Threshold("10 ms")
+public class ChannelStallEvent
+        extends jdk.jfr.Event
+{
+    public static final String PUSH = "push";
+    public static final String PULL = "pull";
+    public static final String THROTTLE = "throttle";
+
+    @Label("Job Id")
+    public long jobId;
+
+    @Label("Task Group Id")
+    public int taskGroupId;
+
+    @Label("Operation")
+    public String operation;
+
+    @Label("Records")
+    public int records;
+
+    @Label("Queue Size")
+    @Description("Records in the channel when the operation started to block")
+    public int queueSize;
+}
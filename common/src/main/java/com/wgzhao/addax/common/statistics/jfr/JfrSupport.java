@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.wgzhao.addax.common.statistics.jfr;
+
+/**
+ * JDK 8u262 之前的版本没有 jdk.jfr，使用事件前需要先判断 {@link #AVAILABLE}，
+ * 不可用时不能创建任何事件对象。这里的 begin 方法在不可用时返回 null，end 方法忽略 null
+ * <p>
+ * 事件只有在 JFR 录制中开启时才会写入，未录制时 begin/commit 几乎没有开销
+ */
+public final class JfrSupport
+{
+    public static final boolean AVAILABLE = isJfrPresent();
+
+    private JfrSupport() {}
+
+    public static ChannelStallEvent beginChannelStall(long jobId, int taskGroupId, String operation, int queueSize)
+    {
+        if (!AVAILABLE) {
+            return null;
+        }
+        ChannelStallEvent event = new ChannelStallEvent();
+        event.begin();
+        event.jobId = jobId;
+        event.taskGroupId = taskGroupId;
+        event.operation = operation;
+        event.queueSize = queueSize;
+        return event;
+    }
+
+    public static void endChannelStall(ChannelStallEvent event, int records)
+    {
+        if (event != null) {
+            event.records = records;
+            event.commit();
+        }
+    }
+
+    public static WriterFlushEvent beginWriterFlush(String writer, String target, long rows, long bytes)
+    {
+        if (!AVAILABLE) {
+            return null;
+        }
+        WriterFlushEvent event = new WriterFlushEvent();
+        event.begin();
+        event.writer = writer;
+        event.target = target;
+        event.rows = rows;
+        event.bytes = bytes;
+        return event;
+    }
+
+    public static void endWriterFlush(WriterFlushEvent event, boolean success)
+    {
+        if (event != null) {
+            event.success = success;
+            event.commit();
+        }
+    }
+
+    /*
+     * rows 和 fetchTime 由调用方在读取过程中累加
+     */
+    public static ReaderFetchEvent beginReaderFetch(String reader, String source)
+    {
+        if (!AVAILABLE) {
+            return null;
+        }
+        ReaderFetchEvent event = new ReaderFetchEvent();
+        event.begin();
+        event.reader = reader;
+        event.source = source;
+        return event;
+    }
+
+    public static void endReaderFetch(ReaderFetchEvent event)
+    {
+        if (event != null && event.rows > 0) {
+            event.commit();
+        }
+    }
+
+    /*
+     * 各字段在 task 结束时填充
+     */
+    public static TaskEvent beginTask()
+    {
+        if (!AVAILABLE) {
+            return null;
+        }
+        TaskEvent event = new TaskEvent();
+        event.begin();
+        return event;
+    }
+
+    private static boolean isJfrPresent()
+    {
+        try {
+            Class.forName("jdk.jfr.Event", false, JfrSupport.class.getClassLoader());
+            return true;
+        }
+        catch (Throwable e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.wgzhao.addax.common.statistics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * reader 读取的一轮数据，持续时间包括向 channel 发送记录的时间，fetchTime 只包括从源端获取数据的时间
+ */
+@Name("com.wgzhao.addax.ReaderFetch")
+@Label("Reader Fetch")
+@Category("Addax")
+@Description("A round of rows fetched by a reader plugin")
+@StackTrace(false)
+public class ReaderFetchEvent
+        extends jdk.jfr.Event
+{
+    @Label("Reader")
+    public String reader;
+
+    @Label("Source")
+    @Description("Table or query the rows are read from")
+    public String source;
+
+    @Label("Rows")
+    public long rows;
+
+    @Label("Fetch Time")
+    @Description("Time spent waiting for the source, excluding sending records to the channel")
+    @Timespan
+    public long fetchTime;
+}
@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.wgzhao.addax.common.statistics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * 一个 task 从启动到结束，持续时间为 task 的运行时间
+ */
+@Name("com.wgzhao.addax.Task")
+@Label("Task")
+@Category("Addax")
+@Description("A reader/writer task from start to finish")
+@StackTrace(false)
+public class TaskEvent
+        extends jdk.jfr.Event
+{
+    @Label("Job Id")
+    public long jobId;
+
+    @Label("Task Group Id")
+    public int taskGroupId;
+
+    @Label("Task Id")
+    public int taskId;
+
+    @Label("Attempt")
+    public int attempt;
+
+    @Label("Reader")
+    public String reader;
+
+    @Label("Writer")
+    public String writer;
+
+    @Label("State")
+    public String state;
+
+    @Label("Read Records")
+    public long readRecords;
+
+    @Label("Read Bytes")
+    @DataAmount
+    public long readBytes;
+
+    @Label("Error Records")
+    public long errorRecords;
+
+    @Label("Wait Reader Time")
+    @Description("Time the writer spent waiting for records")
+    @Timespan
+    public long waitReaderTime;
+
+    @Label("Wait Writer Time")
+    @Description("Time the reader spent waiting for free space in the channel")
+    @Timespan
+    public long waitWriterTime;
+}
@@ -0,0 +1,58 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.wgzhao.addax.common.statistics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * writer 向目标端提交一个批次，持续时间为提交的延迟
+ */
+@Name("com.wgzhao.addax.WriterFlush")
+@Label("Writer Flush")
+@Category("Addax")
+@Description("A batch written by a writer plugin")
+@StackTrace(false)
+public class WriterFlushEvent
+        extends jdk.jfr.Event
+{
+    @Label("Writer")
+    public String writer;
+
+    @Label("Target")
+    @Description("Table, index or collection the batch is written to")
+    public String target;
+
+    @Label("Rows")
+    public long rows;
+
+    @Label("Bytes")
+    @DataAmount
+    public long bytes;
+
+    @Label("Success")
+    @Description("False if the batch was rejected and has to be retried or written row by row")
+    public boolean success;
+}
@@ -0,0 +1,162 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.wgzhao.addax.common.util;
+
+import com.wgzhao.addax.common.exception.AddaxException;
+import com.wgzhao.addax.common.spi.ErrorCode;
+
+import java.util.Collection;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 写入插件中后台线程的异常.
+ * <p>
+ * 发送线程、写文件线程或者驱动的回调出错时通过 {@link #set} 记录异常，只保留第一个.
+ * 读取线程在提交数据、等待队列或许可以及等待结束时调用 {@link #check()}，在自己的线程中抛出该异常，
+ * 使任务失败而不是一直阻塞下去.
+ */
+public class AsyncFailure
+{
+    // 读取线程阻塞时检查后台线程是否失败的间隔
+    private static final long CHECK_INTERVAL_MS = 100L;
+
+    private final ErrorCode errorCode;
+    private final String message;
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    /**
+     * @param errorCode 包装非 {@link AddaxException} 异常时使用的错误码
+     */
+    public AsyncFailure(ErrorCode errorCode)
+    {
+        this(errorCode, null);
+    }
+
+    /**
+     * @param errorCode 包装非 {@link AddaxException} 异常时使用的错误码
+     * @param message 包装时使用的错误信息，为 null 时使用原异常的信息
+     */
+    public AsyncFailure(ErrorCode errorCode, String message)
+    {
+        this.errorCode = errorCode;
+        this.message = message;
+    }
+
+    /**
+     * 记录后台线程的异常，已经有异常时忽略
+     *
+     * @param e 异常
+     * @return 是否是第一个异常
+     */
+    public boolean set(Throwable e)
+    {
+        return failure.compareAndSet(null, e);
+    }
+
+    /**
+     * 记录后台线程的异常，并丢弃队列中尚未处理的数据，使阻塞在该队列上的读取线程可以继续运行并发现异常
+     *
+     * @param e 异常
+     * @param queue 后台线程消费的队列
+     * @return 是否是第一个异常
+     */
+    public boolean set(Throwable e, Collection<?> queue)
+    {
+        boolean first = set(e);
+        queue.clear();
+        return first;
+    }
+
+    public boolean isFailed()
+    {
+        return failure.get() != null;
+    }
+
+    /**
+     * 后台线程出错时抛出异常，{@link AddaxException} 原样抛出，其他异常使用构造时的错误码包装
+     */
+    public void check()
+    {
+        Throwable e = failure.get();
+        if (e == null) {
+            return;
+        }
+        if (e instanceof AddaxException) {
+            throw (AddaxException) e;
+        }
+        if (message == null) {
+            throw AddaxException.asAddaxException(errorCode, e);
+        }
+        throw AddaxException.asAddaxException(errorCode, message, e);
+    }
+
+    /**
+     * 将数据放入后台线程消费的队列，队列满时阻塞. 后台线程已经出错或者等待期间出错时抛出异常
+     *
+     * @param queue 队列
+     * @param item 数据
+     * @param <T> 数据的类型
+     * @throws InterruptedException 等待时被中断
+     */
+    public <T> void put(BlockingQueue<T> queue, T item)
+            throws InterruptedException
+    {
+        check();
+        while (!queue.offer(item, CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+            check();
+        }
+    }
+
+    /**
+     * 获取一个许可，没有许可时阻塞，等待期间后台线程出错时抛出异常
+     *
+     * @param semaphore 限制并发请求数的信号量
+     * @throws InterruptedException 等待时被中断
+     */
+    public void acquire(Semaphore semaphore)
+            throws InterruptedException
+    {
+        while (!semaphore.tryAcquire(CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+            check();
+        }
+    }
+
+    /**
+     * 创建后台线程的工厂，线程名为 "prefix-创建线程的线程名-序号"，便于在线程栈中找到所属的任务.
+     * 线程都是守护线程，不会阻止进程退出
+     *
+     * @param prefix 线程名前缀
+     * @return thread factory
+     */
+    public static ThreadFactory daemonThreadFactory(String prefix)
+    {
+        AtomicInteger index = new AtomicInteger(0);
+        return r -> {
+            Thread t = new Thread(r, prefix + "-" + Thread.currentThread().getName() + "-" + index.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+}
@@ -23,6 +23,8 @@ import com.wgzhao.addax.common.exception.CommonErrorCode;
 import com.wgzhao.addax.common.exception.AddaxException;
 import com.wgzhao.addax.common.spi.ErrorCode;
 import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
 import com.alibaba.fastjson.serializer.SerializerFeature;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.CharUtils;
@@ -40,9 +42,12 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Configuration 提供多级JSON配置信息无损存储 <br>
@@ -64,6 +69,15 @@ import java.util.Set;
  * ，使用"foo"作为value，第一种方式使用字符串表示key，难以处理这类问题。 <br>
  * 2. 返回树形结构，例如 a.b.c.d = "foo"，如果返回"a"下的所有元素，实际上是一个Map，需要合并处理 <br>
  * 3. 输出JSON，将上述对象转为JSON，要把上述Map的多级key转为树形结构，并输出为JSON <br>
+ * <p>
+ * 树中的节点在 clone 之后由多个 Configuration 共享(copy-on-write)，修改时只复制从根节点到被修改节点路径上
+ * 尚未被当前实例独占的节点.
+ * 通过 get、getInternal 返回给调用方的 Map 或 List 节点，以及通过 set 放入的调用方对象，调用方之后仍可能直接修改，
+ * 这类节点记录为"已交出"，与原来的深拷贝一样只属于当前实例: clone、getConfiguration 时为新实例复制这些节点及其祖先节点，
+ * 其余节点照常共享.
+ * <p>
+ * 线程安全: 与原来一样，多个线程可以同时读取同一个实例，但不能同时修改. 读取标量值不加锁；
+ * 返回 Map 或 List、clone、getConfiguration 等会更新上述记录的读取方法在当前实例上同步.
  */
 public class Configuration
 {
@@ -75,7 +89,27 @@ public class Configuration
     private Set<String> secretKeyPathSet =
             new HashSet<>();
 
-    private Object root;
+    // 解析后的路径缓存，路径通常是有限的常量，超过上限后不再缓存
+    private static final int MAX_CACHED_PATHS = 8192;
+    private static final Map<String, List<String>> PATH_CACHE = new ConcurrentHashMap<>();
+
+    private volatile Object root;
+
+    // 为 true 时，树中所有节点都只属于当前实例，可以直接修改
+    private boolean ownsAll = true;
+    // 与其他实例共享树之后，当前实例复制出来的、独占的节点
+    private final Set<Object> ownedNodes = Collections.newSetFromMap(new IdentityHashMap<>());
+    // 独占并且所有子节点也都独占的节点，这类节点可以直接返回给调用方
+    private final Set<Object> deepOwnedNodes = Collections.newSetFromMap(new IdentityHashMap<>());
+    // 已交给调用方的节点，调用方可能修改这些节点及其子节点，因此不能与其他实例共享
+    private final Set<Object> escapedNodes = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    private Configuration(Object root, Set<String> secretKeyPathSet)
+    {
+        this.root = root;
+        this.ownsAll = false;
+        this.secretKeyPathSet.addAll(secretKeyPathSet);
+    }
 
     private Configuration(String json)
     {
@@ -217,12 +251,15 @@ public class Configuration
     public Object get(String path)
     {
         this.checkPath(path);
-        try {
-            return this.findObject(path);
-        }
-        catch (Exception e) {
-            return null;
+        Object object = this.findObject(path);
+        if (object instanceof Map || object instanceof List) {
+            synchronized (this) {
+                // 返回给调用方的节点可能会被修改，需要先保证其被当前实例独占，并记录下来
+                object = this.ownSubtree(path);
+                this.escapedNodes.add(object);
+            }
         }
+        return object;
     }
 
     /**
@@ -233,12 +270,15 @@ public class Configuration
      */
     public Configuration getConfiguration(String path)
     {
-        Object object = this.get(path);
-        if (null == object) {
-            return null;
-        }
+        this.checkPath(path);
+        synchronized (this) {
+            Object object = this.findObject(path);
+            if (null == object) {
+                return null;
+            }
 
-        return Configuration.from(Configuration.toJSONString(object));
+            return this.share(object, Collections.emptySet(), this.isEscaped(path));
+        }
     }
 
     /**
@@ -512,7 +552,12 @@ public class Configuration
     @SuppressWarnings("unchecked")
     public <T> List<T> getList(String path, Class<T> t)
     {
-        List<Object> object = this.get(path, List.class);
+        this.checkPath(path);
+        // 返回的是新的列表，如果元素都不是 Map 或 List，原列表没有交给调用方，不需要记录(见 get)
+        List<Object> object = (List<Object>) this.findObject(path);
+        if (null != object && object.stream().anyMatch(each -> each instanceof Map || each instanceof List)) {
+            object = this.get(path, List.class);
+        }
         if (null == object) {
             return Collections.emptyList();
         }
@@ -579,18 +624,24 @@ public class Configuration
      *
      * @return 列表
      */
+    @SuppressWarnings("unchecked")
     public List<Configuration> getListConfiguration(String path)
     {
-        List<Object> lists = getList(path);
-        if (lists == null) {
-            return Collections.emptyList();
-        }
+        this.checkPath(path);
+        synchronized (this) {
+            // 不通过 getList 读取，列表本身没有交给调用方，不需要记录
+            List<Object> lists = (List<Object>) this.findObject(path);
+            if (lists == null) {
+                return Collections.emptyList();
+            }
 
-        List<Configuration> result = new ArrayList<>();
-        for (Object object : lists) {
-            result.add(Configuration.from(Configuration.toJSONString(object)));
+            boolean escaped = this.isEscaped(path);
+            List<Configuration> result = new ArrayList<>();
+            for (Object object : lists) {
+                result.add(this.share(object, Collections.emptySet(), escaped));
+            }
+            return result;
         }
-        return result;
     }
 
     /**
@@ -656,7 +707,7 @@ public class Configuration
      */
     public String beautify()
     {
-        return JSON.toJSONString(this.getInternal(),
+        return JSON.toJSONString(this.root,
                 SerializerFeature.PrettyFormat);
     }
 
@@ -678,7 +729,7 @@ public class Configuration
     {
         checkPath(path);
 
-        Object result = this.get(path);
+        Object result = this.findObject(path);
 
         setObject(path, extractConfiguration(object));
 
@@ -698,7 +749,7 @@ public class Configuration
     public Set<String> getKeys()
     {
         Set<String> collect = new HashSet<>();
-        this.getKeysRecursive(this.getInternal(), "", collect);
+        this.getKeysRecursive(this.root, "", collect);
         return collect;
     }
 
@@ -764,19 +815,17 @@ public class Configuration
      */
     public String toJSON()
     {
-        return Configuration.toJSONString(this.getInternal());
+        return Configuration.toJSONString(this.root);
     }
 
     /**
-     * 拷贝当前Configuration，注意，这里使用了深拷贝，避免冲突
+     * 拷贝当前Configuration，新旧实例共享同一棵树(copy-on-write)，
+     * 之后的修改只复制各自需要修改的节点，因此拷贝本身的开销与配置的大小无关
      */
     @Override
-    public Configuration clone()
+    public synchronized Configuration clone()
     {
-        Configuration config = Configuration
-                .from(Configuration.toJSONString(this.getInternal()));
-        config.addSecretKeyPath(this.secretKeyPathSet);
-        return config;
+        return this.share(this.root, this.secretKeyPathSet, false);
     }
 
     /**
@@ -833,11 +882,206 @@ public class Configuration
         }
     }
 
-    public Object getInternal()
+    public synchronized Object getInternal()
     {
+        if (!this.ownsAll) {
+            // 调用方可能直接修改返回的树，因此需要先复制所有共享的节点
+            this.root = this.deepCopy(this.root);
+            this.ownsAll = true;
+            this.ownedNodes.clear();
+            this.deepOwnedNodes.clear();
+        }
+        escape(this.root);
         return this.root;
     }
 
+    /*
+     * 创建一个以 object 为根、与当前实例共享节点的 Configuration. 已交出的节点(escaped 为 true 时是 object 整棵子树)
+     * 及其祖先节点为新实例复制一份，这些原节点仍由当前实例独占，其余节点共享之后当前实例不再独占
+     */
+    private Configuration share(Object object, Set<String> secretKeyPathSet, boolean escaped)
+    {
+        if (!isSuitForRoot(object)) {
+            return Configuration.from(Configuration.toJSONString(object));
+        }
+        Set<Object> kept = Collections.newSetFromMap(new IdentityHashMap<>());
+        Object shared = object;
+        if (escaped || !this.escapedNodes.isEmpty()) {
+            shared = detach(object, escaped, kept);
+        }
+        this.ownsAll = false;
+        this.ownedNodes.clear();
+        this.ownedNodes.addAll(kept);
+        this.deepOwnedNodes.clear();
+        return new Configuration(shared, secretKeyPathSet);
+    }
+
+    /*
+     * 返回可以与其他实例共享的 node，其中已交出的子树整体复制，包含已交出节点的节点浅复制，被复制的原节点记录在 kept 中
+     */
+    @SuppressWarnings("unchecked")
+    private Object detach(Object node, boolean escaped, Set<Object> kept)
+    {
+        if (!(node instanceof Map || node instanceof List)) {
+            return node;
+        }
+        escaped = escaped || this.escapedNodes.contains(node);
+        Object copy = escaped ? copyOf(node) : null;
+        if (node instanceof Map) {
+            for (Map.Entry<String, Object> entry : ((Map<String, Object>) node).entrySet()) {
+                Object child = detach(entry.getValue(), escaped, kept);
+                if (child != entry.getValue() || copy != null) {
+                    copy = copy == null ? copyOf(node) : copy;
+                    ((Map<String, Object>) copy).put(entry.getKey(), child);
+                }
+            }
+        }
+        else {
+            List<Object> list = (List<Object>) node;
+            for (int i = 0; i < list.size(); i++) {
+                Object child = detach(list.get(i), escaped, kept);
+                if (child != list.get(i) || copy != null) {
+                    copy = copy == null ? copyOf(node) : copy;
+                    ((List<Object>) copy).set(i, child);
+                }
+            }
+        }
+        if (copy == null) {
+            return node;
+        }
+        kept.add(node);
+        return copy;
+    }
+
+    /*
+     * path 对应的节点或者它的某个祖先节点是否已交给调用方
+     */
+    @SuppressWarnings("unchecked")
+    private boolean isEscaped(String path)
+    {
+        if (this.escapedNodes.isEmpty()) {
+            return false;
+        }
+        Object target = this.root;
+        if (this.escapedNodes.contains(target) || StringUtils.isBlank(path)) {
+            return this.escapedNodes.contains(target);
+        }
+        for (String each : split2List(path)) {
+            if (target instanceof Map) {
+                target = ((Map<String, Object>) target).get(each);
+            }
+            else if (target instanceof List) {
+                target = ((List<Object>) target).get(getIndex(each));
+            }
+            if (this.escapedNodes.contains(target)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void escape(Object node)
+    {
+        if (node instanceof Map || node instanceof List) {
+            this.escapedNodes.add(node);
+        }
+    }
+
+    private boolean isOwned(Object node)
+    {
+        // 已交出的节点不会与其他实例共享
+        return this.ownsAll || this.ownedNodes.contains(node) || this.escapedNodes.contains(node);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object copyOf(Object node)
+    {
+        if (node instanceof Map) {
+            // 使用 LinkedHashMap 以保持原有的遍历顺序，输出的 JSON 与拷贝前一致
+            return node instanceof JSONObject ? new JSONObject(new LinkedHashMap<>((Map<String, Object>) node))
+                    : new LinkedHashMap<>((Map<String, Object>) node);
+        }
+        return node instanceof JSONArray ? new JSONArray(new ArrayList<>((List<Object>) node))
+                : new ArrayList<>((List<Object>) node);
+    }
+
+    /*
+     * 返回可以直接修改的节点，如果节点是共享的，则复制一份(浅拷贝)并记录为独占
+     */
+    private Object mutable(Object node)
+    {
+        if (!(node instanceof Map || node instanceof List) || isOwned(node)) {
+            return node;
+        }
+        Object copy = copyOf(node);
+        this.ownedNodes.add(copy);
+        return copy;
+    }
+
+    /*
+     * 复制 node 子树中所有尚未独占的节点
+     */
+    @SuppressWarnings("unchecked")
+    private Object deepCopy(Object node)
+    {
+        if (!(node instanceof Map || node instanceof List)
+                || this.ownsAll || this.deepOwnedNodes.contains(node) || this.escapedNodes.contains(node)) {
+            return node;
+        }
+        Object copy = mutable(node);
+        if (copy instanceof Map) {
+            for (Map.Entry<String, Object> entry : ((Map<String, Object>) copy).entrySet()) {
+                entry.setValue(deepCopy(entry.getValue()));
+            }
+        }
+        else {
+            List<Object> list = (List<Object>) copy;
+            for (int i = 0; i < list.size(); i++) {
+                list.set(i, deepCopy(list.get(i)));
+            }
+        }
+        this.deepOwnedNodes.add(copy);
+        return copy;
+    }
+
+    /*
+     * 保证 path 对应的子树以及从根节点到它的路径都被当前实例独占，并返回该子树
+     */
+    @SuppressWarnings("unchecked")
+    private Object ownSubtree(String path)
+    {
+        if (this.ownsAll) {
+            return this.findObject(path);
+        }
+        if (StringUtils.isBlank(path)) {
+            this.root = deepCopy(this.root);
+            return this.root;
+        }
+        List<String> paths = split2List(path);
+        this.root = mutable(this.root);
+        Object parent = this.root;
+        for (int i = 0; i < paths.size(); i++) {
+            String each = paths.get(i);
+            boolean isLast = i == paths.size() - 1;
+            Object child;
+            if (isPathMap(each)) {
+                Map<String, Object> mapping = (Map<String, Object>) parent;
+                child = mapping.get(each);
+                child = isLast ? deepCopy(child) : mutable(child);
+                mapping.put(each, child);
+            }
+            else {
+                List<Object> lists = (List<Object>) parent;
+                int index = getIndex(each);
+                child = lists.get(index);
+                child = isLast ? deepCopy(child) : mutable(child);
+                lists.set(index, child);
+            }
+            parent = child;
+        }
+        return parent;
+    }
+
     private void setObject(String path, Object object)
     {
         Object newRoot = setObjectRecursive(this.root, split2List(path), 0,
@@ -853,17 +1097,24 @@ public class Configuration
                         ToStringBuilder.reflectionToString(object), path));
     }
 
+    /*
+     * 调用方传入的对象仍被调用方持有，记录为已交出的节点
+     */
     @SuppressWarnings("unchecked")
     private Object extractConfiguration(Object object)
     {
         if (object instanceof Configuration) {
-            return extractFromConfiguration(object);
+            Object result = extractFromConfiguration(object);
+            escape(result);
+            return result;
         }
 
         if (object instanceof List) {
             List<Object> result = new ArrayList<>();
             for (Object each : (List<Object>) object) {
-                result.add(extractFromConfiguration(each));
+                Object child = extractFromConfiguration(each);
+                escape(child);
+                result.add(child);
             }
             return result;
         }
@@ -871,9 +1122,9 @@ public class Configuration
         if (object instanceof Map) {
             Map<String, Object> result = new HashMap<>();
             for (String key : ((Map<String, Object>) object).keySet()) {
-                result.put(key,
-                        extractFromConfiguration(((Map<String, Object>) object)
-                                .get(key)));
+                Object child = extractFromConfiguration(((Map<String, Object>) object).get(key));
+                escape(child);
+                result.put(key, child);
             }
             return result;
         }
@@ -959,7 +1210,7 @@ public class Configuration
             }
 
             // 当前是map，但是没有对应的key，也就是我们需要新建对象插入该map，并返回该map
-            mapping = ((Map<String, Object>) current);
+            mapping = ((Map<String, Object>) mutable(current));
             boolean hasSameKey = mapping.containsKey(path);
             if (!hasSameKey) {
                 mapping.put(
@@ -993,7 +1244,7 @@ public class Configuration
             }
 
             // 当前是list，但是对应的indexer是没有具体的值，也就是我们新建对象然后插入到该list，并返回该List
-            lists = expand((List<Object>) current, listIndexer + 1);
+            lists = expand((List<Object>) mutable(current), listIndexer + 1);
 
             boolean hasSameIndex = lists.get(listIndexer) != null;
             if (!hasSameIndex) {
@@ -1015,6 +1266,10 @@ public class Configuration
                 "该异常代表系统编程错误, 请联系DataX开发团队 !");
     }
 
+    /*
+     * 查找 path 对应的节点，路径不存在或者类型不匹配时返回 null
+     */
+    @SuppressWarnings("unchecked")
     private Object findObject(String path)
     {
         boolean isRootQuery = StringUtils.isBlank(path);
@@ -1026,56 +1281,34 @@ public class Configuration
 
         for (String each : split2List(path)) {
             if (isPathMap(each)) {
-                target = findObjectInMap(target, each);
+                if (!(target instanceof Map)) {
+                    return null;
+                }
+                target = ((Map<String, Object>) target).get(each);
             }
             else {
-                target = findObjectInList(target, each);
+                if (!(target instanceof List)) {
+                    return null;
+                }
+                String index = each.replace("[", "").replace("]", "");
+                if (!StringUtils.isNumeric(index)) {
+                    return null;
+                }
+                List<Object> lists = (List<Object>) target;
+                int i = Integer.parseInt(index);
+                if (i >= lists.size()) {
+                    return null;
+                }
+                target = lists.get(i);
+            }
+            if (target == null) {
+                return null;
             }
         }
 
         return target;
     }
 
-    @SuppressWarnings("unchecked")
-    private Object findObjectInMap(Object target, String index)
-    {
-        boolean isMap = (target instanceof Map);
-        if (!isMap) {
-            throw new IllegalArgumentException(String.format(
-                    "您提供的配置文件有误. 路径[%s]需要配置Json格式的Map对象，但该节点发现实际类型是[%s]. 请检查您的配置并作出修改.",
-                    index, target.getClass().toString()));
-        }
-
-        Object result = ((Map<String, Object>) target).get(index);
-        if (null == result) {
-            throw new IllegalArgumentException(String.format(
-                    "您提供的配置文件有误. 路径[%s]值为null，datax无法识别该配置. 请检查您的配置并作出修改.", index));
-        }
-
-        return result;
-    }
-
-    @SuppressWarnings({"unchecked"})
-    private Object findObjectInList(Object target, String each)
-    {
-        boolean isList = (target instanceof List);
-        if (!isList) {
-            throw new IllegalArgumentException(String.format(
-                    "您提供的配置文件有误. 路径[%s]需要配置Json格式的Map对象，但该节点发现实际类型是[%s]. 请检查您的配置并作出修改.",
-                    each, target.getClass().toString()));
-        }
-
-        String index = each.replace("[", "").replace("]", "");
-        if (!StringUtils.isNumeric(index)) {
-            throw new IllegalArgumentException(
-                    String.format(
-                            "系统编程错误，列表下标必须为数字类型，但该节点发现实际类型是[%s] ，该异常代表系统编程错误, 请联系DataX开发团队 !",
-                            index));
-        }
-
-        return ((List<Object>) target).get(Integer.parseInt(index));
-    }
-
     private List<Object> expand(List<Object> list, int size)
     {
         int expand = size - list.size();
@@ -1112,7 +1345,14 @@ public class Configuration
 
     private List<String> split2List(String path)
     {
-        return Arrays.asList(StringUtils.split(split(path), "."));
+        List<String> paths = PATH_CACHE.get(path);
+        if (paths == null) {
+            paths = Collections.unmodifiableList(Arrays.asList(StringUtils.split(split(path), ".")));
+            if (PATH_CACHE.size() < MAX_CACHED_PATHS) {
+                PATH_CACHE.put(path, paths);
+            }
+        }
+        return paths;
     }
 
     private void checkPath(String path)
@@ -67,6 +67,63 @@ public final class RangeSplitUtil
         return returnResult;
     }
 
+    /**
+     * 根据每个子区间的记录数对区间进行切分，使得各个分片的记录数尽可能接近.
+     * points 为子区间的边界点(长度为 counts.length + 1)，counts 为对应子区间的记录数.
+     * 若总记录数为 0，则退化为等宽切分.
+     *
+     * @param points the boundaries of the sub ranges, in ascending order
+     * @param counts the record count of each sub range
+     * @param expectSliceNumber expected split number
+     * @return the boundaries of slices, the first and last element are the same as points
+     */
+    public static long[] doWeightedLongSplit(long[] points, long[] counts, int expectSliceNumber)
+    {
+        if (expectSliceNumber < 1) {
+            throw new IllegalArgumentException(String.format(
+                    "切分份数不能小于1. 此处:expectSliceNumber=[%s].", expectSliceNumber));
+        }
+
+        if (null == points || null == counts || points.length != counts.length + 1) {
+            throw new IllegalArgumentException("按记录数切分时，区间边界点的个数必须比子区间的个数多一个.");
+        }
+
+        long left = points[0];
+        long right = points[points.length - 1];
+        long total = 0;
+        for (long count : counts) {
+            total += Math.max(count, 0);
+        }
+
+        if (total == 0) {
+            return doLongSplit(left, right, expectSliceNumber);
+        }
+
+        List<Long> result = new ArrayList<>();
+        result.add(left);
+        long accumulated = 0;
+        int slice = 1;
+        for (int i = 0, len = counts.length - 1; i < len; i++) {
+            accumulated += Math.max(counts[i], 0);
+            // 单个子区间可能跨越多个分片的阈值，但边界点只能添加一次
+            boolean reached = false;
+            while (slice < expectSliceNumber && accumulated * expectSliceNumber >= total * slice) {
+                slice++;
+                reached = true;
+            }
+            if (reached) {
+                result.add(points[i + 1]);
+            }
+        }
+        result.add(right);
+
+        long[] returnResult = new long[result.size()];
+        for (int i = 0, len = result.size(); i < len; i++) {
+            returnResult[i] = result.get(i);
+        }
+        return returnResult;
+    }
+
     public static BigInteger[] doBigIntegerSplit(BigInteger left, BigInteger right, int expectSliceNumber)
     {
         if (expectSliceNumber < 1) {
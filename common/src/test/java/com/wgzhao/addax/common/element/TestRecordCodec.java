@@ -0,0 +1,350 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.wgzhao.addax.common.element;
+
+import com.wgzhao.addax.common.exception.AddaxException;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class TestRecordCodec
+{
+    private final RecordCodec codec = new RecordCodec();
+
+    @Test
+    public void testNullAndAbsentColumns()
+    {
+        DateColumn nullTime = new DateColumn((Long) null);
+        nullTime.setSubType(DateColumn.DateType.TIME);
+        Record record = record(null, new LongColumn(), new DoubleColumn(), new StringColumn(), new BoolColumn(),
+                nullTime, new BytesColumn(), null);
+        Record decoded = roundTrip(record);
+        assertNull(decoded.getColumn(0));
+        assertNull(decoded.getColumn(7));
+        assertEquals(DateColumn.DateType.TIME, ((DateColumn) decoded.getColumn(5)).getSubType());
+
+        // 没有字段的记录
+        assertEquals(0, roundTrip(record()).getColumnNumber());
+    }
+
+    @Test
+    public void testVarLong()
+    {
+        long[] values = {0, 1, -1, 63, -64, 64, -65, Integer.MAX_VALUE, Integer.MIN_VALUE,
+                Long.MAX_VALUE, Long.MIN_VALUE, Long.MIN_VALUE + 1};
+        for (long value : values) {
+            roundTrip(record(new LongColumn(value), new DateColumn(value)));
+        }
+        // 0 和 -1 只占 1 个字节: version + 字段数 + 1 个标记 + 位图 + 值
+        assertEquals(5, codec.encode(record(new LongColumn(0L))));
+        assertEquals(5, codec.encode(record(new LongColumn(-1L))));
+    }
+
+    @Test
+    public void testBigInteger()
+    {
+        BigInteger[] values = {
+                BigInteger.ONE.shiftLeft(63),
+                BigInteger.valueOf(Long.MIN_VALUE).subtract(BigInteger.ONE),
+                BigInteger.ONE.shiftLeft(64),
+                BigInteger.ONE.shiftLeft(200).negate(),
+                new BigInteger("123456789012345678901234567890123456789")};
+        for (BigInteger value : values) {
+            Record decoded = roundTrip(record(new LongColumn(value)));
+            assertEquals(value, decoded.getColumn(0).asBigInteger());
+        }
+    }
+
+    @Test
+    public void testStrings()
+    {
+        String[] values = {"", "ascii", "中文字符", "é߿ࠀ￿", "emoji 😀 𝄞",
+                "\u0000\n\t"};
+        for (String value : values) {
+            Record decoded = roundTrip(record(new StringColumn(value), new DoubleColumn(value.isEmpty() ? "0" : "1.5")));
+            assertEquals(value, decoded.getColumn(0).asString());
+        }
+
+        // 不成对的代理字符与 String.getBytes 一样替换为 '?'
+        String[] unpaired = {"a\uD83Db", "\uDE00", "x\uD83D", "\uDE00\uD83D"};
+        for (String value : unpaired) {
+            Record decoded = codec.decode(codec.toByteArray(record(new StringColumn(value))), record());
+            String expected = new String(value.getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8);
+            assertEquals(expected, decoded.getColumn(0).asString());
+        }
+    }
+
+    @Test
+    public void testDateTypes()
+    {
+        for (DateColumn.DateType type : DateColumn.DateType.values()) {
+            DateColumn column = new DateColumn(-86_400_000L * 365 * 100);
+            column.setSubType(type);
+            Record decoded = roundTrip(record(column, new DateColumn(System.currentTimeMillis())));
+            assertEquals(type, ((DateColumn) decoded.getColumn(0)).getSubType());
+            assertEquals(DateColumn.DateType.DATETIME, ((DateColumn) decoded.getColumn(1)).getSubType());
+        }
+    }
+
+    @Test
+    public void testOtherTypes()
+    {
+        roundTrip(record(new BoolColumn(true), new BoolColumn(false), new BytesColumn(new byte[0]),
+                new BytesColumn(new byte[] {0, -1, 127, -128}), new DoubleColumn(1.0E-300),
+                new DoubleColumn("3.14159265358979323846264338327950288")));
+    }
+
+    @Test
+    public void testExplicitByteSize()
+    {
+        // 通过字符串构造的 LongColumn 的 byteSize 为字符串的长度
+        LongColumn fromString = new LongColumn("1234567890");
+        assertEquals(10, fromString.getByteSize());
+        StringColumn string = new StringColumn("abc");
+        string.setByteSize(1000);
+        LongColumn nullLong = new LongColumn();
+        nullLong.setByteSize(7);
+        BytesColumn bytes = new BytesColumn(new byte[3]);
+        bytes.setByteSize(1 << 20);
+        roundTrip(record(fromString, string, nullLong, bytes));
+    }
+
+    @Test
+    public void testUnsupportedColumnStoredAsString()
+    {
+        Column custom = new Column("custom", Column.Type.STRING, 6)
+        {
+            @Override
+            public String asString() {return "custom";}
+
+            @Override
+            public Long asLong() {return null;}
+
+            @Override
+            public Double asDouble() {return null;}
+
+            @Override
+            public Date asDate() {return null;}
+
+            @Override
+            public byte[] asBytes() {return null;}
+
+            @Override
+            public Boolean asBoolean() {return null;}
+
+            @Override
+            public BigDecimal asBigDecimal() {return null;}
+
+            @Override
+            public BigInteger asBigInteger() {return null;}
+        };
+        Record decoded = codec.decode(codec.toByteArray(record(custom)), record());
+        assertEquals(StringColumn.class, decoded.getColumn(0).getClass());
+        assertEquals("custom", decoded.getColumn(0).asString());
+    }
+
+    @Test
+    public void testReuseWithTypeChanges()
+    {
+        Record target = record();
+        codec.decode(codec.toByteArray(record(new LongColumn(1L), new StringColumn("a"), null, new DateColumn(1L))), target);
+        Column reused = target.getColumn(0);
+
+        DateColumn time = new DateColumn(2L);
+        time.setSubType(DateColumn.DateType.TIME);
+        Record second = record(new LongColumn(BigInteger.ONE.shiftLeft(80)), new BoolColumn(true), new StringColumn("b"), time);
+        assertSame(target, codec.decode(codec.toByteArray(second), target));
+        assertSame(reused, target.getColumn(0));
+        assertColumnsEqual(second, target);
+
+        Record third = record(new StringColumn((String) null), null, new BytesColumn(new byte[] {1}), new LongColumn(3L));
+        codec.decode(codec.toByteArray(third), target);
+        assertColumnsEqual(third, target);
+
+        // 字段数不一致时不能复用
+        assertThrows(IllegalArgumentException.class,
+                () -> codec.decode(codec.toByteArray(record(new LongColumn(1L))), target));
+    }
+
+    @Test
+    public void testStream()
+            throws IOException
+    {
+        List<Record> records = new ArrayList<>();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StringBuilder large = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            large.append("0123456789");
+            Record record = record(new LongColumn((long) i), new StringColumn(large.toString()));
+            records.add(record);
+            codec.write(record, out);
+        }
+        ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
+        RecordCodec reader = new RecordCodec();
+        for (Record record : records) {
+            assertColumnsEqual(record, reader.read(in, record()));
+        }
+        assertNull(reader.read(in, record()));
+
+        // 截断的输入流
+        byte[] data = out.toByteArray();
+        for (int length : new int[] {1, 2, 20, data.length - 1}) {
+            ByteArrayInputStream truncated = new ByteArrayInputStream(Arrays.copyOf(data, length));
+            assertThrows(EOFException.class, () -> {
+                while (reader.read(truncated, record()) != null) {
+                    // 读到截断的位置
+                }
+            });
+        }
+    }
+
+    @Test
+    public void testTruncatedAndCorruptFrames()
+    {
+        byte[] frame = codec.toByteArray(record(new LongColumn(BigInteger.ONE.shiftLeft(70)), new StringColumn("中文"),
+                new DateColumn(1L), new BytesColumn(new byte[] {1, 2}), new BoolColumn(true), new DoubleColumn("1.5")));
+        for (int length = 0; length < frame.length; length++) {
+            byte[] truncated = Arrays.copyOf(frame, length);
+            assertThrows(IllegalArgumentException.class, () -> codec.decode(truncated, record()));
+        }
+        // 多余的字节
+        assertThrows(IllegalArgumentException.class, () -> codec.decode(Arrays.copyOf(frame, frame.length + 1), record()));
+        // 只解码其中的一部分
+        byte[] padded = new byte[frame.length + 4];
+        System.arraycopy(frame, 0, padded, 2, frame.length);
+        assertEquals(6, codec.decode(padded, 2, frame.length, record()).getColumnNumber());
+
+        byte[] version = frame.clone();
+        version[0] = 2;
+        assertThrows(AddaxException.class, () -> codec.decode(version, record()));
+
+        // 第一个字段的类型标记位于 version 和字段数之后
+        byte[] tag = frame.clone();
+        tag[2] = 0x0f;
+        assertThrows(IllegalArgumentException.class, () -> codec.decode(tag, record()));
+    }
+
+    private Record roundTrip(Record record)
+    {
+        Record decoded = codec.decode(codec.toByteArray(record), record());
+        assertColumnsEqual(record, decoded);
+        assertEquals(record.getByteSize(), decoded.getByteSize());
+        return decoded;
+    }
+
+    private static void assertColumnsEqual(Record expected, Record actual)
+    {
+        assertEquals(expected.getColumnNumber(), actual.getColumnNumber());
+        for (int i = 0; i < expected.getColumnNumber(); i++) {
+            Column e = expected.getColumn(i);
+            Column a = actual.getColumn(i);
+            if (e == null) {
+                assertNull(a, "column " + i);
+                continue;
+            }
+            assertEquals(e.getClass(), a.getClass(), "column " + i);
+            assertEquals(e.getType(), a.getType(), "column " + i);
+            assertEquals(e.getByteSize(), a.getByteSize(), "column " + i);
+            if (e.getRawData() instanceof byte[]) {
+                assertArrayEquals((byte[]) e.getRawData(), (byte[]) a.getRawData(), "column " + i);
+            }
+            else {
+                assertEquals(e.getRawData(), a.getRawData(), "column " + i);
+            }
+            if (e instanceof DateColumn) {
+                assertEquals(((DateColumn) e).getSubType(), ((DateColumn) a).getSubType(), "column " + i);
+            }
+        }
+    }
+
+    private static Record record(Column... columns)
+    {
+        ListRecord record = new ListRecord();
+        for (Column column : columns) {
+            record.addColumn(column);
+        }
+        return record;
+    }
+
+    /*
+     * 与 DefaultRecord 一样维护字段的 byteSize 之和
+     */
+    private static final class ListRecord
+            implements Record
+    {
+        private final List<Column> columns = new ArrayList<>();
+        private int byteSize;
+
+        @Override
+        public void addColumn(Column column)
+        {
+            columns.add(column);
+            byteSize += column == null ? 0 : column.getByteSize();
+        }
+
+        @Override
+        public void setColumn(int i, Column column)
+        {
+            Column old = columns.set(i, column);
+            byteSize += (column == null ? 0 : column.getByteSize()) - (old == null ? 0 : old.getByteSize());
+        }
+
+        @Override
+        public Column getColumn(int i)
+        {
+            return columns.get(i);
+        }
+
+        @Override
+        public int getColumnNumber()
+        {
+            return columns.size();
+        }
+
+        @Override
+        public int getByteSize()
+        {
+            return byteSize;
+        }
+
+        @Override
+        public int getMemorySize()
+        {
+            return byteSize;
+        }
+    }
+}
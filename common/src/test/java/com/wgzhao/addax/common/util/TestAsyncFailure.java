@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.wgzhao.addax.common.util;
+
+import com.wgzhao.addax.common.exception.AddaxException;
+import com.wgzhao.addax.common.exception.CommonErrorCode;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestAsyncFailure
+{
+    @Test
+    public void testFirstFailureWins()
+    {
+        AsyncFailure failure = new AsyncFailure(CommonErrorCode.RUNTIME_ERROR);
+        failure.check();
+        assertFalse(failure.isFailed());
+
+        IOException first = new IOException("first");
+        assertTrue(failure.set(first));
+        assertFalse(failure.set(new IOException("second")));
+        assertTrue(failure.isFailed());
+        AddaxException e = assertThrows(AddaxException.class, failure::check);
+        assertSame(first, e.getCause());
+        assertSame(CommonErrorCode.RUNTIME_ERROR, e.getErrorCode());
+    }
+
+    @Test
+    public void testAddaxExceptionIsNotWrapped()
+    {
+        AsyncFailure failure = new AsyncFailure(CommonErrorCode.RUNTIME_ERROR, "write failed");
+        AddaxException cause = AddaxException.asAddaxException(CommonErrorCode.CONFIG_ERROR, "bad config");
+        failure.set(cause);
+        assertSame(cause, assertThrows(AddaxException.class, failure::check));
+
+        failure = new AsyncFailure(CommonErrorCode.RUNTIME_ERROR, "write failed");
+        failure.set(new IllegalStateException("oops"));
+        assertTrue(assertThrows(AddaxException.class, failure::check).getMessage().contains("write failed"));
+    }
+
+    @Test
+    public void testBlockedProducerSeesFailure()
+            throws InterruptedException
+    {
+        AsyncFailure failure = new AsyncFailure(CommonErrorCode.RUNTIME_ERROR);
+        BlockingQueue<Integer> queue = new ArrayBlockingQueue<>(1);
+        failure.put(queue, 1);
+        Thread consumer = new Thread(() -> {
+            try {
+                Thread.sleep(200);
+            }
+            catch (InterruptedException ignored) {
+                //
+            }
+            failure.set(new IOException("broken"), queue);
+        });
+        consumer.start();
+        // 队列已满，消费者出错时清空队列，阻塞的写入可以继续，之后的写入抛出异常
+        failure.put(queue, 2);
+        consumer.join();
+        assertThrows(AddaxException.class, () -> failure.put(queue, 3));
+
+        Semaphore semaphore = new Semaphore(0);
+        assertThrows(AddaxException.class, () -> failure.acquire(semaphore));
+    }
+
+    @Test
+    public void testDaemonThreadFactory()
+    {
+        ThreadFactory factory = AsyncFailure.daemonThreadFactory("test-writer");
+        String creator = Thread.currentThread().getName();
+        Thread t0 = factory.newThread(() -> {});
+        Thread t1 = factory.newThread(() -> {});
+        assertTrue(t0.isDaemon());
+        assertEquals("test-writer-" + creator + "-0", t0.getName());
+        assertEquals("test-writer-" + creator + "-1", t1.getName());
+    }
+}
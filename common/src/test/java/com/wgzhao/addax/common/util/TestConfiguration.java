@@ -0,0 +1,247 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.wgzhao.addax.common.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestConfiguration
+{
+    private static final String JSON = "{\"job\":{\"content\":[{\"reader\":{\"name\":\"mysqlreader\","
+            + "\"parameter\":{\"username\":\"root\",\"password\":\"secret\",\"column\":[\"id\",\"name\"],"
+            + "\"connection\":[{\"table\":[\"t1\"],\"jdbcUrl\":[\"jdbc:mysql://127.0.0.1/db\"]},"
+            + "{\"table\":[\"t2\"],\"jdbcUrl\":[\"jdbc:mysql://127.0.0.2/db\"]}]}}}]}}";
+
+    private static final String PARAMETER = "job.content[0].reader.parameter";
+
+    @Test
+    public void testSetAfterCloneIsIsolated()
+    {
+        Configuration origin = Configuration.from(JSON);
+        String before = origin.toJSON();
+
+        Configuration copy = origin.clone();
+        copy.set(PARAMETER + ".username", "copy");
+        copy.set(PARAMETER + ".connection[1].table[0]", "t3");
+        copy.set(PARAMETER + ".where", "id > 10");
+        assertEquals(before, origin.toJSON());
+        assertEquals("copy", copy.getString(PARAMETER + ".username"));
+        assertEquals("t3", copy.getString(PARAMETER + ".connection[1].table[0]"));
+
+        // 反方向，修改原实例也不影响拷贝
+        String copyJson = copy.toJSON();
+        origin.set(PARAMETER + ".connection[0].table[0]", "t4");
+        origin.set(PARAMETER + ".column[2]", "age");
+        assertEquals(copyJson, copy.toJSON());
+        assertEquals("t1", copy.getString(PARAMETER + ".connection[0].table[0]"));
+        assertEquals(3, origin.getList(PARAMETER + ".column").size());
+        assertEquals(2, copy.getList(PARAMETER + ".column").size());
+    }
+
+    @Test
+    public void testMutatingReturnedContainerDoesNotLeak()
+    {
+        Configuration origin = Configuration.from(JSON);
+        Configuration copy = origin.clone();
+        String before = origin.toJSON();
+
+        List<Object> columns = copy.getList(PARAMETER + ".column");
+        columns.add("age");
+        Map<String, Object> parameter = copy.getMap(PARAMETER);
+        parameter.put("username", "copy");
+        assertEquals(before, origin.toJSON());
+
+        // 从原实例取出并修改的对象同样不影响拷贝
+        String copyJson = copy.toJSON();
+        Map<String, Object> connection = origin.getMap(PARAMETER + ".connection[0]");
+        connection.put("table", Collections.singletonList("t9"));
+        origin.getMap("").put("extra", 1);
+        assertEquals(copyJson, copy.toJSON());
+        assertNull(copy.get("extra"));
+    }
+
+    @Test
+    public void testContainerReturnedBeforeCloneDoesNotLeak()
+    {
+        Configuration origin = Configuration.from("{\"a\":{\"b\":[1,2]}}");
+        List<Object> list = origin.getList("a.b");
+        Configuration copy = origin.clone();
+        Configuration child = origin.getConfiguration("a");
+        list.add(3);
+        // 与深拷贝的行为一致: 返回的对象仍然属于原实例，拷贝不受影响
+        assertEquals("{\"a\":{\"b\":[1,2,3]}}", origin.toJSON());
+        assertEquals("{\"a\":{\"b\":[1,2]}}", copy.toJSON());
+        assertEquals("{\"b\":[1,2]}", child.toJSON());
+        // 再次 clone 时同样复制
+        assertEquals("{\"a\":{\"b\":[1,2,3]}}", origin.clone().toJSON());
+        list.add(4);
+        assertEquals(4, origin.getList("a.b").size());
+        assertEquals(2, copy.getList("a.b").size());
+
+        // 通过 set 放入、调用方仍持有的对象
+        Map<String, Object> parameter = new HashMap<>();
+        List<Object> tables = new ArrayList<>(Collections.singletonList("t1"));
+        parameter.put("table", tables);
+        origin.set("p", parameter);
+        Configuration copy2 = origin.clone();
+        tables.add("t2");
+        assertEquals(2, origin.getList("p.table").size());
+        assertEquals(1, copy2.getList("p.table").size());
+
+        // getInternal 返回整棵树
+        @SuppressWarnings("unchecked")
+        Map<String, Object> internal = (Map<String, Object>) origin.getInternal();
+        Configuration copy3 = origin.clone();
+        internal.put("extra", 1);
+        ((List<Object>) origin.get("a.b")).clear();
+        assertEquals(1, origin.getInt("extra"));
+        assertNull(copy3.get("extra"));
+        assertEquals(4, copy3.getList("a.b").size());
+    }
+
+    @Test
+    public void testChildConfigurationsAreIsolated()
+    {
+        Configuration origin = Configuration.from(JSON);
+        String before = origin.toJSON();
+
+        Configuration parameter = origin.getConfiguration(PARAMETER);
+        parameter.set("username", "child");
+        List<Configuration> connections = parameter.getListConfiguration("connection");
+        assertEquals(2, connections.size());
+        connections.get(0).set("table[0]", "changed");
+        connections.get(1).remove("jdbcUrl");
+
+        assertEquals(before, origin.toJSON());
+        assertEquals("child", parameter.getString("username"));
+        assertEquals("t1", parameter.getString("connection[0].table[0]"));
+        assertEquals("jdbc:mysql://127.0.0.2/db", parameter.getString("connection[1].jdbcUrl[0]"));
+        assertEquals("changed", connections.get(0).getString("table[0]"));
+        assertNull(connections.get(1).get("jdbcUrl"));
+        // 两个子配置之间互不影响
+        assertEquals("t2", connections.get(1).getString("table[0]"));
+    }
+
+    @Test
+    public void testRemoveAndMergeAfterSharing()
+    {
+        Configuration origin = Configuration.from(JSON);
+        Configuration copy = origin.clone();
+        String before = origin.toJSON();
+
+        assertEquals("secret", copy.remove(PARAMETER + ".password"));
+        assertNull(copy.get(PARAMETER + ".password"));
+        assertEquals("secret", origin.getString(PARAMETER + ".password"));
+        assertThrows(RuntimeException.class, () -> copy.remove(PARAMETER + ".password"));
+
+        Configuration other = Configuration.from("{\"job\":{\"content\":[{\"reader\":{\"parameter\":"
+                + "{\"username\":\"merged\",\"fetchSize\":1024}}}]}}");
+        copy.merge(other, false);
+        assertEquals("root", copy.getString(PARAMETER + ".username"));
+        assertEquals(1024, copy.getInt(PARAMETER + ".fetchSize"));
+        copy.merge(other, true);
+        assertEquals("merged", copy.getString(PARAMETER + ".username"));
+        assertEquals(before, origin.toJSON());
+
+        // 合并的来源也不受影响
+        copy.set(PARAMETER + ".fetchSize", 1);
+        assertEquals(1024, other.getInt(PARAMETER + ".fetchSize"));
+    }
+
+    @Test
+    public void testSecretKeyPathSurvivesClone()
+    {
+        Configuration origin = Configuration.from(JSON);
+        origin.addSecretKeyPath(PARAMETER + ".password");
+
+        Configuration copy = origin.clone();
+        assertTrue(copy.getSecretKeyPathSet().contains(PARAMETER + ".password"));
+        assertEquals("secret", copy.getString(PARAMETER + ".password"));
+
+        // 两者的集合互相独立
+        copy.addSecretKeyPath(PARAMETER + ".username");
+        assertFalse(origin.getSecretKeyPathSet().contains(PARAMETER + ".username"));
+        assertTrue(copy.clone().getSecretKeyPathSet().containsAll(
+                Arrays.asList(PARAMETER + ".password", PARAMETER + ".username")));
+    }
+
+    @Test
+    public void testMissingPathReturnsNull()
+    {
+        Configuration origin = Configuration.from(JSON);
+        assertNull(origin.get("job.setting.speed"));
+        assertNull(origin.get(PARAMETER + ".connection[5].table"));
+        assertNull(origin.get(PARAMETER + ".username.child"));
+        assertNull(origin.getConfiguration("job.nothing"));
+        assertEquals("default", origin.getString("job.nothing", "default"));
+        assertTrue(origin.getListConfiguration("job.nothing").isEmpty());
+    }
+
+    @Test
+    public void testConcurrentReadsAndClones()
+            throws InterruptedException
+    {
+        Configuration origin = Configuration.from(JSON);
+        String before = origin.toJSON();
+        Thread[] threads = new Thread[4];
+        Throwable[] errors = new Throwable[threads.length];
+        for (int t = 0; t < threads.length; t++) {
+            int id = t;
+            threads[t] = new Thread(() -> {
+                try {
+                    for (int i = 0; i < 2000; i++) {
+                        Configuration copy = origin.clone();
+                        copy.set(PARAMETER + ".connection[0].table[0]", "t" + id + "_" + i);
+                        assertEquals("t" + id + "_" + i, copy.getString(PARAMETER + ".connection[0].table[0]"));
+                        assertEquals(2, origin.getListConfiguration(PARAMETER + ".connection").size());
+                        origin.getMap(PARAMETER);
+                        assertEquals("root", origin.getConfiguration(PARAMETER).getString("username"));
+                    }
+                }
+                catch (Throwable e) {
+                    errors[id] = e;
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (Throwable error : errors) {
+            if (error != null) {
+                throw new AssertionError(error);
+            }
+        }
+        assertEquals(before, origin.toJSON());
+    }
+}
@@ -26,6 +26,7 @@ import com.wgzhao.addax.common.statistics.PerfTrace;
 import com.wgzhao.addax.common.statistics.VMInfo;
 import com.wgzhao.addax.common.util.Configuration;
 import com.wgzhao.addax.core.job.JobContainer;
+import com.wgzhao.addax.core.server.JobServer;
 import com.wgzhao.addax.core.util.ConfigParser;
 import com.wgzhao.addax.core.util.ConfigurationValidate;
 import com.wgzhao.addax.core.util.FrameworkErrorCode;
@@ -40,6 +41,7 @@ import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.Properties;
 import java.util.Set;
@@ -53,10 +55,27 @@ public class Engine
 
     /* check job model (job/task) first */
     public void start(Configuration allConf)
+    {
+        start(allConf, false);
+    }
+
+    /**
+     * 运行一个作业
+     *
+     * @param allConf 作业的完整配置
+     * @param isolated 为 true 时，列转换设置和 PerfTrace 只绑定到当前线程及其创建的线程，
+     * 用于在同一个 JVM 中同时运行多个作业(daemon 模式)；否则为进程全局
+     */
+    public void start(Configuration allConf, boolean isolated)
     {
 
         // 绑定column转换信息
-        ColumnCast.bind(allConf);
+        if (isolated) {
+            ColumnCast.bindCurrentThread(allConf);
+        }
+        else {
+            ColumnCast.bind(allConf);
+        }
 
         /*
          * 初始化PluginLoader，可以获取各种插件配置
@@ -74,9 +93,18 @@ public class Engine
 
         Configuration jobInfoConfig = allConf.getConfiguration(CoreConstant.JOB_JOB_INFO);
         //初始化PerfTrace
-        PerfTrace perfTrace = PerfTrace.getInstance(true, instanceId, -1, 0, false);
+        PerfTrace perfTrace = isolated ? PerfTrace.bindCurrentThread(true, instanceId, -1, 0, false)
+                : PerfTrace.getInstance(true, instanceId, -1, 0, false);
         perfTrace.setJobInfo(jobInfoConfig, false, channelNumber);
-        container.start();
+        try {
+            container.start();
+        }
+        finally {
+            if (isolated) {
+                PerfTrace.unbindCurrentThread();
+                ColumnCast.unbindCurrentThread();
+            }
+        }
     }
 
     // 注意屏蔽敏感信息
@@ -109,11 +137,17 @@ public class Engine
     {
         Options options = new Options();
         options.addOption("job", true, "Job config.");
+        options.addOption("daemon", false, "Run as a daemon which accepts jobs over http.");
 
         try {
             DefaultParser parser = new DefaultParser();
             CommandLine cl = parser.parse(options, args);
 
+            if (cl.hasOption("daemon")) {
+                startDaemon();
+                return;
+            }
+
             String jobPath = cl.getOptionValue("job");
 
             Configuration configuration = ConfigParser.parse(jobPath);
@@ -144,6 +178,29 @@ public class Engine
         }
     }
 
+    private static void startDaemon()
+    {
+        Configuration coreConfig = Configuration.from(new File(CoreConstant.CONF_PATH));
+        // 作业之外使用的缺省转换设置，每个作业运行时再绑定自己的设置
+        ColumnCast.bind(coreConfig);
+
+        JobServer server;
+        try {
+            server = new JobServer(coreConfig);
+        }
+        catch (IOException e) {
+            throw AddaxException.asAddaxException(FrameworkErrorCode.RUNTIME_ERROR, "启动 daemon 失败", e);
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop, "daemon-shutdown"));
+        server.start();
+        try {
+            server.awaitTermination();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
     public static String getVersion()
     {
         try {
@@ -160,8 +217,8 @@ public class Engine
     {
         LOG.info("Addax version {}", Engine.getVersion());
         int exitCode = 0;
-        if (args.length < 2) {
-            LOG.error("need a job file");
+        if (args.length == 0) {
+            LOG.error("need a job file or -daemon");
             System.exit(1);
         }
 
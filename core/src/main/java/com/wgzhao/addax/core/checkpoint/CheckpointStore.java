@@ -0,0 +1,254 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.wgzhao.addax.core.checkpoint;
+
+import com.wgzhao.addax.common.util.Configuration;
+import com.wgzhao.addax.core.util.container.CoreConstant;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+
+/**
+ * 作业的断点信息存储，由 core.checkpoint.enable 开启
+ * <p>
+ * 每个作业对应 {@code ${path}/${name}} 目录，其中每个 task 一个 {@code task_<taskId>.json} 文件，
+ * 文件先写入临时文件再重命名，保证进程在任何时刻退出都不会留下不完整的内容。
+ * 作业成功结束后删除整个目录
+ */
+public final class CheckpointStore
+{
+    private static final Logger LOG = LoggerFactory.getLogger(CheckpointStore.class);
+
+    private static final String FINGERPRINT = "fingerprint";
+    private static final String POSITION = "position";
+    private static final String FINISHED = "finished";
+
+    private final Path dir;
+    private final long intervalMillis;
+
+    private CheckpointStore(Path dir, long intervalMillis)
+    {
+        this.dir = dir;
+        this.intervalMillis = intervalMillis;
+    }
+
+    /**
+     * @param configuration 作业或者 taskGroup 的配置，core.checkpoint.name 需要已经由 JobContainer 设置
+     * @return 断点信息存储，未开启时返回 null
+     */
+    public static CheckpointStore create(Configuration configuration)
+    {
+        if (!configuration.getBool(CoreConstant.CORE_CHECKPOINT_ENABLE, false)) {
+            return null;
+        }
+        String name = configuration.getString(CoreConstant.CORE_CHECKPOINT_NAME);
+        if (StringUtils.isBlank(name)) {
+            LOG.warn("The checkpoint name is not set, checkpoint is disabled.");
+            return null;
+        }
+        String path = configuration.getString(CoreConstant.CORE_CHECKPOINT_PATH, "");
+        if (StringUtils.isBlank(path)) {
+            path = StringUtils.join(new String[] {CoreConstant.HOME, "checkpoint"}, File.separator);
+        }
+        long interval = configuration.getLong(CoreConstant.CORE_CHECKPOINT_INTERVAL, 10);
+        return new CheckpointStore(Paths.get(path, name), Math.max(0, interval) * 1000L);
+    }
+
+    /**
+     * 没有指定 core.checkpoint.name 时，用作业的 content 生成，相同的作业重新运行时得到相同的名称
+     *
+     * @param content 作业配置中的 job.content
+     * @return 名称
+     */
+    public static String nameOf(Configuration content)
+    {
+        return digest(content.toJSON());
+    }
+
+    /**
+     * 作业重新运行时，writer 在 prepare 阶段会执行 preSql 或者清空目的端，此时从断点继续会丢失断点之前的数据
+     *
+     * @param writerParameter 作业配置中的 writer.parameter
+     * @return 不能从断点继续的原因，可以继续时返回 null
+     */
+    public static String checkResumable(Configuration writerParameter)
+    {
+        if (writerParameter == null) {
+            return null;
+        }
+        Object preSql = writerParameter.get("preSql");
+        if ((preSql instanceof List && !((List<?>) preSql).isEmpty())
+                || (preSql instanceof String && StringUtils.isNotBlank((String) preSql))) {
+            return "preSql is configured";
+        }
+        String writeMode = writerParameter.getString("writeMode", "").trim().toLowerCase();
+        if (writeMode.startsWith("truncate") || writeMode.startsWith("overwrite")) {
+            return "writeMode is " + writeMode;
+        }
+        if (writerParameter.getBool("truncate", false)) {
+            return "truncate is true";
+        }
+        if (writerParameter.getBool("cleanup", false)) {
+            return "cleanup is true";
+        }
+        return null;
+    }
+
+    public Path getDir()
+    {
+        return dir;
+    }
+
+    long getIntervalMillis()
+    {
+        return intervalMillis;
+    }
+
+    public boolean isEmpty()
+    {
+        if (!Files.isDirectory(dir)) {
+            return true;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "task_*.json")) {
+            return !stream.iterator().hasNext();
+        }
+        catch (IOException e) {
+            return true;
+        }
+    }
+
+    /**
+     * 打开 task 的断点信息，task 的 reader 参数与保存时不同(比如切分的结果发生了变化)时忽略已保存的内容
+     *
+     * @param taskConfig task 的配置，即 job.content 中的一个元素
+     * @return task 的断点信息
+     */
+    public LocalTaskCheckpoint open(Configuration taskConfig)
+    {
+        int taskId = taskConfig.getInt(CoreConstant.TASK_ID);
+        Configuration reader = taskConfig.getConfiguration(CoreConstant.JOB_READER).clone();
+        // daemon 模式下每次运行的 jobId 不同
+        reader.remove("parameter.jobid");
+        String fingerprint = digest(reader.toJSON());
+
+        String position = null;
+        boolean finished = false;
+        Path file = taskFile(taskId);
+        if (Files.isRegularFile(file)) {
+            try {
+                Configuration saved = Configuration.from(new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+                if (fingerprint.equals(saved.getString(FINGERPRINT))) {
+                    position = saved.getString(POSITION);
+                    finished = saved.getBool(FINISHED, false);
+                    LOG.info("Restore checkpoint of task [{}]: finished={}, position=[{}].", taskId, finished, position);
+                }
+                else {
+                    LOG.warn("The reader parameter of task [{}] has changed, ignore the checkpoint in [{}].", taskId, file);
+                }
+            }
+            catch (Exception e) {
+                LOG.warn("Failed to read the checkpoint [{}], ignore it: {}", file, e.getMessage());
+            }
+        }
+        return new LocalTaskCheckpoint(this, taskId, fingerprint, position, finished);
+    }
+
+    /**
+     * 保存失败只记录日志，不影响 task 的运行
+     */
+    void save(int taskId, String fingerprint, String position, boolean finished)
+    {
+        Configuration content = Configuration.newDefault();
+        content.set(CoreConstant.TASK_ID, taskId);
+        content.set(FINGERPRINT, fingerprint);
+        content.set(POSITION, position);
+        content.set(FINISHED, finished);
+        content.set("timestamp", System.currentTimeMillis());
+
+        Path file = taskFile(taskId);
+        Path tmp = dir.resolve(file.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(dir);
+            Files.write(tmp, content.toJSON().getBytes(StandardCharsets.UTF_8));
+            try {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+            catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        catch (IOException e) {
+            LOG.warn("Failed to save the checkpoint of task [{}] to [{}]: {}", taskId, file, e.getMessage());
+        }
+    }
+
+    /**
+     * 删除作业的所有断点信息
+     */
+    public void clear()
+    {
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path file : stream) {
+                Files.deleteIfExists(file);
+            }
+            Files.deleteIfExists(dir);
+        }
+        catch (IOException e) {
+            LOG.warn("Failed to delete the checkpoint directory [{}]: {}", dir, e.getMessage());
+        }
+    }
+
+    private Path taskFile(int taskId)
+    {
+        return dir.resolve("task_" + taskId + ".json");
+    }
+
+    private static String digest(String content)
+    {
+        try {
+            byte[] hash = MessageDigest.getInstance("MD5").digest(content.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                sb.append(String.format("%02x", b & 0xff));
+            }
+            return sb.toString();
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
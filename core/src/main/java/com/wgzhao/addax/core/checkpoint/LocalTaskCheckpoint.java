@@ -0,0 +1,179 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.wgzhao.addax.core.checkpoint;
+
+import com.wgzhao.addax.common.plugin.TaskCheckpoint;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * 单个 task 的断点信息
+ * <p>
+ * exchanger 分别统计发送到 channel 的记录数和 writer 收到的记录数，reader 调用 mark 时记下位置和当时已发送的记录数，
+ * writer 调用 ack 时，已发送记录数不超过 writer 已收到记录数的位置即可确认。channel 是先进先出的，
+ * 所以这些位置之前的记录都已经写入目的端。
+ * <p>
+ * 为了避免每条记录都生成一个待确认的位置，同一秒内的 mark 只更新最后一个位置
+ */
+public class LocalTaskCheckpoint
+        implements TaskCheckpoint
+{
+    private static final long MARK_INTERVAL_MILLIS = 1000L;
+    // writer 长时间不确认时，丢弃最早的位置，只会降低断点的精度
+    private static final int MAX_PENDING_MARKS = 1024;
+
+    private final CheckpointStore store;
+    private final int taskId;
+    private final String fingerprint;
+    private final String restoredPosition;
+    private final boolean restoredFinished;
+
+    private final Deque<Mark> marks = new ArrayDeque<>();
+    // 只在 reader 线程中修改
+    private long sentRecords = 0;
+    // 只在 writer 线程中修改
+    private long receivedRecords = 0;
+    private long lastMarkTime = 0;
+    private long lastSaveTime;
+
+    private String committedPosition;
+    private boolean dirty = false;
+
+    LocalTaskCheckpoint(CheckpointStore store, int taskId, String fingerprint,
+            String restoredPosition, boolean restoredFinished)
+    {
+        this.store = store;
+        this.taskId = taskId;
+        this.fingerprint = fingerprint;
+        this.restoredPosition = restoredPosition;
+        this.restoredFinished = restoredFinished;
+        this.committedPosition = restoredPosition;
+        this.lastSaveTime = System.currentTimeMillis();
+    }
+
+    @Override
+    public boolean isEnabled()
+    {
+        return true;
+    }
+
+    @Override
+    public String getRestoredPosition()
+    {
+        return restoredPosition;
+    }
+
+    /**
+     * @return 上次运行时该 task 是否已经成功结束
+     */
+    public boolean isRestoredFinished()
+    {
+        return restoredFinished;
+    }
+
+    /**
+     * 由 exchanger 在记录放入 channel 的缓冲区后调用
+     */
+    public void recordSent()
+    {
+        sentRecords++;
+    }
+
+    /**
+     * 由 exchanger 在 writer 取走一条记录后调用
+     */
+    public void recordReceived()
+    {
+        receivedRecords++;
+    }
+
+    @Override
+    public void mark(String position)
+    {
+        if (position == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            Mark last = marks.peekLast();
+            if (last != null && now - lastMarkTime < MARK_INTERVAL_MILLIS) {
+                last.position = position;
+                last.sentRecords = sentRecords;
+                return;
+            }
+            if (marks.size() >= MAX_PENDING_MARKS) {
+                marks.pollFirst();
+            }
+            marks.addLast(new Mark(position, sentRecords));
+            lastMarkTime = now;
+        }
+    }
+
+    @Override
+    public void ack()
+    {
+        long acked = receivedRecords;
+        synchronized (this) {
+            Mark first;
+            while ((first = marks.peekFirst()) != null && first.sentRecords <= acked) {
+                committedPosition = first.position;
+                dirty = true;
+                marks.pollFirst();
+            }
+            long now = System.currentTimeMillis();
+            if (dirty && now - lastSaveTime >= store.getIntervalMillis()) {
+                save(false);
+                lastSaveTime = now;
+            }
+        }
+    }
+
+    /**
+     * task 结束时调用，成功时标记为已完成，作业重新运行时不再执行该 task
+     *
+     * @param finished task 是否成功
+     */
+    public synchronized void close(boolean finished)
+    {
+        if (finished || dirty) {
+            save(finished);
+        }
+    }
+
+    private void save(boolean finished)
+    {
+        store.save(taskId, fingerprint, committedPosition, finished);
+        dirty = false;
+    }
+
+    private static final class Mark
+    {
+        private String position;
+        private long sentRecords;
+
+        private Mark(String position, long sentRecords)
+        {
+            this.position = position;
+            this.sentRecords = sentRecords;
+        }
+    }
+}
@@ -24,9 +24,13 @@ import com.wgzhao.addax.common.util.Configuration;
 import com.wgzhao.addax.core.util.container.CoreConstant;
 import org.apache.commons.lang3.Validate;
 import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -35,6 +39,8 @@ import java.util.Random;
 
 public final class JobAssignUtil
 {
+    private static final Logger LOG = LoggerFactory.getLogger(JobAssignUtil.class);
+
     private JobAssignUtil()
     {
     }
@@ -80,8 +86,14 @@ public final class JobAssignUtil
             Collections.shuffle(contentConfig, new Random(System.currentTimeMillis()));
         }
 
-        LinkedHashMap<String, List<Integer>> resourceMarkAndTaskIdMap = parseAndGetResourceMarkAndTaskIdMap(contentConfig);
-        List<Configuration> taskGroupConfig = doAssign(resourceMarkAndTaskIdMap, configuration, taskGroupNumber);
+        List<Configuration> taskGroupConfig;
+        if (hasCost(contentConfig)) {
+            taskGroupConfig = doAssignByCost(contentConfig, configuration, taskGroupNumber);
+        }
+        else {
+            LinkedHashMap<String, List<Integer>> resourceMarkAndTaskIdMap = parseAndGetResourceMarkAndTaskIdMap(contentConfig);
+            taskGroupConfig = doAssign(resourceMarkAndTaskIdMap, configuration, taskGroupNumber);
+        }
 
         // 调整 每个 taskGroup 对应的 Channel 个数（属于优化范畴）
         adjustChannelNumPerTaskGroup(taskGroupConfig, channelNumber);
@@ -168,11 +180,6 @@ public final class JobAssignUtil
     {
         List<Configuration> contentConfig = jobConfiguration.getListConfiguration(CoreConstant.JOB_CONTENT);
 
-        Configuration taskGroupTemplate = jobConfiguration.clone();
-        taskGroupTemplate.remove(CoreConstant.JOB_CONTENT);
-
-        List<Configuration> result = new LinkedList<>();
-
         List<List<Configuration>> taskGroupConfigList = new ArrayList<>(taskGroupNumber);
         for (int i = 0; i < taskGroupNumber; i++) {
             taskGroupConfigList.add(new LinkedList<>());
@@ -200,9 +207,145 @@ public final class JobAssignUtil
                 }
             }
         }
+        return buildTaskGroupConfigs(jobConfiguration, taskGroupConfigList);
+    }
+
+    /**
+     * 插件估算了 task 的开销时，按开销从大到小依次将 task 分配给当前总开销最小的 taskGroup (longest processing time first)，
+     * 总开销相同时优先选择同一资源上 task 较少的 taskGroup，再相同时选择 task 较少的 taskGroup.
+     *
+     * @param contentConfig task 的配置，已经设置了资源标识
+     * @param jobConfiguration configuration
+     * @param taskGroupNumber the number of group
+     * @return list of configuration
+     */
+    private static List<Configuration> doAssignByCost(List<Configuration> contentConfig, Configuration jobConfiguration,
+            int taskGroupNumber)
+    {
+        List<Configuration> tasks = sortByCost(contentConfig);
+        long[] costs = effectiveCosts(tasks);
+
+        List<List<Configuration>> taskGroupConfigList = new ArrayList<>(taskGroupNumber);
+        List<Map<String, Integer>> resourceMarkCounts = new ArrayList<>(taskGroupNumber);
+        long[] loads = new long[taskGroupNumber];
+        for (int i = 0; i < taskGroupNumber; i++) {
+            taskGroupConfigList.add(new LinkedList<>());
+            resourceMarkCounts.add(new HashMap<>());
+        }
+
+        for (int t = 0; t < tasks.size(); t++) {
+            Configuration task = tasks.get(t);
+            String resourceMark = getResourceMark(task);
+            int target = 0;
+            for (int i = 1; i < taskGroupNumber; i++) {
+                if (loads[i] != loads[target]) {
+                    if (loads[i] < loads[target]) {
+                        target = i;
+                    }
+                    continue;
+                }
+                int sameResource = resourceMarkCounts.get(i).getOrDefault(resourceMark, 0);
+                int targetSameResource = resourceMarkCounts.get(target).getOrDefault(resourceMark, 0);
+                if (sameResource < targetSameResource || (sameResource == targetSameResource
+                        && taskGroupConfigList.get(i).size() < taskGroupConfigList.get(target).size())) {
+                    target = i;
+                }
+            }
+            taskGroupConfigList.get(target).add(task);
+            resourceMarkCounts.get(target).merge(resourceMark, 1, Integer::sum);
+            loads[target] += costs[t];
+        }
+        LOG.info("Assign {} tasks to {} taskGroups by the estimated cost, the cost of each taskGroup is {}.",
+                tasks.size(), taskGroupNumber, Arrays.toString(loads));
+
+        return buildTaskGroupConfigs(jobConfiguration, taskGroupConfigList);
+    }
+
+    /**
+     * 按插件估算的开销从大到小排序，开销相同或者没有估算开销的 task 保持原有的顺序，
+     * 没有估算开销的 task 按照其他 task 开销的平均值参与排序
+     *
+     * @param taskConfigs task 的配置
+     * @return 排序后的 task 配置，没有任何 task 估算了开销时保持原有的顺序
+     */
+    public static List<Configuration> sortByCost(List<Configuration> taskConfigs)
+    {
+        List<Configuration> tasks = new ArrayList<>(taskConfigs);
+        if (!hasCost(tasks)) {
+            return tasks;
+        }
+        long[] costs = effectiveCosts(tasks);
+        Integer[] order = new Integer[tasks.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(costs[b], costs[a]));
+        List<Configuration> sorted = new ArrayList<>(tasks.size());
+        for (Integer i : order) {
+            sorted.add(tasks.get(i));
+        }
+        return sorted;
+    }
+
+    private static boolean hasCost(List<Configuration> taskConfigs)
+    {
+        for (Configuration taskConfig : taskConfigs) {
+            if (getCost(taskConfig) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long getCost(Configuration taskConfig)
+    {
+        Long cost = taskConfig.getLong(CoreConstant.JOB_READER_PARAMETER + "." + CommonConstant.LOAD_BALANCE_COST);
+        if (cost == null) {
+            cost = taskConfig.getLong(CoreConstant.JOB_WRITER_PARAMETER + "." + CommonConstant.LOAD_BALANCE_COST);
+        }
+        return cost == null ? -1 : cost;
+    }
+
+    private static long[] effectiveCosts(List<Configuration> taskConfigs)
+    {
+        long[] costs = new long[taskConfigs.size()];
+        long total = 0;
+        int known = 0;
+        for (int i = 0; i < costs.length; i++) {
+            costs[i] = getCost(taskConfigs.get(i));
+            if (costs[i] >= 0) {
+                total += costs[i];
+                known++;
+            }
+        }
+        long average = known == 0 ? 0 : total / known;
+        for (int i = 0; i < costs.length; i++) {
+            if (costs[i] < 0) {
+                costs[i] = average;
+            }
+        }
+        return costs;
+    }
+
+    private static String getResourceMark(Configuration taskConfig)
+    {
+        String resourceMark = taskConfig.getString(CoreConstant.JOB_READER_PARAMETER + "." + CommonConstant.LOAD_BALANCE_RESOURCE_MARK);
+        if (StringUtils.isBlank(resourceMark)) {
+            resourceMark = taskConfig.getString(CoreConstant.JOB_WRITER_PARAMETER + "." + CommonConstant.LOAD_BALANCE_RESOURCE_MARK, "");
+        }
+        return resourceMark;
+    }
+
+    private static List<Configuration> buildTaskGroupConfigs(Configuration jobConfiguration,
+            List<List<Configuration>> taskGroupConfigList)
+    {
+        Configuration taskGroupTemplate = jobConfiguration.clone();
+        taskGroupTemplate.remove(CoreConstant.JOB_CONTENT);
+
+        List<Configuration> result = new LinkedList<>();
         Long jobId = taskGroupTemplate.getLong(CoreConstant.CORE_CONTAINER_JOB_ID);
         Configuration tempTaskGroupConfig;
-        for (int i = 0; i < taskGroupNumber; i++) {
+        for (int i = 0; i < taskGroupConfigList.size(); i++) {
             tempTaskGroupConfig = taskGroupTemplate.clone();
             tempTaskGroupConfig.set(CoreConstant.JOB_CONTENT, taskGroupConfigList.get(i));
             tempTaskGroupConfig.set(CoreConstant.CORE_CONTAINER_TASK_GROUP_ID, Integer.parseInt(jobId + "" + i));
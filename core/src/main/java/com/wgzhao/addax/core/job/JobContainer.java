@@ -31,6 +31,7 @@ import com.wgzhao.addax.common.util.Configuration;
 import com.wgzhao.addax.common.util.StrUtil;
 import com.wgzhao.addax.core.AbstractContainer;
 import com.wgzhao.addax.core.Engine;
+import com.wgzhao.addax.core.checkpoint.CheckpointStore;
 import com.wgzhao.addax.core.container.util.JobAssignUtil;
 import com.wgzhao.addax.core.hook.JobReport;
 import com.wgzhao.addax.core.job.scheduler.AbstractScheduler;
@@ -39,7 +40,11 @@ import com.wgzhao.addax.core.statistics.communication.Communication;
 import com.wgzhao.addax.core.statistics.communication.CommunicationTool;
 import com.wgzhao.addax.core.statistics.container.communicator.AbstractContainerCommunicator;
 import com.wgzhao.addax.core.statistics.container.communicator.job.StandAloneJobContainerCommunicator;
+import com.wgzhao.addax.core.statistics.jfr.JobRecording;
+import com.wgzhao.addax.core.statistics.metrics.JobMetrics;
+import com.wgzhao.addax.core.statistics.metrics.MetricsRegistry;
 import com.wgzhao.addax.core.statistics.plugin.DefaultJobPluginCollector;
+import com.wgzhao.addax.core.transport.channel.GlobalRateLimiter;
 import com.wgzhao.addax.core.util.ErrorRecordChecker;
 import com.wgzhao.addax.core.util.FrameworkErrorCode;
 import com.wgzhao.addax.core.util.container.ClassLoaderSwapper;
@@ -97,6 +102,8 @@ public class JobContainer
     private long endTransferTimeStamp;
     private int needChannelNumber;
     private int totalStage = 1;
+    // 未开启 JFR 录制时为 null
+    private JobRecording jobRecording;
 
     public JobContainer(Configuration configuration)
     {
@@ -125,6 +132,9 @@ public class JobContainer
             }
             else {
                 userConf = configuration.clone();
+                // 单机模式下 jobId 在 init 中才从 -1 修正为 0
+                this.jobRecording = JobRecording.start(configuration,
+                        Math.max(0, configuration.getLong(CoreConstant.CORE_CONTAINER_JOB_ID, 0)));
                 LOG.debug("jobContainer starts to do preHandle ...");
                 this.preHandle();
 
@@ -134,10 +144,12 @@ public class JobContainer
                 this.prepare();
                 LOG.debug("jobContainer starts to do split ...");
                 this.totalStage = this.split();
+                this.initCheckpoint();
                 LOG.debug("jobContainer starts to do schedule ...");
                 this.schedule();
                 LOG.debug("jobContainer starts to do post ...");
                 this.post();
+                this.clearCheckpoint();
 
                 LOG.debug("jobContainer starts to do postHandle ...");
                 this.postHandle();
@@ -183,6 +195,9 @@ public class JobContainer
             if (!isDryRun) {
 
                 this.destroy();
+                if (this.jobRecording != null) {
+                    this.jobRecording.stop();
+                }
                 this.endTimeStamp = System.currentTimeMillis();
                 if (!hasException) {
                     //最后打印cpu的平均消耗，GC的统计
@@ -416,8 +431,14 @@ public class JobContainer
             this.needChannelNumber = 1;
         }
 
+        // 开启并发自动调整时，按最大并发数切分，保证有足够的task可以调度
+        int adviceNumber = this.needChannelNumber;
+        if (this.configuration.getBool(CoreConstant.JOB_SETTING_SPEED_AUTO_TUNE, false)) {
+            adviceNumber = Math.max(adviceNumber, getMaxChannelNumber());
+        }
+
         List<Configuration> readerTaskConfigs = this
-                .doReaderSplit(this.needChannelNumber);
+                .doReaderSplit(adviceNumber);
         int taskNumber = readerTaskConfigs.size();
         List<Configuration> writerTaskConfigs = this
                 .doWriterSplit(taskNumber);
@@ -438,11 +459,55 @@ public class JobContainer
         return contentConfig.size();
     }
 
+    /*
+     * 开启断点续传时确定断点信息的目录，writer 会在 prepare 阶段清空目的端时，上次运行留下的断点信息不再有效
+     */
+    private void initCheckpoint()
+    {
+        if (!this.configuration.getBool(CoreConstant.CORE_CHECKPOINT_ENABLE, false)) {
+            return;
+        }
+        if (StringUtils.isBlank(this.configuration.getString(CoreConstant.CORE_CHECKPOINT_NAME))) {
+            this.configuration.set(CoreConstant.CORE_CHECKPOINT_NAME,
+                    CheckpointStore.nameOf(this.userConf.getConfiguration(CoreConstant.JOB_CONTENT)));
+        }
+        CheckpointStore store = CheckpointStore.create(this.configuration);
+        if (store == null || store.isEmpty()) {
+            return;
+        }
+        String reason = CheckpointStore.checkResumable(
+                this.userConf.getConfiguration(CoreConstant.JOB_CONTENT_WRITER_PARAMETER));
+        if (reason != null) {
+            LOG.warn("Found checkpoint in [{}], but the job can not resume from it because {}, start from scratch.",
+                    store.getDir(), reason);
+            store.clear();
+        }
+        else {
+            LOG.info("Found checkpoint in [{}], the job will resume from it.", store.getDir());
+        }
+    }
+
+    private void clearCheckpoint()
+    {
+        CheckpointStore store = CheckpointStore.create(this.configuration);
+        if (store != null) {
+            store.clear();
+        }
+    }
+
     private void adjustChannelNumber()
     {
         int needChannelNumberByByte = Integer.MAX_VALUE;
         int needChannelNumberByRecord = Integer.MAX_VALUE;
 
+        // 全局共享限速时，速度由所有channel共同分摊，channel数目直接取设定值
+        boolean isSharedLimit = this.configuration.getBool(CoreConstant.JOB_SETTING_SPEED_SHARED, false);
+        if (isSharedLimit && this.configuration.getInt(CoreConstant.JOB_SETTING_SPEED_CHANNEL, 0) > 0) {
+            this.needChannelNumber = this.configuration.getInt(CoreConstant.JOB_SETTING_SPEED_CHANNEL);
+            LOG.info("Job set Channel-Number to {} channels with shared speed limit.", this.needChannelNumber);
+            return;
+        }
+
         boolean isByteLimit = (this.configuration.getInt(
                 CoreConstant.JOB_SETTING_SPEED_BYTE, 0) > 0);
         if (isByteLimit) {
@@ -530,11 +595,28 @@ public class JobContainer
          * 通过获取配置信息得到每个taskGroup需要运行哪些tasks任务
          */
 
-        List<Configuration> taskGroupConfigs = JobAssignUtil.assignFairly(this.configuration,
-                this.needChannelNumber, channelsPerTaskGroup);
+        List<Configuration> taskGroupConfigs;
+        if (this.configuration.getBool(CoreConstant.JOB_SETTING_SPEED_AUTO_TUNE, false)) {
+            taskGroupConfigs = assignWithAutoTune(taskNumber, channelsPerTaskGroup);
+        }
+        else {
+            taskGroupConfigs = JobAssignUtil.assignFairly(this.configuration,
+                    this.needChannelNumber, channelsPerTaskGroup);
+        }
 
         LOG.info("Scheduler starts [{}] taskGroups.", taskGroupConfigs.size());
 
+        if (this.configuration.getBool(CoreConstant.JOB_SETTING_SPEED_SHARED, false)) {
+            GlobalRateLimiter.init(this.configuration.getLong(CoreConstant.JOB_SETTING_SPEED_BYTE, 0),
+                    this.configuration.getLong(CoreConstant.JOB_SETTING_SPEED_RECORD, 0),
+                    this.configuration.getBool(CoreConstant.JOB_SETTING_SPEED_ADAPTIVE, false));
+        }
+
+        JobMetrics jobMetrics = MetricsRegistry.register(this.configuration);
+        if (jobMetrics != null) {
+            PerfTrace.getInstance().setPerfRecordListener(jobMetrics);
+        }
+
         AbstractScheduler scheduler;
         try {
             scheduler = initStandaloneScheduler(this.configuration);
@@ -548,6 +630,13 @@ public class JobContainer
             throw AddaxException.asAddaxException(
                     FrameworkErrorCode.RUNTIME_ERROR, e);
         }
+        finally {
+            GlobalRateLimiter.shutdown();
+            if (jobMetrics != null) {
+                PerfTrace.getInstance().setPerfRecordListener(null);
+                MetricsRegistry.unregister(this.jobId);
+            }
+        }
 
         /*
          * 检查任务执行情况
@@ -555,6 +644,39 @@ public class JobContainer
         this.checkLimit();
     }
 
+    private int getMaxChannelNumber()
+    {
+        return Math.max(this.needChannelNumber, this.configuration.getInt(
+                CoreConstant.JOB_SETTING_SPEED_MAX_CHANNEL, this.needChannelNumber * 2));
+    }
+
+    /*
+     * 开启并发自动调整时，按最大并发数分配taskGroup，每个taskGroup的channel数即为其并发上限,
+     * 初始并发数和并发下限则按比例分摊到各个taskGroup
+     */
+    private List<Configuration> assignWithAutoTune(int taskNumber, int channelsPerTaskGroup)
+    {
+        int maxChannelNumber = Math.min(getMaxChannelNumber(), taskNumber);
+        int minChannelNumber = Math.min(this.needChannelNumber,
+                Math.max(1, this.configuration.getInt(CoreConstant.JOB_SETTING_SPEED_MIN_CHANNEL, 1)));
+        long tuneInterval = this.configuration.getLong(CoreConstant.JOB_SETTING_SPEED_TUNE_INTERVAL, 10000L);
+        LOG.info("Job enable channel auto tuning, channel range [{}, {}], start with {} channels.",
+                minChannelNumber, maxChannelNumber, this.needChannelNumber);
+
+        List<Configuration> taskGroupConfigs = JobAssignUtil.assignFairly(this.configuration,
+                maxChannelNumber, channelsPerTaskGroup);
+        for (Configuration taskGroupConfig : taskGroupConfigs) {
+            int channel = taskGroupConfig.getInt(CoreConstant.CORE_CONTAINER_TASK_GROUP_CHANNEL);
+            taskGroupConfig.set(CoreConstant.CORE_CONTAINER_TASK_GROUP_AUTO_TUNE, true);
+            taskGroupConfig.set(CoreConstant.CORE_CONTAINER_TASK_GROUP_INIT_CHANNEL,
+                    Math.max(1, channel * this.needChannelNumber / maxChannelNumber));
+            taskGroupConfig.set(CoreConstant.CORE_CONTAINER_TASK_GROUP_MIN_CHANNEL,
+                    Math.max(1, channel * minChannelNumber / maxChannelNumber));
+            taskGroupConfig.set(CoreConstant.CORE_CONTAINER_TASK_GROUP_TUNE_INTERVAL, tuneInterval);
+        }
+        return taskGroupConfigs;
+    }
+
     private AbstractScheduler initStandaloneScheduler(Configuration configuration)
     {
         AbstractContainerCommunicator containerCommunicator = new StandAloneJobContainerCommunicator(configuration);
@@ -0,0 +1,296 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.wgzhao.addax.core.server;
+
+import com.alibaba.fastjson.JSON;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.wgzhao.addax.common.exception.AddaxException;
+import com.wgzhao.addax.common.util.Configuration;
+import com.wgzhao.addax.core.Engine;
+import com.wgzhao.addax.core.statistics.communication.LocalTGCommunicationManager;
+import com.wgzhao.addax.core.util.ConfigParser;
+import com.wgzhao.addax.core.util.ConfigurationValidate;
+import com.wgzhao.addax.core.util.FrameworkErrorCode;
+import com.wgzhao.addax.core.util.container.CoreConstant;
+import com.wgzhao.addax.core.util.container.LoadUtil;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * daemon 模式：在一个常驻的 JVM 中通过 HTTP 接口接收作业，最多同时运行 maxConcurrentJobs 个作业.
+ * <p>
+ * 插件的 JarLoader、插件配置以及 JIT 编译后的代码在作业之间共享，每个作业的列转换设置、PerfTrace、
+ * 限速器和统计信息绑定到作业线程，互不影响.
+ * <ul>
+ *     <li>POST /jobs 提交作业，请求体为作业的 json，返回 jobId</li>
+ *     <li>GET /jobs 列出所有作业</li>
+ *     <li>GET /jobs/{jobId} 获取作业的状态和统计信息</li>
+ * </ul>
+ * 提交的作业可以读写任意文件、执行任意 SQL，因此配置了 token 时，每个请求都需要携带
+ * {@code Authorization: Bearer <token>}；没有配置 token 时只允许监听回环地址.
+ */
+public class JobServer
+{
+    private static final Logger LOG = LoggerFactory.getLogger(JobServer.class);
+
+    private static final String CONTEXT = "/jobs";
+    private static final String BEARER = "Bearer ";
+
+    private final HttpServer httpServer;
+    private final ExecutorService jobExecutor;
+    private final int maxFinishedJobs;
+    // 为 null 时不校验请求
+    private final byte[] token;
+
+    private final AtomicLong jobIdGenerator = new AtomicLong(0);
+    private final Map<Long, ServerJob> jobs = new ConcurrentHashMap<>();
+    private final Queue<Long> finishedJobs = new ConcurrentLinkedQueue<>();
+    private final CountDownLatch terminated = new CountDownLatch(1);
+
+    public JobServer(Configuration coreConfig)
+            throws IOException
+    {
+        String host = coreConfig.getString(CoreConstant.CORE_DAEMON_HOST, "127.0.0.1");
+        int port = coreConfig.getInt(CoreConstant.CORE_DAEMON_PORT, 10601);
+        int maxConcurrentJobs = Math.max(1, coreConfig.getInt(CoreConstant.CORE_DAEMON_MAX_CONCURRENT_JOBS, 4));
+        this.maxFinishedJobs = Math.max(0, coreConfig.getInt(CoreConstant.CORE_DAEMON_MAX_FINISHED_JOBS, 1000));
+        String token = coreConfig.getString(CoreConstant.CORE_DAEMON_TOKEN, null);
+        if (StringUtils.isBlank(token)) {
+            if (!InetAddress.getByName(host).isLoopbackAddress()) {
+                throw AddaxException.asAddaxException(FrameworkErrorCode.CONFIG_ERROR,
+                        String.format("The daemon listens on non-loopback address [%s], please set [%s] to require authentication.",
+                                host, CoreConstant.CORE_DAEMON_TOKEN));
+            }
+            this.token = null;
+        }
+        else {
+            this.token = token.getBytes(StandardCharsets.UTF_8);
+        }
+
+        this.jobExecutor = Executors.newFixedThreadPool(maxConcurrentJobs, namedThreadFactory("job-runner-"));
+        this.httpServer = HttpServer.create(new InetSocketAddress(host, port), 0);
+        this.httpServer.createContext(CONTEXT, this::handle);
+        this.httpServer.setExecutor(Executors.newFixedThreadPool(2, namedThreadFactory("daemon-http-")));
+        LOG.info("Addax daemon listens on {}:{}, maxConcurrentJobs={}, authentication {}.", host, port, maxConcurrentJobs,
+                this.token == null ? "disabled" : "enabled");
+    }
+
+    public void start()
+    {
+        httpServer.start();
+    }
+
+    public void stop()
+    {
+        if (terminated.getCount() == 0) {
+            return;
+        }
+        LOG.info("Stopping Addax daemon.");
+        httpServer.stop(0);
+        jobExecutor.shutdownNow();
+        terminated.countDown();
+    }
+
+    public void awaitTermination()
+            throws InterruptedException
+    {
+        terminated.await();
+    }
+
+    /**
+     * 提交一个作业，作业配置不合法时抛出异常
+     *
+     * @param jobContent 作业的 json
+     * @return 作业
+     */
+    ServerJob submit(String jobContent)
+    {
+        Configuration configuration = ConfigParser.parse(Configuration.from(jobContent));
+        long jobId = jobIdGenerator.incrementAndGet();
+        configuration.set(CoreConstant.CORE_CONTAINER_JOB_ID, jobId);
+        configuration.set(CoreConstant.CORE_CONTAINER_JOB_MODE, "standalone");
+        ConfigurationValidate.doValidate(configuration);
+
+        ServerJob job = new ServerJob(jobId, configuration);
+        jobs.put(jobId, job);
+        jobExecutor.execute(() -> run(job));
+        LOG.info("Job [{}] submitted:\n{}", jobId, Engine.filterJobConfiguration(configuration));
+        return job;
+    }
+
+    private void run(ServerJob job)
+    {
+        long jobId = job.getJobId();
+        String threadName = Thread.currentThread().getName();
+        Throwable error = null;
+        job.markRunning();
+        try {
+            new Engine().start(job.getConfiguration(), true);
+        }
+        catch (Throwable e) {
+            LOG.error("Job [{}] failed: {}", jobId, e.getMessage());
+            error = e;
+        }
+        finally {
+            job.markFinished(error);
+            // 移除作业在进程内的统计信息和插件配置
+            LocalTGCommunicationManager.removeJob(jobId);
+            LoadUtil.getConfigurationSet().remove(jobId);
+            Thread.currentThread().setName(threadName);
+            retire(jobId);
+        }
+        LOG.info("Job [{}] finished with state {}.", jobId, job.getState());
+    }
+
+    /*
+     * 只保留最近 maxFinishedJobs 个已结束作业的状态
+     */
+    private void retire(long jobId)
+    {
+        finishedJobs.add(jobId);
+        while (finishedJobs.size() > maxFinishedJobs) {
+            Long oldest = finishedJobs.poll();
+            if (oldest == null) {
+                break;
+            }
+            jobs.remove(oldest);
+        }
+    }
+
+    private void handle(HttpExchange exchange)
+            throws IOException
+    {
+        try {
+            if (!authorized(exchange)) {
+                exchange.getResponseHeaders().set("WWW-Authenticate", "Bearer");
+                respond(exchange, 401, Collections.singletonMap("error", "Unauthorized"));
+                return;
+            }
+            String path = exchange.getRequestURI().getPath();
+            String method = exchange.getRequestMethod();
+            String sub = path.substring(CONTEXT.length());
+            if (sub.isEmpty() || "/".equals(sub)) {
+                if ("POST".equals(method)) {
+                    String content = IOUtils.toString(exchange.getRequestBody(), StandardCharsets.UTF_8);
+                    ServerJob job;
+                    try {
+                        job = submit(content);
+                    }
+                    catch (Exception e) {
+                        respond(exchange, 400, Collections.singletonMap("error", String.valueOf(e.getMessage())));
+                        return;
+                    }
+                    respond(exchange, 201, job.toMap());
+                }
+                else if ("GET".equals(method)) {
+                    List<Map<String, Object>> result = new ArrayList<>();
+                    for (ServerJob job : jobs.values()) {
+                        result.add(job.toMap());
+                    }
+                    result.sort((a, b) -> Long.compare((Long) a.get("jobId"), (Long) b.get("jobId")));
+                    respond(exchange, 200, result);
+                }
+                else {
+                    respond(exchange, 405, Collections.singletonMap("error", "Method not allowed: " + method));
+                }
+                return;
+            }
+
+            ServerJob job = null;
+            try {
+                job = jobs.get(Long.parseLong(sub.substring(1)));
+            }
+            catch (NumberFormatException ignored) {
+                //
+            }
+            if (!"GET".equals(method)) {
+                respond(exchange, 405, Collections.singletonMap("error", "Method not allowed: " + method));
+            }
+            else if (job == null) {
+                respond(exchange, 404, Collections.singletonMap("error", "No such job: " + sub.substring(1)));
+            }
+            else {
+                respond(exchange, 200, job.toMap());
+            }
+        }
+        catch (RuntimeException e) {
+            LOG.error("Failed to handle request {}", exchange.getRequestURI(), e);
+            respond(exchange, 500, Collections.singletonMap("error", String.valueOf(e.getMessage())));
+        }
+        finally {
+            exchange.close();
+        }
+    }
+
+    /*
+     * 使用 MessageDigest.isEqual 比较，耗时与 token 的内容无关
+     */
+    private boolean authorized(HttpExchange exchange)
+    {
+        if (token == null) {
+            return true;
+        }
+        String header = exchange.getRequestHeaders().getFirst("Authorization");
+        if (header == null || !header.startsWith(BEARER)) {
+            return false;
+        }
+        return MessageDigest.isEqual(token, header.substring(BEARER.length()).trim().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void respond(HttpExchange exchange, int code, Object body)
+            throws IOException
+    {
+        byte[] bytes = JSON.toJSONString(body).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(code, bytes.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(bytes);
+        }
+    }
+
+    private static ThreadFactory namedThreadFactory(String prefix)
+    {
+        AtomicInteger counter = new AtomicInteger(0);
+        return r -> new Thread(r, prefix + counter.incrementAndGet());
+    }
+}
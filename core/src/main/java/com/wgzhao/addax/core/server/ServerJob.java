@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.wgzhao.addax.core.server;
+
+import com.wgzhao.addax.common.util.Configuration;
+import com.wgzhao.addax.core.meta.State;
+import com.wgzhao.addax.core.statistics.communication.Communication;
+import com.wgzhao.addax.core.statistics.communication.CommunicationTool;
+import com.wgzhao.addax.core.statistics.communication.LocalTGCommunicationManager;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * daemon 中提交的一个作业及其运行状态
+ */
+class ServerJob
+{
+    private final long jobId;
+    private final Configuration configuration;
+    private final long submitTime;
+
+    private volatile State state = State.WAITING;
+    private volatile long startTime;
+    private volatile long endTime;
+    private volatile String error;
+    // 作业结束时的统计信息，运行中的作业直接从 LocalTGCommunicationManager 获取
+    private volatile Communication finalCommunication;
+
+    ServerJob(long jobId, Configuration configuration)
+    {
+        this.jobId = jobId;
+        this.configuration = configuration;
+        this.submitTime = System.currentTimeMillis();
+    }
+
+    long getJobId()
+    {
+        return jobId;
+    }
+
+    Configuration getConfiguration()
+    {
+        return configuration;
+    }
+
+    State getState()
+    {
+        return state;
+    }
+
+    void markRunning()
+    {
+        this.startTime = System.currentTimeMillis();
+        this.state = State.RUNNING;
+    }
+
+    void markFinished(Throwable e)
+    {
+        this.finalCommunication = LocalTGCommunicationManager.getJobCommunication(jobId);
+        this.endTime = System.currentTimeMillis();
+        if (e != null) {
+            this.error = e.getMessage();
+        }
+        this.state = e == null ? State.SUCCEEDED : State.FAILED;
+    }
+
+    Map<String, Object> toMap()
+    {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("jobId", jobId);
+        result.put("state", state.name());
+        result.put("submitTime", submitTime);
+        result.put("startTime", startTime);
+        result.put("endTime", endTime);
+
+        Communication communication = finalCommunication;
+        if (communication == null && state == State.RUNNING) {
+            communication = LocalTGCommunicationManager.getJobCommunication(jobId);
+        }
+        if (communication != null) {
+            result.put("readRecords", CommunicationTool.getTotalReadRecords(communication));
+            result.put("readBytes", CommunicationTool.getTotalReadBytes(communication));
+            result.put("errorRecords", CommunicationTool.getTotalErrorRecords(communication));
+        }
+        if (error != null) {
+            result.put("error", error);
+        }
+        return result;
+    }
+}
@@ -54,6 +54,8 @@ public final class CommunicationTool
     public static final String TRANSFORMER_SUCCEED_RECORDS = "totalTransformerSuccessRecords";
     public static final String TRANSFORMER_FAILED_RECORDS = "totalTransformerFailedRecords";
     public static final String TRANSFORMER_FILTER_RECORDS = "totalTransformerFilterRecords";
+    public static final String SPILLED_RECORDS = "spilledRecords";
+    public static final String SPILLED_BYTES = "spilledBytes";
     private static final String TOTAL_READ_BYTES = "totalReadBytes";
     private static final String TOTAL_ERROR_RECORDS = "totalErrorRecords";
     private static final String TOTAL_ERROR_BYTES = "totalErrorBytes";
@@ -173,6 +175,13 @@ public final class CommunicationTool
                 sb.append(PerfTrace.unitTime(communication.getLongCounter(CommunicationTool.TRANSFORMER_USED_TIME)));
                 sb.append(" | ");
             }
+            if (communication.getLongCounter(CommunicationTool.SPILLED_RECORDS) > 0) {
+                sb.append("Spilled ");
+                sb.append(String.format("%d records, %s",
+                        communication.getLongCounter(CommunicationTool.SPILLED_RECORDS),
+                        StrUtil.stringify(communication.getLongCounter(CommunicationTool.SPILLED_BYTES))));
+                sb.append(" | ");
+            }
             sb.append("Percentage ");
             sb.append(getPercentage(communication));
             return sb.toString();
@@ -22,20 +22,25 @@ package com.wgzhao.addax.core.statistics.communication;
 import com.wgzhao.addax.core.meta.State;
 import org.apache.commons.lang3.Validate;
 
+import java.util.Collections;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * 进程内各 taskGroup 的 Communication，按 jobId 分开保存，
+ * 以便同一个 JVM 中同时运行的多个作业(server 模式)之间互不影响
+ */
 public final class LocalTGCommunicationManager
 {
-    private static final Map<Integer, Communication> taskGroupCommunicationMap =
+    private static final Map<Long, Map<Integer, Communication>> jobCommunicationMap =
             new ConcurrentHashMap<>();
 
     private LocalTGCommunicationManager() {}
 
     public static void registerTaskGroupCommunication(
-            int taskGroupId, Communication communication)
+            long jobId, int taskGroupId, Communication communication)
     {
-        taskGroupCommunicationMap.put(taskGroupId, communication);
+        getTaskGroupCommunicationMap(jobId).put(taskGroupId, communication);
     }
 
     public static Communication getJobCommunication(Long jobId)
@@ -44,14 +49,8 @@ public final class LocalTGCommunicationManager
         communication.setState(State.SUCCEEDED);
 
         for (Communication taskGroupCommunication :
-                taskGroupCommunicationMap.values()) {
-            if (taskGroupCommunication.getJobId() == null) {
-                communication.mergeFrom(taskGroupCommunication);
-            }
-            if (taskGroupCommunication.getJobId() == null
-                    || jobId.equals(taskGroupCommunication.getJobId())) { //如JOB在正式启动后过段时间才会设置JobId所以这里把getJobId为空的也合并进去
-                communication.mergeFrom(taskGroupCommunication);        //因为如果为空就说明里面啥都没有合并了也不会影响什么
-            }
+                jobCommunicationMap.getOrDefault(jobId, Collections.emptyMap()).values()) {
+            communication.mergeFrom(taskGroupCommunication);
         }
 
         return communication;
@@ -61,32 +60,44 @@ public final class LocalTGCommunicationManager
      * 采用获取taskGroupId后再获取对应communication的方式，
      * 防止map遍历时修改，同时也防止对map key-value对的修改
      *
+     * @param jobId job id
      * @param taskGroupId task group id
      * @return set
      */
-    public static Communication getTaskGroupCommunication(int taskGroupId)
+    public static Communication getTaskGroupCommunication(long jobId, int taskGroupId)
     {
         Validate.isTrue(taskGroupId >= 0, "taskGroupId不能小于0");
 
-        return taskGroupCommunicationMap.get(taskGroupId);
+        return jobCommunicationMap.getOrDefault(jobId, Collections.emptyMap()).get(taskGroupId);
     }
 
-    public static void updateTaskGroupCommunication(final int taskGroupId,
+    public static void updateTaskGroupCommunication(final long jobId, final int taskGroupId,
             final Communication communication)
     {
+        Map<Integer, Communication> taskGroupCommunicationMap = getTaskGroupCommunicationMap(jobId);
         Validate.isTrue(taskGroupCommunicationMap.containsKey(
-                taskGroupId), String.format("taskGroupCommunicationMap中没有注册taskGroupId[%d]的Communication，" +
-                "无法更新该taskGroup的信息", taskGroupId));
+                taskGroupId), String.format("taskGroupCommunicationMap中没有注册jobId[%d]的taskGroupId[%d]的Communication，" +
+                "无法更新该taskGroup的信息", jobId, taskGroupId));
         taskGroupCommunicationMap.put(taskGroupId, communication);
     }
 
+    /**
+     * 作业结束后移除其所有 taskGroup 的 Communication，防止内存溢出
+     *
+     * @param jobId job id
+     */
+    public static void removeJob(long jobId)
+    {
+        jobCommunicationMap.remove(jobId);
+    }
+
     public static void clear()
     {
-        taskGroupCommunicationMap.clear();
+        jobCommunicationMap.clear();
     }
 
-    public static Map<Integer, Communication> getTaskGroupCommunicationMap()
+    public static Map<Integer, Communication> getTaskGroupCommunicationMap(long jobId)
     {
-        return taskGroupCommunicationMap;
+        return jobCommunicationMap.computeIfAbsent(jobId, k -> new ConcurrentHashMap<>());
     }
-}
\ No newline at end of file
+}
@@ -54,7 +54,7 @@ public abstract class AbstractCollector
         for (Configuration config : taskGroupConfigurationList) {
             int taskGroupId = config.getInt(
                     CoreConstant.CORE_CONTAINER_TASK_GROUP_ID);
-            LocalTGCommunicationManager.registerTaskGroupCommunication(taskGroupId, new Communication());
+            LocalTGCommunicationManager.registerTaskGroupCommunication(jobId, taskGroupId, new Communication());
         }
     }
 
@@ -83,12 +83,12 @@ public abstract class AbstractCollector
 
     public Map<Integer, Communication> getTGCommunicationMap()
     {
-        return LocalTGCommunicationManager.getTaskGroupCommunicationMap();
+        return LocalTGCommunicationManager.getTaskGroupCommunicationMap(jobId);
     }
 
     public Communication getTGCommunication(Integer taskGroupId)
     {
-        return LocalTGCommunicationManager.getTaskGroupCommunication(taskGroupId);
+        return LocalTGCommunicationManager.getTaskGroupCommunication(jobId, taskGroupId);
     }
 
     public Communication getTaskCommunication(Integer taskId)
@@ -35,6 +35,6 @@ public class ProcessInnerReporter
     @Override
     public void reportTGCommunication(Integer taskGroupId, Communication communication)
     {
-        LocalTGCommunicationManager.updateTaskGroupCommunication(taskGroupId, communication);
+        LocalTGCommunicationManager.updateTaskGroupCommunication(communication.getJobId(), taskGroupId, communication);
     }
 }
\ No newline at end of file
@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.wgzhao.addax.core.statistics.jfr;
+
+import com.wgzhao.addax.common.statistics.jfr.ChannelStallEvent;
+import com.wgzhao.addax.common.statistics.jfr.JfrSupport;
+import com.wgzhao.addax.common.statistics.jfr.ReaderFetchEvent;
+import com.wgzhao.addax.common.statistics.jfr.TaskEvent;
+import com.wgzhao.addax.common.statistics.jfr.WriterFlushEvent;
+import com.wgzhao.addax.common.util.Configuration;
+import com.wgzhao.addax.core.util.container.CoreConstant;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.SimpleDateFormat;
+import java.time.Duration;
+import java.util.Date;
+
+/**
+ * 作业级别的 JFR 录制，由 core.jfr.enable 开启，作业结束时写入文件
+ * <p>
+ * 录制的大小和时长分别受 maxSize 和 maxAge 限制，超过时丢弃最早的数据，因此可以在生产环境中长期开启
+ */
+public final class JobRecording
+{
+    private static final Logger LOG = LoggerFactory.getLogger(JobRecording.class);
+
+    private final Recording recording;
+    private final Path destination;
+
+    private JobRecording(Recording recording, Path destination)
+    {
+        this.recording = recording;
+        this.destination = destination;
+    }
+
+    /**
+     * 按配置开始录制
+     *
+     * @param configuration 作业的完整配置
+     * @param jobId 作业 id
+     * @return 录制，未开启或者当前 JVM 不支持 JFR 时返回 null
+     */
+    public static JobRecording start(Configuration configuration, long jobId)
+    {
+        if (!configuration.getBool(CoreConstant.CORE_JFR_ENABLE, false)) {
+            return null;
+        }
+        if (!JfrSupport.AVAILABLE || !FlightRecorder.isAvailable()) {
+            LOG.warn("Flight Recorder is not available in this JVM, the JFR recording of job [{}] is skipped.", jobId);
+            return null;
+        }
+
+        String settings = configuration.getString(CoreConstant.CORE_JFR_SETTINGS, "default");
+        String dir = configuration.getString(CoreConstant.CORE_JFR_PATH, "");
+        if (StringUtils.isBlank(dir)) {
+            dir = System.getProperty("addax.log", ".");
+        }
+        String fileName = String.format("addax_job_%d_%s.jfr", jobId,
+                new SimpleDateFormat("yyyyMMdd_HHmmss").format(new Date()));
+
+        Recording recording = null;
+        try {
+            // settings 可以是 JDK 自带的 default、profile，也可以是 .jfc 文件的路径
+            jdk.jfr.Configuration jfc = settings.endsWith(".jfc")
+                    ? jdk.jfr.Configuration.create(Paths.get(settings))
+                    : jdk.jfr.Configuration.getConfiguration(settings);
+            Path destination = Files.createDirectories(Paths.get(dir)).resolve(fileName);
+
+            recording = new Recording(jfc);
+            recording.setName("addax-job-" + jobId);
+            recording.setToDisk(true);
+            recording.setMaxSize(configuration.getLong(CoreConstant.CORE_JFR_MAX_SIZE, 256) * 1024 * 1024);
+            recording.setMaxAge(Duration.ofSeconds(configuration.getLong(CoreConstant.CORE_JFR_MAX_AGE, 3600)));
+            recording.setDestination(destination);
+            recording.enable(TaskEvent.class);
+            recording.enable(ReaderFetchEvent.class);
+            recording.enable(WriterFlushEvent.class);
+            recording.enable(ChannelStallEvent.class)
+                    .withThreshold(Duration.ofMillis(configuration.getLong(CoreConstant.CORE_JFR_STALL_THRESHOLD, 10)));
+            recording.start();
+            LOG.info("Start JFR recording of job [{}] with settings [{}], it will be written to [{}].", jobId, settings, destination);
+            return new JobRecording(recording, destination);
+        }
+        catch (Exception e) {
+            LOG.warn("Failed to start the JFR recording of job [{}]: {}", jobId, e.getMessage());
+            if (recording != null) {
+                recording.close();
+            }
+            return null;
+        }
+    }
+
+    /**
+     * 结束录制并写入文件，失败时只记录日志，不影响作业的结果
+     */
+    public void stop()
+    {
+        try {
+            recording.stop();
+            LOG.info("JFR recording has been written to [{}].", destination);
+        }
+        catch (Exception e) {
+            LOG.warn("Failed to write the JFR recording to [{}]: {}", destination, e.getMessage());
+        }
+        finally {
+            recording.close();
+        }
+    }
+}
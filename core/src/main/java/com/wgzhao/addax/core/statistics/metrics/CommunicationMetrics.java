@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.wgzhao.addax.core.statistics.metrics;
+
+import com.wgzhao.addax.core.statistics.communication.Communication;
+import com.wgzhao.addax.core.statistics.communication.CommunicationTool;
+import com.wgzhao.addax.core.transport.channel.Channel;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 每次读取时从 Communication 获取最新的值
+ */
+class CommunicationMetrics
+        implements CommunicationMetricsMBean
+{
+    private final Supplier<Communication> communication;
+    private final Channel channel;
+
+    CommunicationMetrics(Supplier<Communication> communication, Channel channel)
+    {
+        this.communication = communication;
+        this.channel = channel;
+    }
+
+    private long counter(String key)
+    {
+        Communication current = communication.get();
+        return current == null ? 0 : current.getLongCounter(key);
+    }
+
+    @Override
+    public String getState()
+    {
+        Communication current = communication.get();
+        return current == null ? "" : current.getState().name();
+    }
+
+    @Override
+    public long getReadRecords()
+    {
+        return counter(CommunicationTool.READ_SUCCEED_RECORDS);
+    }
+
+    @Override
+    public long getReadBytes()
+    {
+        return counter(CommunicationTool.READ_SUCCEED_BYTES);
+    }
+
+    @Override
+    public long getReadFailedRecords()
+    {
+        return counter(CommunicationTool.READ_FAILED_RECORDS);
+    }
+
+    @Override
+    public long getWriteReceivedRecords()
+    {
+        return counter(CommunicationTool.WRITE_RECEIVED_RECORDS);
+    }
+
+    @Override
+    public long getWriteReceivedBytes()
+    {
+        return counter(CommunicationTool.WRITE_RECEIVED_BYTES);
+    }
+
+    @Override
+    public long getWriteFailedRecords()
+    {
+        return counter(CommunicationTool.WRITE_FAILED_RECORDS);
+    }
+
+    @Override
+    public long getWaitReaderTimeMillis()
+    {
+        return TimeUnit.NANOSECONDS.toMillis(counter(CommunicationTool.WAIT_READER_TIME));
+    }
+
+    @Override
+    public long getWaitWriterTimeMillis()
+    {
+        return TimeUnit.NANOSECONDS.toMillis(counter(CommunicationTool.WAIT_WRITER_TIME));
+    }
+
+    @Override
+    public long getSpilledRecords()
+    {
+        return counter(CommunicationTool.SPILLED_RECORDS);
+    }
+
+    @Override
+    public long getSpilledBytes()
+    {
+        return counter(CommunicationTool.SPILLED_BYTES);
+    }
+
+    @Override
+    public int getChannelQueueSize()
+    {
+        return channel == null ? -1 : channel.size();
+    }
+
+    @Override
+    public long getChannelSpillBytes()
+    {
+        return channel == null ? -1 : channel.getSpillSize();
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.wgzhao.addax.core.statistics.metrics;
+
+/**
+ * 作业、taskGroup 或 task 的实时统计信息，时间的单位为毫秒
+ */
+public interface CommunicationMetricsMBean
+{
+    String getState();
+
+    long getReadRecords();
+
+    long getReadBytes();
+
+    long getReadFailedRecords();
+
+    long getWriteReceivedRecords();
+
+    long getWriteReceivedBytes();
+
+    long getWriteFailedRecords();
+
+    long getWaitReaderTimeMillis();
+
+    long getWaitWriterTimeMillis();
+
+    long getSpilledRecords();
+
+    long getSpilledBytes();
+
+    /**
+     * @return channel 中等待写入的记录数，只对运行中的 task 有效，其他情况为 -1
+     */
+    int getChannelQueueSize();
+
+    /**
+     * @return channel 溢写到磁盘且尚未读取的字节数，只对运行中的 task 有效，其他情况为 -1
+     */
+    long getChannelSpillBytes();
+}
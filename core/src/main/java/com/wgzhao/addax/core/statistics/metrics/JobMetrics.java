@@ -0,0 +1,237 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.wgzhao.addax.core.statistics.metrics;
+
+import com.wgzhao.addax.common.statistics.PerfRecord;
+import com.wgzhao.addax.common.statistics.PerfRecordListener;
+import com.wgzhao.addax.core.meta.State;
+import com.wgzhao.addax.core.statistics.communication.Communication;
+import com.wgzhao.addax.core.statistics.communication.CommunicationTool;
+import com.wgzhao.addax.core.statistics.container.communicator.AbstractContainerCommunicator;
+import com.wgzhao.addax.core.transport.channel.Channel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * 一个作业的实时指标：作业、taskGroup、运行中的 task 的统计信息，channel 的队列长度以及各 PerfRecord 阶段的耗时分布.
+ * <p>
+ * 统计信息在读取时直接从各 task 的 Communication 汇总，不依赖 taskGroup 定时汇报，因此是实时的.
+ */
+public class JobMetrics
+        implements PerfRecordListener
+{
+    private static final Logger LOG = LoggerFactory.getLogger(JobMetrics.class);
+
+    private static final String DOMAIN = "com.wgzhao.addax";
+
+    private final long jobId;
+    private final boolean jmx;
+    private final Map<Integer, AbstractContainerCommunicator> taskGroups = new ConcurrentSkipListMap<>();
+    private final Map<Integer, Map<Integer, Channel>> runningTasks = new ConcurrentHashMap<>();
+    private final Map<PerfRecord.PHASE, PhaseHistogram> phases = new ConcurrentHashMap<>();
+    private final Set<ObjectName> mbeans = ConcurrentHashMap.newKeySet();
+
+    JobMetrics(long jobId, boolean jmx)
+    {
+        this.jobId = jobId;
+        this.jmx = jmx;
+        registerMBean("type=Job,jobId=" + jobId, new CommunicationMetrics(this::collect, null));
+    }
+
+    long getJobId()
+    {
+        return jobId;
+    }
+
+    public void registerTaskGroup(int taskGroupId, AbstractContainerCommunicator communicator)
+    {
+        taskGroups.put(taskGroupId, communicator);
+        registerMBean(String.format("type=TaskGroup,jobId=%d,taskGroupId=%d", jobId, taskGroupId),
+                new CommunicationMetrics(communicator::collect, null));
+    }
+
+    public void registerTask(int taskGroupId, int taskId, Channel channel)
+    {
+        AbstractContainerCommunicator communicator = taskGroups.get(taskGroupId);
+        if (communicator == null) {
+            return;
+        }
+        runningTasks.computeIfAbsent(taskGroupId, k -> new ConcurrentSkipListMap<>()).put(taskId, channel);
+        // task 重试时 communication 会被重置，每次都按 taskId 获取
+        registerMBean(taskName(taskGroupId, taskId),
+                new CommunicationMetrics(() -> communicator.getCommunication(taskId), channel));
+    }
+
+    public void unregisterTask(int taskGroupId, int taskId)
+    {
+        Map<Integer, Channel> channels = runningTasks.get(taskGroupId);
+        if (channels != null && channels.remove(taskId) != null) {
+            unregisterMBean(taskName(taskGroupId, taskId));
+        }
+    }
+
+    @Override
+    public void onEnd(PerfRecord perfRecord)
+    {
+        phases.computeIfAbsent(perfRecord.getPhase(), phase -> {
+            PhaseHistogram histogram = new PhaseHistogram();
+            registerMBean(String.format("type=Phase,jobId=%d,phase=%s", jobId, phase), histogram);
+            return histogram;
+        }).observe(perfRecord.getElapsedTimeInNs());
+    }
+
+    /**
+     * @return 所有 taskGroup 的统计信息之和
+     */
+    Communication collect()
+    {
+        Communication communication = new Communication();
+        communication.setState(State.SUCCEEDED);
+        for (AbstractContainerCommunicator communicator : taskGroups.values()) {
+            communication.mergeFrom(communicator.collect());
+        }
+        return communication;
+    }
+
+    void writeTo(PrometheusWriter writer)
+    {
+        String jobLabels = "job=\"" + jobId + "\"";
+        writeCommunication(writer, "job", jobLabels, collect());
+
+        for (Map.Entry<Integer, AbstractContainerCommunicator> entry : taskGroups.entrySet()) {
+            int taskGroupId = entry.getKey();
+            AbstractContainerCommunicator communicator = entry.getValue();
+            String taskGroupLabels = jobLabels + ",task_group=\"" + taskGroupId + "\"";
+            writeCommunication(writer, "task_group", taskGroupLabels, communicator.collect());
+
+            Map<Integer, Channel> channels = runningTasks.get(taskGroupId);
+            if (channels == null) {
+                continue;
+            }
+            for (Map.Entry<Integer, Channel> task : channels.entrySet()) {
+                Communication communication = communicator.getCommunication(task.getKey());
+                if (communication == null) {
+                    continue;
+                }
+                String taskLabels = taskGroupLabels + ",task=\"" + task.getKey() + "\"";
+                writeCommunication(writer, "task", taskLabels, communication);
+                writer.gauge("addax_task_channel_queue_size", "Records waiting in the channel of a running task.",
+                        taskLabels, task.getValue().size());
+                writer.gauge("addax_task_channel_spill_bytes", "Bytes spilled to disk and not yet read by the writer of a running task.",
+                        taskLabels, task.getValue().getSpillSize());
+            }
+        }
+
+        for (Map.Entry<PerfRecord.PHASE, PhaseHistogram> entry : new TreeMap<>(phases).entrySet()) {
+            writer.histogram("addax_phase_duration_seconds", "Duration of PerfRecord phases.",
+                    jobLabels + ",phase=\"" + entry.getKey() + "\"", entry.getValue());
+        }
+    }
+
+    private static void writeCommunication(PrometheusWriter writer, String level, String labels, Communication communication)
+    {
+        String prefix = "addax_" + level + "_";
+        String scope = level.replace('_', ' ');
+        writer.counter(prefix + "read_records_total", "Records read successfully by the " + scope + ".",
+                labels, communication.getLongCounter(CommunicationTool.READ_SUCCEED_RECORDS));
+        writer.counter(prefix + "read_bytes_total", "Bytes read successfully by the " + scope + ".",
+                labels, communication.getLongCounter(CommunicationTool.READ_SUCCEED_BYTES));
+        writer.counter(prefix + "read_failed_records_total", "Dirty records of the " + scope + " reader.",
+                labels, communication.getLongCounter(CommunicationTool.READ_FAILED_RECORDS));
+        writer.counter(prefix + "write_received_records_total", "Records received by the " + scope + " writer.",
+                labels, communication.getLongCounter(CommunicationTool.WRITE_RECEIVED_RECORDS));
+        writer.counter(prefix + "write_received_bytes_total", "Bytes received by the " + scope + " writer.",
+                labels, communication.getLongCounter(CommunicationTool.WRITE_RECEIVED_BYTES));
+        writer.counter(prefix + "write_failed_records_total", "Dirty records of the " + scope + " writer.",
+                labels, communication.getLongCounter(CommunicationTool.WRITE_FAILED_RECORDS));
+        writer.counter(prefix + "wait_reader_seconds_total", "Time the " + scope + " writer waited for the reader.",
+                labels, communication.getLongCounter(CommunicationTool.WAIT_READER_TIME) / 1e9);
+        writer.counter(prefix + "wait_writer_seconds_total", "Time the " + scope + " reader waited for the writer.",
+                labels, communication.getLongCounter(CommunicationTool.WAIT_WRITER_TIME) / 1e9);
+        writer.counter(prefix + "spilled_records_total", "Records the " + scope + " channel spilled to disk.",
+                labels, communication.getLongCounter(CommunicationTool.SPILLED_RECORDS));
+        writer.counter(prefix + "spilled_bytes_total", "Encoded bytes the " + scope + " channel spilled to disk.",
+                labels, communication.getLongCounter(CommunicationTool.SPILLED_BYTES));
+    }
+
+    void close()
+    {
+        for (ObjectName name : mbeans) {
+            unregisterMBean(name);
+        }
+    }
+
+    private String taskName(int taskGroupId, int taskId)
+    {
+        return String.format("type=Task,jobId=%d,taskGroupId=%d,taskId=%d", jobId, taskGroupId, taskId);
+    }
+
+    private void registerMBean(String properties, Object mbean)
+    {
+        if (!jmx) {
+            return;
+        }
+        try {
+            ObjectName name = new ObjectName(DOMAIN + ":" + properties);
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(mbean, name);
+            mbeans.add(name);
+        }
+        catch (Exception e) {
+            LOG.warn("Failed to register MBean {}: {}", properties, e.getMessage());
+        }
+    }
+
+    private void unregisterMBean(String properties)
+    {
+        if (!jmx) {
+            return;
+        }
+        try {
+            unregisterMBean(new ObjectName(DOMAIN + ":" + properties));
+        }
+        catch (Exception e) {
+            LOG.warn("Failed to unregister MBean {}: {}", properties, e.getMessage());
+        }
+    }
+
+    private void unregisterMBean(ObjectName name)
+    {
+        mbeans.remove(name);
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        }
+        catch (Exception ignored) {
+            // 已经注销
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.wgzhao.addax.core.statistics.metrics;
+
+import com.wgzhao.addax.common.util.Configuration;
+import com.wgzhao.addax.core.util.container.CoreConstant;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 进程内所有开启了指标的作业，按 jobId 保存. 第一个开启指标的作业启动 HTTP 端点，之后的作业共用
+ */
+public final class MetricsRegistry
+{
+    private static final Logger LOG = LoggerFactory.getLogger(MetricsRegistry.class);
+
+    private static final Map<Long, JobMetrics> jobs = new ConcurrentHashMap<>();
+    private static MetricsServer server;
+
+    private MetricsRegistry() {}
+
+    /**
+     * 为作业注册指标
+     *
+     * @param configuration 作业的完整配置
+     * @return 作业的指标，没有开启时返回 null
+     */
+    public static synchronized JobMetrics register(Configuration configuration)
+    {
+        if (!configuration.getBool(CoreConstant.CORE_METRICS_ENABLE, false)) {
+            return null;
+        }
+        long jobId = configuration.getLong(CoreConstant.CORE_CONTAINER_JOB_ID, 0);
+        JobMetrics jobMetrics = new JobMetrics(jobId, configuration.getBool(CoreConstant.CORE_METRICS_JMX, true));
+        JobMetrics previous = jobs.put(jobId, jobMetrics);
+        if (previous != null) {
+            previous.close();
+        }
+
+        int port = configuration.getInt(CoreConstant.CORE_METRICS_PORT, 10602);
+        if (server == null && port > 0) {
+            String host = configuration.getString(CoreConstant.CORE_METRICS_HOST, "127.0.0.1");
+            try {
+                server = new MetricsServer(host, port);
+                server.start();
+                LOG.info("Metrics are available at http://{}:{}/metrics", host, port);
+            }
+            catch (IOException e) {
+                LOG.warn("Failed to start the metrics endpoint on {}:{}: {}", host, port, e.getMessage());
+            }
+        }
+        return jobMetrics;
+    }
+
+    public static JobMetrics get(long jobId)
+    {
+        return jobs.get(jobId);
+    }
+
+    public static void unregister(long jobId)
+    {
+        JobMetrics jobMetrics = jobs.remove(jobId);
+        if (jobMetrics != null) {
+            jobMetrics.close();
+        }
+    }
+
+    static String scrape()
+    {
+        List<JobMetrics> current = new ArrayList<>(jobs.values());
+        current.sort(Comparator.comparingLong(JobMetrics::getJobId));
+        PrometheusWriter writer = new PrometheusWriter();
+        writer.gauge("addax_running_jobs", "Jobs running in this process.", "", current.size());
+        for (JobMetrics jobMetrics : current) {
+            jobMetrics.writeTo(writer);
+        }
+        return writer.format();
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.wgzhao.addax.core.statistics.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+
+/**
+ * 以 Prometheus text format 输出指标的 HTTP 端点，路径为 /metrics
+ */
+class MetricsServer
+{
+    private static final Logger LOG = LoggerFactory.getLogger(MetricsServer.class);
+
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final HttpServer httpServer;
+
+    MetricsServer(String host, int port)
+            throws IOException
+    {
+        this.httpServer = HttpServer.create(new InetSocketAddress(host, port), 0);
+        this.httpServer.createContext("/metrics", this::handle);
+        // 使用 daemon 线程，不影响 JVM 退出
+        this.httpServer.setExecutor(Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "metrics-http");
+            t.setDaemon(true);
+            return t;
+        }));
+    }
+
+    void start()
+    {
+        httpServer.start();
+    }
+
+    private void handle(HttpExchange exchange)
+            throws IOException
+    {
+        try {
+            byte[] body;
+            int code = 200;
+            try {
+                body = MetricsRegistry.scrape().getBytes(StandardCharsets.UTF_8);
+            }
+            catch (RuntimeException e) {
+                LOG.warn("Failed to collect metrics: {}", e.getMessage());
+                code = 500;
+                body = String.valueOf(e.getMessage()).getBytes(StandardCharsets.UTF_8);
+            }
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(code, body.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(body);
+            }
+        }
+        finally {
+            exchange.close();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.wgzhao.addax.core.statistics.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 固定桶的耗时直方图，桶的划分覆盖从毫秒级的等待到小时级的 task
+ */
+class PhaseHistogram
+        implements PhaseHistogramMBean
+{
+    private static final double[] BOUNDS = {0.001, 0.005, 0.01, 0.05, 0.1, 0.5, 1, 5, 10, 30, 60, 300, 1800, 3600};
+
+    // 最后一个为 +Inf
+    private final LongAdder[] buckets = new LongAdder[BOUNDS.length + 1];
+    private final LongAdder sumNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong(0);
+
+    PhaseHistogram()
+    {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    void observe(long elapsedNanos)
+    {
+        if (elapsedNanos < 0) {
+            return;
+        }
+        double seconds = elapsedNanos / 1e9;
+        int i = 0;
+        while (i < BOUNDS.length && seconds > BOUNDS[i]) {
+            i++;
+        }
+        buckets[i].increment();
+        sumNanos.add(elapsedNanos);
+        maxNanos.accumulateAndGet(elapsedNanos, Math::max);
+    }
+
+    @Override
+    public long getCount()
+    {
+        long count = 0;
+        for (LongAdder bucket : buckets) {
+            count += bucket.sum();
+        }
+        return count;
+    }
+
+    @Override
+    public double getSumSeconds()
+    {
+        return sumNanos.sum() / 1e9;
+    }
+
+    @Override
+    public double getMaxSeconds()
+    {
+        return maxNanos.get() / 1e9;
+    }
+
+    @Override
+    public double[] getBucketBounds()
+    {
+        double[] bounds = new double[BOUNDS.length + 1];
+        System.arraycopy(BOUNDS, 0, bounds, 0, BOUNDS.length);
+        bounds[BOUNDS.length] = Double.POSITIVE_INFINITY;
+        return bounds;
+    }
+
+    @Override
+    public long[] getBucketCounts()
+    {
+        long[] counts = new long[buckets.length];
+        long cumulative = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            cumulative += buckets[i].sum();
+            counts[i] = cumulative;
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.wgzhao.addax.core.statistics.metrics;
+
+/**
+ * 一个 PerfRecord 阶段的耗时分布，时间的单位为秒
+ */
+public interface PhaseHistogramMBean
+{
+    long getCount();
+
+    double getSumSeconds();
+
+    double getMaxSeconds();
+
+    /**
+     * @return 各个桶的上限，与 getBucketCounts 一一对应，最后一个桶没有上限
+     */
+    double[] getBucketBounds();
+
+    /**
+     * @return 耗时小于等于对应上限的累计次数
+     */
+    long[] getBucketCounts();
+}
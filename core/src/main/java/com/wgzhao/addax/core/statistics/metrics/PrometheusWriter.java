@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.wgzhao.addax.core.statistics.metrics;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 以 Prometheus text format(0.0.4) 输出指标，同名指标的样本输出在一起
+ */
+final class PrometheusWriter
+{
+    private final Map<String, Family> families = new LinkedHashMap<>();
+
+    void counter(String name, String help, String labels, double value)
+    {
+        family(name, "counter", help).samples.add(sample(name, labels, value));
+    }
+
+    void gauge(String name, String help, String labels, double value)
+    {
+        family(name, "gauge", help).samples.add(sample(name, labels, value));
+    }
+
+    void histogram(String name, String help, String labels, PhaseHistogram histogram)
+    {
+        List<String> samples = family(name, "histogram", help).samples;
+        double[] bounds = histogram.getBucketBounds();
+        long[] counts = histogram.getBucketCounts();
+        for (int i = 0; i < bounds.length; i++) {
+            String le = Double.isInfinite(bounds[i]) ? "+Inf" : format(bounds[i]);
+            samples.add(sample(name + "_bucket", labels + ",le=\"" + le + "\"", counts[i]));
+        }
+        samples.add(sample(name + "_sum", labels, histogram.getSumSeconds()));
+        samples.add(sample(name + "_count", labels, counts[counts.length - 1]));
+    }
+
+    String format()
+    {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, Family> entry : families.entrySet()) {
+            Family family = entry.getValue();
+            sb.append("# HELP ").append(entry.getKey()).append(' ').append(family.help).append('\n');
+            sb.append("# TYPE ").append(entry.getKey()).append(' ').append(family.type).append('\n');
+            for (String sample : family.samples) {
+                sb.append(sample).append('\n');
+            }
+        }
+        return sb.toString();
+    }
+
+    private Family family(String name, String type, String help)
+    {
+        return families.computeIfAbsent(name, k -> new Family(type, help));
+    }
+
+    private static String sample(String name, String labels, double value)
+    {
+        if (labels.isEmpty()) {
+            return name + " " + format(value);
+        }
+        return name + "{" + labels + "} " + format(value);
+    }
+
+    private static String format(double value)
+    {
+        if (value == Math.rint(value) && !Double.isInfinite(value)) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+
+    private static final class Family
+    {
+        final String type;
+        final String help;
+        final List<String> samples = new ArrayList<>();
+
+        Family(String type, String help)
+        {
+            this.type = type;
+            this.help = help;
+        }
+    }
+}
@@ -26,6 +26,7 @@ import com.wgzhao.addax.common.plugin.TaskPluginCollector;
 import com.wgzhao.addax.common.util.Configuration;
 import com.wgzhao.addax.core.statistics.communication.Communication;
 import com.wgzhao.addax.core.statistics.communication.CommunicationTool;
+import com.wgzhao.addax.core.transport.channel.GlobalRateLimiter;
 import com.wgzhao.addax.core.util.FrameworkErrorCode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -74,6 +75,24 @@ public abstract class AbstractTaskPluginCollector
         this.communication.addMessage(key, value);
     }
 
+    @Override
+    public void reportBackpressure()
+    {
+        GlobalRateLimiter limiter = GlobalRateLimiter.getInstance();
+        if (limiter != null) {
+            limiter.onCongestion();
+        }
+    }
+
+    @Override
+    public void reportLatency(long millis)
+    {
+        GlobalRateLimiter limiter = GlobalRateLimiter.getInstance();
+        if (limiter != null) {
+            limiter.onLatency(millis);
+        }
+    }
+
     @Override
     public void collectDirtyRecord(Record dirtyRecord, Throwable t,
             String errorMessage)
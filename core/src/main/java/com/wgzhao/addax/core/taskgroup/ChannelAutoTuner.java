@@ -0,0 +1,191 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.wgzhao.addax.core.taskgroup;
+
+import com.wgzhao.addax.common.util.StrUtil;
+import com.wgzhao.addax.core.statistics.communication.Communication;
+import com.wgzhao.addax.core.statistics.communication.CommunicationTool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 运行过程中自动调整 taskGroup 的并发 channel 数.
+ * <p>
+ * 每个调整周期统计一次 taskGroup 的吞吐量(bytes/s)、错误记录占比以及 channel 的读写等待时间，
+ * 采用爬山法寻找吞吐量最高的并发数：吞吐量上升则沿当前方向继续调整，下降则反向调整，变化不明显则保持不变；
+ * 错误记录占比过高时优先减少并发. 并发数始终限制在 [min, max] 之间.
+ * <p>
+ * 写入端几乎一直在等待读取端(wait reader 占比很高)时，说明瓶颈在数据源，此时不再主动试探增加并发，
+ * 只有吞吐量确实随并发上升时才继续增加. 读取端等待写入端(wait writer)时，增加并发同时增加了写入端，仍然可以试探，只输出到日志中.
+ * <p>
+ * 减少并发不会中断正在运行的 task，只是在 task 结束后不再启动新的 task，直到运行中的 task 数降到目标值以下.
+ */
+public class ChannelAutoTuner
+{
+    private static final Logger LOG = LoggerFactory.getLogger(ChannelAutoTuner.class);
+
+    // 吞吐量变化超过该比例才认为有明显变化
+    private static final double THROUGHPUT_TOLERANCE = 0.05;
+
+    // 错误记录占比超过该值时减少并发
+    private static final double ERROR_RATE_THRESHOLD = 0.01;
+
+    // 写入端等待读取端的时间占比超过该值时，认为读取端是瓶颈
+    private static final long READER_STARVED_PERCENT = 90;
+
+    private final int taskGroupId;
+    private final int minChannel;
+    private final int maxChannel;
+    private final long intervalInMs;
+
+    private int target;
+    private int direction = 1;
+    private double lastThroughput = -1;
+
+    private long lastTimestamp;
+    private long lastBytes;
+    private long lastRecords;
+    private long lastErrorRecords;
+    private long lastWaitReaderTime;
+    private long lastWaitWriterTime;
+
+    public ChannelAutoTuner(int taskGroupId, int minChannel, int initChannel, int maxChannel, long intervalInMs)
+    {
+        this.taskGroupId = taskGroupId;
+        this.maxChannel = Math.max(1, maxChannel);
+        this.minChannel = Math.max(1, Math.min(minChannel, this.maxChannel));
+        this.target = Math.max(this.minChannel, Math.min(initChannel, this.maxChannel));
+        this.intervalInMs = intervalInMs;
+        this.lastTimestamp = System.currentTimeMillis();
+        LOG.info("taskGroup[{}] enable channel auto tuning, channel range [{}, {}], start with {} channels.",
+                taskGroupId, this.minChannel, this.maxChannel, this.target);
+    }
+
+    /**
+     * @return 当前允许同时运行的 task 数
+     */
+    public int getTarget()
+    {
+        return target;
+    }
+
+    /**
+     * @return 是否到达调整周期
+     */
+    public boolean isDue()
+    {
+        return System.currentTimeMillis() - lastTimestamp >= intervalInMs;
+    }
+
+    /**
+     * 到达调整周期时根据上一个周期的统计信息调整并发数
+     *
+     * @param communication taskGroup 汇总后的统计信息
+     * @param runningTasks 正在运行的 task 数
+     * @param hasPendingTask 是否还有等待运行的 task，没有时调整并发已无意义
+     * @return 调整后的并发数
+     */
+    public int tune(Communication communication, int runningTasks, boolean hasPendingTask)
+    {
+        long now = System.currentTimeMillis();
+        long interval = now - lastTimestamp;
+        if (interval < intervalInMs) {
+            return target;
+        }
+
+        long bytes = CommunicationTool.getTotalReadBytes(communication);
+        long records = CommunicationTool.getTotalReadRecords(communication);
+        long errorRecords = CommunicationTool.getTotalErrorRecords(communication);
+        long waitReaderTime = communication.getLongCounter(CommunicationTool.WAIT_READER_TIME);
+        long waitWriterTime = communication.getLongCounter(CommunicationTool.WAIT_WRITER_TIME);
+
+        boolean counterReset = bytes < lastBytes || records < lastRecords;
+        double throughput = (bytes - lastBytes) * 1000.0 / interval;
+        long deltaRecords = records - lastRecords;
+        double errorRate = deltaRecords > 0 ? (double) (errorRecords - lastErrorRecords) / deltaRecords : 0;
+        // 等待时间为纳秒，换算为每个 channel 在本周期内等待的时间占比
+        double channelTime = Math.max(1, runningTasks) * interval * 1_000_000.0;
+        long waitReaderPercent = Math.round(Math.max(0, waitReaderTime - lastWaitReaderTime) * 100 / channelTime);
+        long waitWriterPercent = Math.round(Math.max(0, waitWriterTime - lastWaitWriterTime) * 100 / channelTime);
+
+        lastTimestamp = now;
+        lastBytes = bytes;
+        lastRecords = records;
+        lastErrorRecords = errorRecords;
+        lastWaitReaderTime = waitReaderTime;
+        lastWaitWriterTime = waitWriterTime;
+
+        if (counterReset || !hasPendingTask || runningTasks < target) {
+            // task 重试导致统计值被重置，或者没有足够的 task 填满当前并发，吞吐量不能反映并发数的影响
+            lastThroughput = -1;
+            return target;
+        }
+
+        int old = target;
+        boolean readerStarved = waitReaderPercent >= READER_STARVED_PERCENT;
+        String reason;
+        if (errorRate > ERROR_RATE_THRESHOLD && target > minChannel) {
+            direction = -1;
+            target--;
+            reason = String.format("error rate %.2f%% is too high", errorRate * 100);
+        }
+        else if (lastThroughput < 0) {
+            direction = 1;
+            if (readerStarved) {
+                reason = "first sample, readers are the bottleneck, hold";
+            }
+            else {
+                reason = "first sample, probe upward";
+                target++;
+            }
+        }
+        else if (throughput > lastThroughput * (1 + THROUGHPUT_TOLERANCE)) {
+            reason = "throughput increased, keep direction";
+            target += direction;
+        }
+        else if (throughput < lastThroughput * (1 - THROUGHPUT_TOLERANCE)) {
+            direction = -direction;
+            if (direction > 0 && readerStarved) {
+                reason = "throughput decreased, readers are the bottleneck, hold";
+            }
+            else {
+                reason = "throughput decreased, reverse direction";
+                target += direction;
+            }
+        }
+        else {
+            reason = "throughput is flat, hold";
+        }
+
+        target = Math.max(minChannel, Math.min(maxChannel, target));
+        if (target == old && !reason.endsWith("hold")) {
+            // 已经到达边界，下次尝试反方向
+            direction = target >= maxChannel ? -1 : 1;
+            reason += ", reached bound";
+        }
+        lastThroughput = throughput;
+
+        LOG.info("taskGroup[{}] channel auto tuning: {} -> {} channels, throughput {}/s, "
+                        + "wait reader {}%, wait writer {}%, reason: {}.",
+                taskGroupId, old, target, StrUtil.stringify(Math.round(throughput)),
+                waitReaderPercent, waitWriterPercent, reason);
+        return target;
+    }
+}
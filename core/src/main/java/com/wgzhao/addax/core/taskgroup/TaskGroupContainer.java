@@ -27,13 +27,20 @@ import com.wgzhao.addax.common.plugin.TaskPluginCollector;
 import com.wgzhao.addax.common.statistics.PerfRecord;
 import com.wgzhao.addax.common.statistics.PerfTrace;
 import com.wgzhao.addax.common.statistics.VMInfo;
+import com.wgzhao.addax.common.statistics.jfr.JfrSupport;
+import com.wgzhao.addax.common.statistics.jfr.TaskEvent;
 import com.wgzhao.addax.common.util.Configuration;
 import com.wgzhao.addax.core.AbstractContainer;
+import com.wgzhao.addax.core.checkpoint.CheckpointStore;
+import com.wgzhao.addax.core.checkpoint.LocalTaskCheckpoint;
+import com.wgzhao.addax.core.container.util.JobAssignUtil;
 import com.wgzhao.addax.core.meta.State;
 import com.wgzhao.addax.core.statistics.communication.Communication;
 import com.wgzhao.addax.core.statistics.communication.CommunicationTool;
 import com.wgzhao.addax.core.statistics.communication.LocalTGCommunicationManager;
 import com.wgzhao.addax.core.statistics.container.communicator.taskgroup.StandaloneTGContainerCommunicator;
+import com.wgzhao.addax.core.statistics.metrics.JobMetrics;
+import com.wgzhao.addax.core.statistics.metrics.MetricsRegistry;
 import com.wgzhao.addax.core.statistics.plugin.task.AbstractTaskPluginCollector;
 import com.wgzhao.addax.core.taskgroup.runner.AbstractRunner;
 import com.wgzhao.addax.core.taskgroup.runner.ReaderRunner;
@@ -85,7 +92,12 @@ public class TaskGroupContainer
      */
     private final String taskCollectorClass;
 
-    private final TaskMonitor taskMonitor = TaskMonitor.getInstance();
+    private final TaskMonitor taskMonitor = new TaskMonitor();
+
+    /**
+     * 断点信息存储，未开启断点续传时为 null
+     */
+    private final CheckpointStore checkpointStore;
 
     public TaskGroupContainer(Configuration configuration)
     {
@@ -102,6 +114,7 @@ public class TaskGroupContainer
                 CoreConstant.CORE_TRANSPORT_CHANNEL_CLASS);
         this.taskCollectorClass = this.configuration.getString(
                 CoreConstant.CORE_STATISTICS_COLLECTOR_PLUGIN_TASK_CLASS);
+        this.checkpointStore = CheckpointStore.create(this.configuration);
     }
 
     private void initCommunicator(Configuration configuration)
@@ -152,10 +165,24 @@ public class TaskGroupContainer
 
             this.containerCommunicator.registerCommunication(taskConfigs);
 
+            JobMetrics jobMetrics = MetricsRegistry.get(this.jobId);
+            if (jobMetrics != null) {
+                jobMetrics.registerTaskGroup(this.taskGroupId, this.containerCommunicator);
+            }
+
             Map<Integer, Configuration> taskConfigMap = buildTaskConfigMap(taskConfigs); //taskId与task配置
             List<Configuration> taskQueue = buildRemainTasks(taskConfigs); //待运行task列表
             Map<Integer, TaskExecutor> taskFailedExecutorMap = new HashMap<>(); //taskId与上次失败实例
             List<TaskExecutor> runTasks = new ArrayList<>(channelNumber); //正在运行task
+            ChannelAutoTuner autoTuner = null;
+            if (this.configuration.getBool(CoreConstant.CORE_CONTAINER_TASK_GROUP_AUTO_TUNE, false)) {
+                autoTuner = new ChannelAutoTuner(this.taskGroupId,
+                        this.configuration.getInt(CoreConstant.CORE_CONTAINER_TASK_GROUP_MIN_CHANNEL, 1),
+                        this.configuration.getInt(CoreConstant.CORE_CONTAINER_TASK_GROUP_INIT_CHANNEL, channelNumber),
+                        channelNumber,
+                        this.configuration.getLong(CoreConstant.CORE_CONTAINER_TASK_GROUP_TUNE_INTERVAL, 10000L));
+            }
+            int runChannelNumber = autoTuner == null ? channelNumber : autoTuner.getTarget(); //当前允许并发运行的task数
             Map<Integer, Long> taskStartTimeMap = new HashMap<>(); //任务开始时间
 
             long lastReportTimeStamp = 0;
@@ -172,9 +199,16 @@ public class TaskGroupContainer
                         continue;
                     }
                     TaskExecutor taskExecutor = removeTask(runTasks, taskId);
+                    if (taskExecutor != null) {
+                        taskExecutor.commitTaskEvent();
+                        taskExecutor.closeCheckpoint(taskCommunication.getState() == State.SUCCEEDED);
+                    }
 
                     //上面从runTasks里移除了，因此对应在monitor里移除
                     taskMonitor.removeTask(taskId);
+                    if (jobMetrics != null) {
+                        jobMetrics.unregisterTask(this.taskGroupId, taskId);
+                    }
 
                     //失败，看task是否支持failover，重试次数未超过最大限制
                     if (taskCommunication.getState() == State.FAILED) {
@@ -220,8 +254,11 @@ public class TaskGroupContainer
                 }
 
                 //3.有任务未执行，且正在运行的任务数小于最大通道限制
+                if (autoTuner != null && autoTuner.isDue()) {
+                    runChannelNumber = autoTuner.tune(this.containerCommunicator.collect(), runTasks.size(), !taskQueue.isEmpty());
+                }
                 Iterator<Configuration> iterator = taskQueue.iterator();
-                while (iterator.hasNext() && runTasks.size() < channelNumber) {
+                while (iterator.hasNext() && runTasks.size() < runChannelNumber) {
                     Configuration taskConfig = iterator.next();
                     Integer taskId = taskConfig.getInt(CoreConstant.TASK_ID);
                     int attemptCount = 1;
@@ -259,6 +296,9 @@ public class TaskGroupContainer
 
                     //上面，增加task到runTasks列表，因此在monitor里注册。
                     taskMonitor.registerTask(taskId, this.containerCommunicator.getCommunication(taskId));
+                    if (jobMetrics != null) {
+                        jobMetrics.registerTask(this.taskGroupId, taskId, taskExecutor.getChannel());
+                    }
 
                     taskFailedExecutorMap.remove(taskId);
                     LOG.debug("taskGroup[{}] taskId[{}] attemptCount[{}] is started",
@@ -334,7 +374,8 @@ public class TaskGroupContainer
 
     private List<Configuration> buildRemainTasks(List<Configuration> configurations)
     {
-        return new LinkedList<>(configurations);
+        // 插件估算了 task 的开销时，优先运行开销大的 task，以缩短长尾
+        return new LinkedList<>(JobAssignUtil.sortByCost(configurations));
     }
 
     private TaskExecutor removeTask(List<TaskExecutor> taskList, int taskId)
@@ -382,16 +423,7 @@ public class TaskGroupContainer
 
             // 移除根据JOB ID做的一些标记 防止内存溢出
             LoadUtil.getConfigurationSet().remove(this.jobId);
-            Iterator<Map.Entry<Integer, Communication>> it =
-                    LocalTGCommunicationManager.getTaskGroupCommunicationMap().entrySet().iterator();
-            while (it.hasNext()) {
-                Map.Entry<Integer, Communication> entry = it.next();
-                String strJobId = String.valueOf(this.jobId);
-                String key = String.valueOf(entry.getKey());
-                if (key.startsWith(strJobId)) {
-                    it.remove();
-                }
-            }
+            LocalTGCommunicationManager.removeJob(this.jobId);
         }
         catch (Exception e) {
             e.printStackTrace();
@@ -428,6 +460,12 @@ public class TaskGroupContainer
          */
         private final Communication taskCommunication;
 
+        // JFR 不可用时为 null
+        private TaskEvent taskEvent;
+
+        // 未开启断点续传时为 null
+        private final LocalTaskCheckpoint checkpoint;
+
         public TaskExecutor(Configuration taskConf, int attemptCount)
         {
             // 获取该taskExecutor的配置
@@ -452,6 +490,11 @@ public class TaskGroupContainer
                     Channel.class, configuration);
             this.channel.setCommunication(this.taskCommunication);
 
+            /*
+             * 重试时新的 TaskExecutor 从上一次保存的位置继续
+             */
+            this.checkpoint = checkpointStore == null ? null : checkpointStore.open(this.taskConfig);
+
             /*
              * 获取transformer的参数
              */
@@ -485,8 +528,24 @@ public class TaskGroupContainer
                             CoreConstant.JOB_READER_NAME), getJobId()));
         }
 
+        public Channel getChannel()
+        {
+            return channel;
+        }
+
         public void doStart()
         {
+            if (this.checkpoint != null && this.checkpoint.isRestoredFinished()) {
+                // 作业重新运行时，上次已经成功的 task 不再执行
+                LOG.info("taskGroup[{}] taskId[{}] has finished in the last run, skip it.", taskGroupId, taskId);
+                this.taskCommunication.setLongCounter(CommunicationTool.STAGE,
+                        this.taskCommunication.getLongCounter(CommunicationTool.STAGE) + 1);
+                this.taskCommunication.setState(State.SUCCEEDED);
+                return;
+            }
+
+            this.taskEvent = JfrSupport.beginTask();
+
             this.writerThread.start();
 
             // reader没有起来，writer不可能结束
@@ -531,10 +590,14 @@ public class TaskGroupContainer
 
                     RecordSender recordSender;
                     if (transformerInfoExecs != null && !transformerInfoExecs.isEmpty()) {
-                        recordSender = new BufferedRecordTransformerExchanger(taskGroupId, this.taskId, this.channel, this.taskCommunication, pluginCollector, transformerInfoExecs);
+                        BufferedRecordTransformerExchanger exchanger = new BufferedRecordTransformerExchanger(taskGroupId, this.taskId, this.channel, this.taskCommunication, pluginCollector, transformerInfoExecs);
+                        exchanger.setTaskCheckpoint(this.checkpoint);
+                        recordSender = exchanger;
                     }
                     else {
-                        recordSender = new BufferedRecordExchanger(this.channel, pluginCollector);
+                        BufferedRecordExchanger exchanger = new BufferedRecordExchanger(this.channel, pluginCollector);
+                        exchanger.setTaskCheckpoint(this.checkpoint);
+                        recordSender = exchanger;
                     }
 
                     ((ReaderRunner) newRunner).setRecordSender(recordSender);
@@ -554,8 +617,9 @@ public class TaskGroupContainer
                             taskCollectorClass, AbstractTaskPluginCollector.class,
                             configuration, this.taskCommunication,
                             PluginType.WRITER);
-                    ((WriterRunner) newRunner).setRecordReceiver(new BufferedRecordExchanger(
-                            this.channel, pluginCollector));
+                    BufferedRecordExchanger recordReceiver = new BufferedRecordExchanger(this.channel, pluginCollector);
+                    recordReceiver.setTaskCheckpoint(this.checkpoint);
+                    ((WriterRunner) newRunner).setRecordReceiver(recordReceiver);
                     /*
                      * 设置taskPlugin的collector，用来处理脏数据和job/task通信
                      */
@@ -568,11 +632,46 @@ public class TaskGroupContainer
             newRunner.setTaskGroupId(taskGroupId);
             newRunner.setTaskId(this.taskId);
             newRunner.setRunnerCommunication(this.taskCommunication);
+            newRunner.setTaskCheckpoint(this.checkpoint);
 
             return newRunner;
         }
 
         // 检查任务是否结束
+        /*
+         * task 结束后调用一次，需要在 failover 重置 Communication 之前
+         */
+        private void commitTaskEvent()
+        {
+            if (taskEvent == null) {
+                return;
+            }
+            taskEvent.jobId = jobId;
+            taskEvent.taskGroupId = taskGroupId;
+            taskEvent.taskId = taskId;
+            taskEvent.attempt = attemptCount;
+            taskEvent.reader = taskConfig.getString(CoreConstant.JOB_READER_NAME);
+            taskEvent.writer = taskConfig.getString(CoreConstant.JOB_WRITER_NAME);
+            taskEvent.state = taskCommunication.getState().name();
+            taskEvent.readRecords = CommunicationTool.getTotalReadRecords(taskCommunication);
+            taskEvent.readBytes = CommunicationTool.getTotalReadBytes(taskCommunication);
+            taskEvent.errorRecords = CommunicationTool.getTotalErrorRecords(taskCommunication);
+            taskEvent.waitReaderTime = taskCommunication.getLongCounter(CommunicationTool.WAIT_READER_TIME);
+            taskEvent.waitWriterTime = taskCommunication.getLongCounter(CommunicationTool.WAIT_WRITER_TIME);
+            taskEvent.commit();
+            taskEvent = null;
+        }
+
+        /*
+         * task 结束后调用一次，保存最后确认的位置，成功时同时标记为已完成
+         */
+        private void closeCheckpoint(boolean succeeded)
+        {
+            if (checkpoint != null) {
+                checkpoint.close(succeeded);
+            }
+        }
+
         private boolean isTaskFinished()
         {
             // 如果reader 或 writer没有完成工作，那么直接返回工作没有完成
@@ -40,7 +40,10 @@ public class TaskMonitor
 
     private final ConcurrentHashMap<Integer, TaskCommunication> tasks = new ConcurrentHashMap<>();
 
-    private TaskMonitor()
+    /**
+     * 每个 taskGroup 使用自己的实例，同一个 JVM 中运行的多个作业的 taskId 可能相同
+     */
+    public TaskMonitor()
     {
     }
 
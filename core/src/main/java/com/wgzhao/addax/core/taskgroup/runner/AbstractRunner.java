@@ -20,6 +20,7 @@
 package com.wgzhao.addax.core.taskgroup.runner;
 
 import com.wgzhao.addax.common.plugin.AbstractTaskPlugin;
+import com.wgzhao.addax.common.plugin.TaskCheckpoint;
 import com.wgzhao.addax.common.plugin.TaskPluginCollector;
 import com.wgzhao.addax.common.util.Configuration;
 import com.wgzhao.addax.core.meta.State;
@@ -82,6 +83,11 @@ public abstract class AbstractRunner
         this.plugin.setTaskPluginCollector(pluginCollector);
     }
 
+    public void setTaskCheckpoint(TaskCheckpoint taskCheckpoint)
+    {
+        this.plugin.setTaskCheckpoint(taskCheckpoint);
+    }
+
     private void mark(State state)
     {
         this.runnerCommunication.setState(state);
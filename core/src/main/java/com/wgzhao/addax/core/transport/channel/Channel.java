@@ -20,6 +20,8 @@
 package com.wgzhao.addax.core.transport.channel;
 
 import com.wgzhao.addax.common.element.Record;
+import com.wgzhao.addax.common.statistics.jfr.ChannelStallEvent;
+import com.wgzhao.addax.common.statistics.jfr.JfrSupport;
 import com.wgzhao.addax.common.util.Configuration;
 import com.wgzhao.addax.core.statistics.communication.Communication;
 import com.wgzhao.addax.core.statistics.communication.CommunicationTool;
@@ -42,6 +44,7 @@ public abstract class Channel
     private static final Logger LOG = LoggerFactory.getLogger(Channel.class);
     private static Boolean isFirstPrint = true;
     private final Communication lastCommunication = new Communication();
+    protected long jobId;
     protected int taskGroupId;
     protected int capacity;
     protected int byteCapacity;
@@ -53,6 +56,13 @@ public abstract class Channel
     protected volatile long waitReaderTime = 0;
     protected volatile long waitWriterTime = 0;
     private Communication currentCommunication;
+    // 作业级别共享的限速器，未开启时为 null
+    private final GlobalRateLimiter rateLimiter;
+    // 按批向全局限速器申请令牌，减少锁竞争，记录数或字节数先达到的为准
+    private final int acquireBatchSize;
+    private final long acquireBatchBytes;
+    private long pendingRecords = 0;
+    private long pendingBytes = 0;
 
     public Channel(Configuration configuration)
     {
@@ -79,6 +89,8 @@ public abstract class Channel
             }
         }
 
+        this.jobId = configuration.getLong(
+                CoreConstant.CORE_CONTAINER_JOB_ID, -1L);
         this.taskGroupId = configuration.getInt(
                 CoreConstant.CORE_CONTAINER_TASK_GROUP_ID);
         this.capacity = capacity;
@@ -90,11 +102,16 @@ public abstract class Channel
         this.byteCapacity = configuration.getInt(
                 CoreConstant.CORE_TRANSPORT_CHANNEL_CAPACITY_BYTE, 8 * 1024 * 1024);
         this.configuration = configuration;
+        this.rateLimiter = GlobalRateLimiter.getInstance();
+        this.acquireBatchSize = configuration.getInt(
+                CoreConstant.CORE_TRANSPORT_EXCHANGER_BUFFER_SIZE, 32);
+        this.acquireBatchBytes = this.rateLimiter == null ? Long.MAX_VALUE : this.rateLimiter.getAcquireBatchBytes();
     }
 
     public void close()
     {
         this.isClosed = true;
+        acquirePending();
     }
 
     public int getTaskGroupId()
@@ -133,6 +150,8 @@ public abstract class Channel
     public void pushTerminate(TerminateRecord r)
     {
         Validate.notNull(r, "record不能为空.");
+        // 读取结束前把不足一批的记录也计入全局限速
+        acquirePending();
         this.doPush(r);
 
 //        // 对 stage + 1
@@ -176,6 +195,20 @@ public abstract class Channel
 
     public abstract void clear();
 
+    /**
+     * @return 已经溢写到磁盘但还没有被读取的字节数，不支持溢写的 channel 返回 0
+     */
+    public long getSpillSize()
+    {
+        return 0L;
+    }
+
+    protected void statSpill(long recordSize, long byteSize)
+    {
+        currentCommunication.increaseCounter(CommunicationTool.SPILLED_RECORDS, recordSize);
+        currentCommunication.increaseCounter(CommunicationTool.SPILLED_BYTES, byteSize);
+    }
+
     private long getByteSize(Collection<Record> rs)
     {
         long size = 0;
@@ -185,6 +218,15 @@ public abstract class Channel
         return size;
     }
 
+    private void acquirePending()
+    {
+        if (this.rateLimiter != null && (this.pendingRecords > 0 || this.pendingBytes > 0)) {
+            this.rateLimiter.acquire(this.pendingRecords, this.pendingBytes);
+            this.pendingRecords = 0;
+            this.pendingBytes = 0;
+        }
+    }
+
     private void statPush(long recordSize, long byteSize)
     {
         currentCommunication.increaseCounter(CommunicationTool.READ_SUCCEED_RECORDS,
@@ -196,6 +238,14 @@ public abstract class Channel
         currentCommunication.setLongCounter(CommunicationTool.WAIT_READER_TIME, waitReaderTime);
         currentCommunication.setLongCounter(CommunicationTool.WAIT_WRITER_TIME, waitWriterTime);
 
+        if (this.rateLimiter != null) {
+            this.pendingRecords += recordSize;
+            this.pendingBytes += byteSize;
+            if (this.pendingRecords >= this.acquireBatchSize || this.pendingBytes >= this.acquireBatchBytes) {
+                acquirePending();
+            }
+        }
+
         boolean isChannelByteSpeedLimit = (this.byteSpeed > 0);
         boolean isChannelRecordSpeedLimit = (this.recordSpeed > 0);
         if (!isChannelByteSpeedLimit && !isChannelRecordSpeedLimit) {
@@ -231,12 +281,15 @@ public abstract class Channel
             // 休眠时间取较大值
             long sleepTime = Math.max(byteLimitSleepTime, recordLimitSleepTime);
             if (sleepTime > 0) {
+                ChannelStallEvent stall = JfrSupport.beginChannelStall(
+                        this.jobId, this.taskGroupId, ChannelStallEvent.THROTTLE, size());
                 try {
                     Thread.sleep(sleepTime);
                 }
                 catch (InterruptedException e) {
                     Thread.currentThread().interrupt();
                 }
+                JfrSupport.endChannelStall(stall, 0);
             }
 
             lastCommunication.setLongCounter(CommunicationTool.READ_SUCCEED_BYTES,
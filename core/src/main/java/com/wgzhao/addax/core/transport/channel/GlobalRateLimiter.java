@@ -0,0 +1,271 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.wgzhao.addax.core.transport.channel;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 作业级别的全局限速器，所有 channel 共享同一个字节令牌桶和记录令牌桶.
+ * <p>
+ * 与 channel 级别的限速不同，空闲的 channel 不会占用配额，因此作业整体可以跑满所设定的速度.
+ * channel 按批(exchanger 的 bufferSize)申请令牌，令牌不足时允许透支，申请者根据透支量休眠相应的时间.
+ * <p>
+ * 开启自适应(adaptive)模式后，按照 AIMD 的方式调整速率：写入端汇报拥塞(如 Elasticsearch 返回 429、
+ * 数据库锁等待超时)或者写入耗时明显高于基线时，速率减半；否则每个调整周期增加上限的 5%，直到恢复到设定的上限.
+ */
+public final class GlobalRateLimiter
+{
+    private static final Logger LOG = LoggerFactory.getLogger(GlobalRateLimiter.class);
+
+    // 令牌桶最多积攒多少秒的令牌，决定了允许的突发量
+    private static final double BURST_SECONDS = 0.1;
+    // channel 积攒的字节数达到该值时即申请令牌，不必等到凑满一批记录
+    private static final long MAX_ACQUIRE_BATCH_BYTES = 64 * 1024L;
+
+    // 自适应调整周期
+    private static final long ADJUST_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final double MIN_RATIO = 0.05;
+    private static final double INCREASE_STEP = 0.05;
+    private static final double DECREASE_FACTOR = 0.5;
+    // 写入耗时超过基线多少倍时认为出现拥塞
+    private static final double LATENCY_THRESHOLD = 2.0;
+
+    // 绑定到作业线程，由其创建的 taskGroup 及 task 线程继承，同一个 JVM 中的多个作业互不影响
+    private static final InheritableThreadLocal<GlobalRateLimiter> instance = new InheritableThreadLocal<>();
+
+    private final TokenBucket byteBucket;
+    private final TokenBucket recordBucket;
+    private final boolean adaptive;
+    private final long acquireBatchBytes;
+
+    private final AtomicLong congestionCount = new AtomicLong(0);
+    private final AtomicLong latencySum = new AtomicLong(0);
+    private final AtomicLong latencyCount = new AtomicLong(0);
+
+    private double ratio = 1.0;
+    private double latencyBaseline = 0;
+    private long lastAdjustNanos;
+
+    private GlobalRateLimiter(long byteSpeed, long recordSpeed, boolean adaptive)
+    {
+        long now = System.nanoTime();
+        this.byteBucket = byteSpeed > 0 ? new TokenBucket(byteSpeed, now) : null;
+        this.recordBucket = recordSpeed > 0 ? new TokenBucket(recordSpeed, now) : null;
+        this.adaptive = adaptive;
+        this.lastAdjustNanos = now;
+        // 单次申请不超过令牌桶的突发量，避免大记录时一次透支过多
+        this.acquireBatchBytes = byteSpeed > 0
+                ? Math.max(1L, Math.min(MAX_ACQUIRE_BATCH_BYTES, (long) (byteSpeed * BURST_SECONDS)))
+                : Long.MAX_VALUE;
+    }
+
+    /**
+     * 初始化当前作业的全局限速器，byteSpeed 和 recordSpeed 都不大于 0 时不做限速
+     *
+     * @param byteSpeed 作业的字节速度上限，单位 bytes/s
+     * @param recordSpeed 作业的记录速度上限，单位 records/s
+     * @param adaptive 是否根据写入端的反馈自适应调整速率
+     */
+    public static void init(long byteSpeed, long recordSpeed, boolean adaptive)
+    {
+        if (byteSpeed <= 0 && recordSpeed <= 0) {
+            instance.remove();
+            return;
+        }
+        LOG.info("Job set shared speed limit: byte_speed_limit={}, record_speed_limit={}, adaptive={}.",
+                byteSpeed, recordSpeed, adaptive);
+        instance.set(new GlobalRateLimiter(byteSpeed, recordSpeed, adaptive));
+    }
+
+    public static void shutdown()
+    {
+        instance.remove();
+    }
+
+    /**
+     * @return 当前作业的全局限速器，没有开启时返回 null
+     */
+    public static GlobalRateLimiter getInstance()
+    {
+        return instance.get();
+    }
+
+    /**
+     * @return channel 积攒多少字节后申请令牌，没有字节限速时为 Long.MAX_VALUE
+     */
+    public long getAcquireBatchBytes()
+    {
+        return acquireBatchBytes;
+    }
+
+    /**
+     * 申请令牌，令牌不足时阻塞到配额可用
+     *
+     * @param records 记录数
+     * @param bytes 字节数
+     */
+    public void acquire(long records, long bytes)
+    {
+        long waitNanos;
+        synchronized (this) {
+            long now = System.nanoTime();
+            if (adaptive && now - lastAdjustNanos >= ADJUST_INTERVAL_NANOS) {
+                adjust(now);
+            }
+            waitNanos = 0;
+            if (byteBucket != null) {
+                waitNanos = byteBucket.reserve(bytes, now);
+            }
+            if (recordBucket != null) {
+                waitNanos = Math.max(waitNanos, recordBucket.reserve(records, now));
+            }
+        }
+        if (waitNanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * 写入端出现拥塞，如服务端限流、锁等待超时等
+     */
+    public void onCongestion()
+    {
+        congestionCount.incrementAndGet();
+    }
+
+    /**
+     * 写入端一次写入的耗时
+     *
+     * @param millis 耗时，单位毫秒
+     */
+    public void onLatency(long millis)
+    {
+        if (millis >= 0) {
+            latencySum.addAndGet(millis);
+            latencyCount.incrementAndGet();
+        }
+    }
+
+    public boolean isAdaptive()
+    {
+        return adaptive;
+    }
+
+    private void adjust(long now)
+    {
+        lastAdjustNanos = now;
+        long congestion = congestionCount.getAndSet(0);
+        long count = latencyCount.getAndSet(0);
+        long sum = latencySum.getAndSet(0);
+
+        boolean congested = congestion > 0;
+        if (!congested && count > 0) {
+            double avg = (double) sum / count;
+            if (latencyBaseline <= 0) {
+                latencyBaseline = avg;
+            }
+            else if (avg > latencyBaseline * LATENCY_THRESHOLD) {
+                congested = true;
+            }
+            else {
+                // 只用正常情况下的耗时更新基线，避免基线被拥塞期间的耗时拉高
+                latencyBaseline = latencyBaseline * 0.9 + avg * 0.1;
+            }
+        }
+
+        double newRatio;
+        if (congested) {
+            newRatio = Math.max(MIN_RATIO, ratio * DECREASE_FACTOR);
+        }
+        else {
+            newRatio = Math.min(1.0, ratio + INCREASE_STEP);
+        }
+        if (newRatio != ratio) {
+            if (congested) {
+                LOG.info("Writer is congested ({} signals), reduce the shared speed limit to {}%.",
+                        congestion, Math.round(newRatio * 100));
+            }
+            ratio = newRatio;
+            if (byteBucket != null) {
+                byteBucket.setRatio(ratio, now);
+            }
+            if (recordBucket != null) {
+                recordBucket.setRatio(ratio, now);
+            }
+        }
+    }
+
+    /*
+     * 允许透支的令牌桶，非线程安全，由外层加锁
+     */
+    private static final class TokenBucket
+    {
+        private final double maxRate;
+        // 每纳秒产生的令牌数
+        private double ratePerNano;
+        private double burst;
+        private double stored;
+        private long lastNanos;
+
+        TokenBucket(long maxRate, long now)
+        {
+            this.maxRate = maxRate;
+            this.lastNanos = now;
+            setRatio(1.0, now);
+            this.stored = this.burst;
+        }
+
+        void setRatio(double ratio, long now)
+        {
+            refill(now);
+            double rate = maxRate * ratio;
+            this.ratePerNano = rate / TimeUnit.SECONDS.toNanos(1);
+            this.burst = Math.max(1, rate * BURST_SECONDS);
+            this.stored = Math.min(stored, burst);
+        }
+
+        long reserve(long permits, long now)
+        {
+            refill(now);
+            stored -= permits;
+            if (stored >= 0) {
+                return 0;
+            }
+            return (long) (-stored / ratePerNano);
+        }
+
+        private void refill(long now)
+        {
+            if (now > lastNanos) {
+                stored = Math.min(burst, stored + (now - lastNanos) * ratePerNano);
+                lastNanos = now;
+            }
+        }
+    }
+}
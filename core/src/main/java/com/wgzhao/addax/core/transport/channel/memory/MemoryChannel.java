@@ -21,6 +21,8 @@ package com.wgzhao.addax.core.transport.channel.memory;
 
 import com.wgzhao.addax.common.element.Record;
 import com.wgzhao.addax.common.exception.AddaxException;
+import com.wgzhao.addax.common.statistics.jfr.ChannelStallEvent;
+import com.wgzhao.addax.common.statistics.jfr.JfrSupport;
 import com.wgzhao.addax.common.util.Configuration;
 import com.wgzhao.addax.core.transport.channel.Channel;
 import com.wgzhao.addax.core.transport.record.TerminateRecord;
@@ -86,7 +88,11 @@ public class MemoryChannel
     {
         try {
             long startTime = System.nanoTime();
-            this.queue.put(r);
+            if (!this.queue.offer(r)) {
+                ChannelStallEvent stall = JfrSupport.beginChannelStall(jobId, taskGroupId, ChannelStallEvent.PUSH, this.queue.size());
+                this.queue.put(r);
+                JfrSupport.endChannelStall(stall, 1);
+            }
             waitWriterTime += System.nanoTime() - startTime;
             memoryBytes.addAndGet(r.getMemorySize());
         }
@@ -102,10 +108,15 @@ public class MemoryChannel
             long startTime = System.nanoTime();
             lock.lockInterruptibly();
             int bytes = getRecordBytes(rs);
+            ChannelStallEvent stall = null;
             while (memoryBytes.get() + bytes > this.byteCapacity || rs.size() > this.queue.remainingCapacity()) {
+                if (stall == null) {
+                    stall = JfrSupport.beginChannelStall(jobId, taskGroupId, ChannelStallEvent.PUSH, this.queue.size());
+                }
                 notInsufficient.await(200L, TimeUnit.MILLISECONDS);
             }
             this.queue.addAll(rs);
+            JfrSupport.endChannelStall(stall, rs.size());
             waitWriterTime += System.nanoTime() - startTime;
             memoryBytes.addAndGet(bytes);
             notEmpty.signalAll();
@@ -124,7 +135,12 @@ public class MemoryChannel
     {
         try {
             long startTime = System.nanoTime();
-            Record r = this.queue.take();
+            Record r = this.queue.poll();
+            if (r == null) {
+                ChannelStallEvent stall = JfrSupport.beginChannelStall(jobId, taskGroupId, ChannelStallEvent.PULL, this.queue.size());
+                r = this.queue.take();
+                JfrSupport.endChannelStall(stall, 1);
+            }
             waitReaderTime += System.nanoTime() - startTime;
             memoryBytes.addAndGet(-r.getMemorySize());
             return r;
@@ -143,9 +159,14 @@ public class MemoryChannel
         try {
             long startTime = System.nanoTime();
             lock.lockInterruptibly();
+            ChannelStallEvent stall = null;
             while (this.queue.drainTo(rs, bufferSize) <= 0) {
+                if (stall == null) {
+                    stall = JfrSupport.beginChannelStall(jobId, taskGroupId, ChannelStallEvent.PULL, this.queue.size());
+                }
                 notEmpty.await(200L, TimeUnit.MILLISECONDS);
             }
+            JfrSupport.endChannelStall(stall, rs.size());
             waitReaderTime += System.nanoTime() - startTime;
             int bytes = getRecordBytes(rs);
             memoryBytes.addAndGet(-bytes);
@@ -0,0 +1,189 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.wgzhao.addax.core.transport.channel.spill;
+
+import com.wgzhao.addax.common.element.Record;
+import com.wgzhao.addax.common.element.RecordCodec;
+import com.wgzhao.addax.core.transport.record.TerminateRecord;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.function.Supplier;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * 一个溢写文件，先由写入端顺序追加记录，封存后再由读取端按写入顺序读出，读完即删除。
+ * <p>
+ * 记录使用 {@link RecordCodec} 编码，{@link TerminateRecord} 只会是最后一条记录，不写入文件，只做标记。
+ */
+final class SpillSegment
+{
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final File file;
+    private final boolean compress;
+
+    private OutputStream out;
+    private Deflater deflater;
+    private InputStream in;
+    private Inflater inflater;
+
+    private long records = 0;
+    private long bytes = 0;
+    private long remaining = 0;
+    private boolean terminated = false;
+
+    SpillSegment(File file, boolean compress)
+            throws IOException
+    {
+        this.file = file;
+        this.compress = compress;
+        OutputStream os = new FileOutputStream(file);
+        if (compress) {
+            this.deflater = new Deflater(Deflater.BEST_SPEED);
+            os = new DeflaterOutputStream(os, deflater, BUFFER_SIZE);
+        }
+        this.out = new BufferedOutputStream(os, BUFFER_SIZE);
+        file.deleteOnExit();
+    }
+
+    /**
+     * @return 该记录编码后的字节数
+     */
+    int write(Record record, RecordCodec codec)
+            throws IOException
+    {
+        int size = 0;
+        if (record instanceof TerminateRecord) {
+            terminated = true;
+        }
+        else {
+            size = codec.write(record, out);
+        }
+        records++;
+        remaining++;
+        bytes += size;
+        return size;
+    }
+
+    /**
+     * 停止写入，之后才能读取
+     */
+    void seal()
+            throws IOException
+    {
+        if (out == null) {
+            return;
+        }
+        try {
+            out.close();
+        }
+        finally {
+            out = null;
+            if (deflater != null) {
+                deflater.end();
+                deflater = null;
+            }
+        }
+    }
+
+    /**
+     * @return 下一条记录，没有剩余的记录时返回 null
+     */
+    Record read(RecordCodec codec, Supplier<Record> recordFactory)
+            throws IOException
+    {
+        if (remaining <= 0) {
+            return null;
+        }
+        remaining--;
+        if (remaining == 0 && terminated) {
+            return TerminateRecord.get();
+        }
+        if (in == null) {
+            InputStream is = new FileInputStream(file);
+            if (compress) {
+                this.inflater = new Inflater();
+                is = new InflaterInputStream(is, inflater, BUFFER_SIZE);
+            }
+            this.in = new BufferedInputStream(is, BUFFER_SIZE);
+        }
+        Record record = codec.read(in, recordFactory.get());
+        if (record == null) {
+            throw new EOFException(String.format("溢写文件[%s]不完整", file));
+        }
+        return record;
+    }
+
+    long getRecords()
+    {
+        return records;
+    }
+
+    long getBytes()
+    {
+        return bytes;
+    }
+
+    long getRemaining()
+    {
+        return remaining;
+    }
+
+    /**
+     * 关闭文件并删除，可以重复调用
+     */
+    void delete()
+    {
+        try {
+            seal();
+        }
+        catch (IOException ignored) {
+            // 文件即将被删除，忽略
+        }
+        if (in != null) {
+            try {
+                in.close();
+            }
+            catch (IOException ignored) {
+                //
+            }
+            in = null;
+        }
+        if (inflater != null) {
+            inflater.end();
+            inflater = null;
+        }
+        remaining = 0;
+        //noinspection ResultOfMethodCallIgnored
+        file.delete();
+    }
+}
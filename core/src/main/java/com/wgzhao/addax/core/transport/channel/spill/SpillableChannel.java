@@ -0,0 +1,480 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.wgzhao.addax.core.transport.channel.spill;
+
+import com.wgzhao.addax.common.element.Record;
+import com.wgzhao.addax.common.element.RecordCodec;
+import com.wgzhao.addax.common.exception.AddaxException;
+import com.wgzhao.addax.common.statistics.jfr.ChannelStallEvent;
+import com.wgzhao.addax.common.statistics.jfr.JfrSupport;
+import com.wgzhao.addax.common.util.Configuration;
+import com.wgzhao.addax.common.util.StrUtil;
+import com.wgzhao.addax.core.transport.channel.Channel;
+import com.wgzhao.addax.core.transport.record.TerminateRecord;
+import com.wgzhao.addax.core.util.FrameworkErrorCode;
+import com.wgzhao.addax.core.util.container.CoreConstant;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * 内存不足时溢写到本地磁盘的 Channel
+ * <p>
+ * 内存队列的上限与 {@link com.wgzhao.addax.core.transport.channel.memory.MemoryChannel} 相同，
+ * 超过 capacity 或 byteCapacity 后读取端不再阻塞，而是把记录追加到磁盘上的溢写文件中，
+ * 每个文件达到 segmentSize 后换一个新文件。只要磁盘上还有未读取的记录，新的记录就都写入磁盘，
+ * 写入端先取完内存队列再按顺序读取溢写文件，从而保证记录的先后顺序不变。
+ * 溢写文件读完即删除，channel 被清空或者读到结束标志时删除整个溢写目录。
+ * <p>
+ * 写入端读取溢写文件时不持有锁，如果此时 channel 被清空，正在读取的文件及其所在的目录交给写入端在读取结束后删除，
+ * 读到的记录也一并丢弃。
+ */
+public class SpillableChannel
+        extends Channel
+{
+    private static final Logger LOG = LoggerFactory.getLogger(SpillableChannel.class);
+
+    private final int bufferSize;
+    private final File baseDir;
+    private final long segmentSize;
+    private final long maxSize;
+    private final boolean compress;
+    private final Supplier<Record> recordFactory;
+    // 读取端和写入端各自使用的编码器
+    private final RecordCodec spillCodec = new RecordCodec();
+    private final RecordCodec readCodec = new RecordCodec();
+
+    private final ArrayDeque<Record> queue;
+    private int memoryBytes = 0;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+
+    // 已经封存、等待读取的溢写文件
+    private final ArrayDeque<SpillSegment> sealed = new ArrayDeque<>();
+    // 读取端正在追加的溢写文件
+    private SpillSegment writing;
+    // 写入端正在读取的溢写文件
+    private SpillSegment reading;
+    // 写入端正在不持有锁的情况下读取 reading
+    private boolean readingInProgress = false;
+    // 读取期间 channel 被清空，由写入端删除正在读取的文件及 discardedDir
+    private boolean readingDiscarded = false;
+    private File discardedDir;
+
+    private File spillDir;
+    private int segmentNumber = 0;
+    // 磁盘上尚未读取的记录数及字节数
+    private long spillRecords = 0;
+    private volatile long spillBytes = 0;
+    private long totalSpillRecords = 0;
+    private long totalSpillBytes = 0;
+
+    public SpillableChannel(Configuration configuration)
+    {
+        super(configuration);
+        this.queue = new ArrayDeque<>(this.getCapacity());
+        this.bufferSize = configuration.getInt(CoreConstant.CORE_TRANSPORT_EXCHANGER_BUFFER_SIZE, 32);
+
+        String dir = configuration.getString(CoreConstant.CORE_TRANSPORT_CHANNEL_SPILL_DIR);
+        this.baseDir = new File(StringUtils.isBlank(dir) ? System.getProperty("java.io.tmpdir") : dir);
+        this.segmentSize = configuration.getLong(CoreConstant.CORE_TRANSPORT_CHANNEL_SPILL_SEGMENT_SIZE, 64 * 1024 * 1024L);
+        this.maxSize = configuration.getLong(CoreConstant.CORE_TRANSPORT_CHANNEL_SPILL_MAX_SIZE, -1L);
+        this.compress = configuration.getBool(CoreConstant.CORE_TRANSPORT_CHANNEL_SPILL_COMPRESS, false);
+        if (this.segmentSize <= 0) {
+            throw AddaxException.asAddaxException(FrameworkErrorCode.CONFIG_ERROR,
+                    String.format("溢写文件大小[%d]必须大于0.", this.segmentSize));
+        }
+
+        Class<? extends Record> recordClass;
+        try {
+            @SuppressWarnings("unchecked")
+            Class<? extends Record> clazz = (Class<? extends Record>) Class.forName(configuration.getString(
+                    CoreConstant.CORE_TRANSPORT_RECORD_CLASS,
+                    "com.wgzhao.addax.core.transport.record.DefaultRecord"));
+            recordClass = clazz;
+        }
+        catch (Exception e) {
+            throw AddaxException.asAddaxException(FrameworkErrorCode.CONFIG_ERROR, e);
+        }
+        this.recordFactory = () -> {
+            try {
+                return recordClass.newInstance();
+            }
+            catch (Exception e) {
+                throw AddaxException.asAddaxException(FrameworkErrorCode.CONFIG_ERROR, e);
+            }
+        };
+    }
+
+    @Override
+    public void close()
+    {
+        super.close();
+        this.doPush(TerminateRecord.get());
+    }
+
+    @Override
+    public void clear()
+    {
+        lock.lock();
+        try {
+            this.queue.clear();
+            this.memoryBytes = 0;
+            if (reading != null) {
+                if (readingInProgress) {
+                    // 写入端正在读取，不能在这里关闭文件，由写入端读取结束后删除
+                    readingDiscarded = true;
+                }
+                else {
+                    reading.delete();
+                }
+                reading = null;
+            }
+            for (SpillSegment segment : sealed) {
+                segment.delete();
+            }
+            sealed.clear();
+            if (writing != null) {
+                writing.delete();
+                writing = null;
+            }
+            spillRecords = 0;
+            spillBytes = 0;
+            if (readingDiscarded && discardedDir == null && spillDir != null) {
+                // 之后溢写的记录写入新的目录
+                discardedDir = spillDir;
+                spillDir = null;
+            }
+            else {
+                deleteSpillDir();
+            }
+            notFull.signalAll();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    protected void doPush(Record r)
+    {
+        this.doPushAll(Collections.singletonList(r));
+    }
+
+    @Override
+    protected void doPushAll(Collection<Record> rs)
+    {
+        try {
+            long startTime = System.nanoTime();
+            lock.lockInterruptibly();
+            try {
+                int bytes = getRecordBytes(rs);
+                if (spillRecords == 0 && queue.size() + rs.size() <= this.capacity
+                        && memoryBytes + bytes <= this.byteCapacity) {
+                    queue.addAll(rs);
+                    memoryBytes += bytes;
+                }
+                else {
+                    ChannelStallEvent stall = null;
+                    while (maxSize > 0 && spillBytes >= maxSize) {
+                        if (stall == null) {
+                            stall = JfrSupport.beginChannelStall(jobId, taskGroupId, ChannelStallEvent.PUSH, size());
+                        }
+                        notFull.await(200L, TimeUnit.MILLISECONDS);
+                    }
+                    JfrSupport.endChannelStall(stall, rs.size());
+                    spill(rs);
+                }
+                waitWriterTime += System.nanoTime() - startTime;
+                notEmpty.signalAll();
+            }
+            finally {
+                lock.unlock();
+            }
+        }
+        catch (InterruptedException e) {
+            throw AddaxException.asAddaxException(
+                    FrameworkErrorCode.RUNTIME_ERROR, e);
+        }
+    }
+
+    @Override
+    protected Record doPull()
+    {
+        List<Record> rs = new ArrayList<>(1);
+        pull(rs, 1);
+        return rs.get(0);
+    }
+
+    @Override
+    protected void doPullAll(Collection<Record> rs)
+    {
+        assert rs != null;
+        rs.clear();
+        pull(rs, bufferSize);
+    }
+
+    @Override
+    public int size()
+    {
+        lock.lock();
+        try {
+            return (int) Math.min(Integer.MAX_VALUE, queue.size() + spillRecords);
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        return size() == 0;
+    }
+
+    @Override
+    public long getSpillSize()
+    {
+        return spillBytes;
+    }
+
+    private void pull(Collection<Record> rs, int max)
+    {
+        try {
+            long startTime = System.nanoTime();
+            ChannelStallEvent stall = null;
+            while (true) {
+                SpillSegment segment;
+                lock.lockInterruptibly();
+                try {
+                    if (!queue.isEmpty()) {
+                        int bytes = 0;
+                        Record r = null;
+                        while (rs.size() < max && !queue.isEmpty()) {
+                            r = queue.poll();
+                            bytes += r.getMemorySize();
+                            rs.add(r);
+                        }
+                        memoryBytes -= bytes;
+                        if (r instanceof TerminateRecord) {
+                            // 溢写的记录已经读完，结束标志没有经过磁盘
+                            logSpillSummary();
+                            deleteSpillDir();
+                        }
+                        break;
+                    }
+                    if (reading == null) {
+                        if (!sealed.isEmpty()) {
+                            reading = sealed.poll();
+                        }
+                        else if (writing != null && writing.getRecords() > 0) {
+                            // 磁盘上只剩下正在写的文件，封存后开始读取，读取端之后的记录写入新的文件
+                            writing.seal();
+                            reading = writing;
+                            writing = null;
+                        }
+                    }
+                    if (reading == null) {
+                        if (stall == null) {
+                            stall = JfrSupport.beginChannelStall(jobId, taskGroupId, ChannelStallEvent.PULL, 0);
+                        }
+                        notEmpty.await(200L, TimeUnit.MILLISECONDS);
+                        continue;
+                    }
+                    segment = reading;
+                    readingInProgress = true;
+                }
+                finally {
+                    lock.unlock();
+                }
+                // 读取溢写文件时不持有锁，读取端可以继续写入
+                if (readSegment(segment, rs, max)) {
+                    break;
+                }
+            }
+            JfrSupport.endChannelStall(stall, rs.size());
+            waitReaderTime += System.nanoTime() - startTime;
+        }
+        catch (InterruptedException e) {
+            throw AddaxException.asAddaxException(
+                    FrameworkErrorCode.RUNTIME_ERROR, e);
+        }
+        catch (IOException e) {
+            throw AddaxException.asAddaxException(FrameworkErrorCode.RUNTIME_ERROR,
+                    String.format("读取溢写文件失败, 目录: [%s]", spillDir), e);
+        }
+    }
+
+    /**
+     * @return 是否读到了记录
+     */
+    private boolean readSegment(SpillSegment segment, Collection<Record> rs, int max)
+            throws IOException
+    {
+        long before = segment.getRemaining();
+        Record r;
+        // 最后读到的记录，用于判断是否读到了结束标志
+        Record last = null;
+        Exception error = null;
+        try {
+            while (rs.size() < max && (r = segment.read(readCodec, recordFactory)) != null) {
+                rs.add(r);
+                last = r;
+            }
+        }
+        catch (IOException | RuntimeException e) {
+            error = e;
+        }
+        long count = before - segment.getRemaining();
+        lock.lock();
+        try {
+            readingInProgress = false;
+            if (readingDiscarded) {
+                // 读取期间 channel 被清空，丢弃读到的记录
+                readingDiscarded = false;
+                segment.delete();
+                deleteDirectory(discardedDir);
+                discardedDir = null;
+                rs.clear();
+                return false;
+            }
+            if (error instanceof IOException) {
+                throw (IOException) error;
+            }
+            if (error != null) {
+                throw (RuntimeException) error;
+            }
+            spillRecords -= count;
+            if (segment.getRemaining() == 0) {
+                spillBytes -= segment.getBytes();
+                segment.delete();
+                reading = null;
+            }
+            if (last instanceof TerminateRecord || spillRecords == 0) {
+                // 磁盘上的记录已经全部读完
+                spillBytes = 0;
+                if (last instanceof TerminateRecord) {
+                    logSpillSummary();
+                    deleteSpillDir();
+                }
+            }
+            notFull.signalAll();
+        }
+        finally {
+            lock.unlock();
+        }
+        return count > 0;
+    }
+
+    private void spill(Collection<Record> rs)
+    {
+        try {
+            long bytes = 0;
+            for (Record r : rs) {
+                if (writing == null) {
+                    writing = newSegment();
+                }
+                bytes += writing.write(r, spillCodec);
+                if (writing.getBytes() >= segmentSize) {
+                    writing.seal();
+                    sealed.add(writing);
+                    writing = null;
+                }
+            }
+            spillRecords += rs.size();
+            spillBytes += bytes;
+            totalSpillRecords += rs.size();
+            totalSpillBytes += bytes;
+            statSpill(rs.size(), bytes);
+        }
+        catch (IOException e) {
+            throw AddaxException.asAddaxException(FrameworkErrorCode.RUNTIME_ERROR,
+                    String.format("写入溢写文件失败, 目录: [%s]", spillDir), e);
+        }
+    }
+
+    private SpillSegment newSegment()
+            throws IOException
+    {
+        if (spillDir == null) {
+            Files.createDirectories(baseDir.toPath());
+            spillDir = Files.createTempDirectory(baseDir.toPath(),
+                    String.format("addax-spill-%d-%d-", jobId, taskGroupId)).toFile();
+            spillDir.deleteOnExit();
+            LOG.info("The channel of taskGroup [{}] exceeds its memory capacity, spilling records to [{}].",
+                    taskGroupId, spillDir);
+        }
+        segmentNumber++;
+        return new SpillSegment(new File(spillDir, String.format("segment-%06d.spill", segmentNumber)), compress);
+    }
+
+    private void logSpillSummary()
+    {
+        if (totalSpillRecords > 0) {
+            LOG.info("The channel of taskGroup [{}] spilled {} records ({}) into {} segments.",
+                    taskGroupId, totalSpillRecords, StrUtil.stringify(totalSpillBytes), segmentNumber);
+        }
+    }
+
+    private void deleteSpillDir()
+    {
+        deleteDirectory(spillDir);
+        spillDir = null;
+    }
+
+    private static void deleteDirectory(File dir)
+    {
+        if (dir == null) {
+            return;
+        }
+        try {
+            FileUtils.deleteDirectory(dir);
+        }
+        catch (IOException e) {
+            LOG.warn("Failed to delete the spill directory [{}]: {}", dir, e.getMessage());
+        }
+    }
+
+    private int getRecordBytes(Collection<Record> rs)
+    {
+        int bytes = 0;
+        for (Record r : rs) {
+            bytes += r.getMemorySize();
+        }
+        return bytes;
+    }
+}
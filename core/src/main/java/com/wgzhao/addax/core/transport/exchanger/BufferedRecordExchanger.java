@@ -26,6 +26,7 @@ import com.wgzhao.addax.common.plugin.RecordReceiver;
 import com.wgzhao.addax.common.plugin.RecordSender;
 import com.wgzhao.addax.common.plugin.TaskPluginCollector;
 import com.wgzhao.addax.common.util.Configuration;
+import com.wgzhao.addax.core.checkpoint.LocalTaskCheckpoint;
 import com.wgzhao.addax.core.transport.channel.Channel;
 import com.wgzhao.addax.core.transport.record.TerminateRecord;
 import com.wgzhao.addax.core.util.FrameworkErrorCode;
@@ -49,6 +50,8 @@ public class BufferedRecordExchanger
     private int bufferSize;
     private int bufferIndex = 0;
     private volatile boolean shutdown = false;
+    // 未开启断点续传时为 null
+    private LocalTaskCheckpoint checkpoint;
 
     @SuppressWarnings("unchecked")
     public BufferedRecordExchanger(Channel channel, TaskPluginCollector pluginCollector)
@@ -116,6 +119,14 @@ public class BufferedRecordExchanger
         this.buffer.add(record);
         this.bufferIndex++;
         memoryBytes.addAndGet(record.getMemorySize());
+        if (checkpoint != null) {
+            checkpoint.recordSent();
+        }
+    }
+
+    public void setTaskCheckpoint(LocalTaskCheckpoint checkpoint)
+    {
+        this.checkpoint = checkpoint;
     }
 
     @Override
@@ -155,6 +166,9 @@ public class BufferedRecordExchanger
         if (record instanceof TerminateRecord) {
             record = null;
         }
+        else if (checkpoint != null) {
+            checkpoint.recordReceived();
+        }
         return record;
     }
 
@@ -26,6 +26,7 @@ import com.wgzhao.addax.common.plugin.RecordReceiver;
 import com.wgzhao.addax.common.plugin.RecordSender;
 import com.wgzhao.addax.common.plugin.TaskPluginCollector;
 import com.wgzhao.addax.common.util.Configuration;
+import com.wgzhao.addax.core.checkpoint.LocalTaskCheckpoint;
 import com.wgzhao.addax.core.statistics.communication.Communication;
 import com.wgzhao.addax.core.transport.channel.Channel;
 import com.wgzhao.addax.core.transport.record.TerminateRecord;
@@ -51,6 +52,8 @@ public class BufferedRecordTransformerExchanger
     private int bufferSize;
     private int bufferIndex = 0;
     private volatile boolean shutdown = false;
+    // 未开启断点续传时为 null
+    private LocalTaskCheckpoint checkpoint;
 
     @SuppressWarnings("unchecked")
     public BufferedRecordTransformerExchanger(int taskGroupId, int taskId,
@@ -127,6 +130,14 @@ public class BufferedRecordTransformerExchanger
         this.buffer.add(record);
         this.bufferIndex++;
         memoryBytes.addAndGet(record.getMemorySize());
+        if (checkpoint != null) {
+            checkpoint.recordSent();
+        }
+    }
+
+    public void setTaskCheckpoint(LocalTaskCheckpoint checkpoint)
+    {
+        this.checkpoint = checkpoint;
     }
 
     @Override
@@ -168,6 +179,9 @@ public class BufferedRecordTransformerExchanger
         if (record instanceof TerminateRecord) {
             record = null;
         }
+        else if (checkpoint != null) {
+            checkpoint.recordReceived();
+        }
         return record;
     }
 
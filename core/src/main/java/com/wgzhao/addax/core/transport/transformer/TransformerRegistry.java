@@ -31,9 +31,9 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * no comments.
@@ -43,7 +43,7 @@ public class TransformerRegistry
 {
 
     private static final Logger LOG = LoggerFactory.getLogger(TransformerRegistry.class);
-    private static final Map<String, TransformerInfo> registeredTransformer = new HashMap<>();
+    private static final Map<String, TransformerInfo> registeredTransformer = new ConcurrentHashMap<>();
 
     public static void loadTransformerFromLocalStorage()
     {
@@ -61,7 +61,8 @@ public class TransformerRegistry
 
         for (String each : paths) {
             try {
-                if (transformers == null || transformers.contains(each)) {
+                // 已经加载过的不再重复加载，server 模式下在多个作业之间共享
+                if ((transformers == null || transformers.contains(each)) && !registeredTransformer.containsKey(each)) {
                     loadTransformer(each);
                 }
             }
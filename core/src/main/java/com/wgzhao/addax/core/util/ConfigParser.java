@@ -33,14 +33,22 @@ import java.io.IOException;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 public final class ConfigParser
 {
     private static final Logger LOG = LoggerFactory.getLogger(ConfigParser.class);
 
+    /*
+     * 插件配置的缓存，key 为排序后的插件名列表. server 模式下多个作业共用，避免每个作业都扫描插件目录
+     */
+    private static final Map<String, Configuration> pluginConfigCache = new ConcurrentHashMap<>();
+
     private ConfigParser() {}
 
     /*
@@ -48,8 +56,14 @@ public final class ConfigParser
      */
     public static Configuration parse(String jobPath)
     {
-        Configuration configuration = ConfigParser.parseJobConfig(jobPath);
+        return parse(ConfigParser.parseJobConfig(jobPath));
+    }
 
+    /*
+     * 在已经解析的Job配置上合并Plugin、Core信息
+     */
+    public static Configuration parse(Configuration configuration)
+    {
         configuration.merge(
                 ConfigParser.parseCoreConfig(CoreConstant.CONF_PATH),
                 false);
@@ -75,8 +89,7 @@ public final class ConfigParser
             pluginList.add(postHandlerName);
         }
         try {
-            configuration.merge(parsePluginConfig(new ArrayList<>(pluginList)),
-                    false);
+            configuration.merge(getPluginConfig(pluginList), false);
         }
         catch (Exception e) {
             //吞掉异常，保持log干净。这里message足够。
@@ -88,13 +101,22 @@ public final class ConfigParser
             catch (InterruptedException e1) {
                 //
             }
-            configuration.merge(parsePluginConfig(new ArrayList<>(pluginList)),
-                    false);
+            configuration.merge(getPluginConfig(pluginList), false);
         }
 
         return configuration;
     }
 
+    private static Configuration getPluginConfig(Set<String> pluginList)
+    {
+        List<String> wantPluginNames = new ArrayList<>(pluginList);
+        wantPluginNames.sort(Comparator.nullsFirst(Comparator.naturalOrder()));
+        Configuration pluginConfig = pluginConfigCache.computeIfAbsent(String.join(",", wantPluginNames),
+                key -> parsePluginConfig(wantPluginNames));
+        // merge 时会引用其中的对象，每个作业使用各自的副本
+        return pluginConfig.clone();
+    }
+
     private static Configuration parseCoreConfig(String path)
     {
         return Configuration.from(new File(path));
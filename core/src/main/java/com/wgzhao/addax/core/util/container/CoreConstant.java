@@ -44,6 +44,14 @@ public class CoreConstant
 
     public static final String CORE_CONTAINER_TASK_GROUP_ID = "core.container.taskGroup.id";
 
+    public static final String CORE_CONTAINER_TASK_GROUP_AUTO_TUNE = "core.container.taskGroup.autoTune";
+
+    public static final String CORE_CONTAINER_TASK_GROUP_MIN_CHANNEL = "core.container.taskGroup.minChannel";
+
+    public static final String CORE_CONTAINER_TASK_GROUP_INIT_CHANNEL = "core.container.taskGroup.initChannel";
+
+    public static final String CORE_CONTAINER_TASK_GROUP_TUNE_INTERVAL = "core.container.taskGroup.tuneInterval";
+
     public static final String CORE_CONTAINER_TASK_GROUP_SLEEP_INTERVAL = "core.container.taskGroup.sleepInterval";
 
     public static final String CORE_CONTAINER_TASK_GROUP_REPORT_INTERVAL = "core.container.taskGroup.reportInterval";
@@ -58,6 +66,44 @@ public class CoreConstant
 
     public static final String CORE_SERVER_TIMEOUT_SEC = "core.server.timeout";
 
+    public static final String CORE_DAEMON_HOST = "core.daemon.host";
+
+    public static final String CORE_DAEMON_PORT = "core.daemon.port";
+
+    public static final String CORE_DAEMON_MAX_CONCURRENT_JOBS = "core.daemon.maxConcurrentJobs";
+
+    public static final String CORE_DAEMON_MAX_FINISHED_JOBS = "core.daemon.maxFinishedJobs";
+
+    public static final String CORE_DAEMON_TOKEN = "core.daemon.token";
+
+    public static final String CORE_METRICS_ENABLE = "core.metrics.enable";
+
+    public static final String CORE_METRICS_HOST = "core.metrics.host";
+
+    public static final String CORE_METRICS_PORT = "core.metrics.port";
+
+    public static final String CORE_METRICS_JMX = "core.metrics.jmx";
+
+    public static final String CORE_JFR_ENABLE = "core.jfr.enable";
+
+    public static final String CORE_JFR_SETTINGS = "core.jfr.settings";
+
+    public static final String CORE_JFR_PATH = "core.jfr.path";
+
+    public static final String CORE_JFR_MAX_SIZE = "core.jfr.maxSize";
+
+    public static final String CORE_JFR_MAX_AGE = "core.jfr.maxAge";
+
+    public static final String CORE_JFR_STALL_THRESHOLD = "core.jfr.stallThreshold";
+
+    public static final String CORE_CHECKPOINT_ENABLE = "core.checkpoint.enable";
+
+    public static final String CORE_CHECKPOINT_PATH = "core.checkpoint.path";
+
+    public static final String CORE_CHECKPOINT_NAME = "core.checkpoint.name";
+
+    public static final String CORE_CHECKPOINT_INTERVAL = "core.checkpoint.interval";
+
     public static final String CORE_TRANSPORT_CHANNEL_CLASS = "core.transport.channel.class";
 
     public static final String CORE_TRANSPORT_CHANNEL_CAPACITY = "core.transport.channel.capacity";
@@ -70,6 +116,14 @@ public class CoreConstant
 
     public static final String CORE_TRANSPORT_CHANNEL_FLOW_CONTROL_INTERVAL = "core.transport.channel.flowControlInterval";
 
+    public static final String CORE_TRANSPORT_CHANNEL_SPILL_DIR = "core.transport.channel.spill.dir";
+
+    public static final String CORE_TRANSPORT_CHANNEL_SPILL_SEGMENT_SIZE = "core.transport.channel.spill.segmentSize";
+
+    public static final String CORE_TRANSPORT_CHANNEL_SPILL_MAX_SIZE = "core.transport.channel.spill.maxSize";
+
+    public static final String CORE_TRANSPORT_CHANNEL_SPILL_COMPRESS = "core.transport.channel.spill.compress";
+
     public static final String CORE_TRANSPORT_EXCHANGER_BUFFER_SIZE = "core.transport.exchanger.bufferSize";
 
     public static final String CORE_TRANSPORT_RECORD_CLASS = "core.transport.record.class";
@@ -98,6 +152,18 @@ public class CoreConstant
 
     public static final String JOB_SETTING_SPEED_CHANNEL = "job.setting.speed.channel";
 
+    public static final String JOB_SETTING_SPEED_SHARED = "job.setting.speed.shared";
+
+    public static final String JOB_SETTING_SPEED_ADAPTIVE = "job.setting.speed.adaptive";
+
+    public static final String JOB_SETTING_SPEED_AUTO_TUNE = "job.setting.speed.autoTune";
+
+    public static final String JOB_SETTING_SPEED_MIN_CHANNEL = "job.setting.speed.minChannel";
+
+    public static final String JOB_SETTING_SPEED_MAX_CHANNEL = "job.setting.speed.maxChannel";
+
+    public static final String JOB_SETTING_SPEED_TUNE_INTERVAL = "job.setting.speed.tuneInterval";
+
     public static final String JOB_SETTING_ERROR_LIMIT = "job.setting.errorLimit";
 
     public static final String JOB_SETTING_ERROR_LIMIT_RECORD = "job.setting.errorLimit.record";
@@ -31,7 +31,6 @@ import com.wgzhao.addax.core.taskgroup.runner.WriterRunner;
 import com.wgzhao.addax.core.util.FrameworkErrorCode;
 import org.apache.commons.lang3.StringUtils;
 
-import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -47,9 +46,9 @@ public class LoadUtil
     private final static Map<Long, Configuration> configurationSet = new ConcurrentHashMap<>();
 
     /*
-     * jarLoader的缓冲
+     * jarLoader的缓冲，同一个 JVM 中运行的所有作业共享，插件类只需要加载一次
      */
-    private static final Map<String, JarLoader> jarLoaderCenter = new HashMap<>();
+    private static final Map<String, JarLoader> jarLoaderCenter = new ConcurrentHashMap<>();
 
     private LoadUtil()
     {
@@ -173,7 +172,7 @@ public class LoadUtil
      * 反射出具体plugin实例
      */
     @SuppressWarnings("unchecked")
-    private static synchronized Class<? extends AbstractPlugin> loadPluginClass(
+    private static Class<? extends AbstractPlugin> loadPluginClass(
             PluginType pluginType, String pluginName,
             ContainerType pluginRunType, Long jobId)
     {
@@ -189,13 +188,11 @@ public class LoadUtil
         }
     }
 
-    public static synchronized JarLoader getJarLoader(PluginType pluginType,
+    public static JarLoader getJarLoader(PluginType pluginType,
             String pluginName, Long jobId)
     {
         Configuration pluginConf = getPluginConf(pluginType, pluginName, jobId);
-        JarLoader jarLoader = jarLoaderCenter.get(generatePluginKey(pluginType,
-                pluginName));
-        if (null == jarLoader) {
+        return jarLoaderCenter.computeIfAbsent(generatePluginKey(pluginType, pluginName), key -> {
             String pluginPath = pluginConf.getString("path");
             if (StringUtils.isBlank(pluginPath)) {
                 throw AddaxException.asAddaxException(
@@ -204,12 +201,8 @@ public class LoadUtil
                                 "%s插件[%s]路径非法!",
                                 pluginType, pluginName));
             }
-            jarLoader = new JarLoader(new String[] {pluginPath});
-            jarLoaderCenter.put(generatePluginKey(pluginType, pluginName),
-                    jarLoader);
-        }
-
-        return jarLoader;
+            return new JarLoader(new String[] {pluginPath});
+        });
     }
 
     private enum ContainerType
@@ -0,0 +1,165 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.wgzhao.addax.core.transport.channel.spill;
+
+import com.wgzhao.addax.common.element.LongColumn;
+import com.wgzhao.addax.common.element.Record;
+import com.wgzhao.addax.common.element.RecordCodec;
+import com.wgzhao.addax.common.element.StringColumn;
+import com.wgzhao.addax.core.transport.record.DefaultRecord;
+import com.wgzhao.addax.core.transport.record.TerminateRecord;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestSpillSegment
+{
+    @TempDir
+    File dir;
+
+    private final RecordCodec codec = new RecordCodec();
+
+    private static Record record(long i)
+    {
+        Record r = new DefaultRecord();
+        r.addColumn(new LongColumn(i));
+        r.addColumn(i % 3 == 0 ? new StringColumn() : new StringColumn("value-" + i));
+        return r;
+    }
+
+    private void assertRoundTrip(boolean compress)
+            throws IOException
+    {
+        File file = new File(dir, "segment-" + compress + ".spill");
+        SpillSegment segment = new SpillSegment(file, compress);
+        long bytes = 0;
+        for (int i = 0; i < 1000; i++) {
+            bytes += segment.write(record(i), codec);
+        }
+        assertEquals(0, segment.write(TerminateRecord.get(), codec));
+        segment.seal();
+        assertEquals(1001, segment.getRecords());
+        assertEquals(bytes, segment.getBytes());
+
+        for (int i = 0; i < 1000; i++) {
+            Record r = segment.read(codec, DefaultRecord::new);
+            assertEquals(i, r.getColumn(0).asLong());
+            if (i % 3 == 0) {
+                assertNull(r.getColumn(1).getRawData());
+            }
+            else {
+                assertEquals("value-" + i, r.getColumn(1).asString());
+            }
+        }
+        assertEquals(1, segment.getRemaining());
+        assertSame(TerminateRecord.get(), segment.read(codec, DefaultRecord::new));
+        assertNull(segment.read(codec, DefaultRecord::new));
+        segment.delete();
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void testReadInWriteOrder()
+            throws IOException
+    {
+        assertRoundTrip(false);
+    }
+
+    @Test
+    public void testReadInWriteOrderCompressed()
+            throws IOException
+    {
+        assertRoundTrip(true);
+    }
+
+    @Test
+    public void testWithoutTerminate()
+            throws IOException
+    {
+        SpillSegment segment = new SpillSegment(new File(dir, "segment.spill"), false);
+        segment.write(record(1), codec);
+        segment.write(record(2), codec);
+        segment.seal();
+        assertEquals(1, segment.read(codec, DefaultRecord::new).getColumn(0).asLong());
+        assertEquals(2, segment.read(codec, DefaultRecord::new).getColumn(0).asLong());
+        assertNull(segment.read(codec, DefaultRecord::new));
+        segment.delete();
+    }
+
+    @Test
+    public void testTruncatedFile()
+            throws IOException
+    {
+        File file = new File(dir, "segment.spill");
+        SpillSegment segment = new SpillSegment(file, false);
+        segment.write(record(1), codec);
+        segment.write(record(2), codec);
+        segment.seal();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() / 2);
+        }
+        assertThrows(EOFException.class, () -> {
+            segment.read(codec, DefaultRecord::new);
+            segment.read(codec, DefaultRecord::new);
+        });
+        segment.delete();
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void testDeleteWhileWritingAndReading()
+            throws IOException
+    {
+        // 未封存时删除
+        File writingFile = new File(dir, "writing.spill");
+        SpillSegment writing = new SpillSegment(writingFile, true);
+        writing.write(record(1), codec);
+        assertTrue(writingFile.exists());
+        writing.delete();
+        assertFalse(writingFile.exists());
+        assertEquals(0, writing.getRemaining());
+        writing.delete();
+
+        // 读取到一半时删除
+        File readingFile = new File(dir, "reading.spill");
+        SpillSegment reading = new SpillSegment(readingFile, true);
+        for (int i = 0; i < 10; i++) {
+            reading.write(record(i), codec);
+        }
+        reading.seal();
+        reading.read(codec, DefaultRecord::new);
+        reading.delete();
+        assertFalse(readingFile.exists());
+        assertNull(reading.read(codec, DefaultRecord::new));
+        reading.delete();
+    }
+}
@@ -0,0 +1,330 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.wgzhao.addax.core.transport.channel.spill;
+
+import com.wgzhao.addax.common.element.LongColumn;
+import com.wgzhao.addax.common.element.Record;
+import com.wgzhao.addax.common.element.StringColumn;
+import com.wgzhao.addax.common.util.Configuration;
+import com.wgzhao.addax.core.statistics.communication.Communication;
+import com.wgzhao.addax.core.statistics.communication.CommunicationTool;
+import com.wgzhao.addax.core.transport.record.DefaultRecord;
+import com.wgzhao.addax.core.transport.record.TerminateRecord;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestSpillableChannel
+{
+    @TempDir
+    File dir;
+
+    private Communication communication;
+
+    private SpillableChannel newChannel(int capacity, long segmentSize, long maxSize, boolean compress)
+    {
+        Configuration conf = Configuration.newDefault();
+        conf.set("core.container.taskGroup.id", 0);
+        conf.set("core.transport.exchanger.bufferSize", 32);
+        conf.set("core.transport.channel.capacity", capacity);
+        conf.set("core.transport.channel.byteCapacity", 64 * 1024 * 1024);
+        conf.set("core.transport.channel.speed.byte", -1);
+        conf.set("core.transport.channel.speed.record", -1);
+        conf.set("core.transport.channel.spill.dir", dir.getAbsolutePath());
+        conf.set("core.transport.channel.spill.segmentSize", segmentSize);
+        conf.set("core.transport.channel.spill.maxSize", maxSize);
+        conf.set("core.transport.channel.spill.compress", compress);
+        SpillableChannel channel = new SpillableChannel(conf);
+        communication = new Communication();
+        channel.setCommunication(communication);
+        return channel;
+    }
+
+    private static Record record(long i)
+    {
+        Record r = new DefaultRecord();
+        r.addColumn(new LongColumn(i));
+        r.addColumn(new StringColumn("value-" + i));
+        return r;
+    }
+
+    private static void push(SpillableChannel channel, long from, long to)
+    {
+        List<Record> buffer = new ArrayList<>();
+        for (long i = from; i < to; i++) {
+            buffer.add(record(i));
+            if (buffer.size() == 32) {
+                channel.pushAll(buffer);
+                buffer.clear();
+            }
+        }
+        if (!buffer.isEmpty()) {
+            channel.pushAll(buffer);
+        }
+    }
+
+    private static void assertRecord(long expect, Record r)
+    {
+        assertEquals(expect, r.getColumn(0).asLong());
+        assertEquals("value-" + expect, r.getColumn(1).asString());
+    }
+
+    /**
+     * 逐条读取指定数量的记录并检查顺序
+     *
+     * @return 下一条期望的记录序号
+     */
+    private static long pull(SpillableChannel channel, long expect, long count)
+    {
+        for (long end = expect + count; expect < end; expect++) {
+            assertRecord(expect, channel.pull());
+        }
+        return expect;
+    }
+
+    /**
+     * 批量读取到结束标志为止并检查顺序，结束标志必须是最后一条记录
+     *
+     * @return 下一条期望的记录序号
+     */
+    private static long drain(SpillableChannel channel, long expect)
+    {
+        List<Record> rs = new ArrayList<>();
+        while (true) {
+            channel.pullAll(rs);
+            for (int i = 0; i < rs.size(); i++) {
+                Record r = rs.get(i);
+                if (r instanceof TerminateRecord) {
+                    assertEquals(rs.size() - 1, i);
+                    assertTrue(channel.isEmpty());
+                    return expect;
+                }
+                assertRecord(expect++, r);
+            }
+        }
+    }
+
+    private int spillDirs()
+    {
+        File[] dirs = dir.listFiles();
+        return dirs == null ? 0 : dirs.length;
+    }
+
+    private int spillFiles()
+    {
+        int n = 0;
+        File[] dirs = dir.listFiles();
+        if (dirs != null) {
+            for (File d : dirs) {
+                File[] files = d.listFiles();
+                n += files == null ? 0 : files.length;
+            }
+        }
+        return n;
+    }
+
+    @Test
+    public void testFifoAcrossMemoryAndDisk()
+    {
+        for (boolean compress : new boolean[] {false, true}) {
+            SpillableChannel channel = newChannel(100, 4096, -1, compress);
+            // 每批 32 条，前 3 批共 96 条留在内存中，之后的记录写入多个溢写文件
+            push(channel, 0, 1000);
+            assertTrue(spillFiles() > 1);
+            assertEquals(1000, channel.size());
+            long expect = pull(channel, 0, 150);
+            // 磁盘上还有记录时，新的记录也要写入磁盘
+            push(channel, 1000, 1200);
+            expect = pull(channel, expect, 900);
+            push(channel, 1200, 1250);
+            expect = pull(channel, expect, 200);
+            assertEquals(0, channel.getSpillSize());
+            assertEquals(1000 - 96 + 250, communication.getLongCounter(CommunicationTool.SPILLED_RECORDS));
+            // 磁盘上的记录读完后，新的记录重新进入内存
+            push(channel, 1250, 1300);
+            expect = pull(channel, expect, 30);
+            assertEquals(1000 - 96 + 250, communication.getLongCounter(CommunicationTool.SPILLED_RECORDS));
+
+            channel.pushTerminate(TerminateRecord.get());
+            assertEquals(1300, drain(channel, expect));
+            assertEquals(0, spillDirs());
+        }
+    }
+
+    @Test
+    public void testTerminateNotSpilled()
+    {
+        SpillableChannel channel = newChannel(100, 4096, -1, false);
+        push(channel, 0, 50);
+        channel.pushTerminate(TerminateRecord.get());
+        assertEquals(0, spillDirs());
+        assertEquals(50, drain(channel, 0));
+        assertEquals(0, communication.getLongCounter(CommunicationTool.SPILLED_RECORDS));
+    }
+
+    @Test
+    public void testTerminateSpilled()
+    {
+        SpillableChannel channel = newChannel(100, 4096, -1, true);
+        push(channel, 0, 500);
+        channel.pushTerminate(TerminateRecord.get());
+        assertEquals(1, spillDirs());
+        assertEquals(500, drain(channel, 0));
+        // 读到结束标志后删除溢写目录
+        assertEquals(0, spillDirs());
+        assertEquals(0, channel.getSpillSize());
+    }
+
+    @Test
+    public void testCloseAfterSpill()
+    {
+        SpillableChannel channel = newChannel(100, 4096, -1, false);
+        push(channel, 0, 500);
+        channel.close();
+        assertEquals(500, pull(channel, 0, 500));
+        assertSame(TerminateRecord.get(), channel.pull());
+        assertEquals(0, spillDirs());
+    }
+
+    @Test
+    public void testClearDeletesSegments()
+    {
+        SpillableChannel channel = newChannel(100, 4096, -1, false);
+        push(channel, 0, 1000);
+        // 读取一部分，使第一个溢写文件处于读取中
+        pull(channel, 0, 132);
+        assertTrue(spillFiles() > 1);
+        channel.clear();
+        assertTrue(channel.isEmpty());
+        assertEquals(0, channel.getSpillSize());
+        assertEquals(0, spillDirs());
+
+        // 清空后仍然可以继续使用
+        push(channel, 0, 300);
+        channel.pushTerminate(TerminateRecord.get());
+        assertEquals(300, drain(channel, 0));
+        assertEquals(0, spillDirs());
+    }
+
+    @Test
+    public void testBackpressureAtMaxSize()
+            throws InterruptedException
+    {
+        // 溢写一批记录后即达到上限
+        SpillableChannel channel = newChannel(100, 4096, 1, false);
+        AtomicLong pushed = new AtomicLong();
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        Thread producer = new Thread(() -> {
+            try {
+                for (long i = 0; i < 1000; i += 50) {
+                    push(channel, i, i + 50);
+                    pushed.set(i + 50);
+                }
+                channel.pushTerminate(TerminateRecord.get());
+            }
+            catch (Throwable e) {
+                error.set(e);
+            }
+        });
+        producer.start();
+        long last = -1;
+        for (int i = 0; i < 50 && pushed.get() != last; i++) {
+            last = pushed.get();
+            Thread.sleep(100);
+        }
+        // 写入端阻塞在内存队列加一批溢写记录处
+        assertTrue(producer.isAlive());
+        assertTrue(pushed.get() < 1000);
+        assertTrue(channel.size() <= 100 + 32 + 50);
+
+        long expect = drain(channel, 0);
+        producer.join(10000);
+        assertFalse(producer.isAlive());
+        assertNull(error.get());
+        assertEquals(1000, expect);
+        assertEquals(0, spillDirs());
+    }
+
+    @Test
+    public void testClearWhileReading()
+            throws InterruptedException
+    {
+        SpillableChannel channel = newChannel(100, 2000, -1, false);
+        AtomicBoolean stop = new AtomicBoolean();
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        AtomicLong pulled = new AtomicLong();
+        Thread producer = new Thread(() -> {
+            try {
+                for (long i = 0; !stop.get(); i += 32) {
+                    push(channel, i, i + 32);
+                }
+                channel.pushTerminate(TerminateRecord.get());
+            }
+            catch (Throwable e) {
+                error.compareAndSet(null, e);
+            }
+        });
+        Thread consumer = new Thread(() -> {
+            try {
+                List<Record> rs = new ArrayList<>();
+                while (true) {
+                    channel.pullAll(rs);
+                    for (Record r : rs) {
+                        if (r instanceof TerminateRecord) {
+                            return;
+                        }
+                        pulled.incrementAndGet();
+                    }
+                }
+            }
+            catch (Throwable e) {
+                error.compareAndSet(null, e);
+            }
+        });
+        producer.start();
+        consumer.start();
+        long end = System.currentTimeMillis() + 2000;
+        while (System.currentTimeMillis() < end && error.get() == null) {
+            Thread.sleep(1);
+            channel.clear();
+        }
+        stop.set(true);
+        producer.join(10000);
+        consumer.join(10000);
+        assertNull(error.get());
+        assertFalse(producer.isAlive());
+        assertFalse(consumer.isAlive());
+        assertTrue(pulled.get() > 0);
+        assertEquals(0, spillDirs());
+    }
+}
@@ -33,15 +33,21 @@ import com.wgzhao.addax.common.element.Record;
 import com.wgzhao.addax.common.element.StringColumn;
 import com.wgzhao.addax.common.exception.AddaxException;
 import com.wgzhao.addax.common.plugin.RecordSender;
+import com.wgzhao.addax.common.plugin.TaskCheckpoint;
 import com.wgzhao.addax.common.plugin.TaskPluginCollector;
 import com.wgzhao.addax.common.statistics.PerfRecord;
+import com.wgzhao.addax.common.statistics.jfr.JfrSupport;
+import com.wgzhao.addax.common.statistics.jfr.ReaderFetchEvent;
 import com.wgzhao.addax.common.statistics.PerfTrace;
 import com.wgzhao.addax.common.util.Configuration;
 import com.wgzhao.addax.rdbms.reader.util.GetPrimaryKeyUtil;
+import com.wgzhao.addax.rdbms.reader.util.IncrementalUtil;
 import com.wgzhao.addax.rdbms.reader.util.OriginalConfPretreatmentUtil;
 import com.wgzhao.addax.rdbms.reader.util.PreCheckTask;
 import com.wgzhao.addax.rdbms.reader.util.ReaderSplitUtil;
 import com.wgzhao.addax.rdbms.reader.util.SingleTableSplitUtil;
+import com.wgzhao.addax.rdbms.reader.util.SplitCostUtil;
+import com.wgzhao.addax.rdbms.reader.util.TimeRangeSplitUtil;
 import com.wgzhao.addax.rdbms.util.DBUtil;
 import com.wgzhao.addax.rdbms.util.DBUtilErrorCode;
 import com.wgzhao.addax.rdbms.util.RdbmsException;
@@ -49,17 +55,21 @@ import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.math.BigDecimal;
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
 import java.sql.Types;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.regex.Pattern;
 
 public class CommonRdbmsReader
 {
@@ -68,17 +78,23 @@ public class CommonRdbmsReader
     {
         private static final Logger LOG = LoggerFactory.getLogger(Job.class);
 
+        private List<IncrementalUtil.Watermark> watermarks = Collections.emptyList();
+
         public Job(DataBaseType dataBaseType)
         {
             OriginalConfPretreatmentUtil.dataBaseType = dataBaseType;
             SingleTableSplitUtil.dataBaseType = dataBaseType;
             GetPrimaryKeyUtil.dataBaseType = dataBaseType;
+            TimeRangeSplitUtil.dataBaseType = dataBaseType;
+            IncrementalUtil.dataBaseType = dataBaseType;
+            SplitCostUtil.dataBaseType = dataBaseType;
         }
 
         public Configuration init(Configuration originalConfig)
         {
 
             OriginalConfPretreatmentUtil.doPretreatment(originalConfig);
+            this.watermarks = IncrementalUtil.prepare(originalConfig);
             if (originalConfig.getString(Key.SPLIT_PK) == null && originalConfig.getBool(Key.AUTO_PK, false)) {
                     LOG.info("Does not configure splitPk, try to guess");
                     String splitPK = GetPrimaryKeyUtil.getPrimaryKey(originalConfig);
@@ -140,12 +156,15 @@ public class CommonRdbmsReader
 
         public List<Configuration> split(Configuration originalConfig, int adviceNumber)
         {
-            return ReaderSplitUtil.doSplit(originalConfig, adviceNumber);
+            List<Configuration> splits = ReaderSplitUtil.doSplit(originalConfig, adviceNumber);
+            SplitCostUtil.estimate(splits, originalConfig.getString(Key.USERNAME), originalConfig.getString(Key.PASSWORD));
+            return splits;
         }
 
         public void post(Configuration originalConfig)
         {
-            // do nothing
+            // 只有作业成功时才会调用 post
+            IncrementalUtil.save(this.watermarks);
         }
 
         public void destroy(Configuration originalConfig)
@@ -158,7 +177,13 @@ public class CommonRdbmsReader
     {
         private static final Logger LOG = LoggerFactory.getLogger(Task.class);
         private static final boolean IS_DEBUG = LOG.isDebugEnabled();
+        // fetchSize 不大于 0 时(如 MySQL 的流式读取)，按这个行数划分 JFR 的读取轮次
+        private static final int DEFAULT_FETCH_ROUND_ROWS = 1024;
         protected final byte[] EMPTY_CHAR_ARRAY = new byte[0];
+        // 断点位置的前缀，区分 splitPk 是数值还是字符串
+        private static final String NUMERIC_POSITION = "n:";
+        private static final String STRING_POSITION = "s:";
+        private static final Pattern WHERE_PATTERN = Pattern.compile("\\swhere\\s", Pattern.CASE_INSENSITIVE);
 
         private final DataBaseType dataBaseType;
         private final int taskGroupId;
@@ -200,9 +225,28 @@ public class CommonRdbmsReader
 
         public void startRead(Configuration readerSliceConfig, RecordSender recordSender,
                 TaskPluginCollector taskPluginCollector, int fetchSize)
+        {
+            startRead(readerSliceConfig, recordSender, taskPluginCollector, fetchSize, TaskCheckpoint.NONE);
+        }
+
+        /**
+         * 开启断点续传时，按 splitPk 排序读取并记录读到的 splitPk 值，重新运行时只读取大于该值的记录
+         *
+         * @param readerSliceConfig task 的配置
+         * @param recordSender record sender
+         * @param taskPluginCollector task plugin collector
+         * @param fetchSize fetch size
+         * @param checkpoint task 的断点信息
+         */
+        public void startRead(Configuration readerSliceConfig, RecordSender recordSender,
+                TaskPluginCollector taskPluginCollector, int fetchSize, TaskCheckpoint checkpoint)
         {
             String querySql = readerSliceConfig.getString(Key.QUERY_SQL);
             String table = readerSliceConfig.getString(Key.TABLE);
+            String splitPk = checkpoint.isEnabled() ? getResumableSplitPk(readerSliceConfig) : null;
+            if (splitPk != null) {
+                querySql = buildResumeQuerySql(querySql, splitPk, checkpoint.getRestoredPosition());
+            }
 
             PerfTrace.getInstance().addTaskDetails(taskId, table + "," + basicMsg);
 
@@ -223,19 +267,39 @@ public class CommonRdbmsReader
 
                 ResultSetMetaData metaData = rs.getMetaData();
                 columnNumber = metaData.getColumnCount();
+                int pkIndex = splitPk == null ? -1 : findColumnIndex(metaData, splitPk);
+                String pkPrefix = pkIndex > 0 && isNumericType(metaData.getColumnType(pkIndex)) ? NUMERIC_POSITION : STRING_POSITION;
 
                 // 这个统计干净的result_Next时间
                 PerfRecord allResultPerfRecord = new PerfRecord(taskGroupId, taskId, PerfRecord.PHASE.RESULT_NEXT_ALL);
                 allResultPerfRecord.start();
 
+                // 每 fetchSize 行为一轮，第一次 next 通常需要等待数据库返回下一批数据
+                int fetchRoundRows = fetchSize > 0 ? fetchSize : DEFAULT_FETCH_ROUND_ROWS;
+                String source = table != null ? table : querySql;
+                ReaderFetchEvent fetchEvent = JfrSupport.beginReaderFetch(this.dataBaseType.getTypeName(), source);
+
                 long rsNextUsedTime = 0;
                 long lastTime = System.nanoTime();
                 while (rs.next()) {
-                    rsNextUsedTime += (System.nanoTime() - lastTime);
+                    long nextUsedTime = System.nanoTime() - lastTime;
+                    rsNextUsedTime += nextUsedTime;
                     this.transportOneRecord(recordSender, rs, metaData, columnNumber, mandatoryEncoding,
                             taskPluginCollector);
+                    if (pkIndex > 0) {
+                        String pkValue = rs.getString(pkIndex);
+                        checkpoint.mark(pkValue == null ? null : pkPrefix + pkValue);
+                    }
+                    if (fetchEvent != null) {
+                        fetchEvent.fetchTime += nextUsedTime;
+                        if (++fetchEvent.rows >= fetchRoundRows) {
+                            JfrSupport.endReaderFetch(fetchEvent);
+                            fetchEvent = JfrSupport.beginReaderFetch(this.dataBaseType.getTypeName(), source);
+                        }
+                    }
                     lastTime = System.nanoTime();
                 }
+                JfrSupport.endReaderFetch(fetchEvent);
 
                 allResultPerfRecord.end(rsNextUsedTime);
                 // 目前大盘是依赖这个打印，而之前这个Finish read record是包含了sql查询和result next的全部时间
@@ -259,6 +323,79 @@ public class CommonRdbmsReader
             // do nothing
         }
 
+        /*
+         * 只有按 splitPk 切分的表模式才能断点续传，并且 splitPk 需要在读取的列中
+         */
+        private String getResumableSplitPk(Configuration readerSliceConfig)
+        {
+            String splitPk = readerSliceConfig.getString(Key.SPLIT_PK, null);
+            if (StringUtils.isBlank(splitPk) || !readerSliceConfig.getBool(Key.IS_TABLE_MODE, false)) {
+                return null;
+            }
+            splitPk = splitPk.trim();
+            String column = readerSliceConfig.getString(Key.COLUMN, "");
+            for (String c : column.split(",")) {
+                String name = c.trim();
+                if ("*".equals(name) || unquote(name).equalsIgnoreCase(unquote(splitPk))) {
+                    return splitPk;
+                }
+            }
+            LOG.warn("The splitPk [{}] is not in the column list, the task can not resume from checkpoint. {}", splitPk, basicMsg);
+            return null;
+        }
+
+        private String buildResumeQuerySql(String querySql, String splitPk, String position)
+        {
+            String sql = querySql;
+            if (position != null && position.length() > NUMERIC_POSITION.length()) {
+                String value = position.substring(NUMERIC_POSITION.length());
+                String literal;
+                if (position.startsWith(NUMERIC_POSITION)) {
+                    // 数值直接拼接到 SQL 中，需要确保是合法的数值
+                    literal = new BigDecimal(value).toPlainString();
+                }
+                else {
+                    literal = "'" + value.replace("'", "''") + "'";
+                }
+                // splitPk 不一定唯一，与断点值相同的记录可能只写入了一部分，因此从断点值本身开始重新读取
+                sql = sql + (WHERE_PATTERN.matcher(sql).find() ? " AND " : " WHERE ") + splitPk + " >= " + literal;
+                LOG.info("Resume from checkpoint, read the records whose {} >= {}. {}", splitPk, literal, basicMsg);
+            }
+            return sql + " ORDER BY " + splitPk;
+        }
+
+        private static int findColumnIndex(ResultSetMetaData metaData, String columnName)
+                throws SQLException
+        {
+            String name = unquote(columnName);
+            for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                if (name.equalsIgnoreCase(metaData.getColumnLabel(i))) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private static String unquote(String name)
+        {
+            return StringUtils.strip(name, "`\"[]");
+        }
+
+        private static boolean isNumericType(int type)
+        {
+            switch (type) {
+                case Types.TINYINT:
+                case Types.SMALLINT:
+                case Types.INTEGER:
+                case Types.BIGINT:
+                case Types.NUMERIC:
+                case Types.DECIMAL:
+                    return true;
+                default:
+                    return false;
+            }
+        }
+
         protected void transportOneRecord(RecordSender recordSender, ResultSet rs, ResultSetMetaData metaData,
                 int columnNumber, String mandatoryEncoding, TaskPluginCollector taskPluginCollector)
         {
@@ -0,0 +1,347 @@
+/*
+ *
+ *  * Licensed to the Apache Software Foundation (ASF) under one
+ *  * or more contributor license agreements.  See the NOTICE file
+ *  * distributed with this work for additional information
+ *  * regarding copyright ownership.  The ASF licenses this file
+ *  * to you under the Apache License, Version 2.0 (the
+ *  * "License"); you may not use this file except in compliance
+ *  * with the License.  You may obtain a copy of the License at
+ *  *
+ *  *   http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing,
+ *  * software distributed under the License is distributed on an
+ *  * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  * KIND, either express or implied.  See the License for the
+ *  * specific language governing permissions and limitations
+ *  * under the License.
+ *
+ */
+
+package com.wgzhao.addax.rdbms.reader.util;
+
+import com.wgzhao.addax.common.base.Constant;
+import com.wgzhao.addax.common.base.Key;
+import com.wgzhao.addax.common.exception.AddaxException;
+import com.wgzhao.addax.common.util.Configuration;
+import com.wgzhao.addax.rdbms.util.DBUtil;
+import com.wgzhao.addax.rdbms.util.DBUtilErrorCode;
+import com.wgzhao.addax.rdbms.util.DataBaseType;
+import com.wgzhao.addax.rdbms.util.RdbmsException;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 增量读取：根据单调递增的列(如自增 id、更新时间)只读取上次成功运行之后新增的记录.
+ * 作业初始化时查询该列当前的最大值作为本次读取的上界，作业成功结束后将其保存为水位，
+ * 下次运行时以水位(减去 incrementalLookback)作为下界. 条件追加到 where 中，因此对切分后的每个分片都生效.
+ */
+public final class IncrementalUtil
+{
+    private static final Logger LOG = LoggerFactory.getLogger(IncrementalUtil.class);
+
+    private static final String COLUMN = "column";
+    private static final String TYPE = "type";
+    private static final String VALUE = "value";
+
+    public static DataBaseType dataBaseType;
+
+    private IncrementalUtil() {}
+
+    /**
+     * 确定每个表本次读取的范围，并将过滤条件写入对应的 connection 中，需要在 table 展开之后调用
+     *
+     * @param originalConfig reader 的配置
+     * @return 作业成功结束后需要保存的水位，未配置 incrementalColumn 时返回空列表
+     */
+    public static List<Watermark> prepare(Configuration originalConfig)
+    {
+        String column = originalConfig.getString(Key.INCREMENTAL_COLUMN, null);
+        if (StringUtils.isBlank(column)) {
+            return Collections.emptyList();
+        }
+        if (!originalConfig.getBool(Key.IS_TABLE_MODE)) {
+            throw AddaxException.asAddaxException(DBUtilErrorCode.CONF_ERROR,
+                    String.format("The [%s] is only supported when reading by table, not by querySql.", Key.INCREMENTAL_COLUMN));
+        }
+        column = column.trim();
+        BigDecimal lookback;
+        try {
+            lookback = new BigDecimal(originalConfig.getString(Key.INCREMENTAL_LOOKBACK, "0").trim());
+        }
+        catch (NumberFormatException e) {
+            lookback = null;
+        }
+        if (lookback == null || lookback.signum() < 0) {
+            throw AddaxException.asAddaxException(DBUtilErrorCode.ILLEGAL_VALUE,
+                    String.format("The [%s] must be a non-negative number.", Key.INCREMENTAL_LOOKBACK));
+        }
+        String path = originalConfig.getString(Key.WATERMARK_PATH, null);
+        if (StringUtils.isBlank(path)) {
+            path = StringUtils.join(new String[] {System.getProperty("addax.home", ""), "watermark"}, File.separator);
+        }
+        Path dir = Paths.get(path);
+
+        String username = originalConfig.getString(Key.USERNAME);
+        String password = originalConfig.getString(Key.PASSWORD);
+        String where = originalConfig.getString(Key.WHERE, null);
+
+        List<Watermark> watermarks = new ArrayList<>();
+        List<Object> conns = originalConfig.getList(Key.CONNECTION, Object.class);
+        for (int i = 0, len = conns.size(); i < len; i++) {
+            Configuration connConf = Configuration.from(conns.get(i).toString());
+            String jdbcUrl = connConf.getString(Key.JDBC_URL);
+            List<String> tables = connConf.getList(Key.TABLE, String.class);
+            List<String> predicates = new ArrayList<>(tables.size());
+            Connection conn = DBUtil.getConnection(dataBaseType, jdbcUrl, username, password);
+            try {
+                for (String table : tables) {
+                    Watermark watermark = new Watermark(dir.resolve(fileName(jdbcUrl, table, column)), column);
+                    watermark.load();
+                    watermark.queryUpper(conn, table, where, username);
+                    String predicate = watermark.buildPredicate(lookback);
+                    LOG.info("Incremental read table [{}] by [{}], the watermark is saved in [{}].",
+                            table, predicate, watermark.file);
+                    predicates.add(predicate);
+                    watermarks.add(watermark);
+                }
+            }
+            finally {
+                DBUtil.closeDBResources(null, null, conn);
+            }
+            originalConfig.set(String.format("%s[%d].%s", Key.CONNECTION, i, Constant.INCREMENTAL_WHERE_MARK), predicates);
+        }
+        return watermarks;
+    }
+
+    /**
+     * @param where 用户配置的 where 条件
+     * @param connConf connection 的配置
+     * @param tableIndex 表在 connection 中的位置
+     * @return 追加增量条件之后的 where 条件，未开启增量读取时原样返回
+     */
+    public static String mergeWhere(String where, Configuration connConf, int tableIndex)
+    {
+        List<String> predicates = connConf.getList(Constant.INCREMENTAL_WHERE_MARK, String.class);
+        if (predicates == null || tableIndex >= predicates.size()) {
+            return where;
+        }
+        String predicate = predicates.get(tableIndex);
+        return StringUtils.isBlank(where) ? predicate : "(" + where + ") AND " + predicate;
+    }
+
+    /**
+     * 作业成功结束后调用，保存失败时只记录日志，下次运行会从旧的水位开始重新读取
+     *
+     * @param watermarks prepare 返回的水位
+     */
+    public static void save(List<Watermark> watermarks)
+    {
+        for (Watermark watermark : watermarks) {
+            watermark.save();
+        }
+    }
+
+    private static String fileName(String jdbcUrl, String table, String column)
+    {
+        String name = (table + "_" + column).replaceAll("[^\\w.-]", "_");
+        return name + "_" + md5(jdbcUrl).substring(0, 8) + ".json";
+    }
+
+    private static String md5(String content)
+    {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(content.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder();
+            for (byte b : digest) {
+                sb.append(String.format("%02x", b));
+            }
+            return sb.toString();
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 一个表的增量列的水位，取值只能是数值或者日期时间
+     */
+    public static final class Watermark
+    {
+        private final Path file;
+        private final String column;
+        private boolean datetime;
+        private Object lower;
+        private Object upper;
+
+        private Watermark(Path file, String column)
+        {
+            this.file = file;
+            this.column = column;
+        }
+
+        private void load()
+        {
+            if (!Files.isRegularFile(file)) {
+                return;
+            }
+            String value = null;
+            try {
+                Configuration saved = Configuration.from(new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+                value = saved.getString(VALUE);
+                datetime = "datetime".equals(saved.getString(TYPE));
+                lower = datetime ? Timestamp.valueOf(value) : new BigDecimal(value);
+            }
+            catch (IOException e) {
+                throw AddaxException.asAddaxException(DBUtilErrorCode.CONF_ERROR,
+                        String.format("Failed to read the watermark [%s].", file), e);
+            }
+            catch (IllegalArgumentException e) {
+                throw AddaxException.asAddaxException(DBUtilErrorCode.ILLEGAL_VALUE,
+                        String.format("The watermark [%s] in [%s] is invalid, please fix or delete it.", value, file), e);
+            }
+        }
+
+        private void queryUpper(Connection conn, String table, String where, String username)
+        {
+            String sql = String.format("SELECT MAX(%s) FROM %s", column, table);
+            if (StringUtils.isNotBlank(where)) {
+                sql += " WHERE (" + where + ")";
+            }
+            ResultSet rs = null;
+            try {
+                rs = DBUtil.query(conn, sql, 1);
+                rs.next();
+                int type = rs.getMetaData().getColumnType(1);
+                boolean isDatetime;
+                switch (type) {
+                    case Types.TINYINT:
+                    case Types.SMALLINT:
+                    case Types.INTEGER:
+                    case Types.BIGINT:
+                    case Types.NUMERIC:
+                    case Types.DECIMAL:
+                        isDatetime = false;
+                        upper = rs.getBigDecimal(1);
+                        break;
+                    case Types.DATE:
+                    case Types.TIMESTAMP:
+                    case Types.TIMESTAMP_WITH_TIMEZONE:
+                        isDatetime = true;
+                        upper = rs.getTimestamp(1);
+                        break;
+                    default:
+                        throw AddaxException.asAddaxException(DBUtilErrorCode.ILLEGAL_VALUE,
+                                String.format("The type of [%s] is [%s], the %s must be an integer, decimal or datetime column.",
+                                        column, rs.getMetaData().getColumnTypeName(1), Key.INCREMENTAL_COLUMN));
+                }
+                if (lower != null && datetime != isDatetime) {
+                    throw AddaxException.asAddaxException(DBUtilErrorCode.ILLEGAL_VALUE,
+                            String.format("The type of [%s] is different from the watermark in [%s], please delete it.", column, file));
+                }
+                datetime = isDatetime;
+            }
+            catch (AddaxException e) {
+                throw e;
+            }
+            catch (Exception e) {
+                throw RdbmsException.asQueryException(dataBaseType, e, sql, table, username);
+            }
+            finally {
+                DBUtil.closeDBResources(rs, null, null);
+            }
+        }
+
+        private String buildPredicate(BigDecimal lookback)
+        {
+            if (upper == null) {
+                // 增量列没有任何值，本次不需要读取
+                return "1 = 0";
+            }
+            String predicate = String.format("%s <= %s", column, toLiteral(upper));
+            if (lower == null) {
+                return predicate;
+            }
+            Object from;
+            if (datetime) {
+                long nanos = lookback.movePointRight(9).longValue();
+                from = Timestamp.valueOf(((Timestamp) lower).toLocalDateTime().minusNanos(nanos));
+            }
+            else {
+                from = ((BigDecimal) lower).subtract(lookback);
+            }
+            return String.format("(%s > %s AND %s)", column, toLiteral(from), predicate);
+        }
+
+        private String toLiteral(Object value)
+        {
+            String text = toString(value);
+            if (!datetime) {
+                return text;
+            }
+            if (dataBaseType == DataBaseType.Oracle) {
+                return String.format("TO_TIMESTAMP('%s', 'YYYY-MM-DD HH24:MI:SS.FF')", text);
+            }
+            return "'" + text + "'";
+        }
+
+        private String toString(Object value)
+        {
+            if (!datetime) {
+                return ((BigDecimal) value).toPlainString();
+            }
+            // Timestamp.toString 会去掉纳秒部分末尾的 0，只有秒精度时为 .0
+            return StringUtils.removeEnd(value.toString(), ".0");
+        }
+
+        private void save()
+        {
+            if (upper == null) {
+                return;
+            }
+            Configuration content = Configuration.newDefault();
+            content.set(COLUMN, column);
+            content.set(TYPE, datetime ? "datetime" : "numeric");
+            content.set(VALUE, toString(upper));
+            content.set("timestamp", System.currentTimeMillis());
+
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            try {
+                Files.createDirectories(file.getParent());
+                Files.write(tmp, content.toJSON().getBytes(StandardCharsets.UTF_8));
+                try {
+                    Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                }
+                catch (AtomicMoveNotSupportedException e) {
+                    Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+                }
+                LOG.info("Save the watermark [{}] of [{}] to [{}].", toString(upper), column, file);
+            }
+            catch (IOException e) {
+                LOG.warn("Failed to save the watermark [{}] to [{}], the next run will read from the old watermark: {}",
+                        toString(upper), file, e.getMessage());
+            }
+        }
+    }
+}
@@ -86,6 +86,17 @@ public final class ReaderSplitUtil
                 Validate.isTrue(null != tables && !tables.isEmpty(), "您读取数据库表配置错误.");
 
                 String splitPk = originalSliceConfig.getString(Key.SPLIT_PK, null);
+                String splitTimeColumn = originalSliceConfig.getString(Key.SPLIT_TIME_COLUMN, null);
+                if (StringUtils.isNotBlank(splitTimeColumn)) {
+                    // 按时间范围切分，即使只有一个分片，也需要将时间范围条件加入到查询语句中
+                    for (int i = 0; i < tables.size(); i++) {
+                        tempSlice = sliceConfig.clone();
+                        tempSlice.set(Key.TABLE, tables.get(i));
+                        setWhere(tempSlice, IncrementalUtil.mergeWhere(where, connConf, i));
+                        splittedConfigs.addAll(TimeRangeSplitUtil.splitSingleTable(tempSlice, Math.max(tableSplitNumber, 1)));
+                    }
+                    continue;
+                }
                 //最终切分份数不一定等于 eachTableShouldSplittedNumber
                 boolean needSplitTable = tableSplitNumber > 1
                         && StringUtils.isNotBlank(splitPk);
@@ -99,9 +110,10 @@ public final class ReaderSplitUtil
                         tableSplitNumber = tableSplitNumber * 5;
                     }
                     // 尝试对每个表，切分为eachTableShouldSplittedNumber 份
-                    for (String table : tables) {
+                    for (int i = 0; i < tables.size(); i++) {
                         tempSlice = sliceConfig.clone();
-                        tempSlice.set(Key.TABLE, table);
+                        tempSlice.set(Key.TABLE, tables.get(i));
+                        setWhere(tempSlice, IncrementalUtil.mergeWhere(where, connConf, i));
 
                         List<Configuration> splittedSlices = SingleTableSplitUtil
                                 .splitSingleTable(tempSlice, tableSplitNumber);
@@ -110,11 +122,14 @@ public final class ReaderSplitUtil
                     }
                 }
                 else {
-                    for (String table : tables) {
+                    for (int i = 0; i < tables.size(); i++) {
+                        String table = tables.get(i);
                         tempSlice = sliceConfig.clone();
                         tempSlice.set(Key.TABLE, table);
+                        String tableWhere = IncrementalUtil.mergeWhere(where, connConf, i);
+                        setWhere(tempSlice, tableWhere);
                         String queryColumn = HintUtil.buildQueryColumn(table, column);
-                        tempSlice.set(Key.QUERY_SQL, SingleTableSplitUtil.buildQuerySql(queryColumn, table, where));
+                        tempSlice.set(Key.QUERY_SQL, SingleTableSplitUtil.buildQuerySql(queryColumn, table, tableWhere));
                         splittedConfigs.add(tempSlice);
                     }
                 }
@@ -179,6 +194,13 @@ public final class ReaderSplitUtil
         return queryConfig;
     }
 
+    private static void setWhere(Configuration sliceConfig, String where)
+    {
+        if (StringUtils.isNotBlank(where)) {
+            sliceConfig.set(Key.WHERE, where);
+        }
+    }
+
     private static int calculateEachTableShouldSplittedNumber(int adviceNumber,
             int tableNumber)
     {
@@ -0,0 +1,107 @@
+/*
+ *
+ *  * Licensed to the Apache Software Foundation (ASF) under one
+ *  * or more contributor license agreements.  See the NOTICE file
+ *  * distributed with this work for additional information
+ *  * regarding copyright ownership.  The ASF licenses this file
+ *  * to you under the Apache License, Version 2.0 (the
+ *  * "License"); you may not use this file except in compliance
+ *  * with the License.  You may obtain a copy of the License at
+ *  *
+ *  *   http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing,
+ *  * software distributed under the License is distributed on an
+ *  * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  * KIND, either express or implied.  See the License for the
+ *  * specific language governing permissions and limitations
+ *  * under the License.
+ *
+ */
+
+package com.wgzhao.addax.rdbms.reader.util;
+
+import com.alibaba.fastjson.JSON;
+import com.wgzhao.addax.common.base.Key;
+import com.wgzhao.addax.common.constant.CommonConstant;
+import com.wgzhao.addax.common.util.Configuration;
+import com.wgzhao.addax.rdbms.util.DBUtil;
+import com.wgzhao.addax.rdbms.util.DataBaseType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 通过数据库的执行计划估算每个分片的记录数，作为 core 分配 task 时的开销，目前支持 MySQL 和 PostgreSQL.
+ * 估算失败时不设置开销，core 按原来的方式分配 task
+ */
+public final class SplitCostUtil
+{
+    private static final Logger LOG = LoggerFactory.getLogger(SplitCostUtil.class);
+
+    public static DataBaseType dataBaseType;
+
+    private SplitCostUtil() {}
+
+    public static void estimate(List<Configuration> splits, String username, String password)
+    {
+        if (splits.size() < 2 || (dataBaseType != DataBaseType.MySql && dataBaseType != DataBaseType.PostgreSQL)) {
+            return;
+        }
+        long[] costs = new long[splits.size()];
+        Map<String, Connection> conns = new HashMap<>();
+        String querySql = null;
+        try {
+            for (int i = 0; i < costs.length; i++) {
+                Configuration split = splits.get(i);
+                Connection conn = conns.computeIfAbsent(split.getString(Key.JDBC_URL),
+                        jdbcUrl -> DBUtil.getConnection(dataBaseType, jdbcUrl, username, password));
+                querySql = split.getString(Key.QUERY_SQL);
+                costs[i] = explainRows(conn, querySql);
+            }
+        }
+        catch (Exception e) {
+            LOG.warn("Failed to estimate the rows of [{}], the tasks will not be assigned by cost: {}", querySql, e.getMessage());
+            return;
+        }
+        finally {
+            for (Connection conn : conns.values()) {
+                DBUtil.closeDBResources(null, null, conn);
+            }
+        }
+        for (int i = 0; i < costs.length; i++) {
+            splits.get(i).set(CommonConstant.LOAD_BALANCE_COST, costs[i]);
+        }
+        LOG.info("The estimated rows of each split: {}", Arrays.toString(costs));
+    }
+
+    private static long explainRows(Connection conn, String querySql)
+            throws SQLException
+    {
+        ResultSet rs = null;
+        try {
+            if (dataBaseType == DataBaseType.PostgreSQL) {
+                rs = DBUtil.query(conn, "EXPLAIN (FORMAT JSON) " + querySql, 1);
+                rs.next();
+                return JSON.parseArray(rs.getString(1)).getJSONObject(0).getJSONObject("Plan").getLongValue("Plan Rows");
+            }
+            // MySQL 的执行计划中每个表一行，rows 为估算需要扫描的记录数
+            rs = DBUtil.query(conn, "EXPLAIN " + querySql, 1);
+            long rows = 0;
+            while (rs.next()) {
+                rows += rs.getLong("rows");
+            }
+            return rows;
+        }
+        finally {
+            DBUtil.closeResultSet(rs);
+        }
+    }
+}
@@ -0,0 +1,236 @@
+/*
+ *
+ *  * Licensed to the Apache Software Foundation (ASF) under one
+ *  * or more contributor license agreements.  See the NOTICE file
+ *  * distributed with this work for additional information
+ *  * regarding copyright ownership.  The ASF licenses this file
+ *  * to you under the Apache License, Version 2.0 (the
+ *  * "License"); you may not use this file except in compliance
+ *  * with the License.  You may obtain a copy of the License at
+ *  *
+ *  *   http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing,
+ *  * software distributed under the License is distributed on an
+ *  * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  * KIND, either express or implied.  See the License for the
+ *  * specific language governing permissions and limitations
+ *  * under the License.
+ *
+ */
+
+package com.wgzhao.addax.rdbms.reader.util;
+
+import com.wgzhao.addax.common.base.Constant;
+import com.wgzhao.addax.common.base.Key;
+import com.wgzhao.addax.common.exception.AddaxException;
+import com.wgzhao.addax.common.util.Configuration;
+import com.wgzhao.addax.common.util.RangeSplitUtil;
+import com.wgzhao.addax.rdbms.util.DBUtil;
+import com.wgzhao.addax.rdbms.util.DBUtilErrorCode;
+import com.wgzhao.addax.rdbms.util.DataBaseType;
+import com.wgzhao.addax.rdbms.util.RdbmsException;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 按时间列将单表切分为若干个 [begin, end) 时间窗口，主要用于时序数据库(TDengine, ClickHouse 等)
+ * 这类没有合适的整数或字符串主键、但有时间索引的表.
+ * 如果开启了 splitTimeEstimate，会先将时间范围切成更细的窗口并统计每个窗口的记录数，
+ * 再按记录数合并窗口，避免数据分布不均时出现长尾任务.
+ */
+public final class TimeRangeSplitUtil
+{
+    private static final Logger LOG = LoggerFactory.getLogger(TimeRangeSplitUtil.class);
+
+    // 估算记录数时，每个分片对应的细分窗口数
+    private static final int ESTIMATE_WINDOWS_PER_SLICE = 4;
+
+    private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern(Constant.DEFAULT_DATE_FORMAT);
+
+    public static DataBaseType dataBaseType;
+
+    private TimeRangeSplitUtil() {}
+
+    public static List<Configuration> splitSingleTable(Configuration configuration, int adviceNum)
+    {
+        String timeColumn = configuration.getString(Key.SPLIT_TIME_COLUMN).trim();
+        String column = configuration.getString(Key.COLUMN);
+        String table = configuration.getString(Key.TABLE);
+        String where = configuration.getString(Key.WHERE, null);
+        boolean hasWhere = StringUtils.isNotBlank(where);
+
+        String jdbcURL = configuration.getString(Key.JDBC_URL);
+        String username = configuration.getString(Key.USERNAME);
+        String password = configuration.getString(Key.PASSWORD);
+
+        List<Configuration> pluginParams = new ArrayList<>();
+        List<String> allQuerySql = new ArrayList<>();
+        Connection conn = DBUtil.getConnection(dataBaseType, jdbcURL, username, password);
+        try {
+            long[] range = getTimeRange(conn, configuration, timeColumn, table, where, username);
+            if (range == null) {
+                // 表中没有数据，也没有指定时间范围，不需要切分
+                configuration.set(Key.QUERY_SQL, SingleTableSplitUtil.buildQuerySql(column, table, where));
+                pluginParams.add(configuration);
+                return pluginParams;
+            }
+
+            // 切分点按秒对齐，以兼容只有秒精度的时间类型(如 ClickHouse DateTime)
+            long beginSecond = range[0] / 1000;
+            long endSecond = (range[1] + 999) / 1000;
+            long[] points;
+            if (adviceNum > 1 && configuration.getBool(Key.SPLIT_TIME_ESTIMATE, true)) {
+                points = estimateAndSplit(conn, configuration, timeColumn, table, where, beginSecond, endSecond, adviceNum);
+            }
+            else {
+                points = RangeSplitUtil.doLongSplit(beginSecond, endSecond, adviceNum);
+            }
+
+            for (int i = 0, len = points.length - 1; i < len; i++) {
+                Configuration tempConfig = configuration.clone();
+                String tempQuerySql = SingleTableSplitUtil.buildQuerySql(column, table, where)
+                        + (hasWhere ? " and " : " where ")
+                        + wrapTimeRange(timeColumn, points[i] * 1000, points[i + 1] * 1000);
+                allQuerySql.add(tempQuerySql);
+                tempConfig.set(Key.QUERY_SQL, tempQuerySql);
+                pluginParams.add(tempConfig);
+            }
+        }
+        finally {
+            DBUtil.closeDBResources(null, null, conn);
+        }
+
+        LOG.info("After split(), allQuerySql=[\n{}\n].", StringUtils.join(allQuerySql, "\n"));
+        return pluginParams;
+    }
+
+    /**
+     * 获取需要读取的时间范围 [begin, end)，单位为毫秒.
+     * 未指定 beginDateTime/endDateTime 时，通过查询时间列的最小值和最大值来确定.
+     *
+     * @return the time range, or null if the table is empty and no range is specified
+     */
+    private static long[] getTimeRange(Connection conn, Configuration configuration, String timeColumn,
+            String table, String where, String username)
+    {
+        String begin = configuration.getString(Key.BEGIN_DATETIME, null);
+        String end = configuration.getString(Key.END_DATETIME, null);
+        if (StringUtils.isNotBlank(begin) && StringUtils.isNotBlank(end)) {
+            long[] range = new long[] {parseDateTime(begin), parseDateTime(end)};
+            checkTimeRange(range);
+            return range;
+        }
+
+        String rangeSql = SingleTableSplitUtil.genPKSql(timeColumn, table, where);
+        LOG.info("split time range [sql={}] is running... ", rangeSql);
+        ResultSet rs = null;
+        try {
+            rs = DBUtil.query(conn, rangeSql, 1);
+            if (!rs.next() || rs.getTimestamp(1) == null || rs.getTimestamp(2) == null) {
+                return null;
+            }
+            Timestamp min = rs.getTimestamp(1);
+            Timestamp max = rs.getTimestamp(2);
+            // 最大值需要被包含在内，而区间是左闭右开的
+            long[] range = new long[] {
+                    StringUtils.isNotBlank(begin) ? parseDateTime(begin) : min.getTime(),
+                    StringUtils.isNotBlank(end) ? parseDateTime(end) : max.getTime() + 1000};
+            checkTimeRange(range);
+            return range;
+        }
+        catch (AddaxException e) {
+            throw e;
+        }
+        catch (Exception e) {
+            throw RdbmsException.asQueryException(dataBaseType, e, rangeSql, table, username);
+        }
+        finally {
+            DBUtil.closeDBResources(rs, null, null);
+        }
+    }
+
+    /*
+     * 将 [beginSecond, endSecond) 切分为 adviceNum * ESTIMATE_WINDOWS_PER_SLICE 个窗口并统计每个窗口的记录数，
+     * 然后按照记录数进行合并. 统计失败时退化为等宽切分
+     */
+    private static long[] estimateAndSplit(Connection conn, Configuration configuration, String timeColumn,
+            String table, String where, long beginSecond, long endSecond, int adviceNum)
+    {
+        long[] windows = RangeSplitUtil.doLongSplit(beginSecond, endSecond, adviceNum * ESTIMATE_WINDOWS_PER_SLICE);
+        long[] counts = new long[windows.length - 1];
+        int fetchSize = configuration.getInt(Key.FETCH_SIZE, 1);
+        String countSql = null;
+        try {
+            for (int i = 0; i < counts.length; i++) {
+                countSql = String.format("SELECT COUNT(*) FROM %s WHERE %s", table,
+                        wrapTimeRange(timeColumn, windows[i] * 1000, windows[i + 1] * 1000));
+                if (StringUtils.isNotBlank(where)) {
+                    countSql += " AND (" + where + ")";
+                }
+                ResultSet rs = DBUtil.query(conn, countSql, fetchSize);
+                try {
+                    counts[i] = rs.next() ? rs.getLong(1) : 0;
+                }
+                finally {
+                    DBUtil.closeResultSet(rs);
+                }
+            }
+        }
+        catch (Exception e) {
+            LOG.warn("Failed to estimate the record count by sql [{}], fall back to split by equal time width: {}",
+                    countSql, e.getMessage());
+            return RangeSplitUtil.doLongSplit(beginSecond, endSecond, adviceNum);
+        }
+        return RangeSplitUtil.doWeightedLongSplit(windows, counts, adviceNum);
+    }
+
+    private static String wrapTimeRange(String timeColumn, long beginMillis, long endMillis)
+    {
+        return String.format(" (%s >= %s AND %s < %s) ", timeColumn, toTimeLiteral(beginMillis),
+                timeColumn, toTimeLiteral(endMillis));
+    }
+
+    private static String toTimeLiteral(long millis)
+    {
+        String dateTime = LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault())
+                .format(DATE_TIME_FORMATTER);
+        if (dataBaseType == DataBaseType.Oracle) {
+            return String.format("TO_DATE('%s', 'YYYY-MM-DD HH24:MI:SS')", dateTime);
+        }
+        return "'" + dateTime + "'";
+    }
+
+    private static long parseDateTime(String dateTime)
+    {
+        try {
+            return LocalDateTime.parse(dateTime.trim(), DATE_TIME_FORMATTER)
+                    .atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        }
+        catch (DateTimeParseException e) {
+            throw AddaxException.asAddaxException(DBUtilErrorCode.ILLEGAL_VALUE,
+                    String.format("The datetime [%s] is invalid, the format should be [%s].",
+                            dateTime, Constant.DEFAULT_DATE_FORMAT), e);
+        }
+    }
+
+    private static void checkTimeRange(long[] range)
+    {
+        if (range[0] >= range[1]) {
+            throw AddaxException.asAddaxException(DBUtilErrorCode.ILLEGAL_VALUE,
+                    String.format("The [%s] must be earlier than [%s].", Key.BEGIN_DATETIME, Key.END_DATETIME));
+        }
+    }
+}
@@ -30,7 +30,10 @@ import com.wgzhao.addax.common.element.Column;
 import com.wgzhao.addax.common.element.Record;
 import com.wgzhao.addax.common.exception.AddaxException;
 import com.wgzhao.addax.common.plugin.RecordReceiver;
+import com.wgzhao.addax.common.plugin.TaskCheckpoint;
 import com.wgzhao.addax.common.plugin.TaskPluginCollector;
+import com.wgzhao.addax.common.statistics.jfr.JfrSupport;
+import com.wgzhao.addax.common.statistics.jfr.WriterFlushEvent;
 import com.wgzhao.addax.common.util.Configuration;
 import com.wgzhao.addax.rdbms.util.DBUtil;
 import com.wgzhao.addax.rdbms.util.DBUtilErrorCode;
@@ -43,6 +46,8 @@ import org.slf4j.LoggerFactory;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransactionRollbackException;
 import java.sql.Types;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -277,6 +282,20 @@ public class CommonRdbmsWriter
         }
 
         public void startWriteWithConnection(RecordReceiver recordReceiver, TaskPluginCollector taskPluginCollector, Connection connection)
+        {
+            startWriteWithConnection(recordReceiver, taskPluginCollector, connection, TaskCheckpoint.NONE);
+        }
+
+        /**
+         * 每次批量写入提交后确认断点
+         *
+         * @param recordReceiver record receiver
+         * @param taskPluginCollector task plugin collector
+         * @param connection 数据库连接
+         * @param checkpoint task 的断点信息
+         */
+        public void startWriteWithConnection(RecordReceiver recordReceiver, TaskPluginCollector taskPluginCollector,
+                Connection connection, TaskCheckpoint checkpoint)
         {
             this.taskPluginCollector = taskPluginCollector;
             List<String> mergeColumns = new ArrayList<>();
@@ -337,11 +356,13 @@ public class CommonRdbmsWriter
                         doBatchInsert(connection, writeBuffer);
                         writeBuffer.clear();
                         bufferBytes = 0;
+                        checkpoint.ack();
                     }
                 }
                 if (!writeBuffer.isEmpty()) {
                     doBatchInsert(connection, writeBuffer);
                     writeBuffer.clear();
+                    checkpoint.ack();
                 }
             }
             catch (Exception e) {
@@ -357,12 +378,20 @@ public class CommonRdbmsWriter
         public void startWrite(RecordReceiver recordReceiver,
                 Configuration writerSliceConfig,
                 TaskPluginCollector taskPluginCollector)
+        {
+            startWrite(recordReceiver, writerSliceConfig, taskPluginCollector, TaskCheckpoint.NONE);
+        }
+
+        public void startWrite(RecordReceiver recordReceiver,
+                Configuration writerSliceConfig,
+                TaskPluginCollector taskPluginCollector,
+                TaskCheckpoint checkpoint)
         {
             Connection connection = DBUtil.getConnection(this.dataBaseType,
                     this.jdbcUrl, username, password);
             DBUtil.dealWithSessionConfig(connection, writerSliceConfig,
                     this.dataBaseType, basicMessage);
-            startWriteWithConnection(recordReceiver, taskPluginCollector, connection);
+            startWriteWithConnection(recordReceiver, taskPluginCollector, connection, checkpoint);
         }
 
         public void post(Configuration writerSliceConfig)
@@ -393,6 +422,8 @@ public class CommonRdbmsWriter
                 throws SQLException
         {
             PreparedStatement preparedStatement = null;
+            long startTime = System.currentTimeMillis();
+            WriterFlushEvent flushEvent = beginFlush(buffer);
             try {
                 connection.setAutoCommit(false);
                 preparedStatement = connection
@@ -433,8 +464,14 @@ public class CommonRdbmsWriter
                 }
                 preparedStatement.executeBatch();
                 connection.commit();
+                JfrSupport.endWriterFlush(flushEvent, true);
+                this.taskPluginCollector.reportLatency(System.currentTimeMillis() - startTime);
             }
             catch (SQLException e) {
+                JfrSupport.endWriterFlush(flushEvent, false);
+                if (isLockContention(e)) {
+                    this.taskPluginCollector.reportBackpressure();
+                }
                 LOG.warn("回滚此次写入, 采用每次写入一行方式提交. 因为: {}", e.getMessage());
                 connection.rollback();
                 doOneInsert(connection, buffer);
@@ -448,6 +485,31 @@ public class CommonRdbmsWriter
             }
         }
 
+        private WriterFlushEvent beginFlush(List<Record> buffer)
+        {
+            if (!JfrSupport.AVAILABLE) {
+                return null;
+            }
+            long bytes = 0;
+            for (Record record : buffer) {
+                bytes += record.getByteSize();
+            }
+            return JfrSupport.beginWriterFlush(this.dataBaseType.getTypeName(), this.table, buffer.size(), bytes);
+        }
+
+        /*
+         * 锁等待超时、死锁或者语句超时，说明目标库已经处于高负载状态
+         */
+        private static boolean isLockContention(SQLException e)
+        {
+            if (e instanceof SQLTimeoutException || e instanceof SQLTransactionRollbackException) {
+                return true;
+            }
+            String state = e.getSQLState();
+            // 40001: serialization failure, 40P01: PostgreSQL deadlock, 1205: MySQL lock wait timeout
+            return "40001".equals(state) || "40P01".equals(state) || e.getErrorCode() == 1205;
+        }
+
         protected void doOneInsert(Connection connection, List<Record> buffer)
         {
             PreparedStatement preparedStatement = null;
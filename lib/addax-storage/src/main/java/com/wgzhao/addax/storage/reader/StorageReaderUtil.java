@@ -36,7 +36,9 @@ import com.wgzhao.addax.common.element.LongColumn;
 import com.wgzhao.addax.common.element.Record;
 import com.wgzhao.addax.common.element.StringColumn;
 import com.wgzhao.addax.common.exception.AddaxException;
+import com.wgzhao.addax.common.plugin.FilePosition;
 import com.wgzhao.addax.common.plugin.RecordSender;
+import com.wgzhao.addax.common.plugin.TaskCheckpoint;
 import com.wgzhao.addax.common.plugin.TaskPluginCollector;
 import com.wgzhao.addax.common.util.ColumnUtil;
 import com.wgzhao.addax.common.util.Configuration;
@@ -129,6 +131,24 @@ public class StorageReaderUtil
     public static void readFromStream(InputStream inputStream, String context,
             Configuration readerSliceConfig, RecordSender recordSender,
             TaskPluginCollector taskPluginCollector)
+    {
+        readFromStream(inputStream, context, readerSliceConfig, recordSender, taskPluginCollector, 0, TaskCheckpoint.NONE);
+    }
+
+    /**
+     * 读取文件，并在每条记录发送后记录 {@link FilePosition}
+     *
+     * @param inputStream 文件内容
+     * @param context 文件名，同时作为断点位置中的文件名
+     * @param readerSliceConfig task 的配置
+     * @param recordSender record sender
+     * @param taskPluginCollector task plugin collector
+     * @param skipRecords 断点续传时需要跳过的记录数
+     * @param checkpoint task 的断点信息
+     */
+    public static void readFromStream(InputStream inputStream, String context,
+            Configuration readerSliceConfig, RecordSender recordSender,
+            TaskPluginCollector taskPluginCollector, long skipRecords, TaskCheckpoint checkpoint)
     {
         String compress = readerSliceConfig.getString(Key.COMPRESS, null);
         if (StringUtils.isBlank(compress)) {
@@ -260,7 +280,7 @@ public class StorageReaderUtil
                 }
             }
             StorageReaderUtil.doReadFromStream(reader, context,
-                    readerSliceConfig, recordSender, taskPluginCollector);
+                    readerSliceConfig, recordSender, taskPluginCollector, skipRecords, checkpoint);
         }
         catch (UnsupportedEncodingException uee) {
             throw AddaxException
@@ -286,6 +306,13 @@ public class StorageReaderUtil
     public static void doReadFromStream(BufferedReader reader, String context,
             Configuration readerSliceConfig, RecordSender recordSender,
             TaskPluginCollector taskPluginCollector)
+    {
+        doReadFromStream(reader, context, readerSliceConfig, recordSender, taskPluginCollector, 0, TaskCheckpoint.NONE);
+    }
+
+    public static void doReadFromStream(BufferedReader reader, String context,
+            Configuration readerSliceConfig, RecordSender recordSender,
+            TaskPluginCollector taskPluginCollector, long skipRecords, TaskCheckpoint checkpoint)
     {
         String encoding = readerSliceConfig.getString(Key.ENCODING,
                 Constant.DEFAULT_ENCODING);
@@ -332,10 +359,17 @@ public class StorageReaderUtil
             setCsvReaderConfig(csvReader);
 
             String[] parseRows;
+            long records = 0;
             while ((parseRows = StorageReaderUtil
                     .splitBufferedReader(csvReader)) != null) {
+                if (++records <= skipRecords) {
+                    continue;
+                }
                 StorageReaderUtil.transportOneRecord(recordSender,
                         column, parseRows, nullFormat, taskPluginCollector);
+                if (checkpoint.isEnabled()) {
+                    checkpoint.mark(FilePosition.toString(context, records));
+                }
             }
         }
         catch (UnsupportedEncodingException uee) {
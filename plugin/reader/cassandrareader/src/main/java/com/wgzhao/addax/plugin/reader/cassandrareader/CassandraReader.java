@@ -24,10 +24,13 @@ import com.wgzhao.addax.common.spi.Reader;
 import com.wgzhao.addax.common.util.Configuration;
 import com.datastax.driver.core.Cluster;
 import com.datastax.driver.core.ConsistencyLevel;
+import com.datastax.driver.core.Host;
 import com.datastax.driver.core.ResultSet;
 import com.datastax.driver.core.Row;
 import com.datastax.driver.core.Session;
 import com.datastax.driver.core.SimpleStatement;
+import com.datastax.driver.core.Statement;
+import com.datastax.driver.core.exceptions.NoHostAvailableException;
 import com.wgzhao.addax.common.element.Record;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -89,25 +92,32 @@ public class CassandraReader
     public static class Task
             extends Reader.Task
     {
+        private static final int DEFAULT_FETCH_SIZE = 5000;
+
+        private Configuration taskConfig = null;
+        private Cluster cluster = null;
         private Session session = null;
-        private String queryString = null;
+        private String keyspace = null;
         private ConsistencyLevel consistencyLevel;
         private int columnNumber = 0;
+        private int fetchSize;
+        private List<String> tokenRanges = null;
+        private CassandraReaderHelper.ColumnType[] columnTypes = null;
 
         @Override
         public void init()
         {
-            Configuration taskConfig = super.getPluginJobConf();
+            taskConfig = super.getPluginJobConf();
             String username = taskConfig.getString(MyKey.USERNAME);
             String password = taskConfig.getString(MyKey.PASSWORD);
             String hosts = taskConfig.getString(MyKey.HOST);
-            Integer port = taskConfig.getInt(MyKey.PORT);
+            Integer port = taskConfig.getInt(MyKey.PORT, 9042);
             boolean useSSL = taskConfig.getBool(MyKey.USE_SSL);
-            String keyspace = taskConfig.getString(MyKey.KEYSPACE);
+            keyspace = taskConfig.getString(MyKey.KEYSPACE);
             List<String> columnMeta = taskConfig.getList(MyKey.COLUMN, String.class);
             columnNumber = columnMeta.size();
+            fetchSize = taskConfig.getInt(MyKey.FETCH_SIZE, DEFAULT_FETCH_SIZE);
 
-            Cluster cluster;
             if ((username != null) && !username.isEmpty()) {
                 Cluster.Builder clusterBuilder = Cluster.builder().withCredentials(username, password)
                         .withPort(port).addContactPoints(hosts.split(","));
@@ -128,19 +138,64 @@ public class CassandraReader
             else {
                 consistencyLevel = ConsistencyLevel.LOCAL_QUORUM;
             }
-
-            queryString = CassandraReaderHelper.getQueryString(taskConfig, cluster);
-            LOG.info("query = " + queryString);
+            tokenRanges = taskConfig.getList(MyKey.TOKEN_RANGES, String.class);
         }
 
         @Override
         public void startRead(RecordSender recordSender)
         {
-            ResultSet r = session.execute(new SimpleStatement(queryString).setConsistencyLevel(consistencyLevel));
+            if (tokenRanges == null || tokenRanges.isEmpty()) {
+                String queryString = CassandraReaderHelper.getQueryString(taskConfig, cluster);
+                LOG.info("query = " + queryString);
+                read(queryString, null, recordSender);
+                return;
+            }
+            LOG.info("Read {} token ranges, the first query = {}", tokenRanges.size(), getQueryString(tokenRanges.get(0)));
+            for (String tokenRange : tokenRanges) {
+                Host replica = CassandraReaderHelper.getReplica(cluster, keyspace, tokenRange);
+                read(getQueryString(tokenRange), replica, recordSender);
+            }
+        }
+
+        private String getQueryString(String tokenRange)
+        {
+            String[] range = CassandraReaderHelper.parseTokenRange(tokenRange);
+            return CassandraReaderHelper.getQueryString(taskConfig, cluster, range[0], range[1]);
+        }
+
+        /*
+         * 执行查询并发送记录. 当前页剩余的行数降到一半时异步获取下一页，使网络传输和记录转换重叠
+         */
+        private void read(String queryString, Host replica, RecordSender recordSender)
+        {
+            Statement statement = new SimpleStatement(queryString)
+                    .setConsistencyLevel(consistencyLevel)
+                    .setFetchSize(fetchSize);
+            ResultSet r;
+            if (replica != null) {
+                // 直接发送到持有该 token 范围的节点，节点不可用时再交给负载均衡策略选择
+                try {
+                    r = session.execute(statement.setHost(replica));
+                }
+                catch (NoHostAvailableException e) {
+                    LOG.warn("Replica {} is not available, fall back to the load balancing policy: {}",
+                            replica.getEndPoint(), e.getMessage());
+                    r = session.execute(statement.setHost(null));
+                }
+            }
+            else {
+                r = session.execute(statement);
+            }
+            if (columnTypes == null) {
+                columnTypes = CassandraReaderHelper.getColumnTypes(r.getColumnDefinitions(), columnNumber);
+            }
+            int prefetchThreshold = Math.max(1, fetchSize / 2);
             for (Row row : r) {
+                if (r.getAvailableWithoutFetching() == prefetchThreshold && !r.isFullyFetched()) {
+                    r.fetchMoreResults();
+                }
                 Record record = recordSender.createRecord();
-                record = CassandraReaderHelper.buildRecord(record, row, r.getColumnDefinitions(), columnNumber,
-                        super.getTaskPluginCollector());
+                record = CassandraReaderHelper.buildRecord(record, row, columnTypes, super.getTaskPluginCollector());
                 if (record != null) {
                     recordSender.sendToWriter(record);
                 }
@@ -150,7 +205,9 @@ public class CassandraReader
         @Override
         public void destroy()
         {
-
+            if (cluster != null) {
+                cluster.close();
+            }
         }
     }
 }
@@ -36,9 +36,12 @@ import com.datastax.driver.core.ColumnDefinitions;
 import com.datastax.driver.core.ColumnMetadata;
 import com.datastax.driver.core.DataType;
 import com.datastax.driver.core.Duration;
+import com.datastax.driver.core.Host;
 import com.datastax.driver.core.LocalDate;
+import com.datastax.driver.core.Metadata;
 import com.datastax.driver.core.Row;
 import com.datastax.driver.core.TableMetadata;
+import com.datastax.driver.core.TokenRange;
 import com.datastax.driver.core.TupleType;
 import com.datastax.driver.core.TupleValue;
 import com.datastax.driver.core.UDTValue;
@@ -54,12 +57,15 @@ import java.net.InetAddress;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Created by mazhenlin on 2019/8/21.
@@ -68,8 +74,53 @@ public class CassandraReaderHelper
 {
     private static final Logger LOG = LoggerFactory
             .getLogger(CassandraReader.class);
+
+    private static final String TOKEN_RANGE_SEPARATOR = ":";
     static CodecRegistry registry = new CodecRegistry();
 
+    // 按数据类型缓存对应的 java 类型，避免每行都查找 codec
+    private static final Map<DataType, TypeToken<?>> JAVA_TYPES = new ConcurrentHashMap<>();
+
+    static TypeToken<?> javaType(DataType dataType)
+    {
+        return JAVA_TYPES.computeIfAbsent(dataType, t -> registry.codecFor(t).getJavaType());
+    }
+
+    /**
+     * 结果集中一列的类型信息，在读取第一页时生成，之后每行复用
+     */
+    static final class ColumnType
+    {
+        final String name;
+        final DataType type;
+        final DataType.Name typeName;
+        // 集合类型的元素(或 map 的 key/value)对应的 java 类型
+        final TypeToken<?>[] argTypes;
+
+        ColumnType(String name, DataType type)
+        {
+            this.name = name;
+            this.type = type;
+            this.typeName = type.getName();
+            List<DataType> args = type.getTypeArguments();
+            this.argTypes = new TypeToken<?>[args.size()];
+            if (typeName == DataType.Name.LIST || typeName == DataType.Name.SET || typeName == DataType.Name.MAP) {
+                for (int i = 0; i < args.size(); i++) {
+                    argTypes[i] = javaType(args.get(i));
+                }
+            }
+        }
+    }
+
+    static ColumnType[] getColumnTypes(ColumnDefinitions metaData, int columnNumber)
+    {
+        ColumnType[] columnTypes = new ColumnType[columnNumber];
+        for (int i = 0; i < columnNumber; i++) {
+            columnTypes[i] = new ColumnType(metaData.getName(i), metaData.getType(i));
+        }
+        return columnTypes;
+    }
+
     static String toJSonString(Object o, DataType type)
             throws Exception
     {
@@ -271,7 +322,7 @@ public class CassandraReaderHelper
         List l = new ArrayList();
         for (int j = 0; j < componentTypes.size(); j++) {
             DataType dataType = componentTypes.get(j);
-            TypeToken<?> eltClass = registry.codecFor(dataType).getJavaType();
+            TypeToken<?> eltClass = javaType(dataType);
             Object ele = tupleValue.get(j, eltClass);
             l.add(transferObjectForJson(ele, dataType));
         }
@@ -285,7 +336,7 @@ public class CassandraReaderHelper
         int j = 0;
         for (UserType.Field f : udtValue.getType()) {
             DataType dataType = f.getType();
-            TypeToken<?> eltClass = registry.codecFor(dataType).getJavaType();
+            TypeToken<?> eltClass = javaType(dataType);
             Object ele = udtValue.get(j, eltClass);
             newMap.put(f.getName(), transferObjectForJson(ele, dataType));
             j++;
@@ -293,18 +344,19 @@ public class CassandraReaderHelper
         return newMap;
     }
 
-    static Record buildRecord(Record record, Row rs, ColumnDefinitions metaData, int columnNumber,
+    static Record buildRecord(Record record, Row rs, ColumnType[] columnTypes,
             TaskPluginCollector taskPluginCollector)
     {
 
         try {
-            for (int i = 0; i < columnNumber; i++) {
+            for (int i = 0; i < columnTypes.length; i++) {
+                ColumnType columnType = columnTypes[i];
                 try {
                     if (rs.isNull(i)) {
                         record.addColumn(new StringColumn());
                         continue;
                     }
-                    switch (metaData.getType(i).getName()) {
+                    switch (columnType.typeName) {
 
                         case ASCII:
                         case TEXT:
@@ -378,39 +430,32 @@ public class CassandraReaderHelper
                             break;
 
                         case LIST: {
-                            TypeToken listEltClass = registry.codecFor(metaData.getType(i).getTypeArguments().get(0)).getJavaType();
-                            List<?> l = rs.getList(i, listEltClass);
-                            record.addColumn(new StringColumn(toJSonString(l, metaData.getType(i))));
+                            List<?> l = rs.getList(i, columnType.argTypes[0]);
+                            record.addColumn(new StringColumn(toJSonString(l, columnType.type)));
                         }
                         break;
 
                         case MAP: {
-                            DataType keyType = metaData.getType(i).getTypeArguments().get(0);
-                            DataType valType = metaData.getType(i).getTypeArguments().get(1);
-                            TypeToken<?> keyEltClass = registry.codecFor(keyType).getJavaType();
-                            TypeToken<?> valEltClass = registry.codecFor(valType).getJavaType();
-                            Map<?, ?> m = rs.getMap(i, keyEltClass, valEltClass);
-                            record.addColumn(new StringColumn(toJSonString(m, metaData.getType(i))));
+                            Map<?, ?> m = rs.getMap(i, columnType.argTypes[0], columnType.argTypes[1]);
+                            record.addColumn(new StringColumn(toJSonString(m, columnType.type)));
                         }
                         break;
 
                         case SET: {
-                            TypeToken<?> setEltClass = registry.codecFor(metaData.getType(i).getTypeArguments().get(0))
-                                    .getJavaType();
-                            Set<?> set = rs.getSet(i, setEltClass);
-                            record.addColumn(new StringColumn(toJSonString(set, metaData.getType(i))));
+                            Set<?> set = rs.getSet(i, columnType.argTypes[0]);
+                            record.addColumn(new StringColumn(toJSonString(set, columnType.type)));
                         }
                         break;
 
                         case TUPLE: {
                             TupleValue t = rs.getTupleValue(i);
-                            record.addColumn(new StringColumn(toJSonString(t, metaData.getType(i))));
+                            record.addColumn(new StringColumn(toJSonString(t, columnType.type)));
                         }
                         break;
 
                         case UDT: {
                             UDTValue t = rs.getUDTValue(i);
-                            record.addColumn(new StringColumn(toJSonString(t, metaData.getType(i))));
+                            record.addColumn(new StringColumn(toJSonString(t, columnType.type)));
                         }
                         break;
 
@@ -421,8 +466,8 @@ public class CassandraReaderHelper
                                             String.format(
                                                     "您的配置文件中的列配置信息有误. 因为DataX 不支持数据库读取这种字段类型. 字段名:[%s], "
                                                             + "字段类型:[%s]. ",
-                                                    metaData.getName(i),
-                                                    metaData.getType(i)));
+                                                    columnType.name,
+                                                    columnType.type));
                     }
                 }
                 catch (TypeNotSupported t) {
@@ -432,8 +477,8 @@ public class CassandraReaderHelper
                                     String.format(
                                             "您的配置文件中的列配置信息有误. 因为DataX 不支持数据库读取这种字段类型. 字段名:[%s], "
                                                     + "字段类型:[%s]. ",
-                                            metaData.getName(i),
-                                            metaData.getType(i)));
+                                            columnType.name,
+                                            columnType.type));
                 }
             }
         }
@@ -457,9 +502,132 @@ public class CassandraReaderHelper
         }
         String where = jobConfig.getString(MyKey.WHERE);
         if (where != null && where.toLowerCase().contains("token(")) {
+            LOG.warn("The where clause contains token range condition, the job will not be split.");
             splitConfigs.add(jobConfig);
             return splitConfigs;
         }
+        Metadata metadata = cluster.getMetadata();
+        Set<TokenRange> ringRanges = metadata.getTokenRanges();
+        if (ringRanges.isEmpty() || ringRanges.stream().anyMatch(TokenRange::isEmpty)) {
+            // 没有获取到集群的 token 信息，或者整个环只有一个 token，退化为按 token 取值范围平均切分
+            return splitEvenly(adviceNumber, jobConfig, cluster);
+        }
+        return splitByTokenRanges(adviceNumber, jobConfig, metadata);
+    }
+
+    /*
+     * 按集群实际的 token 范围(vnode)切分. 先将 token 环上的每个范围按其所在的副本节点排序，
+     * 再按顺序平均分配给各个 task，这样每个 task 读取的范围尽量集中在同一个节点上.
+     * token 范围少于 adviceNumber 时(如未开启 vnode)，将较大的范围继续细分.
+     */
+    private static List<Configuration> splitByTokenRanges(int adviceNumber, Configuration jobConfig, Metadata metadata)
+    {
+        String keyspace = Metadata.quote(jobConfig.getString(MyKey.KEYSPACE));
+        List<TokenRange> ranges = new ArrayList<>(metadata.getTokenRanges());
+        Collections.sort(ranges);
+        if (ranges.size() < adviceNumber) {
+            int piecesPerRange = (adviceNumber + ranges.size() - 1) / ranges.size();
+            List<TokenRange> pieces = new ArrayList<>();
+            for (TokenRange range : ranges) {
+                pieces.addAll(range.splitEvenly(piecesPerRange));
+            }
+            ranges = pieces;
+        }
+
+        // 跨越 token 环起点的范围拆成两段，便于用 token() 条件表示
+        List<String[]> tokenRanges = new ArrayList<>();
+        List<String> owners = new ArrayList<>();
+        for (TokenRange range : ranges) {
+            String owner = getOwner(metadata, keyspace, range);
+            for (TokenRange piece : range.unwrap()) {
+                tokenRanges.add(toTokenRange(piece));
+                owners.add(owner);
+            }
+        }
+        Integer[] order = new Integer[tokenRanges.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparing(owners::get));
+
+        int taskNumber = Math.min(adviceNumber, order.length);
+        List<Configuration> splitConfigs = new ArrayList<>(taskNumber);
+        for (int i = 0; i < taskNumber; i++) {
+            int from = (int) ((long) order.length * i / taskNumber);
+            int to = (int) ((long) order.length * (i + 1) / taskNumber);
+            List<String> taskRanges = new ArrayList<>(to - from);
+            for (int j = from; j < to; j++) {
+                String[] range = tokenRanges.get(order[j]);
+                taskRanges.add(range[0] + TOKEN_RANGE_SEPARATOR + range[1]);
+            }
+            Configuration taskConfig = jobConfig.clone();
+            taskConfig.set(MyKey.TOKEN_RANGES, taskRanges);
+            splitConfigs.add(taskConfig);
+        }
+        LOG.info("Split {} token ranges of the ring into {} tasks.", tokenRanges.size(), splitConfigs.size());
+        return splitConfigs;
+    }
+
+    /*
+     * 将不跨越起点的 token 范围转换为 [start, end]，空字符串表示不限制，
+     * 结束于 token 环起点的范围(start >= end)表示一直到环的末尾
+     */
+    private static String[] toTokenRange(TokenRange range)
+    {
+        String start = range.getStart().toString();
+        String end = range.getEnd().toString();
+        if (range.getStart().compareTo(range.getEnd()) >= 0) {
+            end = "";
+        }
+        return new String[] {start, end};
+    }
+
+    private static String getOwner(Metadata metadata, String keyspace, TokenRange range)
+    {
+        Set<Host> replicas = metadata.getReplicas(keyspace, range);
+        String owner = null;
+        for (Host host : replicas) {
+            String address = host.getEndPoint().toString();
+            if (owner == null || address.compareTo(owner) < 0) {
+                owner = address;
+            }
+        }
+        return owner == null ? "" : owner;
+    }
+
+    /**
+     * 根据 task 中的 token 范围查找一个可用的副本节点，用于将查询直接发送到持有数据的节点
+     *
+     * @param cluster cluster
+     * @param keyspace keyspace
+     * @param tokenRange task 中的 token 范围，格式为 start:end
+     * @return 可用的副本节点，找不到时返回 null
+     */
+    static Host getReplica(Cluster cluster, String keyspace, String tokenRange)
+    {
+        String[] range = parseTokenRange(tokenRange);
+        if (range[0].isEmpty() || range[1].isEmpty()) {
+            return null;
+        }
+        Metadata metadata = cluster.getMetadata();
+        TokenRange tr = metadata.newTokenRange(metadata.newToken(range[0]), metadata.newToken(range[1]));
+        for (Host host : metadata.getReplicas(Metadata.quote(keyspace), tr)) {
+            if (host.isUp()) {
+                return host;
+            }
+        }
+        return null;
+    }
+
+    static String[] parseTokenRange(String tokenRange)
+    {
+        int idx = tokenRange.indexOf(TOKEN_RANGE_SEPARATOR);
+        return new String[] {tokenRange.substring(0, idx), tokenRange.substring(idx + 1)};
+    }
+
+    private static List<Configuration> splitEvenly(int adviceNumber, Configuration jobConfig, Cluster cluster)
+    {
+        List<Configuration> splitConfigs = new ArrayList<Configuration>();
         String partitioner = cluster.getMetadata().getPartitioner();
         if (partitioner.endsWith("RandomPartitioner")) {
             BigDecimal minToken = BigDecimal.valueOf(-1);
@@ -502,6 +670,11 @@ public class CassandraReaderHelper
     }
 
     public static String getQueryString(Configuration taskConfig, Cluster cluster)
+    {
+        return getQueryString(taskConfig, cluster, taskConfig.getString(MyKey.MIN_TOKEN), taskConfig.getString(MyKey.MAX_TOKEN));
+    }
+
+    public static String getQueryString(Configuration taskConfig, Cluster cluster, String minToken, String maxToken)
     {
         List<String> columnMeta = taskConfig.getList(MyKey.COLUMN, String.class);
         String keyspace = taskConfig.getString(MyKey.KEYSPACE);
@@ -520,10 +693,8 @@ public class CassandraReaderHelper
         if (whereString != null && !whereString.isEmpty()) {
             where.append(whereString);
         }
-        String minToken = taskConfig.getString(MyKey.MIN_TOKEN);
-        String maxToken = taskConfig.getString(MyKey.MAX_TOKEN);
         if (minToken != null || maxToken != null) {
-            LOG.info("range:" + minToken + "~" + maxToken);
+            LOG.debug("range:" + minToken + "~" + maxToken);
             List<ColumnMetadata> pks = cluster.getMetadata().getKeyspace(keyspace).getTable(table).getPartitionKey();
             StringBuilder sb = new StringBuilder();
             for (ColumnMetadata pk : pks) {
@@ -39,6 +39,8 @@ public class MyKey extends Key
     public final static String CONSISTENCY_LEVEL = "consistencyLevel";
     public final static String MIN_TOKEN = "minToken";
     public final static String MAX_TOKEN = "maxToken";
+    // 切分后每个 task 需要读取的 token 范围列表
+    public final static String TOKEN_RANGES = "tokenRanges";
 
     /**
      * 每个列的名字
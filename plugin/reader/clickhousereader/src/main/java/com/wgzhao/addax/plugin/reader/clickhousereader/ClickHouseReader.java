@@ -98,7 +98,7 @@ public class ClickHouseReader
             int fetchSize = this.readerSliceConfig.getInt(Key.FETCH_SIZE);
 
             this.commonRdbmsReaderTask.startRead(this.readerSliceConfig, recordSender,
-                    super.getTaskPluginCollector(), fetchSize);
+                    super.getTaskPluginCollector(), fetchSize, getTaskCheckpoint());
         }
 
         @Override
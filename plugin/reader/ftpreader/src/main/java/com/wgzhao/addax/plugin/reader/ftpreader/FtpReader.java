@@ -21,7 +21,9 @@ package com.wgzhao.addax.plugin.reader.ftpreader;
 
 import com.wgzhao.addax.common.base.Key;
 import com.wgzhao.addax.common.exception.AddaxException;
+import com.wgzhao.addax.common.plugin.FilePosition;
 import com.wgzhao.addax.common.plugin.RecordSender;
+import com.wgzhao.addax.common.plugin.TaskCheckpoint;
 import com.wgzhao.addax.common.spi.Reader;
 import com.wgzhao.addax.common.util.Configuration;
 import com.wgzhao.addax.storage.reader.StorageReaderUtil;
@@ -271,14 +273,27 @@ public class FtpReader
         public void startRead(RecordSender recordSender)
         {
             LOG.debug("start read source files...");
+            TaskCheckpoint checkpoint = getTaskCheckpoint();
+            FilePosition restored = FilePosition.restore(checkpoint.getRestoredPosition(), this.sourceFiles);
             for (String fileName : this.sourceFiles) {
+                long skipRecords = 0;
+                if (restored != null) {
+                    // 断点之前的文件已经读完
+                    if (!restored.getFile().equals(fileName)) {
+                        LOG.info("skip file : [{}], it has been read before the checkpoint", fileName);
+                        continue;
+                    }
+                    skipRecords = restored.getRecords();
+                    restored = null;
+                    LOG.info("resume file : [{}] after the first {} records", fileName, skipRecords);
+                }
                 LOG.info(String.format("reading file : [%s]", fileName));
                 InputStream inputStream;
 
                 inputStream = ftpHelper.getInputStream(fileName);
 
                 StorageReaderUtil.readFromStream(inputStream, fileName, this.readerSliceConfig,
-                        recordSender, this.getTaskPluginCollector());
+                        recordSender, this.getTaskPluginCollector(), skipRecords, checkpoint);
                 recordSender.flush();
             }
 
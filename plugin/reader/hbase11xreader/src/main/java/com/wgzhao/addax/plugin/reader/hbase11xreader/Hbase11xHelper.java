@@ -21,14 +21,19 @@ package com.wgzhao.addax.plugin.reader.hbase11xreader;
 
 import com.wgzhao.addax.common.base.HBaseConstant;
 import com.wgzhao.addax.common.base.HBaseKey;
+import com.wgzhao.addax.common.constant.CommonConstant;
 import com.wgzhao.addax.common.exception.AddaxException;
 import com.wgzhao.addax.common.util.Configuration;
 import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.TypeReference;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Validate;
+import org.apache.hadoop.hbase.ClusterStatus;
 import org.apache.hadoop.hbase.HBaseConfiguration;
 import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.HRegionLocation;
+import org.apache.hadoop.hbase.RegionLoad;
+import org.apache.hadoop.hbase.ServerName;
 import org.apache.hadoop.hbase.TableName;
 import org.apache.hadoop.hbase.client.Admin;
 import org.apache.hadoop.hbase.client.Connection;
@@ -370,7 +375,7 @@ public class Hbase11xHelper
                 throw AddaxException.asAddaxException(Hbase11xReaderErrorCode.SPLIT_ERROR, "获取源头 Hbase 表的 rowkey 范围失败.");
             }
             resultConfigurations = Hbase11xHelper.doSplit(configuration, startRowkeyByte, endRowkeyByte,
-                    regionRanges);
+                    regionRanges, getRegionSizes(configuration, regionLocator));
 
             LOG.info("HBaseReader split job into {} tasks.", resultConfigurations.size());
             return resultConfigurations;
@@ -383,8 +388,42 @@ public class Hbase11xHelper
         }
     }
 
+    /*
+     * 获取每个 region 的大小(storefile 与 memstore 之和，单位为 MB)作为分片的开销，key 为 region 的 start key，
+     * 获取失败时返回空的 map，此时按原来的方式分配 task
+     */
+    private static Map<String, Long> getRegionSizes(Configuration configuration, RegionLocator regionLocator)
+    {
+        Map<String, Long> regionSizes = new HashMap<>();
+        Map<String, Long> sizeByName = new HashMap<>();
+        Admin admin = null;
+        try {
+            admin = Hbase11xHelper.getHbaseConnection(configuration.getString(HBaseKey.HBASE_CONFIG)).getAdmin();
+            ClusterStatus status = admin.getClusterStatus();
+            for (ServerName serverName : status.getServers()) {
+                for (RegionLoad regionLoad : status.getLoad(serverName).getRegionsLoad().values()) {
+                    sizeByName.put(Bytes.toStringBinary(regionLoad.getName()),
+                            (long) regionLoad.getStorefileSizeMB() + regionLoad.getMemStoreSizeMB());
+                }
+            }
+            for (HRegionLocation location : regionLocator.getAllRegionLocations()) {
+                Long size = sizeByName.get(Bytes.toStringBinary(location.getRegionInfo().getRegionName()));
+                if (size != null) {
+                    regionSizes.put(Bytes.toStringBinary(location.getRegionInfo().getStartKey()), size);
+                }
+            }
+        }
+        catch (Exception e) {
+            LOG.warn("Failed to get the size of regions, the tasks will not be assigned by cost: {}", e.getMessage());
+        }
+        finally {
+            Hbase11xHelper.closeAdmin(admin);
+        }
+        return regionSizes;
+    }
+
     private static List<Configuration> doSplit(Configuration config, byte[] startRowkeyByte,
-            byte[] endRowkeyByte, Pair<byte[][], byte[][]> regionRanges)
+            byte[] endRowkeyByte, Pair<byte[][], byte[][]> regionRanges, Map<String, Long> regionSizes)
     {
 
         List<Configuration> configurations = new ArrayList<>();
@@ -426,6 +465,11 @@ public class Hbase11xHelper
             p.set(HBaseKey.START_ROW_KEY, thisStartKey);
             p.set(HBaseKey.END_ROW_KEY, thisEndKey);
 
+            Long regionSize = regionSizes.get(Bytes.toStringBinary(regionStartKey));
+            if (regionSize != null) {
+                p.set(CommonConstant.LOAD_BALANCE_COST, regionSize);
+            }
+
             LOG.debug("startRowkey:[{}], endRowkey:[{}] .", thisStartKey, thisEndKey);
 
             configurations.add(p);
@@ -48,7 +48,7 @@ public abstract class HbaseAbstractTask
 {
     private final static Logger LOG = LoggerFactory.getLogger(HbaseAbstractTask.class);
 
-    private final byte[] startKey;
+    private byte[] startKey;
     private final byte[] endKey;
 
     protected Table hTable;
@@ -72,6 +72,19 @@ public abstract class HbaseAbstractTask
         this.scanBatchSize = configuration.getInt(HBaseKey.SCAN_BATCH_SIZE, HBaseConstant.DEFAULT_SCAN_BATCH_SIZE);
     }
 
+    /*
+     * 从断点记录的 rowkey 开始读取，该行会被重复读取一次，需在 prepare 之前调用
+     */
+    public void resumeFrom(String rowkey)
+    {
+        this.startKey = Bytes.toBytesBinary(rowkey);
+    }
+
+    public String getLastRowkey()
+    {
+        return lastResult == null ? null : Bytes.toStringBinary(lastResult.getRow());
+    }
+
     public abstract boolean fetchLine(Record record)
             throws Exception;
 
@@ -21,6 +21,7 @@ package com.wgzhao.addax.plugin.reader.hbase20xreader;
 
 import com.wgzhao.addax.common.base.HBaseConstant;
 import com.wgzhao.addax.common.base.HBaseKey;
+import com.wgzhao.addax.common.constant.CommonConstant;
 import com.wgzhao.addax.common.exception.AddaxException;
 import com.wgzhao.addax.common.util.Configuration;
 import com.alibaba.fastjson.JSON;
@@ -29,6 +30,10 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Validate;
 import org.apache.hadoop.hbase.HBaseConfiguration;
 import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.HRegionLocation;
+import org.apache.hadoop.hbase.RegionMetrics;
+import org.apache.hadoop.hbase.ServerName;
+import org.apache.hadoop.hbase.Size;
 import org.apache.hadoop.hbase.TableName;
 import org.apache.hadoop.hbase.client.Admin;
 import org.apache.hadoop.hbase.client.Connection;
@@ -45,8 +50,10 @@ import java.io.IOException;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public class Hbase20xHelper
 {
@@ -367,7 +374,7 @@ public class Hbase20xHelper
                 throw AddaxException.asAddaxException(Hbase20xReaderErrorCode.SPLIT_ERROR, "获取源头 Hbase 表的 rowkey 范围失败.");
             }
             resultConfigurations = Hbase20xHelper.doSplit(configuration, startRowkeyByte, endRowkeyByte,
-                    regionRanges);
+                    regionRanges, getRegionSizes(configuration, regionLocator));
 
             LOG.info("HBaseReader split job into {} tasks.", resultConfigurations.size());
             return resultConfigurations;
@@ -380,8 +387,47 @@ public class Hbase20xHelper
         }
     }
 
+    /*
+     * 获取每个 region 的大小(storefile 与 memstore 之和，单位为 MB)作为分片的开销，key 为 region 的 start key，
+     * 获取失败时返回空的 map，此时按原来的方式分配 task
+     */
+    private static Map<String, Long> getRegionSizes(Configuration configuration, RegionLocator regionLocator)
+    {
+        Map<String, Long> regionSizes = new HashMap<>();
+        Map<String, Long> sizeByName = new HashMap<>();
+        Admin admin = null;
+        try {
+            admin = Hbase20xHelper.getHbaseConnection(configuration.getString(HBaseKey.HBASE_CONFIG)).getAdmin();
+            List<HRegionLocation> locations = regionLocator.getAllRegionLocations();
+            Set<ServerName> serverNames = new HashSet<>();
+            for (HRegionLocation location : locations) {
+                serverNames.add(location.getServerName());
+            }
+            for (ServerName serverName : serverNames) {
+                for (RegionMetrics regionMetrics : admin.getRegionMetrics(serverName, regionLocator.getName())) {
+                    sizeByName.put(Bytes.toStringBinary(regionMetrics.getRegionName()),
+                            (long) (regionMetrics.getStoreFileSize().get(Size.Unit.MEGABYTE)
+                                    + regionMetrics.getMemStoreSize().get(Size.Unit.MEGABYTE)));
+                }
+            }
+            for (HRegionLocation location : locations) {
+                Long size = sizeByName.get(Bytes.toStringBinary(location.getRegion().getRegionName()));
+                if (size != null) {
+                    regionSizes.put(Bytes.toStringBinary(location.getRegion().getStartKey()), size);
+                }
+            }
+        }
+        catch (Exception e) {
+            LOG.warn("Failed to get the size of regions, the tasks will not be assigned by cost: {}", e.getMessage());
+        }
+        finally {
+            Hbase20xHelper.closeAdmin(admin);
+        }
+        return regionSizes;
+    }
+
     private static List<Configuration> doSplit(Configuration config, byte[] startRowkeyByte,
-            byte[] endRowkeyByte, Pair<byte[][], byte[][]> regionRanges)
+            byte[] endRowkeyByte, Pair<byte[][], byte[][]> regionRanges, Map<String, Long> regionSizes)
     {
 
         List<Configuration> configurations = new ArrayList<Configuration>();
@@ -423,6 +469,11 @@ public class Hbase20xHelper
             p.set(HBaseKey.START_ROW_KEY, thisStartKey);
             p.set(HBaseKey.END_ROW_KEY, thisEndKey);
 
+            Long regionSize = regionSizes.get(Bytes.toStringBinary(regionStartKey));
+            if (regionSize != null) {
+                p.set(CommonConstant.LOAD_BALANCE_COST, regionSize);
+            }
+
             LOG.debug("startRowkey:[{}], endRowkey:[{}] .", thisStartKey, thisEndKey);
 
             configurations.add(p);
@@ -23,6 +23,7 @@ import com.wgzhao.addax.common.base.HBaseKey;
 import com.wgzhao.addax.common.element.Record;
 import com.wgzhao.addax.common.exception.AddaxException;
 import com.wgzhao.addax.common.plugin.RecordSender;
+import com.wgzhao.addax.common.plugin.TaskCheckpoint;
 import com.wgzhao.addax.common.spi.Reader;
 import com.wgzhao.addax.common.util.Configuration;
 import org.slf4j.Logger;
@@ -67,6 +68,7 @@ public class Hbase20xReader
     {
         private static final Logger LOG = LoggerFactory.getLogger(Task.class);
         private HbaseAbstractTask hbaseTaskProxy;
+        private TaskCheckpoint checkpoint = TaskCheckpoint.NONE;
 
         @Override
         public void init()
@@ -91,6 +93,15 @@ public class Hbase20xReader
         public void prepare()
         {
             try {
+                // 多版本模式下一行会拆成多条记录，只有 normal 模式支持断点续传
+                if (this.hbaseTaskProxy instanceof NormalTask) {
+                    this.checkpoint = getTaskCheckpoint();
+                    String rowkey = checkpoint.getRestoredPosition();
+                    if (rowkey != null) {
+                        LOG.info("Resume from checkpoint, start rowkey=[{}]", rowkey);
+                        this.hbaseTaskProxy.resumeFrom(rowkey);
+                    }
+                }
                 this.hbaseTaskProxy.prepare();
             }
             catch (Exception e) {
@@ -115,6 +126,7 @@ public class Hbase20xReader
                 }
                 if (fetchOK) {
                     recordSender.sendToWriter(record);
+                    checkpoint.mark(this.hbaseTaskProxy.getLastRowkey());
                     record = recordSender.createRecord();
                 }
                 else {
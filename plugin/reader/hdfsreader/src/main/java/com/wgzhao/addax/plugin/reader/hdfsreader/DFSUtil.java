@@ -82,8 +82,10 @@ import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import static com.wgzhao.addax.common.base.Key.COLUMN;
@@ -101,6 +103,8 @@ public class DFSUtil
     private final org.apache.hadoop.conf.Configuration hadoopConf;
     private final boolean haveKerberos;
     private final HashSet<String> sourceHDFSAllFilesList = new HashSet<>();
+    // 文件的大小，用于估算每个分片的开销
+    private final Map<String, Long> sourceFileLengths = new HashMap<>();
     private String specifiedFileType = null;
     private String kerberosKeytabFilePath;
     private String kerberosPrincipal;
@@ -174,6 +178,7 @@ public class DFSUtil
             String filePath = f.getPath().toString();
             if (f.getLen() > 0) {
                 addSourceFileByType(filePath);
+                sourceFileLengths.put(filePath, f.getLen());
             }
             else {
                 LOG.warn("文件[{}]长度为0，将会跳过不作处理！", filePath);
@@ -181,6 +186,15 @@ public class DFSUtil
         }
     }
 
+    /**
+     * @param filePath getAllFiles 返回的文件
+     * @return 文件的字节数，未知时返回 -1
+     */
+    public long getFileLength(String filePath)
+    {
+        return sourceFileLengths.getOrDefault(filePath, -1L);
+    }
+
     public void getHDFSAllFiles(String hdfsPath)
     {
 
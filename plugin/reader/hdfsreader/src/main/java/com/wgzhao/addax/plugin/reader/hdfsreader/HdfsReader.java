@@ -20,8 +20,11 @@
 package com.wgzhao.addax.plugin.reader.hdfsreader;
 
 import com.wgzhao.addax.common.base.Key;
+import com.wgzhao.addax.common.constant.CommonConstant;
 import com.wgzhao.addax.common.exception.AddaxException;
+import com.wgzhao.addax.common.plugin.FilePosition;
 import com.wgzhao.addax.common.plugin.RecordSender;
+import com.wgzhao.addax.common.plugin.TaskCheckpoint;
 import com.wgzhao.addax.common.spi.Reader;
 import com.wgzhao.addax.common.util.Configuration;
 import com.wgzhao.addax.storage.reader.StorageReaderUtil;
@@ -211,6 +214,11 @@ public class HdfsReader
             for (List<String> files : splitedSourceFiles) {
                 Configuration splitedConfig = this.readerOriginConfig.clone();
                 splitedConfig.set(HdfsConstant.SOURCE_FILES, files);
+                long cost = 0;
+                for (String file : files) {
+                    cost += Math.max(0, dfsUtil.getFileLength(file));
+                }
+                splitedConfig.set(CommonConstant.LOAD_BALANCE_COST, cost);
                 readerSplitConfigs.add(splitedConfig);
             }
 
@@ -277,7 +285,20 @@ public class HdfsReader
         {
 
             LOG.info("read start");
+            // 只有 text 和 csv 格式会记录断点
+            TaskCheckpoint checkpoint = getTaskCheckpoint();
+            FilePosition restored = FilePosition.restore(checkpoint.getRestoredPosition(), this.sourceFiles);
             for (String sourceFile : this.sourceFiles) {
+                long skipRecords = 0;
+                if (restored != null) {
+                    if (!restored.getFile().equals(sourceFile)) {
+                        LOG.info("skip file : [{}], it has been read before the checkpoint", sourceFile);
+                        continue;
+                    }
+                    skipRecords = restored.getRecords();
+                    restored = null;
+                    LOG.info("resume file : [{}] after the first {} records", sourceFile, skipRecords);
+                }
                 LOG.info("reading file : [{}]", sourceFile);
 
                 if (specifiedFileType.equalsIgnoreCase(HdfsConstant.TEXT)
@@ -285,7 +306,7 @@ public class HdfsReader
 
                     InputStream inputStream = dfsUtil.getInputStream(sourceFile);
                     StorageReaderUtil.readFromStream(inputStream, sourceFile, this.taskConfig,
-                            recordSender, this.getTaskPluginCollector());
+                            recordSender, this.getTaskPluginCollector(), skipRecords, checkpoint);
                 }
                 else if (specifiedFileType.equalsIgnoreCase(HdfsConstant.ORC)) {
 
@@ -13,4 +13,7 @@ public final class InfluxDBKey extends Key
     public static final String CONNECTION = "connection";
     public static final String CONNECT_TIMEOUT_SECONDS = "connTimeout";
     public static final String SOCKET_TIMEOUT_SECONDS = "socketTimeout";
+    public static final String CHUNK_SIZE = "chunkSize";
+    // the placeholder in querySql which will be replaced with time range predicate of each split
+    public static final String TIME_FILTER_PLACEHOLDER = "#timeFilter#";
 }
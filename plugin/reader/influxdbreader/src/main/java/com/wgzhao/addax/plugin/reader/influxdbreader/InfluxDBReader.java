@@ -19,14 +19,20 @@
 
 package com.wgzhao.addax.plugin.reader.influxdbreader;
 
+import com.wgzhao.addax.common.base.Constant;
 import com.wgzhao.addax.common.exception.AddaxException;
 import com.wgzhao.addax.common.plugin.RecordSender;
 import com.wgzhao.addax.common.spi.Reader;
 import com.wgzhao.addax.common.util.Configuration;
+import com.wgzhao.addax.common.util.RangeSplitUtil;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -39,6 +45,8 @@ public class InfluxDBReader
     {
         private static final Logger LOG = LoggerFactory
                 .getLogger(Job.class);
+        // 估算记录数时，每个分片对应的细分窗口数
+        private static final int ESTIMATE_WINDOWS_PER_SLICE = 4;
 
         private Configuration originalConfig = null;
 
@@ -73,11 +81,113 @@ public class InfluxDBReader
         public List<Configuration> split(int adviceNumber)
         {
             Configuration readerSliceConfig = super.getPluginJobConf();
+            String querySql = readerSliceConfig.getString(InfluxDBKey.QUERY_SQL, null);
+            if (StringUtils.isBlank(querySql)) {
+                querySql = buildQuerySql(readerSliceConfig);
+            }
+            String begin = readerSliceConfig.getString(InfluxDBKey.BEGIN_DATETIME, null);
+            String end = readerSliceConfig.getString(InfluxDBKey.END_DATETIME, null);
             List<Configuration> splitConfigs = new ArrayList<>();
-            splitConfigs.add(readerSliceConfig);
+            if (!querySql.contains(InfluxDBKey.TIME_FILTER_PLACEHOLDER)) {
+                readerSliceConfig.set(InfluxDBKey.QUERY_SQL, querySql);
+                splitConfigs.add(readerSliceConfig);
+                return splitConfigs;
+            }
+            if (StringUtils.isAnyBlank(begin, end)) {
+                throw AddaxException.asAddaxException(InfluxDBReaderErrorCode.REQUIRED_VALUE,
+                        String.format("The parameters [%s] and [%s] are required when splitting by time range.",
+                                InfluxDBKey.BEGIN_DATETIME, InfluxDBKey.END_DATETIME));
+            }
+            long beginMillis = parseDateTime(begin);
+            long endMillis = parseDateTime(end);
+            if (beginMillis >= endMillis) {
+                throw AddaxException.asAddaxException(InfluxDBReaderErrorCode.ILLEGAL_VALUE,
+                        String.format("The [%s] must be earlier than [%s].", InfluxDBKey.BEGIN_DATETIME, InfluxDBKey.END_DATETIME));
+            }
+
+            long[] points;
+            if (adviceNumber > 1 && readerSliceConfig.getBool(InfluxDBKey.SPLIT_TIME_ESTIMATE, true)) {
+                points = estimateAndSplit(readerSliceConfig, querySql, beginMillis, endMillis, adviceNumber);
+            }
+            else {
+                points = RangeSplitUtil.doLongSplit(beginMillis, endMillis, adviceNumber);
+            }
+            List<String> allQuerySql = new ArrayList<>();
+            for (int i = 0, len = points.length - 1; i < len; i++) {
+                Configuration sliceConfig = readerSliceConfig.clone();
+                String sliceSql = querySql.replace(InfluxDBKey.TIME_FILTER_PLACEHOLDER,
+                        InfluxDBReaderTask.wrapTimeRange(points[i], points[i + 1]));
+                sliceConfig.set(InfluxDBKey.QUERY_SQL, sliceSql);
+                allQuerySql.add(sliceSql);
+                splitConfigs.add(sliceConfig);
+            }
+            LOG.info("After split(), allQuerySql=[\n{}\n].", StringUtils.join(allQuerySql, "\n"));
             return splitConfigs;
         }
 
+        /*
+         * table 模式下根据 column, table 和 where 生成查询语句, 并带上时间范围占位符(如果配置了时间范围)
+         */
+        private String buildQuerySql(Configuration conf)
+        {
+            Configuration conn = Configuration.from(conf.getList(InfluxDBKey.CONNECTION).get(0).toString());
+            String table = conn.getString(InfluxDBKey.TABLE, null);
+            if (StringUtils.isBlank(table)) {
+                throw AddaxException.asAddaxException(InfluxDBReaderErrorCode.REQUIRED_VALUE,
+                        "One of table or querySql must be specified");
+            }
+            String where = conn.getString(InfluxDBKey.WHERE, conf.getString(InfluxDBKey.WHERE, null));
+            List<String> conditions = new ArrayList<>();
+            if (StringUtils.isNotBlank(where)) {
+                conditions.add("(" + where + ")");
+            }
+            if (StringUtils.isNotBlank(conf.getString(InfluxDBKey.BEGIN_DATETIME, null))
+                    || StringUtils.isNotBlank(conf.getString(InfluxDBKey.END_DATETIME, null))) {
+                conditions.add(InfluxDBKey.TIME_FILTER_PLACEHOLDER);
+            }
+            String sql = "SELECT " + StringUtils.join(conf.getList(InfluxDBKey.COLUMN, String.class), ",") + " FROM " + table;
+            if (!conditions.isEmpty()) {
+                sql += " WHERE " + StringUtils.join(conditions, " AND ");
+            }
+            return sql;
+        }
+
+        /*
+         * 先将时间范围切分为更细的窗口并统计每个窗口的记录数，然后按记录数合并为 adviceNumber 个分片，
+         * 统计失败时退化为等宽切分
+         */
+        private long[] estimateAndSplit(Configuration conf, String querySql, long begin, long end, int adviceNumber)
+        {
+            int windows = adviceNumber * ESTIMATE_WINDOWS_PER_SLICE;
+            long window = Math.max((end - begin + windows - 1) / windows, 1);
+            try {
+                long[] counts = new InfluxDBReaderTask(conf).countByWindow(querySql, begin, end, window);
+                long[] points = new long[counts.length + 1];
+                for (int i = 0; i < counts.length; i++) {
+                    points[i] = begin + i * window;
+                }
+                points[counts.length] = end;
+                return RangeSplitUtil.doWeightedLongSplit(points, counts, adviceNumber);
+            }
+            catch (Exception e) {
+                LOG.warn("Failed to estimate the record count, fall back to split by equal time width: {}", e.getMessage());
+                return RangeSplitUtil.doLongSplit(begin, end, adviceNumber);
+            }
+        }
+
+        private static long parseDateTime(String dateTime)
+        {
+            try {
+                return LocalDateTime.parse(dateTime.trim(), DateTimeFormatter.ofPattern(Constant.DEFAULT_DATE_FORMAT))
+                        .atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            }
+            catch (DateTimeParseException e) {
+                throw AddaxException.asAddaxException(InfluxDBReaderErrorCode.ILLEGAL_VALUE,
+                        String.format("The datetime [%s] is invalid, the format should be [%s].",
+                                dateTime, Constant.DEFAULT_DATE_FORMAT), e);
+            }
+        }
+
         @Override
         public void post()
         {
@@ -29,12 +29,23 @@ import com.wgzhao.addax.common.plugin.RecordSender;
 import com.wgzhao.addax.common.plugin.TaskPluginCollector;
 import com.wgzhao.addax.common.util.Configuration;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.fluent.Content;
 import org.apache.http.client.fluent.Request;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
 import org.apache.http.entity.ContentType;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.util.EntityUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
@@ -48,6 +59,7 @@ public class InfluxDBReaderTask
 
     private static final int CONNECT_TIMEOUT_SECONDS_DEFAULT = 15;
     private static  final int SOCKET_TIMEOUT_SECONDS_DEFAULT = 20;
+    private static final int CHUNK_SIZE_DEFAULT = 10000;
 
     private String querySql;
     private final String database;
@@ -57,6 +69,7 @@ public class InfluxDBReaderTask
 
     private final int connTimeout;
     private final int socketTimeout;
+    private final int chunkSize;
 
     public InfluxDBReaderTask(Configuration configuration)
     {
@@ -69,6 +82,7 @@ public class InfluxDBReaderTask
         this.password = configuration.getString(InfluxDBKey.PASSWORD, null);
         this.connTimeout = configuration.getInt(InfluxDBKey.CONNECT_TIMEOUT_SECONDS, CONNECT_TIMEOUT_SECONDS_DEFAULT) * 1000;
         this.socketTimeout = configuration.getInt(InfluxDBKey.SOCKET_TIMEOUT_SECONDS, SOCKET_TIMEOUT_SECONDS_DEFAULT) * 1000;
+        this.chunkSize = configuration.getInt(InfluxDBKey.CHUNK_SIZE, CHUNK_SIZE_DEFAULT);
     }
 
     public void post()
@@ -85,63 +99,176 @@ public class InfluxDBReaderTask
     {
         LOG.info("connect influxdb: {} with username: {}", endpoint, username);
 
-        String tail="/query";
-        String enc="utf-8";
-        String result= "";
-        try {
-            String url=endpoint+tail
-                    +"?db=" + URLEncoder.encode(database,enc) ;
-            if(!"".equals(username)){
-                url+="&u=" + URLEncoder.encode(username,enc);
+        if(querySql.contains("#lastMinute#")){
+            this.querySql = querySql.replace("#lastMinute#", getLastMinute());
+        }
+        LOG.info("Begin to read record by query: [{}]", querySql);
+        // 使用 chunked 方式获取查询结果，服务端会按 chunkSize 分批返回，每一批是独立的一行 JSON，
+        // 这样可以边读取边发送，而不需要将整个结果集放在内存中
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(this.connTimeout)
+                .setSocketTimeout(this.socketTimeout)
+                .build();
+        try (CloseableHttpClient httpClient = HttpClients.custom().setDefaultRequestConfig(requestConfig).build();
+             CloseableHttpResponse response = httpClient.execute(new HttpGet(buildQueryUrl(querySql, true)))) {
+            HttpEntity entity = response.getEntity();
+            if (response.getStatusLine().getStatusCode() != HttpStatus.SC_OK) {
+                throw AddaxException.asAddaxException(InfluxDBReaderErrorCode.ILLEGAL_VALUE,
+                        "Failed to get data point: " + (entity == null ? response.getStatusLine() : EntityUtils.toString(entity)));
             }
-            if(!"".equals(password)){
-                url+="&p=" + URLEncoder.encode(password,enc) ;
+            if (entity == null) {
+                throw AddaxException.asAddaxException(
+                        InfluxDBReaderErrorCode.ILLEGAL_VALUE, "Get nothing!", null);
             }
-            if(querySql.contains("#lastMinute#")){
-                this.querySql = querySql.replace("#lastMinute#", getLastMinute());
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(entity.getContent(), StandardCharsets.UTF_8))) {
+                String line;
+                boolean gotNothing = true;
+                while ((line = reader.readLine()) != null) {
+                    if (StringUtils.isBlank(line)) {
+                        continue;
+                    }
+                    gotNothing = false;
+                    transportChunk(line, recordSender);
+                }
+                if (gotNothing) {
+                    throw AddaxException.asAddaxException(
+                            InfluxDBReaderErrorCode.ILLEGAL_VALUE, "Get nothing!", null);
+                }
             }
-            url+="&q=" + URLEncoder.encode(querySql,enc);
-            result = get(url);
-        } catch (Exception e) {
+        }
+        catch (AddaxException e) {
+            throw e;
+        }
+        catch (IOException e) {
             throw AddaxException.asAddaxException(
                     InfluxDBReaderErrorCode.ILLEGAL_VALUE, "Failed to get data point！", e);
         }
-
-        if(StringUtils.isBlank(result)){
+        catch (Exception e) {
             throw AddaxException.asAddaxException(
-                    InfluxDBReaderErrorCode.ILLEGAL_VALUE, "Get nothing!", null);
+                    InfluxDBReaderErrorCode.ILLEGAL_VALUE, "Failed to send data", e);
         }
-        try {
-            JSONObject jsonObject = JSONObject.parseObject(result);
-            JSONArray results = (JSONArray) jsonObject.get("results");
-            JSONObject resultsMap = (JSONObject) results.get(0);
-            if(resultsMap.containsKey("series")){
-                JSONArray series= (JSONArray) resultsMap.get("series");
-                JSONObject seriesMap = (JSONObject) series.get(0);
-                if(seriesMap.containsKey("values")){
-                    JSONArray values = (JSONArray) seriesMap.get("values");
-                    for (Object row:values) {
-                        JSONArray rowArray = (JSONArray) row;
-                        Record record = recordSender.createRecord();
-                        for (Object s:rowArray) {
-                            if(null!=s){
-                                record.addColumn(new StringColumn(s.toString()));
-                            }else {
-                                record.addColumn(new StringColumn(null));
-                            }
-                        }
-                        recordSender.sendToWriter(record);
+    }
+
+    private void transportChunk(String chunk, RecordSender recordSender)
+    {
+        JSONObject resultsMap = getFirstResult(chunk);
+        if (!resultsMap.containsKey("series")) {
+            return;
+        }
+        // 每个分组(GROUP BY tag)对应一个 series
+        for (Object series : resultsMap.getJSONArray("series")) {
+            JSONArray values = ((JSONObject) series).getJSONArray("values");
+            if (values == null) {
+                continue;
+            }
+            for (Object row : values) {
+                JSONArray rowArray = (JSONArray) row;
+                Record record = recordSender.createRecord();
+                for (Object s : rowArray) {
+                    if (null != s) {
+                        record.addColumn(new StringColumn(s.toString()));
+                    }
+                    else {
+                        record.addColumn(new StringColumn(null));
                     }
                 }
+                recordSender.sendToWriter(record);
+            }
+        }
+    }
 
-            }else if(resultsMap.containsKey("error")){
-                throw AddaxException.asAddaxException(
-                        InfluxDBReaderErrorCode.ILLEGAL_VALUE, "Error occurred in data sets！", null);
+    /**
+     * 按等宽时间窗口统计记录数，用于按时间范围切分时估算每个窗口的数据量.
+     * 窗口从 begin 开始，宽度为 window 毫秒，最后一个窗口在 end 处截断
+     *
+     * @param sql the query sql which contains time filter placeholder
+     * @param begin inclusive begin time in milliseconds
+     * @param end exclusive end time in milliseconds
+     * @param window the width of each window in milliseconds
+     * @return the record count of each window
+     */
+    public long[] countByWindow(String sql, long begin, long end, long window)
+    {
+        int windows = (int) ((end - begin + window - 1) / window);
+        long[] counts = new long[windows];
+        String timeFilter = wrapTimeRange(begin, end);
+        String countSql = String.format("SELECT COUNT(*) FROM (%s) WHERE %s GROUP BY time(%dms, %dms)",
+                sql.replace(InfluxDBKey.TIME_FILTER_PLACEHOLDER, timeFilter), timeFilter, window, Math.floorMod(begin, window));
+        LOG.info("estimate the record count by query: [{}]", countSql);
+        JSONObject resultsMap;
+        try {
+            resultsMap = getFirstResult(get(buildQueryUrl(countSql, false) + "&epoch=ms"));
+        }
+        catch (AddaxException e) {
+            throw e;
+        }
+        catch (Exception e) {
+            throw AddaxException.asAddaxException(
+                    InfluxDBReaderErrorCode.ILLEGAL_VALUE, "Failed to get data point！", e);
+        }
+        if (!resultsMap.containsKey("series")) {
+            return counts;
+        }
+        for (Object series : resultsMap.getJSONArray("series")) {
+            for (Object row : ((JSONObject) series).getJSONArray("values")) {
+                JSONArray rowArray = (JSONArray) row;
+                int idx = (int) ((rowArray.getLongValue(0) - begin) / window);
+                if (idx < 0 || idx >= windows) {
+                    continue;
+                }
+                // COUNT(*) 会返回每个字段的记录数，取其中最大的一个
+                long count = 0;
+                for (int i = 1; i < rowArray.size(); i++) {
+                    count = Math.max(count, rowArray.getLongValue(i));
+                }
+                counts[idx] = Math.max(counts[idx], count);
             }
+        }
+        return counts;
+    }
+
+    public static String wrapTimeRange(long begin, long end)
+    {
+        return String.format("time >= %dms AND time < %dms", begin, end);
+    }
 
-        } catch (Exception e) {
+    private static JSONObject getFirstResult(String result)
+    {
+        JSONObject jsonObject = JSONObject.parseObject(result);
+        if (jsonObject.containsKey("error")) {
             throw AddaxException.asAddaxException(
-                    InfluxDBReaderErrorCode.ILLEGAL_VALUE, "Failed to send data", e);
+                    InfluxDBReaderErrorCode.ILLEGAL_VALUE, "Error occurred in data sets: " + jsonObject.getString("error"));
+        }
+        JSONArray results = jsonObject.getJSONArray("results");
+        JSONObject resultsMap = results.getJSONObject(0);
+        if (resultsMap.containsKey("error")) {
+            throw AddaxException.asAddaxException(
+                    InfluxDBReaderErrorCode.ILLEGAL_VALUE, "Error occurred in data sets: " + resultsMap.getString("error"));
+        }
+        return resultsMap;
+    }
+
+    private String buildQueryUrl(String sql, boolean chunked)
+    {
+        String enc = "utf-8";
+        try {
+            StringBuilder url = new StringBuilder(endpoint).append("/query")
+                    .append("?db=").append(URLEncoder.encode(database, enc));
+            if (StringUtils.isNotEmpty(username)) {
+                url.append("&u=").append(URLEncoder.encode(username, enc));
+            }
+            if (StringUtils.isNotEmpty(password)) {
+                url.append("&p=").append(URLEncoder.encode(password, enc));
+            }
+            if (chunked) {
+                url.append("&chunked=true&chunk_size=").append(chunkSize);
+            }
+            url.append("&q=").append(URLEncoder.encode(sql, enc));
+            return url.toString();
+        }
+        catch (IOException e) {
+            throw AddaxException.asAddaxException(
+                    InfluxDBReaderErrorCode.ILLEGAL_VALUE, "Failed to encode the query url", e);
         }
     }
 
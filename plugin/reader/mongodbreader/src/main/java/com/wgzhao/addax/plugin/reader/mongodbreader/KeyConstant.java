@@ -96,10 +96,18 @@ public class KeyConstant
     public static final String UPPER_BOUND = "upperBound";
     public static final String IS_OBJECT_ID = "isObjectId";
 
-    /*
-     * 批量获取的记录数
+    /**
+     * 游标每次批量获取的记录数
+     */
+    public static final String BATCH_SIZE = "batchSize";
+    /**
+     * 切分方式，可选 auto, sample, bucketAuto, chunks
      */
-//    public static final String BATCH_SIZE = "batchSize"
+    public static final String SPLIT_MODE = "splitMode";
+    public static final String SPLIT_MODE_AUTO = "auto";
+    public static final String SPLIT_MODE_SAMPLE = "sample";
+    public static final String SPLIT_MODE_BUCKET_AUTO = "bucketAuto";
+    public static final String SPLIT_MODE_CHUNKS = "chunks";
     /**
      * MongoDB的_id
      */
@@ -23,6 +23,7 @@ import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.JSONArray;
 import com.alibaba.fastjson.JSONObject;
 import com.mongodb.MongoClient;
+import com.mongodb.client.FindIterable;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoCursor;
 import com.mongodb.client.MongoDatabase;
@@ -34,12 +35,15 @@ import com.wgzhao.addax.common.element.Record;
 import com.wgzhao.addax.common.element.StringColumn;
 import com.wgzhao.addax.common.exception.AddaxException;
 import com.wgzhao.addax.common.plugin.RecordSender;
+import com.wgzhao.addax.common.plugin.TaskCheckpoint;
 import com.wgzhao.addax.common.spi.Reader;
 import com.wgzhao.addax.common.util.Configuration;
 import com.wgzhao.addax.plugin.reader.mongodbreader.util.CollectionSplitUtil;
 import com.wgzhao.addax.plugin.reader.mongodbreader.util.MongoUtil;
 import org.bson.Document;
 import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -100,6 +104,11 @@ public class MongoDBReader
     public static class Task
             extends Reader.Task
     {
+        private static final Logger LOG = LoggerFactory.getLogger(Task.class);
+
+        private static final String OBJECT_ID_POSITION = "o:";
+        private static final String LONG_POSITION = "l:";
+        private static final String STRING_POSITION = "s:";
 
         private MongoClient mongoClient;
 
@@ -112,6 +121,7 @@ public class MongoDBReader
         private Object lowerBound = null;
         private Object upperBound = null;
         private boolean isObjectId = true;
+        private int batchSize = 0;
 
         private boolean isNullOrEmpty(String obj)
         {
@@ -149,7 +159,30 @@ public class MongoDBReader
                 Document queryFilter = Document.parse(query);
                 filter = new Document("$and", Arrays.asList(filter, queryFilter));
             }
-            dbCursor = col.find(filter).iterator();
+            TaskCheckpoint checkpoint = getTaskCheckpoint();
+            Object resumeId = fromPosition(checkpoint.getRestoredPosition());
+            if (resumeId != null) {
+                LOG.info("Resume from checkpoint, read the documents whose _id > {}", resumeId);
+                filter = new Document("$and", Arrays.asList(filter,
+                        new Document(KeyConstant.MONGO_PRIMARY_ID, new Document("$gt", resumeId))));
+            }
+            FindIterable<Document> findIterable = col.find(filter);
+            Document projection = buildProjection(checkpoint.isEnabled());
+            if (projection != null) {
+                findIterable.projection(projection);
+            }
+            if (checkpoint.isEnabled()) {
+                // 断点续传需要按 _id 的顺序读取
+                findIterable.sort(new Document(KeyConstant.MONGO_PRIMARY_ID, 1));
+            }
+            if (batchSize > 0) {
+                findIterable.batchSize(batchSize);
+            }
+            if (isNullOrEmpty(query)) {
+                // 只有 _id 范围条件时，强制走 _id 索引
+                findIterable.hint(new Document(KeyConstant.MONGO_PRIMARY_ID, 1));
+            }
+            dbCursor = findIterable.iterator();
             Document item;
             if (mongodbColumnMeta.size() == 1 && mongodbColumnMeta.get(0) == "*") {
                 item = dbCursor.next();
@@ -224,7 +257,66 @@ public class MongoDBReader
                     }
                 }
                 recordSender.sendToWriter(record);
+                if (checkpoint.isEnabled()) {
+                    checkpoint.mark(toPosition(item.get(KeyConstant.MONGO_PRIMARY_ID)));
+                }
+            }
+        }
+
+        /*
+         * 断点位置为 _id 的值，加上类型前缀以便还原，只支持 ObjectId、整数和字符串类型的 _id
+         */
+        private static String toPosition(Object id)
+        {
+            if (id instanceof ObjectId) {
+                return OBJECT_ID_POSITION + ((ObjectId) id).toHexString();
+            }
+            if (id instanceof Integer || id instanceof Long) {
+                return LONG_POSITION + id;
+            }
+            if (id instanceof String) {
+                return STRING_POSITION + id;
+            }
+            return null;
+        }
+
+        private static Object fromPosition(String position)
+        {
+            if (position == null) {
+                return null;
+            }
+            if (position.startsWith(OBJECT_ID_POSITION)) {
+                return new ObjectId(position.substring(OBJECT_ID_POSITION.length()));
+            }
+            if (position.startsWith(LONG_POSITION)) {
+                return Long.parseLong(position.substring(LONG_POSITION.length()));
+            }
+            if (position.startsWith(STRING_POSITION)) {
+                return position.substring(STRING_POSITION.length());
+            }
+            return null;
+        }
+
+        /*
+         * 根据配置的列生成投影，只读取需要的字段. 嵌套字段取其顶层字段，配置为 * 时不做投影
+         */
+        private Document buildProjection(boolean keepId)
+        {
+            Document projection = new Document();
+            for (Object o : mongodbColumnMeta) {
+                if (!(o instanceof JSONObject)) {
+                    return null;
+                }
+                String name = ((JSONObject) o).getString(KeyConstant.COLUMN_NAME);
+                if (isNullOrEmpty(name) || "*".equals(name)) {
+                    return null;
+                }
+                projection.append(name.split("\\.")[0], 1);
+            }
+            if (!keepId && !projection.containsKey(KeyConstant.MONGO_PRIMARY_ID)) {
+                projection.append(KeyConstant.MONGO_PRIMARY_ID, 0);
             }
+            return projection;
         }
 
         @Override
@@ -252,6 +344,7 @@ public class MongoDBReader
             this.lowerBound = readerSliceConfig.get(KeyConstant.LOWER_BOUND);
             this.upperBound = readerSliceConfig.get(KeyConstant.UPPER_BOUND);
             this.isObjectId = readerSliceConfig.getBool(KeyConstant.IS_OBJECT_ID);
+            this.batchSize = readerSliceConfig.getInt(KeyConstant.BATCH_SIZE, 0);
         }
 
         @Override
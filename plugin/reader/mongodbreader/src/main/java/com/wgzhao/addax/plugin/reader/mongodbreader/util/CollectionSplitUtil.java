@@ -29,8 +29,11 @@ import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
 import org.bson.Document;
 import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
@@ -41,6 +44,10 @@ import java.util.List;
  */
 public class CollectionSplitUtil
 {
+    private static final Logger LOG = LoggerFactory.getLogger(CollectionSplitUtil.class);
+
+    // 采样切分时，每个分片对应的采样数
+    private static final int SAMPLES_PER_SPLIT = 100;
 
     private CollectionSplitUtil() {}
 
@@ -60,8 +67,9 @@ public class CollectionSplitUtil
         }
 
         boolean isObjectId = isPrimaryIdObjectId(mongoClient, dbName, collName);
+        String splitMode = originalSliceConfig.getString(KeyConstant.SPLIT_MODE, KeyConstant.SPLIT_MODE_AUTO);
 
-        List<Range> rangeList = doSplitCollection(adviceNumber, mongoClient, dbName, collName, isObjectId);
+        List<Range> rangeList = doSplitCollection(adviceNumber, mongoClient, dbName, collName, isObjectId, splitMode);
         for (Range range : rangeList) {
             Configuration conf = originalSliceConfig.clone();
             conf.set(KeyConstant.LOWER_BOUND, range.lowerBound);
@@ -84,7 +92,7 @@ public class CollectionSplitUtil
 
     // split the collection into multiple chunks, each chunk specifies a range
     private static List<Range> doSplitCollection(int adviceNumber, MongoClient mongoClient,
-            String dbName, String collName, boolean isObjectId)
+            String dbName, String collName, boolean isObjectId, String splitMode)
     {
 
         MongoDatabase database = mongoClient.getDatabase(dbName);
@@ -96,102 +104,177 @@ public class CollectionSplitUtil
             return Collections.singletonList(range);
         }
 
+        MongoCollection<Document> col = database.getCollection(collName);
+        List<Object> splitPoints = null;
+        if (KeyConstant.SPLIT_MODE_CHUNKS.equalsIgnoreCase(splitMode)) {
+            splitPoints = splitByChunks(mongoClient, dbName, collName, adviceNumber);
+        }
+        else if (KeyConstant.SPLIT_MODE_BUCKET_AUTO.equalsIgnoreCase(splitMode)) {
+            splitPoints = splitByBucketAuto(col, adviceNumber);
+        }
+        else if (KeyConstant.SPLIT_MODE_AUTO.equalsIgnoreCase(splitMode)) {
+            splitPoints = splitByVector(database, dbName, collName, adviceNumber);
+        }
+        else if (!KeyConstant.SPLIT_MODE_SAMPLE.equalsIgnoreCase(splitMode)) {
+            throw AddaxException.asAddaxException(MongoDBReaderErrorCode.ILLEGAL_VALUE,
+                    String.format("The splitMode [%s] is not supported, it should be one of %s, %s, %s, %s", splitMode,
+                            KeyConstant.SPLIT_MODE_AUTO, KeyConstant.SPLIT_MODE_SAMPLE,
+                            KeyConstant.SPLIT_MODE_BUCKET_AUTO, KeyConstant.SPLIT_MODE_CHUNKS));
+        }
+        if (splitPoints == null) {
+            // 没有 splitVector 权限，或者集合不满足按 chunk 切分的条件时，使用采样的方式
+            splitPoints = splitBySample(col, adviceNumber);
+        }
+        LOG.info("The collection {}.{} is split into {} ranges by {} mode", dbName, collName, splitPoints.size() + 1, splitMode);
+
+        Object lastObjectId = "min";
+        for (Object splitPoint : splitPoints) {
+            Range range = new Range();
+            range.lowerBound = lastObjectId;
+            lastObjectId = isObjectId ? ((ObjectId) splitPoint).toHexString() : splitPoint;
+            range.upperBound = lastObjectId;
+            rangeList.add(range);
+        }
+        Range range = new Range();
+        range.lowerBound = lastObjectId;
+        range.upperBound = "max";
+        rangeList.add(range);
+
+        return rangeList;
+    }
+
+    /*
+     * 使用 splitVector 命令获取切分点，需要 clusterManager 角色. 没有权限时返回 null
+     */
+    private static List<Object> splitByVector(MongoDatabase database, String dbName, String collName, int adviceNumber)
+    {
         Document result = database.runCommand(new Document("collStats", collName));
-        int docCount = result.getInteger("count");
+        long docCount = ((Number) result.get("count")).longValue();
         if (docCount == 0) {
-            return rangeList;
+            return new ArrayList<>();
         }
-        int avgObjSize = 1;
+        long avgObjSize = 1;
         Object avgObjSizeObj = result.get("avgObjSize");
-        if (avgObjSizeObj instanceof Integer) {
-            avgObjSize = (Integer) avgObjSizeObj;
-        }
-        else if (avgObjSizeObj instanceof Double) {
-            avgObjSize = ((Double) avgObjSizeObj).intValue();
+        if (avgObjSizeObj instanceof Number) {
+            avgObjSize = ((Number) avgObjSizeObj).longValue();
         }
         int splitPointCount = adviceNumber - 1;
-        int chunkDocCount = docCount / adviceNumber;
-        ArrayList<Object> splitPoints = new ArrayList<>();
 
-        // test if user has splitVector role(clusterManager)
-        boolean supportSplitVector = true;
+        long maxChunkSize = (docCount / splitPointCount - 1) * 2 * avgObjSize / (1024 * 1024);
+        Document command = new Document("splitVector", dbName + "." + collName)
+                .append("keyPattern", new Document(KeyConstant.MONGO_PRIMARY_ID, 1));
+        if (maxChunkSize < 1) {
+            command.append("force", true);
+        }
+        else {
+            command.append("maxChunkSize", maxChunkSize).append("maxSplitPoints", splitPointCount);
+        }
         try {
-            database.runCommand(new Document("splitVector", dbName + "." + collName)
-                    .append("keyPattern", new Document(KeyConstant.MONGO_PRIMARY_ID, 1))
-                    .append("force", true));
+            result = database.runCommand(command);
         }
         catch (MongoCommandException e) {
+            // test if user has splitVector role(clusterManager)
             if (e.getErrorCode() == KeyConstant.MONGO_UNAUTHORIZED_ERR_CODE ||
                     e.getErrorCode() == KeyConstant.MONGO_ILLEGAL_OP_ERR_CODE ||
                     e.getErrorCode() == KeyConstant.MONGO_COMMAND_NOT_FOUND_CODE) {
-                supportSplitVector = false;
+                LOG.warn("The splitVector command is not available({}), split the collection by sampling", e.getErrorMessage());
+                return null;
             }
+            throw e;
+        }
+        List<Object> splitPoints = new ArrayList<>();
+        for (Object splitKey : result.get("splitKeys", List.class)) {
+            addSplitPoint(splitPoints, ((Document) splitKey).get(KeyConstant.MONGO_PRIMARY_ID));
         }
+        return splitPoints;
+    }
 
-        if (supportSplitVector) {
-            boolean forceMedianSplit = false;
-            int maxChunkSize = (docCount / splitPointCount - 1) * 2 * avgObjSize / (1024 * 1024);
-            //int maxChunkSize = (chunkDocCount - 1) * 2 * avgObjSize / (1024 * 1024)
-            if (maxChunkSize < 1) {
-                forceMedianSplit = true;
-            }
-            if (!forceMedianSplit) {
-                result = database.runCommand(new Document("splitVector", dbName + "." + collName)
-                        .append("keyPattern", new Document(KeyConstant.MONGO_PRIMARY_ID, 1))
-                        .append("maxChunkSize", maxChunkSize)
-                        .append("maxSplitPoints", adviceNumber - 1));
-            }
-            else {
-                result = database.runCommand(new Document("splitVector", dbName + "." + collName)
-                        .append("keyPattern", new Document(KeyConstant.MONGO_PRIMARY_ID, 1))
-                        .append("force", true));
-            }
-            ArrayList<Document> splitKeys = result.get("splitKeys", ArrayList.class);
-
-            for (Document splitKey : splitKeys) {
-                Object id = splitKey.get(KeyConstant.MONGO_PRIMARY_ID);
-                if (isObjectId) {
-                    ObjectId oid = (ObjectId) id;
-                    splitPoints.add(oid.toHexString());
-                }
-                else {
-                    splitPoints.add(id);
-                }
-            }
+    /*
+     * 通过 $sample 随机采样 _id 并排序，取其分位数作为切分点. 采样数量远小于集合的 5% 时，
+     * MongoDB 使用随机游标而不是全表扫描，代价与集合大小基本无关
+     */
+    private static List<Object> splitBySample(MongoCollection<Document> col, int adviceNumber)
+    {
+        int sampleSize = adviceNumber * SAMPLES_PER_SPLIT;
+        List<Object> ids = new ArrayList<>(sampleSize);
+        for (Document doc : col.aggregate(Arrays.asList(
+                new Document("$sample", new Document("size", sampleSize)),
+                new Document("$project", new Document(KeyConstant.MONGO_PRIMARY_ID, 1)),
+                new Document("$sort", new Document(KeyConstant.MONGO_PRIMARY_ID, 1)))).allowDiskUse(true)) {
+            ids.add(doc.get(KeyConstant.MONGO_PRIMARY_ID));
         }
-        else {
-            int skipCount = chunkDocCount;
-            MongoCollection<Document> col = database.getCollection(collName);
-
-            for (int i = 0; i < splitPointCount; i++) {
-                Document doc = col.find().skip(skipCount).limit(chunkDocCount).first();
-                assert doc != null;
-                Object id = doc.get(KeyConstant.MONGO_PRIMARY_ID);
-                if (isObjectId) {
-                    ObjectId oid = (ObjectId) id;
-                    splitPoints.add(oid.toHexString());
-                }
-                else {
-                    splitPoints.add(id);
-                }
-                skipCount += chunkDocCount;
+        List<Object> splitPoints = new ArrayList<>();
+        for (int i = 1; i < adviceNumber && !ids.isEmpty(); i++) {
+            addSplitPoint(splitPoints, ids.get((int) ((long) i * ids.size() / adviceNumber)));
+        }
+        return splitPoints;
+    }
+
+    /*
+     * 通过 $bucketAuto 将 _id 分成 adviceNumber 个记录数相近的桶，取每个桶的下界作为切分点.
+     * 需要遍历 _id 索引一次，结果比采样更均匀
+     */
+    private static List<Object> splitByBucketAuto(MongoCollection<Document> col, int adviceNumber)
+    {
+        List<Object> splitPoints = new ArrayList<>();
+        boolean first = true;
+        for (Document bucket : col.aggregate(Collections.singletonList(
+                new Document("$bucketAuto", new Document("groupBy", "$" + KeyConstant.MONGO_PRIMARY_ID)
+                        .append("buckets", adviceNumber)))).allowDiskUse(true)) {
+            if (first) {
+                first = false;
+                continue;
             }
+            addSplitPoint(splitPoints, bucket.get(KeyConstant.MONGO_PRIMARY_ID, Document.class).get("min"));
         }
+        return splitPoints;
+    }
 
-        Object lastObjectId = "min";
-        for (Object splitPoint : splitPoints) {
-            Range range = new Range();
-            range.lowerBound = lastObjectId;
-            lastObjectId = splitPoint;
-            range.upperBound = lastObjectId;
-            rangeList.add(range);
+    /*
+     * 对于以 {_id: 1} 为分片键的分片集合，直接使用 config.chunks 中的 chunk 边界作为切分点，
+     * chunk 数量多于 adviceNumber 时合并相邻的 chunk. 不满足条件时返回 null
+     */
+    private static List<Object> splitByChunks(MongoClient mongoClient, String dbName, String collName, int adviceNumber)
+    {
+        String ns = dbName + "." + collName;
+        MongoDatabase configDb = mongoClient.getDatabase("config");
+        Document collMeta = configDb.getCollection("collections").find(new Document(KeyConstant.MONGO_PRIMARY_ID, ns)).first();
+        if (collMeta == null) {
+            LOG.warn("The collection {} is not sharded, split the collection by sampling", ns);
+            return null;
         }
-        Range range = new Range();
-        range.lowerBound = lastObjectId;
-        range.upperBound = "max";
-        rangeList.add(range);
+        Document shardKey = collMeta.get("key", Document.class);
+        Object idKey = shardKey == null ? null : shardKey.get(KeyConstant.MONGO_PRIMARY_ID);
+        if (shardKey == null || shardKey.size() != 1 || !(idKey instanceof Number) || ((Number) idKey).intValue() != 1) {
+            LOG.warn("The shard key of {} is {}, not {_id: 1}, split the collection by sampling", ns, shardKey);
+            return null;
+        }
+        MongoCollection<Document> chunks = configDb.getCollection("chunks");
+        // MongoDB 5.0 之后 config.chunks 使用集合的 uuid 而不是 ns 关联
+        Document chunkFilter = new Document("ns", ns);
+        if (chunks.countDocuments(chunkFilter) == 0 && collMeta.containsKey("uuid")) {
+            chunkFilter = new Document("uuid", collMeta.get("uuid"));
+        }
+        List<Object> bounds = new ArrayList<>();
+        for (Document chunk : chunks.find(chunkFilter).sort(new Document("min", 1))) {
+            bounds.add(chunk.get("min", Document.class).get(KeyConstant.MONGO_PRIMARY_ID));
+        }
+        // 第一个 chunk 的下界是 MinKey
+        List<Object> splitPoints = new ArrayList<>();
+        int chunkCount = bounds.size();
+        int sliceCount = Math.min(adviceNumber, chunkCount);
+        for (int i = 1; i < sliceCount; i++) {
+            addSplitPoint(splitPoints, bounds.get((int) ((long) i * chunkCount / sliceCount)));
+        }
+        return splitPoints;
+    }
 
-        return rangeList;
+    private static void addSplitPoint(List<Object> splitPoints, Object point)
+    {
+        if (point == null || (!splitPoints.isEmpty() && splitPoints.get(splitPoints.size() - 1).equals(point))) {
+            return;
+        }
+        splitPoints.add(point);
     }
 }
 
@@ -108,7 +108,7 @@ public class MysqlReader
         {
             int fetchSize = this.readerSliceConfig.getInt(Key.FETCH_SIZE);
 
-            this.commonRdbmsReaderTask.startRead(this.readerSliceConfig, recordSender, getTaskPluginCollector(), fetchSize);
+            this.commonRdbmsReaderTask.startRead(this.readerSliceConfig, recordSender, getTaskPluginCollector(), fetchSize, getTaskCheckpoint());
         }
 
         @Override
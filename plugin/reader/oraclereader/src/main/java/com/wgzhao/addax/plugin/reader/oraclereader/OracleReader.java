@@ -138,7 +138,7 @@ public class OracleReader
             int fetchSize = this.readerSliceConfig.getInt(FETCH_SIZE);
 
             this.commonRdbmsReaderTask.startRead(this.readerSliceConfig,
-                    recordSender, getTaskPluginCollector(), fetchSize);
+                    recordSender, getTaskPluginCollector(), fetchSize, getTaskCheckpoint());
         }
 
         @Override
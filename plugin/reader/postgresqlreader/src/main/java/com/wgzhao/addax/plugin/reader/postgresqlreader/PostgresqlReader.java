@@ -99,7 +99,7 @@ public class PostgresqlReader
             int fetchSize = this.readerSliceConfig.getInt(FETCH_SIZE);
 
             this.commonRdbmsReaderSlave.startRead(this.readerSliceConfig, recordSender,
-                    super.getTaskPluginCollector(), fetchSize);
+                    super.getTaskPluginCollector(), fetchSize, getTaskCheckpoint());
         }
 
         @Override
@@ -102,7 +102,7 @@ public class RdbmsReader
         {
             int fetchSize = this.readerSliceConfig.getInt(FETCH_SIZE);
 
-            this.commonRdbmsReaderSlave.startRead(this.readerSliceConfig, recordSender, getTaskPluginCollector(), fetchSize);
+            this.commonRdbmsReaderSlave.startRead(this.readerSliceConfig, recordSender, getTaskPluginCollector(), fetchSize, getTaskCheckpoint());
         }
 
         @Override
@@ -30,10 +30,8 @@ import com.moilioncircle.redis.replicator.RedisReplicator;
 import com.moilioncircle.redis.replicator.Replicator;
 import com.moilioncircle.redis.replicator.event.PostRdbSyncEvent;
 import com.moilioncircle.redis.replicator.event.PreRdbSyncEvent;
-import com.moilioncircle.redis.replicator.io.RawByteListener;
 import com.moilioncircle.redis.replicator.rdb.datatype.KeyStringValueString;
-import com.moilioncircle.redis.replicator.rdb.skip.SkipRdbVisitor;
-import org.apache.http.HttpEntity;
+import org.apache.http.HttpStatus;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.impl.client.CloseableHttpClient;
@@ -41,17 +39,11 @@ import org.apache.http.impl.client.HttpClientBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.BufferedOutputStream;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
 import java.net.URI;
-import java.net.URISyntaxException;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -60,7 +52,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
-import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.regex.Pattern;
 
 import static com.moilioncircle.redis.replicator.Constants.RDB_TYPE_HASH;
@@ -121,66 +113,143 @@ public class RedisReader
         public void startRead(RecordSender recordSender)
         {
             Configuration pluginJobConf = getPluginJobConf();
+            // Job.split 之后每个 task 只有一个连接，这里仍按列表处理以兼容未切分的配置
             List<Object> connections = pluginJobConf.getList("connection");
             try {
                 for (Object obj : connections) {
                     Map connection = (Map) obj;
                     URI uri = URI.create(connection.get("uri").toString());
-                    File file = new File(UUID.randomUUID() + ".rdb");
-                    if ("http".equals(uri.getScheme())) {
-                        this.download(uri, file);
-                    }
-                    else if ("tcp".equals(uri.getScheme())) {
-                        String auth = "";
-                        if (connection.get("auth") != null) {
-                            auth = "?authPassword=" + connection.get("auth");
-                        }
+                    Object auth = connection.get("auth");
+                    LOG.info("Begin to read rdb from {}", uri);
+                    long start = System.currentTimeMillis();
+                    this.read(uri, auth == null ? null : auth.toString(), recordSender);
+                    LOG.info("Finished reading rdb from {} in {} ms", uri, System.currentTimeMillis() - start);
+                } // end for
+            }
+            catch (Exception e) {
+                throw new RuntimeException(e.getMessage(), e);
+            }
+        }
 
-                        this.dump(uri.toString().replace("tcp://", "redis://") + auth, file);
+        /**
+         * 边接收边解析 RDB，不在本地落盘.
+         * tcp 连接通过 sync 命令从 redis server 直接解析复制流中的 RDB 部分，RDB 结束后即断开;
+         * http 地址直接解析响应流; 其他情况按本地 RDB 文件读取
+         *
+         * @param uri rdb 地址
+         * @param auth redis server 密码
+         * @param recordSender record sender
+         * @throws IOException 读取失败
+         */
+        private void read(URI uri, String auth, RecordSender recordSender)
+                throws IOException
+        {
+            String scheme = uri.getScheme();
+            com.moilioncircle.redis.replicator.Configuration conf = com.moilioncircle.redis.replicator.Configuration.defaultSetting();
+            if ("tcp".equals(scheme) || "redis".equals(scheme)) {
+                // 解析失败后不要重连，否则会重复发送已经读取过的数据
+                conf.setRetries(0);
+                if (auth != null && !auth.isEmpty()) {
+                    conf.setAuthPassword(auth);
+                }
+                Replicator replicator = new RedisReplicator(uri.getHost(), uri.getPort() > 0 ? uri.getPort() : 6379, conf);
+                parse(replicator, recordSender, true);
+            }
+            else if ("http".equals(scheme) || "https".equals(scheme)) {
+                try (CloseableHttpClient httpClient = this.getHttpClient();
+                        CloseableHttpResponse response = httpClient.execute(new HttpGet(uri))) {
+                    int status = response.getStatusLine().getStatusCode();
+                    if (status != HttpStatus.SC_OK) {
+                        throw new IOException(String.format("Failed to download rdb from %s, status code: %d", uri, status));
                     }
-                    else {
-                        file = new File(uri);
+                    try (InputStream in = response.getEntity().getContent()) {
+                        parse(new RedisReplicator(in, FileType.RDB, conf), recordSender, false);
                     }
+                }
+            }
+            else {
+                parse(new RedisReplicator(new File(uri), FileType.RDB, conf), recordSender, false);
+            }
+        }
 
-                    LOG.info("loading {} ", file.getAbsolutePath());
-                    RedisReplicator r = new RedisReplicator(file, FileType.RDB, com.moilioncircle.redis.replicator.Configuration.defaultSetting());
-                    r.addEventListener((replicator, event) -> {
-                        if (event instanceof KeyStringValueString) {
-                            KeyStringValueString dkv = (KeyStringValueString) event;
-                            long dbNumber = dkv.getDb().getDbNumber();
-                            int rdbType = dkv.getValueRdbType();
-                            byte[] key = dkv.getKey();
-                            byte[] value = dkv.getValue();
-                            long expire = dkv.getExpiredMs() == null ? 0 : dkv.getExpiredMs();
-
-                            //记录较大的key
-                            recordBigKey(dbNumber, rdbType, key, value);
-
-                            //记录数据类型
-                            collectType(rdbType);
-
-                            if (Task.this.matchDB((int) dbNumber) && Task.this.matchKey(key)) {
-                                Record record = recordSender.createRecord();
-                                record.addColumn(new LongColumn(dbNumber));
-                                record.addColumn(new LongColumn(rdbType));
-                                record.addColumn(new LongColumn(expire));
-                                record.addColumn(new BytesColumn(key));
-                                record.addColumn(new BytesColumn(value));
-                                recordSender.sendToWriter(record);
-                            }
-                        }
-                        else {
-                            LOG.warn("The type is unsupported yet");
+        /*
+         * 解析 RDB 并发送记录. 事件回调中出现异常时先保存下来并关闭 replicator，解析结束后再抛出
+         */
+        private void parse(Replicator replicator, RecordSender recordSender, boolean closeAfterRdb)
+                throws IOException
+        {
+            AtomicReference<Throwable> failure = new AtomicReference<>();
+            replicator.addEventListener((r, event) -> {
+                if (failure.get() != null) {
+                    return;
+                }
+                try {
+                    if (event instanceof KeyStringValueString) {
+                        sendRecord((KeyStringValueString) event, recordSender);
+                    }
+                    else if (event instanceof PostRdbSyncEvent) {
+                        if (closeAfterRdb) {
+                            // 只需要 RDB 快照，不需要后续的增量命令
+                            r.close();
                         }
-                    });
-                    r.open();
-                    r.close();
-                    // delete temporary local file
-                    Files.deleteIfExists(Paths.get(file.getAbsolutePath()));
-                } // end for
+                    }
+                    else if (!(event instanceof PreRdbSyncEvent)) {
+                        LOG.debug("The event type {} is unsupported yet", event.getClass().getSimpleName());
+                    }
+                }
+                catch (Throwable e) {
+                    failure.set(e);
+                    closeQuietly(r);
+                }
+            });
+            replicator.addExceptionListener((r, throwable, event) -> {
+                failure.compareAndSet(null, throwable);
+                closeQuietly(r);
+            });
+            try {
+                replicator.open();
             }
-            catch (Exception e) {
-                throw new RuntimeException(e.getMessage(), e);
+            finally {
+                closeQuietly(replicator);
+            }
+            Throwable e = failure.get();
+            if (e != null) {
+                throw new IOException(e.getMessage(), e);
+            }
+        }
+
+        private void sendRecord(KeyStringValueString dkv, RecordSender recordSender)
+        {
+            long dbNumber = dkv.getDb().getDbNumber();
+            int rdbType = dkv.getValueRdbType();
+            byte[] key = dkv.getKey();
+            byte[] value = dkv.getValue();
+            long expire = dkv.getExpiredMs() == null ? 0 : dkv.getExpiredMs();
+
+            //记录较大的key
+            recordBigKey(dbNumber, rdbType, key, value);
+
+            //记录数据类型
+            collectType(rdbType);
+
+            if (matchDB((int) dbNumber) && matchKey(key)) {
+                Record record = recordSender.createRecord();
+                record.addColumn(new LongColumn(dbNumber));
+                record.addColumn(new LongColumn(rdbType));
+                record.addColumn(new LongColumn(expire));
+                record.addColumn(new BytesColumn(key));
+                record.addColumn(new BytesColumn(value));
+                recordSender.sendToWriter(record);
+            }
+        }
+
+        private static void closeQuietly(Replicator replicator)
+        {
+            try {
+                replicator.close();
+            }
+            catch (IOException e) {
+                LOG.warn(e.getMessage(), e);
             }
         }
 
@@ -282,74 +351,6 @@ public class RedisReader
             return this.includeDB.isEmpty() || this.includeDB.contains(db);
         }
 
-        /**
-         * 通过sync命令远程下载redis server rdb文件
-         *
-         * @param uri uri
-         * @param outFile file which dump to
-         * @throws IOException file not found
-         * @throws URISyntaxException uri parser error
-         */
-        private void dump(String uri, File outFile)
-                throws IOException, URISyntaxException
-        {
-            OutputStream out = new BufferedOutputStream(new FileOutputStream(outFile));
-            RawByteListener rawByteListener = rawBytes -> {
-                try {
-                    out.write(rawBytes);
-                }
-                catch (IOException e) {
-                    throw new RuntimeException(e.getMessage(), e);
-                }
-            };
-            Replicator replicator = new RedisReplicator(uri);
-            replicator.setRdbVisitor(new SkipRdbVisitor(replicator));
-            replicator.addEventListener((replicator1, event) -> {
-                if (event instanceof PreRdbSyncEvent) {
-                    replicator1.addRawByteListener(rawByteListener);
-                }
-
-                if (event instanceof PostRdbSyncEvent) {
-                    replicator1.removeRawByteListener(rawByteListener);
-
-                    try {
-                        out.close();
-                        replicator1.close();
-                    }
-                    catch (IOException e) {
-                        LOG.warn(e.getMessage(), e);
-                    }
-                }
-            });
-            replicator.open();
-        }
-
-        /**
-         * 下载远程rdb文件
-         *
-         * @param uri uri
-         * @param outFile file will be written
-         * @throws IOException when can not reach to uri
-         */
-        private void download(URI uri, File outFile)
-                throws IOException
-        {
-            CloseableHttpClient httpClient = this.getHttpClient();
-            CloseableHttpResponse response = httpClient.execute(new HttpGet(uri));
-            HttpEntity entity = response.getEntity();
-            InputStream in = entity.getContent();
-            byte[] bytes = new byte[4096 * 1000];
-
-            int len;
-            try (FileOutputStream out = new FileOutputStream(outFile)) {
-                while ((len = in.read(bytes)) != -1) {
-                    out.write(bytes, 0, len);
-                    out.flush();
-                }
-                in.close();
-            }
-        }
-
         private CloseableHttpClient getHttpClient()
         {
             return HttpClientBuilder.create().build();
@@ -413,7 +414,19 @@ public class RedisReader
         @Override
         public List<Configuration> split(int adviceNumber)
         {
-            return Collections.singletonList(super.getPluginJobConf());
+            // 每个连接(redis 实例或 rdb 文件)一个 task，多个实例可以并发读取
+            Configuration conf = super.getPluginJobConf();
+            List<Object> connections = conf.getList("connection");
+            if (connections == null || connections.size() <= 1) {
+                return Collections.singletonList(conf);
+            }
+            List<Configuration> splitConfigs = new ArrayList<>(connections.size());
+            for (Object connection : connections) {
+                Configuration taskConf = conf.clone();
+                taskConf.set("connection", Collections.singletonList(connection));
+                splitConfigs.add(taskConf);
+            }
+            return splitConfigs;
         }
 
         @Override
@@ -110,7 +110,7 @@ public class SqlServerReader
                     .getInt(FETCH_SIZE);
 
             this.commonRdbmsReaderTask.startRead(this.readerSliceConfig,
-                    recordSender, getTaskPluginCollector(), fetchSize);
+                    recordSender, getTaskPluginCollector(), fetchSize, getTaskCheckpoint());
         }
 
         @Override
@@ -99,7 +99,7 @@ public class TDengineReader
         {
             // TDengine does not support fetch size
             int fetchSize = this.readerSliceConfig.getInt(Key.FETCH_SIZE);
-            this.commonRdbmsReaderTask.startRead(this.readerSliceConfig, recordSender, getTaskPluginCollector(), fetchSize);
+            this.commonRdbmsReaderTask.startRead(this.readerSliceConfig, recordSender, getTaskPluginCollector(), fetchSize, getTaskCheckpoint());
         }
 
         @Override
@@ -23,6 +23,7 @@ import com.alibaba.fastjson.JSON;
 import com.csvreader.CsvReader;
 import com.wgzhao.addax.common.base.Constant;
 import com.wgzhao.addax.common.base.Key;
+import com.wgzhao.addax.common.constant.CommonConstant;
 import com.wgzhao.addax.common.element.BoolColumn;
 import com.wgzhao.addax.common.element.BytesColumn;
 import com.wgzhao.addax.common.element.Column;
@@ -32,7 +33,9 @@ import com.wgzhao.addax.common.element.LongColumn;
 import com.wgzhao.addax.common.element.Record;
 import com.wgzhao.addax.common.element.StringColumn;
 import com.wgzhao.addax.common.exception.AddaxException;
+import com.wgzhao.addax.common.plugin.FilePosition;
 import com.wgzhao.addax.common.plugin.RecordSender;
+import com.wgzhao.addax.common.plugin.TaskCheckpoint;
 import com.wgzhao.addax.common.plugin.TaskPluginCollector;
 import com.wgzhao.addax.common.spi.Reader;
 import com.wgzhao.addax.common.util.Configuration;
@@ -239,6 +242,11 @@ public class TxtFileReader
             for (List<String> files : splitedSourceFiles) {
                 Configuration splitedConfig = this.originConfig.clone();
                 splitedConfig.set(Key.SOURCE_FILES, files);
+                long cost = 0;
+                for (String file : files) {
+                    cost += new File(file).length();
+                }
+                splitedConfig.set(CommonConstant.LOAD_BALANCE_COST, cost);
                 readerSplitConfigs.add(splitedConfig);
             }
             LOG.debug("split() ok and end...");
@@ -486,10 +494,24 @@ public class TxtFileReader
         {
             LOG.debug("start read source files...");
             BufferedReader reader;
+            TaskCheckpoint checkpoint = getTaskCheckpoint();
+            FilePosition restored = FilePosition.restore(checkpoint.getRestoredPosition(), this.sourceFiles);
             for (String fileName : this.sourceFiles) {
+                long skipRecords = 0;
+                if (restored != null) {
+                    // 断点之前的文件已经读完
+                    if (!restored.getFile().equals(fileName)) {
+                        LOG.info("skip file : [{}], it has been read before the checkpoint", fileName);
+                        continue;
+                    }
+                    skipRecords = restored.getRecords();
+                    restored = null;
+                    LOG.info("resume file : [{}] after the first {} records", fileName, skipRecords);
+                }
                 LOG.info("reading file : [{}]", fileName);
                 reader = FileHelper.readCompressFile(fileName, encoding, bufferSize);
-                doReadFromStream(reader, fileName, readerSliceConfig, recordSender, getTaskPluginCollector());
+                doReadFromStream(reader, fileName, readerSliceConfig, recordSender, getTaskPluginCollector(),
+                        skipRecords, checkpoint);
                 recordSender.flush();
                 IOUtils.closeQuietly(reader, null);
             }
@@ -499,6 +521,12 @@ public class TxtFileReader
         public void doReadFromStream(BufferedReader reader, String context, Configuration readerSliceConfig, RecordSender recordSender,
                 TaskPluginCollector taskPluginCollector)
         {
+            doReadFromStream(reader, context, readerSliceConfig, recordSender, taskPluginCollector, 0, TaskCheckpoint.NONE);
+        }
+
+        private void doReadFromStream(BufferedReader reader, String context, Configuration readerSliceConfig, RecordSender recordSender,
+                TaskPluginCollector taskPluginCollector, long skipRecords, TaskCheckpoint checkpoint)
+        {
 
             CsvReader csvReader = null;
 
@@ -516,8 +544,15 @@ public class TxtFileReader
                 setCsvReaderConfig(csvReader);
 
                 String[] parseRows;
+                long records = 0;
                 while ((parseRows = splitBufferedReader(csvReader)) != null) {
+                    if (++records <= skipRecords) {
+                        continue;
+                    }
                     transportOneRecord(recordSender, parseRows, taskPluginCollector);
+                    if (checkpoint.isEnabled()) {
+                        checkpoint.mark(FilePosition.toString(context, records));
+                    }
                 }
             }
             catch (UnsupportedEncodingException uee) {
@@ -36,4 +36,6 @@ public final class CassandraKey extends Key
     public final static String CONSISTENCY_LEVEL = "consistencyLevel";
     public final static String CONNECTIONS_PER_HOST = "connectionsPerHost";
     public final static String MAX_PENDING_CONNECTION = "maxPendingPerConnection";
+    public final static String PARTITION_BATCH = "partitionBatch";
+    public final static String MAX_IN_FLIGHT_PER_HOST = "maxInFlightPerHost";
 }
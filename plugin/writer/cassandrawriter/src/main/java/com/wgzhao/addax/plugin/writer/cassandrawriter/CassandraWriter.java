@@ -98,6 +98,7 @@ public class CassandraWriter
         private long batchSize = 1;
         private List<ResultSetFuture> unConfirmedWrite;
         private List<BoundStatement> bufferedWrite;
+        private PartitionBatchWriter partitionWriter = null;
 
         @Override
         public void startWrite(RecordReceiver lineReceiver)
@@ -132,7 +133,13 @@ public class CassandraWriter
                         Column col = record.getColumn(writeTimeCol);
                         boundStmt.setLong(columnNumber - 1, col.asLong());
                     }
-                    if (batchSize <= 1) {
+                    else if (partitionWriter != null) {
+                        boundStmt.setLong(columnNumber, partitionWriter.nextTimestamp());
+                    }
+                    if (partitionWriter != null) {
+                        partitionWriter.write(boundStmt);
+                    }
+                    else if (batchSize <= 1) {
                         session.execute(boundStmt);
                     }
                     else {
@@ -165,6 +172,9 @@ public class CassandraWriter
                         }
                     }
                 }
+                if (partitionWriter != null) {
+                    partitionWriter.finish();
+                }
                 if (unConfirmedWrite != null && unConfirmedWrite.size() > 0) {
                     for (ResultSetFuture write : unConfirmedWrite) {
                         write.getUninterruptibly(10000, TimeUnit.MILLISECONDS);
@@ -178,6 +188,14 @@ public class CassandraWriter
                     bufferedWrite.clear();
                 }
             }
+            catch (AddaxException e) {
+                throw e;
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw AddaxException.asAddaxException(
+                        CassandraWriterErrorCode.WRITE_DATA_ERROR, e);
+            }
             catch (Exception e) {
                 throw AddaxException.asAddaxException(
                         CassandraWriterErrorCode.WRITE_DATA_ERROR, e);
@@ -247,7 +265,9 @@ public class CassandraWriter
                 }
                 columnTypes.add(col.getType());
             }
-            if (writeTimeCol != -1) {
+            boolean partitionBatch = taskConfig.getBool(CassandraKey.PARTITION_BATCH, false);
+            if (writeTimeCol != -1 || partitionBatch) {
+                // 按分区写入时，没有配置时间戳列则由写入器为每条记录生成时间戳
                 insertStmt.using(timestamp(QueryBuilder.bindMarker()));
             }
             String cl = taskConfig.getString(CassandraKey.CONSISTENCY_LEVEL);
@@ -260,7 +280,13 @@ public class CassandraWriter
 
             statement = session.prepare(insertStmt);
 
-            if (batchSize > 1) {
+            if (partitionBatch) {
+                // 按分区键分组批量写入，每个节点的并发请求数不超过 maxInFlightPerHost
+                int maxInFlight = taskConfig.getInt(CassandraKey.MAX_IN_FLIGHT_PER_HOST, 32);
+                partitionWriter = new PartitionBatchWriter(session, keyspace, (int) batchSize, maxInFlight,
+                        super.getTaskPluginCollector());
+            }
+            else if (batchSize > 1) {
                 if (asyncWrite) {
                     unConfirmedWrite = new ArrayList<>();
                 }
@@ -273,7 +299,9 @@ public class CassandraWriter
         @Override
         public void destroy()
         {
-
+            if (session != null) {
+                session.getCluster().close();
+            }
         }
     }
 }
@@ -0,0 +1,320 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.wgzhao.addax.plugin.writer.cassandrawriter;
+
+import com.datastax.driver.core.BatchStatement;
+import com.datastax.driver.core.BoundStatement;
+import com.datastax.driver.core.Cluster;
+import com.datastax.driver.core.CodecRegistry;
+import com.datastax.driver.core.Host;
+import com.datastax.driver.core.Metadata;
+import com.datastax.driver.core.ProtocolVersion;
+import com.datastax.driver.core.ResultSetFuture;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Statement;
+import com.datastax.driver.core.exceptions.OperationTimedOutException;
+import com.datastax.driver.core.exceptions.OverloadedException;
+import com.datastax.driver.core.exceptions.WriteTimeoutException;
+import com.wgzhao.addax.common.plugin.TaskPluginCollector;
+import com.wgzhao.addax.common.util.AsyncFailure;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 按分区键分组的异步写入.
+ * <p>
+ * 同一个分区键的记录合并成一个 UNLOGGED BATCH，由持有该分区的节点直接处理，不会在协调节点上再分发到多个节点.
+ * 每个节点同时执行的请求数由信号量控制，上限在 [1, maxInFlightPerHost] 之间按 AIMD 的方式调整：
+ * 出现写超时或节点过载时减半并重试该批次，连续成功时逐步增加.
+ * <p>
+ * 批次可能被重试、同一分区的多个批次可能同时执行，执行的顺序与记录的顺序不一定相同. 因此每条记录在进入写入器时
+ * 通过 {@link #nextTimestamp()} 绑定递增的写入时间戳(USING TIMESTAMP)，后面的记录总是覆盖前面的记录，
+ * 同一批次中同一行的多条记录也是如此.
+ */
+class PartitionBatchWriter
+{
+    private static final Logger LOG = LoggerFactory.getLogger(PartitionBatchWriter.class);
+
+    // 所有分区缓存的记录数达到 batchSize 的多少倍时全部发送
+    private static final int BUFFER_FACTOR = 8;
+    private static final int MAX_RETRIES = 5;
+
+    private final Session session;
+    private final Metadata metadata;
+    private final String keyspace;
+    private final ProtocolVersion protocolVersion;
+    private final CodecRegistry codecRegistry;
+    private final int batchSize;
+    private final int maxInFlightPerHost;
+    private final TaskPluginCollector taskPluginCollector;
+
+    private final Map<ByteBuffer, List<BoundStatement>> partitions = new LinkedHashMap<>();
+    private int bufferedRows = 0;
+
+    private final Map<Host, HostLimiter> limiters = new ConcurrentHashMap<>();
+    // 找不到副本节点时共用的限制
+    private final HostLimiter defaultLimiter;
+    private final Queue<Batch> retries = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger inFlight = new AtomicInteger(0);
+    private final AsyncFailure failure = new AsyncFailure(CassandraWriterErrorCode.WRITE_DATA_ERROR);
+    private long lastTimestamp = 0;
+
+    PartitionBatchWriter(Session session, String keyspace, int batchSize, int maxInFlightPerHost,
+            TaskPluginCollector taskPluginCollector)
+    {
+        Cluster cluster = session.getCluster();
+        this.session = session;
+        this.metadata = cluster.getMetadata();
+        this.keyspace = Metadata.quote(keyspace);
+        this.protocolVersion = cluster.getConfiguration().getProtocolOptions().getProtocolVersion();
+        this.codecRegistry = cluster.getConfiguration().getCodecRegistry();
+        this.batchSize = Math.max(1, batchSize);
+        this.maxInFlightPerHost = Math.max(1, maxInFlightPerHost);
+        this.taskPluginCollector = taskPluginCollector;
+        this.defaultLimiter = new HostLimiter("unknown", this.maxInFlightPerHost);
+        LOG.info("Write with partition batches, batchSize={}, maxInFlightPerHost={}.", this.batchSize, this.maxInFlightPerHost);
+    }
+
+    /**
+     * 下一条记录的写入时间戳(微秒)，严格递增
+     *
+     * @return timestamp in microseconds
+     */
+    long nextTimestamp()
+    {
+        lastTimestamp = Math.max(System.currentTimeMillis() * 1000, lastTimestamp + 1);
+        return lastTimestamp;
+    }
+
+    void write(BoundStatement statement)
+            throws InterruptedException
+    {
+        ByteBuffer routingKey = statement.getRoutingKey(protocolVersion, codecRegistry);
+        if (routingKey == null) {
+            // 无法确定分区，单独发送，不能与其他记录合并成跨分区的批次
+            submit(new Batch(null, Collections.singletonList(statement)));
+            return;
+        }
+        List<BoundStatement> rows = partitions.computeIfAbsent(routingKey, k -> new ArrayList<>());
+        rows.add(statement);
+        bufferedRows++;
+        if (rows.size() >= batchSize) {
+            partitions.remove(routingKey);
+            bufferedRows -= rows.size();
+            submit(new Batch(routingKey, rows));
+        }
+        else if (bufferedRows >= batchSize * BUFFER_FACTOR) {
+            flush();
+        }
+    }
+
+    /**
+     * 发送所有缓存的记录，并等待所有请求完成
+     */
+    void finish()
+            throws InterruptedException
+    {
+        flush();
+        while (inFlight.get() > 0 || !retries.isEmpty()) {
+            failure.check();
+            drainRetries();
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        failure.check();
+        for (HostLimiter limiter : limiters.values()) {
+            LOG.info("Host {} finished with in-flight limit {}, {} timeouts.", limiter.name, limiter.limit, limiter.timeouts);
+        }
+    }
+
+    private void flush()
+            throws InterruptedException
+    {
+        Iterator<Map.Entry<ByteBuffer, List<BoundStatement>>> it = partitions.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<ByteBuffer, List<BoundStatement>> entry = it.next();
+            it.remove();
+            submit(new Batch(entry.getKey(), entry.getValue()));
+        }
+        bufferedRows = 0;
+    }
+
+    private void submit(Batch batch)
+            throws InterruptedException
+    {
+        drainRetries();
+        send(batch);
+    }
+
+    private void drainRetries()
+            throws InterruptedException
+    {
+        Batch batch;
+        while ((batch = retries.poll()) != null) {
+            send(batch);
+        }
+    }
+
+    private void send(Batch batch)
+            throws InterruptedException
+    {
+        HostLimiter limiter = getLimiter(batch.routingKey);
+        failure.acquire(limiter);
+        inFlight.incrementAndGet();
+        long start = System.currentTimeMillis();
+        ResultSetFuture future;
+        try {
+            future = session.executeAsync(batch.toStatement());
+        }
+        catch (RuntimeException e) {
+            limiter.release();
+            inFlight.decrementAndGet();
+            throw e;
+        }
+        // 回调在驱动的 IO 线程中执行，不能阻塞，需要重试的批次交给写入线程发送
+        future.addListener(() -> {
+            try {
+                future.get();
+                limiter.onSuccess();
+                taskPluginCollector.reportLatency(System.currentTimeMillis() - start);
+            }
+            catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (isTimeout(cause) && batch.attempts < MAX_RETRIES) {
+                    limiter.onTimeout();
+                    taskPluginCollector.reportBackpressure();
+                    batch.attempts++;
+                    retries.add(batch);
+                }
+                else {
+                    failure.set(cause);
+                }
+            }
+            catch (Throwable e) {
+                failure.set(e);
+            }
+            finally {
+                limiter.release();
+                inFlight.decrementAndGet();
+            }
+        }, Runnable::run);
+    }
+
+    private HostLimiter getLimiter(ByteBuffer routingKey)
+    {
+        if (routingKey == null) {
+            return defaultLimiter;
+        }
+        Set<Host> replicas = metadata.getReplicas(keyspace, routingKey);
+        if (replicas.isEmpty()) {
+            return defaultLimiter;
+        }
+        Host host = replicas.iterator().next();
+        return limiters.computeIfAbsent(host, h -> new HostLimiter(h.getEndPoint().toString(), maxInFlightPerHost));
+    }
+
+    private static boolean isTimeout(Throwable e)
+    {
+        return e instanceof WriteTimeoutException || e instanceof OperationTimedOutException
+                || e instanceof OverloadedException;
+    }
+
+    private static final class Batch
+    {
+        final ByteBuffer routingKey;
+        final List<BoundStatement> rows;
+        int attempts = 0;
+
+        Batch(ByteBuffer routingKey, List<BoundStatement> rows)
+        {
+            this.routingKey = routingKey;
+            this.rows = rows;
+        }
+
+        Statement toStatement()
+        {
+            if (rows.size() == 1) {
+                return rows.get(0);
+            }
+            BatchStatement batch = new BatchStatement(BatchStatement.Type.UNLOGGED);
+            batch.addAll(rows);
+            // 同一个批次中的语句一致性级别相同
+            batch.setConsistencyLevel(rows.get(0).getConsistencyLevel());
+            return batch;
+        }
+    }
+
+    /*
+     * 单个节点的并发限制. 超时时上限减半，连续成功的请求数达到当前上限时上限加一
+     */
+    private static final class HostLimiter
+            extends Semaphore
+    {
+        final String name;
+        final int max;
+        int limit;
+        int successes = 0;
+        long timeouts = 0;
+
+        HostLimiter(String name, int max)
+        {
+            super(max);
+            this.name = name;
+            this.max = max;
+            this.limit = max;
+        }
+
+        synchronized void onSuccess()
+        {
+            if (limit < max && ++successes >= limit) {
+                successes = 0;
+                limit++;
+                release();
+            }
+        }
+
+        synchronized void onTimeout()
+        {
+            timeouts++;
+            successes = 0;
+            int newLimit = Math.max(1, limit / 2);
+            if (newLimit < limit) {
+                LOG.warn("Write to host {} timed out, reduce the in-flight limit from {} to {}.", name, limit, newLimit);
+                reducePermits(limit - newLimit);
+                limit = newLimit;
+            }
+        }
+    }
+}
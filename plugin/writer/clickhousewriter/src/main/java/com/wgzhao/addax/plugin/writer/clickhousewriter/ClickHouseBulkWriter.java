@@ -0,0 +1,813 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.wgzhao.addax.plugin.writer.clickhousewriter;
+
+import com.wgzhao.addax.common.base.Constant;
+import com.wgzhao.addax.common.element.Column;
+import com.wgzhao.addax.common.element.Record;
+import com.wgzhao.addax.common.exception.AddaxException;
+import com.wgzhao.addax.common.plugin.RecordReceiver;
+import com.wgzhao.addax.common.plugin.TaskPluginCollector;
+import com.wgzhao.addax.common.util.Configuration;
+import com.wgzhao.addax.rdbms.util.DBUtil;
+import com.wgzhao.addax.rdbms.util.DBUtilErrorCode;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ru.yandex.clickhouse.ClickHouseConnection;
+import ru.yandex.clickhouse.ClickHouseDataSource;
+import ru.yandex.clickhouse.ClickHouseStatement;
+import ru.yandex.clickhouse.domain.ClickHouseFormat;
+import ru.yandex.clickhouse.settings.ClickHouseProperties;
+import ru.yandex.clickhouse.util.ClickHouseRowBinaryStream;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TimeZone;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 使用 ClickHouse 原生的 RowBinary 或 TabSeparated 格式批量写入数据，而不是通过 JDBC 的 insert 语句逐行绑定参数.
+ * 每一列的编码方式在初始化时根据 {@code DESCRIBE TABLE} 的结果确定，写入时记录直接编码到可复用的字节缓冲区中，
+ * 缓冲区满(按行数或字节数)后交给发送线程，写线程继续填充下一个空闲缓冲区.
+ * 如果开启了 parallelShards 且目标表是 Distributed 表，数据块会轮询写入各个分片的本地表.
+ */
+public class ClickHouseBulkWriter
+{
+    private static final Logger LOG = LoggerFactory.getLogger(ClickHouseBulkWriter.class);
+
+    private static final int DEFAULT_BATCH_SIZE = 65536;
+    private static final Pattern WRAPPED_TYPE = Pattern.compile("^(Nullable|LowCardinality)\\((.+)\\)$");
+    private static final Pattern DECIMAL_TYPE = Pattern.compile("^Decimal(32|64|128)?\\((\\d+)(?:,\\s*(\\d+))?\\)$");
+    private static final Pattern FIXED_STRING_TYPE = Pattern.compile("^FixedString\\((\\d+)\\)$");
+    private static final Pattern DATETIME64_TYPE = Pattern.compile("^DateTime64\\((\\d+).*\\)$");
+    private static final Pattern DISTRIBUTED_ENGINE = Pattern.compile("^Distributed\\s*\\(");
+    private static final Pattern JDBC_URL_HOST = Pattern.compile("^jdbc:clickhouse://(\\[[^]]*]|[^:/?]+)");
+    private static final byte[] TSV_NULL = "\\N".getBytes(StandardCharsets.UTF_8);
+
+    private final Configuration configuration;
+
+    private boolean rowBinary;
+    private int batchSize;
+    private int batchByteSize;
+    private TimeZone timeZone;
+    private ColumnEncoder[] encoders;
+    private List<Target> targets;
+    private int nextTarget = 0;
+    private BlockingQueue<Block> freeBlocks;
+    private final AtomicReference<Throwable> sendError = new AtomicReference<>();
+
+    public ClickHouseBulkWriter(Configuration configuration) {this.configuration = configuration;}
+
+    public void init()
+    {
+        String format = configuration.getString(ClickHouseKey.BULK_FORMAT);
+        if ("RowBinary".equalsIgnoreCase(format)) {
+            this.rowBinary = true;
+        }
+        else if (!"TabSeparated".equalsIgnoreCase(format)) {
+            throw AddaxException.asAddaxException(DBUtilErrorCode.ILLEGAL_VALUE,
+                    String.format("The %s [%s] is not supported, it should be one of none, RowBinary, TabSeparated",
+                            ClickHouseKey.BULK_FORMAT, format));
+        }
+        String compress = configuration.getString(ClickHouseKey.COMPRESS, "none");
+        if (!"none".equalsIgnoreCase(compress) && !"lz4".equalsIgnoreCase(compress)) {
+            throw AddaxException.asAddaxException(DBUtilErrorCode.ILLEGAL_VALUE,
+                    String.format("The %s [%s] is not supported, it should be none or lz4", ClickHouseKey.COMPRESS, compress));
+        }
+        this.batchSize = configuration.getInt(ClickHouseKey.BATCH_SIZE, DEFAULT_BATCH_SIZE);
+        this.batchByteSize = configuration.getInt(ClickHouseKey.BATCH_BYTE_SIZE, Constant.DEFAULT_BATCH_BYTE_SIZE);
+
+        String jdbcUrl = configuration.getString(ClickHouseKey.JDBC_URL);
+        String table = configuration.getString(ClickHouseKey.TABLE);
+        List<String> columns = new ArrayList<>();
+        for (String column : configuration.getList(ClickHouseKey.COLUMN, String.class)) {
+            columns.add(unquote(column));
+        }
+
+        Properties properties = new Properties();
+        properties.setProperty("user", configuration.getString(ClickHouseKey.USERNAME));
+        properties.setProperty("password", configuration.getString(ClickHouseKey.PASSWORD, ""));
+        // decompress 表示服务端需要解压请求体，驱动会使用 LZ4 压缩发送的数据
+        properties.setProperty("decompress", String.valueOf("lz4".equalsIgnoreCase(compress)));
+
+        ClickHouseDataSource dataSource = new ClickHouseDataSource(jdbcUrl, properties);
+        ClickHouseConnection conn = connect(dataSource);
+        this.timeZone = conn.getTimeZone();
+        Map<String, String> columnTypes = describe(conn, table);
+        this.encoders = new ColumnEncoder[columns.size()];
+        for (int i = 0; i < columns.size(); i++) {
+            String type = columnTypes.get(columns.get(i));
+            if (type == null) {
+                throw AddaxException.asAddaxException(DBUtilErrorCode.ILLEGAL_VALUE,
+                        String.format("The column [%s] does not exist in table [%s]", columns.get(i), table));
+            }
+            this.encoders[i] = createEncoder(columns.get(i), type);
+        }
+
+        String columnList = " (" + StringUtils.join(columns, ",") + ")";
+        this.targets = new ArrayList<>();
+        if (configuration.getBool(ClickHouseKey.PARALLEL_SHARDS, false)) {
+            for (String[] shard : resolveShards(conn, jdbcUrl, table)) {
+                ClickHouseDataSource shardSource = new ClickHouseDataSource(shard[0], properties);
+                this.targets.add(new Target(connect(shardSource), "INSERT INTO " + shard[1] + columnList));
+            }
+        }
+        if (this.targets.isEmpty()) {
+            this.targets.add(new Target(conn, "INSERT INTO " + table + columnList));
+        }
+        else {
+            DBUtil.closeDBResources(null, conn);
+            LOG.info("Write to {} shards of the distributed table [{}] in parallel", this.targets.size(), table);
+        }
+
+        this.freeBlocks = new ArrayBlockingQueue<>(this.targets.size() + 1);
+        for (int i = 0; i <= this.targets.size(); i++) {
+            this.freeBlocks.add(new Block());
+        }
+    }
+
+    public void startWrite(RecordReceiver recordReceiver, TaskPluginCollector taskPluginCollector)
+    {
+        Record record;
+        Block block = takeBlock();
+        ClickHouseRowBinaryStream stream = block.stream;
+        while ((record = recordReceiver.getFromReader()) != null) {
+            if (record.getColumnNumber() != this.encoders.length) {
+                throw AddaxException.asAddaxException(DBUtilErrorCode.CONF_ERROR,
+                        String.format("列配置信息有错误. 因为您配置的任务中，源头读取字段数:%s 与 目的表要写入的字段数:%s 不相等. 请检查您的配置并作出修改.",
+                                record.getColumnNumber(), this.encoders.length));
+            }
+            int mark = block.size();
+            try {
+                for (int i = 0; i < this.encoders.length; i++) {
+                    if (this.rowBinary) {
+                        this.encoders[i].writeBinary(stream, record.getColumn(i));
+                    }
+                    else {
+                        if (i > 0) {
+                            block.write('\t');
+                        }
+                        this.encoders[i].writeText(block, record.getColumn(i));
+                    }
+                }
+                if (!this.rowBinary) {
+                    block.write('\n');
+                }
+            }
+            catch (Exception e) {
+                // 丢弃已编码的部分，保证数据块中只包含完整的行
+                block.rollback(mark);
+                taskPluginCollector.collectDirtyRecord(record, e);
+                continue;
+            }
+            block.rows++;
+            if (block.rows >= this.batchSize || block.size() >= this.batchByteSize) {
+                submit(block);
+                block = takeBlock();
+                stream = block.stream;
+            }
+        }
+        if (block.rows > 0) {
+            submit(block);
+        }
+        else {
+            this.freeBlocks.add(block);
+        }
+        waitForSends();
+    }
+
+    private void submit(Block block)
+    {
+        checkSendError();
+        Target target = this.targets.get(this.nextTarget);
+        this.nextTarget = (this.nextTarget + 1) % this.targets.size();
+        ClickHouseFormat format = this.rowBinary ? ClickHouseFormat.RowBinary : ClickHouseFormat.TabSeparated;
+        target.executor.submit(() -> {
+            try {
+                if (sendError.get() == null) {
+                    try (ClickHouseStatement stmt = target.conn.createStatement()) {
+                        stmt.write().send(target.insertSql,
+                                new ByteArrayInputStream(block.getBuffer(), 0, block.size()), format);
+                    }
+                    LOG.debug("{} rows({} bytes) have been written", block.rows, block.size());
+                }
+            }
+            catch (Throwable e) {
+                sendError.compareAndSet(null, e);
+            }
+            finally {
+                block.clear();
+                freeBlocks.add(block);
+            }
+        });
+    }
+
+    private Block takeBlock()
+    {
+        try {
+            return this.freeBlocks.take();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw AddaxException.asAddaxException(DBUtilErrorCode.WRITE_DATA_ERROR, "Interrupted while waiting for bulk insert", e);
+        }
+    }
+
+    private void waitForSends()
+    {
+        for (Target target : this.targets) {
+            target.executor.shutdown();
+        }
+        try {
+            for (Target target : this.targets) {
+                while (!target.executor.awaitTermination(1, TimeUnit.SECONDS)) {
+                    LOG.debug("waiting for the bulk inserts to finish");
+                }
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw AddaxException.asAddaxException(DBUtilErrorCode.WRITE_DATA_ERROR, "Interrupted while waiting for bulk insert", e);
+        }
+        checkSendError();
+    }
+
+    private void checkSendError()
+    {
+        Throwable e = this.sendError.get();
+        if (e != null) {
+            throw AddaxException.asAddaxException(DBUtilErrorCode.WRITE_DATA_ERROR, e);
+        }
+    }
+
+    public void destroy()
+    {
+        if (this.targets == null) {
+            return;
+        }
+        for (Target target : this.targets) {
+            target.executor.shutdownNow();
+            DBUtil.closeDBResources(null, target.conn);
+        }
+    }
+
+    private static ClickHouseConnection connect(ClickHouseDataSource dataSource)
+    {
+        try {
+            return dataSource.getConnection();
+        }
+        catch (SQLException e) {
+            throw AddaxException.asAddaxException(DBUtilErrorCode.CONN_DB_ERROR,
+                    "Failed to connect to " + dataSource.getUrl(), e);
+        }
+    }
+
+    private static Map<String, String> describe(ClickHouseConnection conn, String table)
+    {
+        Map<String, String> columnTypes = new HashMap<>();
+        String sql = "DESCRIBE TABLE " + table;
+        ResultSet rs = null;
+        try {
+            rs = DBUtil.query(conn, sql, 1);
+            while (rs.next()) {
+                columnTypes.put(rs.getString("name"), rs.getString("type"));
+            }
+        }
+        catch (SQLException e) {
+            throw AddaxException.asAddaxException(DBUtilErrorCode.GET_COLUMN_INFO_FAILED,
+                    "Failed to get the column types by sql: " + sql, e);
+        }
+        finally {
+            DBUtil.closeDBResources(rs, null, null);
+        }
+        return columnTypes;
+    }
+
+    /*
+     * 如果 table 是 Distributed 表，返回每个分片第一个副本的 jdbc url 以及对应的本地表名，否则返回空列表.
+     * 分片使用与配置的 jdbcUrl 相同的 HTTP 端口. 数据块按轮询方式写入各个分片，
+     * 因此只适用于分片键是 rand() 或者不关心数据落在哪个分片的场景
+     */
+    /*
+     * 返回 Distributed 表各分片第一个副本的 {jdbcUrl, 本地表}，不是 Distributed 表时返回空列表
+     */
+    private static List<String[]> resolveShards(ClickHouseConnection conn, String jdbcUrl, String table)
+    {
+        List<String[]> shards = new ArrayList<>();
+        String database = "currentDatabase()";
+        String name = table;
+        if (table.contains(".")) {
+            database = "?";
+            name = StringUtils.substringAfter(table, ".");
+        }
+        ResultSet rs = null;
+        PreparedStatement ps = null;
+        try {
+            ps = conn.prepareStatement("SELECT database, engine, engine_full FROM system.tables WHERE database = "
+                    + database + " AND name = ?");
+            int index = 1;
+            if (table.contains(".")) {
+                ps.setString(index++, unquote(StringUtils.substringBefore(table, ".")));
+            }
+            ps.setString(index, unquote(name));
+            rs = ps.executeQuery();
+            String[] target = rs.next() && "Distributed".equals(rs.getString(2))
+                    ? distributedTarget(rs.getString(3), rs.getString(1)) : null;
+            DBUtil.closeDBResources(rs, ps, null);
+            if (target == null) {
+                LOG.warn("The table [{}] is not a Distributed table, the parameter [{}] is ignored",
+                        table, ClickHouseKey.PARALLEL_SHARDS);
+                return shards;
+            }
+            String localTable = quoteIdentifier(target[1]) + "." + quoteIdentifier(target[2]);
+
+            ps = conn.prepareStatement("SELECT host_name FROM system.clusters WHERE cluster = ? AND replica_num = 1 ORDER BY shard_num");
+            ps.setString(1, target[0]);
+            rs = ps.executeQuery();
+            while (rs.next()) {
+                shards.add(new String[] {shardUrl(jdbcUrl, rs.getString(1)), localTable});
+            }
+            if (shards.isEmpty()) {
+                LOG.warn("The cluster [{}] of the table [{}] is not found in system.clusters, the parameter [{}] is ignored",
+                        target[0], table, ClickHouseKey.PARALLEL_SHARDS);
+            }
+        }
+        catch (SQLException e) {
+            throw AddaxException.asAddaxException(DBUtilErrorCode.SQL_EXECUTE_FAIL,
+                    "Failed to get the shards of the table " + table, e);
+        }
+        finally {
+            DBUtil.closeDBResources(rs, ps, null);
+        }
+        return shards;
+    }
+
+    /*
+     * 从 system.tables 的 engine_full 中取出 Distributed(cluster, database, table[, sharding_key[, policy]]) 的前三个参数，
+     * 返回 {cluster, database, table}. system.tables 中没有单独的字段保存这些参数，因此按参数列表解析，
+     * 参数可能带引号，分片键中也可能包含逗号和括号，例如 cityHash64(a, b).
+     * database 参数为 currentDatabase() 时使用 Distributed 表所在的库
+     */
+    static String[] distributedTarget(String engineFull, String tableDatabase)
+    {
+        List<String> args = engineArguments(engineFull);
+        if (args.size() < 3) {
+            return null;
+        }
+        String database = args.get(1);
+        if (database.isEmpty() || database.replace(" ", "").equalsIgnoreCase("currentDatabase()")) {
+            database = tableDatabase;
+        }
+        return new String[] {unquote(args.get(0)), unquote(database), unquote(args.get(2))};
+    }
+
+    /*
+     * 拆分 Distributed(...) 中的顶层参数，忽略引号和嵌套括号中的逗号
+     */
+    static List<String> engineArguments(String engineFull)
+    {
+        List<String> args = new ArrayList<>();
+        Matcher matcher = engineFull == null ? null : DISTRIBUTED_ENGINE.matcher(engineFull.trim());
+        if (matcher == null || !matcher.find()) {
+            return args;
+        }
+        String text = engineFull.trim().substring(matcher.end());
+        StringBuilder current = new StringBuilder();
+        int depth = 0;
+        char quote = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (quote != 0) {
+                current.append(c);
+                if (c == '\\' && i + 1 < text.length()) {
+                    current.append(text.charAt(++i));
+                }
+                else if (c == quote) {
+                    quote = 0;
+                }
+                continue;
+            }
+            if (c == '\'' || c == '"' || c == '`') {
+                quote = c;
+            }
+            else if (c == '(') {
+                depth++;
+            }
+            else if (c == ')') {
+                if (depth == 0) {
+                    args.add(current.toString().trim());
+                    return args;
+                }
+                depth--;
+            }
+            else if (c == ',' && depth == 0) {
+                args.add(current.toString().trim());
+                current.setLength(0);
+                continue;
+            }
+            current.append(c);
+        }
+        // 括号不匹配，无法确定参数
+        return new ArrayList<>();
+    }
+
+    /*
+     * 将 jdbcUrl 中的主机替换为分片的主机，保留端口、库名以及 ssl、socket_timeout 等参数
+     */
+    static String shardUrl(String jdbcUrl, String host)
+    {
+        Matcher matcher = JDBC_URL_HOST.matcher(jdbcUrl);
+        if (!matcher.find()) {
+            throw AddaxException.asAddaxException(DBUtilErrorCode.ILLEGAL_VALUE,
+                    String.format("Can not get the host from the jdbcUrl [%s]", jdbcUrl));
+        }
+        if (host.contains(":") && !host.startsWith("[")) {
+            host = "[" + host + "]";
+        }
+        return jdbcUrl.substring(0, matcher.start(1)) + host + jdbcUrl.substring(matcher.end(1));
+    }
+
+    private static String quoteIdentifier(String name)
+    {
+        return "`" + name.replace("\\", "\\\\").replace("`", "\\`") + "`";
+    }
+
+    private static String unquote(String name)
+    {
+        return StringUtils.strip(name.trim(), "`'\"");
+    }
+
+    private ColumnEncoder createEncoder(String column, String type)
+    {
+        Matcher wrapped = WRAPPED_TYPE.matcher(type);
+        if (wrapped.matches()) {
+            ColumnEncoder inner = createEncoder(column, wrapped.group(2));
+            if ("LowCardinality".equals(wrapped.group(1))) {
+                return inner;
+            }
+            return new NullableEncoder(inner);
+        }
+
+        Matcher decimal = DECIMAL_TYPE.matcher(type);
+        if (decimal.matches()) {
+            int bits;
+            int scale;
+            if (decimal.group(1) != null) {
+                // Decimal32(S), Decimal64(S), Decimal128(S)
+                bits = Integer.parseInt(decimal.group(1));
+                scale = Integer.parseInt(decimal.group(2));
+            }
+            else {
+                // Decimal(P, S)
+                int precision = Integer.parseInt(decimal.group(2));
+                bits = precision <= 9 ? 32 : (precision <= 18 ? 64 : 128);
+                scale = decimal.group(3) == null ? 0 : Integer.parseInt(decimal.group(3));
+            }
+            return new DecimalEncoder(bits, scale);
+        }
+
+        Matcher fixedString = FIXED_STRING_TYPE.matcher(type);
+        if (fixedString.matches()) {
+            int length = Integer.parseInt(fixedString.group(1));
+            return (ColumnEncoder.Binary) (out, col) -> {
+                byte[] bytes = new byte[length];
+                byte[] value = col.asString().getBytes(StandardCharsets.UTF_8);
+                System.arraycopy(value, 0, bytes, 0, Math.min(value.length, length));
+                out.writeBytes(bytes);
+            };
+        }
+
+        Matcher dateTime64 = DATETIME64_TYPE.matcher(type);
+        if (dateTime64.matches()) {
+            int precision = Integer.parseInt(dateTime64.group(1));
+            return new DateTimeEncoder("yyyy-MM-dd HH:mm:ss.SSS", this.timeZone) {
+                @Override
+                public void writeBinary(ClickHouseRowBinaryStream out, Column col)
+                        throws IOException
+                {
+                    long millis = col.asDate().getTime();
+                    out.writeInt64(precision >= 3 ? millis * (long) Math.pow(10, precision - 3)
+                            : millis / (long) Math.pow(10, 3 - precision));
+                }
+            };
+        }
+
+        if (type.startsWith("DateTime")) {
+            return new DateTimeEncoder(Constant.DEFAULT_DATE_FORMAT, this.timeZone) {
+                @Override
+                public void writeBinary(ClickHouseRowBinaryStream out, Column col)
+                        throws IOException
+                {
+                    out.writeDateTime(col.asDate());
+                }
+            };
+        }
+
+        switch (type) {
+            case "Int8":
+                return (ColumnEncoder.Binary) (out, col) -> out.writeInt8(col.asLong().intValue());
+            case "UInt8":
+                return (ColumnEncoder.Binary) (out, col) -> out.writeUInt8(col.asLong().intValue());
+            case "Int16":
+                return (ColumnEncoder.Binary) (out, col) -> out.writeInt16(col.asLong().intValue());
+            case "UInt16":
+                return (ColumnEncoder.Binary) (out, col) -> out.writeUInt16(col.asLong().intValue());
+            case "Int32":
+                return (ColumnEncoder.Binary) (out, col) -> out.writeInt32(col.asLong().intValue());
+            case "UInt32":
+                return (ColumnEncoder.Binary) (out, col) -> out.writeUInt32(col.asLong());
+            case "Int64":
+                return (ColumnEncoder.Binary) (out, col) -> out.writeInt64(col.asLong());
+            case "UInt64":
+                // UInt64 与 Int64 的二进制表示相同，取低 64 位即可
+                return (ColumnEncoder.Binary) (out, col) -> out.writeInt64(col.asBigInteger().longValue());
+            case "Float32":
+                return (ColumnEncoder.Binary) (out, col) -> out.writeFloat32(col.asDouble().floatValue());
+            case "Float64":
+                return (ColumnEncoder.Binary) (out, col) -> out.writeFloat64(col.asDouble());
+            case "String":
+                return (ColumnEncoder.Binary) (out, col) -> {
+                    byte[] value = col.asString().getBytes(StandardCharsets.UTF_8);
+                    out.writeUnsignedLeb128(value.length);
+                    out.writeBytes(value);
+                };
+            case "UUID":
+                return (ColumnEncoder.Binary) (out, col) -> out.writeUUID(UUID.fromString(col.asString()));
+            case "Date":
+                return new DateTimeEncoder("yyyy-MM-dd", this.timeZone) {
+                    @Override
+                    public void writeBinary(ClickHouseRowBinaryStream out, Column col)
+                            throws IOException
+                    {
+                        out.writeDate(col.asDate());
+                    }
+                };
+            default:
+                if (this.rowBinary) {
+                    throw AddaxException.asAddaxException(DBUtilErrorCode.UNSUPPORTED_TYPE,
+                            String.format("The type [%s] of column [%s] is not supported by RowBinary format, "
+                                    + "please use TabSeparated format instead", type, column));
+                }
+                // TabSeparated 格式由服务端解析文本，其他类型(如 Array、Map、Enum、IPv4)直接写入字符串
+                return new TextEncoder(type);
+        }
+    }
+
+    /**
+     * 单列的编码器，在初始化时根据列类型创建，写入时不再需要判断类型
+     */
+    private interface ColumnEncoder
+    {
+        void writeBinary(ClickHouseRowBinaryStream out, Column col)
+                throws IOException;
+
+        /*
+         * TabSeparated 格式的编码，默认写入字符串并转义特殊字符
+         */
+        default void writeText(Block block, Column col)
+        {
+            block.writeEscaped(requireNonNull(col).asString());
+        }
+
+        /*
+         * 非 Nullable 类型，遇到 null 时直接报错，对应的记录会被视为脏数据
+         */
+        @FunctionalInterface
+        interface Binary
+                extends ColumnEncoder
+        {
+            void encode(ClickHouseRowBinaryStream out, Column col)
+                    throws IOException;
+
+            @Override
+            default void writeBinary(ClickHouseRowBinaryStream out, Column col)
+                    throws IOException
+            {
+                encode(out, requireNonNull(col));
+            }
+        }
+    }
+
+    private static final class NullableEncoder
+            implements ColumnEncoder
+    {
+        private final ColumnEncoder inner;
+
+        NullableEncoder(ColumnEncoder inner) {this.inner = inner;}
+
+        @Override
+        public void writeBinary(ClickHouseRowBinaryStream out, Column col)
+                throws IOException
+        {
+            boolean isNull = col.getRawData() == null;
+            out.markNextNullable(isNull);
+            if (!isNull) {
+                inner.writeBinary(out, col);
+            }
+        }
+
+        @Override
+        public void writeText(Block block, Column col)
+        {
+            if (col.getRawData() == null) {
+                block.write(TSV_NULL, 0, TSV_NULL.length);
+                return;
+            }
+            inner.writeText(block, col);
+        }
+    }
+
+    /*
+     * 非 Nullable 的列不能写入 null，否则服务端会写入默认值或者拒绝整个数据块
+     */
+    private static Column requireNonNull(Column col)
+    {
+        if (col.getRawData() == null) {
+            throw new IllegalArgumentException("The column is not Nullable, but the value is null");
+        }
+        return col;
+    }
+
+    /*
+     * 只能用于 TabSeparated 格式的类型，RowBinary 格式在 init 时已经拒绝了这些类型
+     */
+    private static final class TextEncoder
+            implements ColumnEncoder
+    {
+        private final String type;
+
+        TextEncoder(String type) {this.type = type;}
+
+        @Override
+        public void writeBinary(ClickHouseRowBinaryStream out, Column col)
+        {
+            throw AddaxException.asAddaxException(DBUtilErrorCode.UNSUPPORTED_TYPE,
+                    String.format("The type [%s] is not supported by RowBinary format", type));
+        }
+    }
+
+    private static final class DecimalEncoder
+            implements ColumnEncoder.Binary
+    {
+        private final int bits;
+        private final int scale;
+
+        DecimalEncoder(int bits, int scale)
+        {
+            this.bits = bits;
+            this.scale = scale;
+        }
+
+        @Override
+        public void encode(ClickHouseRowBinaryStream out, Column col)
+                throws IOException
+        {
+            BigDecimal value = col.asBigDecimal();
+            if (bits == 32) {
+                out.writeDecimal32(value, scale);
+            }
+            else if (bits == 64) {
+                out.writeDecimal64(value, scale);
+            }
+            else {
+                out.writeDecimal128(value, scale);
+            }
+        }
+    }
+
+    /*
+     * 日期时间类型在 TabSeparated 格式中按服务端时区格式化，避免依赖上游字段的字符串格式
+     */
+    private abstract static class DateTimeEncoder
+            implements ColumnEncoder
+    {
+        private final DateTimeFormatter formatter;
+
+        DateTimeEncoder(String pattern, TimeZone timeZone)
+        {
+            ZoneId zoneId = timeZone == null ? ZoneId.systemDefault() : timeZone.toZoneId();
+            this.formatter = DateTimeFormatter.ofPattern(pattern).withZone(zoneId);
+        }
+
+        @Override
+        public void writeText(Block block, Column col)
+        {
+            block.writeEscaped(formatter.format(Instant.ofEpochMilli(requireNonNull(col).asDate().getTime())));
+        }
+    }
+
+    private static final class Target
+    {
+        final ClickHouseConnection conn;
+        final String insertSql;
+        // 每个目标一个发送线程，保证同一个连接上不会有并发的请求
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        Target(ClickHouseConnection conn, String insertSql)
+        {
+            this.conn = conn;
+            this.insertSql = insertSql;
+        }
+    }
+
+    /*
+     * 可复用的字节缓冲区，直接暴露内部数组以避免发送时的拷贝
+     */
+    private final class Block
+            extends ByteArrayOutputStream
+    {
+        final ClickHouseRowBinaryStream stream;
+        int rows = 0;
+
+        Block()
+        {
+            super(64 * 1024);
+            this.stream = new ClickHouseRowBinaryStream(this, timeZone, new ClickHouseProperties());
+        }
+
+        byte[] getBuffer()
+        {
+            return this.buf;
+        }
+
+        void rollback(int mark)
+        {
+            this.count = mark;
+        }
+
+        /*
+         * UTF-8 编码中多字节字符的每个字节都大于 0x7F，因此可以直接按字节转义
+         */
+        void writeEscaped(String value)
+        {
+            for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+                switch (b) {
+                    case '\\':
+                        write('\\');
+                        write('\\');
+                        break;
+                    case '\t':
+                        write('\\');
+                        write('t');
+                        break;
+                    case '\n':
+                        write('\\');
+                        write('n');
+                        break;
+                    case '\r':
+                        write('\\');
+                        write('r');
+                        break;
+                    default:
+                        write(b);
+                }
+            }
+        }
+
+        void clear()
+        {
+            reset();
+            this.rows = 0;
+        }
+    }
+}
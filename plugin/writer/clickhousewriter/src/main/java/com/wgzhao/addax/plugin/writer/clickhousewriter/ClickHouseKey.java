@@ -0,0 +1,33 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.wgzhao.addax.plugin.writer.clickhousewriter;
+
+import com.wgzhao.addax.common.base.Key;
+
+public final class ClickHouseKey
+        extends Key
+{
+    // 批量写入的数据格式, none 表示使用 JDBC 的 insert 语句, 可选 RowBinary, TabSeparated. string type
+    public static final String BULK_FORMAT = "bulkFormat";
+    // 写入 Distributed 表时，是否直接并行写入每个分片的本地表. boolean type
+    public static final String PARALLEL_SHARDS = "parallelShards";
+
+    private ClickHouseKey() {}
+}
@@ -78,6 +78,8 @@ public class ClickHouseWriter
 
         private CommonRdbmsWriter.Task commonRdbmsWriterSlave;
 
+        private ClickHouseBulkWriter bulkWriter;
+
         @Override
         public void init()
         {
@@ -86,6 +88,13 @@ public class ClickHouseWriter
             this.commonRdbmsWriterSlave = new CommonRdbmsWriter.Task(DATABASE_TYPE);
 
             this.commonRdbmsWriterSlave.init(this.writerSliceConfig);
+
+            // 配置了 bulkFormat 时使用原生格式批量写入，否则使用 JDBC insert 语句
+            String bulkFormat = this.writerSliceConfig.getString(ClickHouseKey.BULK_FORMAT, "none");
+            if (!"none".equalsIgnoreCase(bulkFormat)) {
+                this.bulkWriter = new ClickHouseBulkWriter(this.writerSliceConfig);
+                this.bulkWriter.init();
+            }
         }
 
         @Override
@@ -97,7 +106,11 @@ public class ClickHouseWriter
         @Override
         public void startWrite(RecordReceiver recordReceiver)
         {
-            this.commonRdbmsWriterSlave.startWrite(recordReceiver, this.writerSliceConfig, super.getTaskPluginCollector());
+            if (this.bulkWriter != null) {
+                this.bulkWriter.startWrite(recordReceiver, super.getTaskPluginCollector());
+                return;
+            }
+            this.commonRdbmsWriterSlave.startWrite(recordReceiver, this.writerSliceConfig, super.getTaskPluginCollector(), getTaskCheckpoint());
         }
 
         @Override
@@ -109,6 +122,9 @@ public class ClickHouseWriter
         @Override
         public void destroy()
         {
+            if (this.bulkWriter != null) {
+                this.bulkWriter.destroy();
+            }
             this.commonRdbmsWriterSlave.destroy(this.writerSliceConfig);
         }
     }
@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package com.wgzhao.addax.plugin.writer.clickhousewriter;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TestShardResolution
+{
+    @Test
+    public void testPlainArguments()
+    {
+        assertArrayEquals(new String[] {"ck_cluster", "default", "orders_local"},
+                ClickHouseBulkWriter.distributedTarget("Distributed('ck_cluster', 'default', 'orders_local', rand())", "db"));
+        assertArrayEquals(new String[] {"ck_cluster", "default", "orders_local"},
+                ClickHouseBulkWriter.distributedTarget("Distributed(ck_cluster, default, orders_local)", "db"));
+    }
+
+    @Test
+    public void testShardingKeyWithCommas()
+    {
+        String engine = "Distributed('ck_cluster', 'default', 'orders_local', cityHash64(user_id, toDate(ts)), 'policy')";
+        assertEquals(Arrays.asList("'ck_cluster'", "'default'", "'orders_local'", "cityHash64(user_id, toDate(ts))", "'policy'"),
+                ClickHouseBulkWriter.engineArguments(engine));
+        assertArrayEquals(new String[] {"ck_cluster", "default", "orders_local"},
+                ClickHouseBulkWriter.distributedTarget(engine, "db"));
+    }
+
+    @Test
+    public void testQuotedNames()
+    {
+        assertArrayEquals(new String[] {"ck,cluster", "my db", "orders(local)"},
+                ClickHouseBulkWriter.distributedTarget("Distributed('ck,cluster', `my db`, \"orders(local)\", rand())", "db"));
+        assertEquals(Arrays.asList("'a\\'b'", "'db'", "'t'"),
+                ClickHouseBulkWriter.engineArguments("Distributed('a\\'b', 'db', 't')"));
+    }
+
+    @Test
+    public void testCurrentDatabase()
+    {
+        assertArrayEquals(new String[] {"ck_cluster", "analytics", "orders_local"},
+                ClickHouseBulkWriter.distributedTarget("Distributed('ck_cluster', currentDatabase(), 'orders_local')", "analytics"));
+    }
+
+    @Test
+    public void testNotDistributed()
+    {
+        assertNull(ClickHouseBulkWriter.distributedTarget("MergeTree ORDER BY id SETTINGS index_granularity = 8192", "db"));
+        assertNull(ClickHouseBulkWriter.distributedTarget("Distributed('ck_cluster')", "db"));
+        assertTrue(ClickHouseBulkWriter.engineArguments("Distributed('ck_cluster', 'db', 't'").isEmpty());
+    }
+
+    @Test
+    public void testShardUrlKeepsParameters()
+    {
+        assertEquals("jdbc:clickhouse://ck-shard-2:8443/default?ssl=true&socket_timeout=600000&compress=1",
+                ClickHouseBulkWriter.shardUrl("jdbc:clickhouse://ck-lb.example.com:8443/default?ssl=true&socket_timeout=600000&compress=1",
+                        "ck-shard-2"));
+        assertEquals("jdbc:clickhouse://10.0.0.2:8123/db",
+                ClickHouseBulkWriter.shardUrl("jdbc:clickhouse://127.0.0.1:8123/db", "10.0.0.2"));
+        assertEquals("jdbc:clickhouse://[::2]:8123?user=u",
+                ClickHouseBulkWriter.shardUrl("jdbc:clickhouse://[::1]:8123?user=u", "::2"));
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.wgzhao.addax.plugin.writer.doriswriter;
+
+import com.wgzhao.addax.common.base.Key;
+
+public final class DorisKey extends Key
+{
+    // The max number of stream loads in flight for each task. numeric type
+    public static final String MAX_IN_FLIGHT = "maxInFlight";
+    // The max retry times of each stream load, the same label is used when retrying. numeric type
+    public static final String MAX_RETRIES = "maxRetries";
+    // The prefix of stream load label. string type
+    public static final String LABEL_PREFIX = "labelPrefix";
+    // Internal, generated once per job run and shared by all tasks, so a failed-over task reuses the labels. string type
+    public static final String LABEL_JOB_ID = "labelJobId";
+
+    private DorisKey() {}
+}
@@ -0,0 +1,254 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.wgzhao.addax.plugin.writer.doriswriter;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import com.wgzhao.addax.common.exception.AddaxException;
+import net.jpountz.lz4.LZ4FrameOutputStream;
+import org.apache.commons.codec.binary.Base64;
+import org.apache.http.HttpHeaders;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPut;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultRedirectStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.util.EntityUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Send stream load requests to Doris FE/BE with a pooled http client.
+ * The same client is shared by all the concurrent loads of one task, and the endpoints are used in turn.
+ * Each load is identified by a label, retrying with the same label makes the load exactly-once,
+ * because Doris rejects a label which has been loaded successfully.
+ */
+public class DorisStreamLoader
+        implements Closeable
+{
+    private static final Logger LOG = LoggerFactory.getLogger(DorisStreamLoader.class);
+
+    public static final String SEPARATOR = "|";
+
+    private static final String RESULT_SUCCESS = "Success";
+    private static final String RESULT_PUBLISH_TIMEOUT = "Publish Timeout";
+    private static final String RESULT_LABEL_EXISTED = "Label Already Exists";
+    private static final String EXISTING_JOB_FINISHED = "FINISHED";
+
+    private final List<String> loadUrls = new ArrayList<>();
+    private final String authHeader;
+    private final List<String> columns;
+    private final String format;
+    private final String compress;
+    private final int maxRetries;
+    private final CloseableHttpClient httpClient;
+    private final AtomicInteger nextUrl = new AtomicInteger(0);
+
+    public DorisStreamLoader(List<String> endpoints, String database, String table, String username, String password,
+            List<String> columns, String format, String compress, int maxRetries, int maxConnections)
+    {
+        for (String endpoint : endpoints) {
+            this.loadUrls.add(String.format("%s/api/%s/%s/_stream_load", endpoint.trim().replaceAll("/+$", ""), database, table));
+        }
+        if (username != null && password != null) {
+            byte[] encoded = Base64.encodeBase64((username + ":" + password).getBytes(StandardCharsets.UTF_8));
+            this.authHeader = "Basic " + new String(encoded);
+        }
+        else {
+            this.authHeader = null;
+        }
+        this.columns = columns;
+        this.format = format;
+        this.compress = compress;
+        this.maxRetries = maxRetries;
+
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnections);
+        this.httpClient = HttpClients
+                .custom()
+                .setConnectionManager(connectionManager)
+                .setRedirectStrategy(new DefaultRedirectStrategy()
+                {
+                    @Override
+                    protected boolean isRedirectable(String method)
+                    {
+                        return true;
+                    }
+                })
+                .build();
+        LOG.info("connect DorisDB with {}", this.loadUrls);
+    }
+
+    /**
+     * Load one batch, retry with the same label on another endpoint if failed
+     *
+     * @param label the label of this load
+     * @param data the payload buffer
+     * @param length the valid length of payload
+     * @param rows the number of rows in payload
+     */
+    public void load(String label, byte[] data, int length, int rows)
+    {
+        byte[] body = data;
+        int bodyLength = length;
+        if (!"none".equals(compress)) {
+            body = compress(data, length);
+            bodyLength = body.length;
+        }
+        long start = System.currentTimeMillis();
+        for (int attempt = 0; ; attempt++) {
+            String url = loadUrls.get(Math.floorMod(nextUrl.getAndIncrement(), loadUrls.size()));
+            try {
+                if (doLoad(url, label, body, bodyLength)) {
+                    LOG.debug("Stream load {} finished, {} rows, {} bytes, took {}ms", label, rows, length,
+                            System.currentTimeMillis() - start);
+                    return;
+                }
+                // the label is still running, wait for it to finish
+            }
+            catch (AddaxException | IOException e) {
+                if (attempt >= maxRetries) {
+                    if (e instanceof AddaxException) {
+                        throw (AddaxException) e;
+                    }
+                    throw AddaxException.asAddaxException(
+                            DorisWriterErrorCode.CONNECT_ERROR,
+                            String.format("Failed to connect Doris server with: %s, %s", url, e)
+                    );
+                }
+                LOG.warn("Stream load {} failed on {}, retry {}/{}: {}", label, url, attempt + 1, maxRetries, e.getMessage());
+            }
+            if (attempt >= maxRetries) {
+                throw AddaxException.asAddaxException(DorisWriterErrorCode.WRITER_ERROR,
+                        String.format("Stream load %s is still running after %d retries", label, maxRetries));
+            }
+            try {
+                TimeUnit.SECONDS.sleep(Math.min(1L << attempt, 60));
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw AddaxException.asAddaxException(DorisWriterErrorCode.WRITER_ERROR, "Stream load is interrupted", e);
+            }
+        }
+    }
+
+    /*
+     * return true if the data has been loaded, false if the same label is still loading
+     */
+    private boolean doLoad(String url, String label, byte[] body, int length)
+            throws IOException
+    {
+        HttpPut put = new HttpPut(url);
+        put.setHeader(HttpHeaders.EXPECT, "100-continue");
+        if (this.authHeader != null) {
+            put.setHeader(HttpHeaders.AUTHORIZATION, this.authHeader);
+        }
+        put.setHeader("label", label);
+        if ("json".equals(format)) {
+            put.setHeader("format", "json");
+            put.setHeader("strip_outer_array", "true");
+        }
+        else {
+            put.setHeader("column_separator", SEPARATOR);
+        }
+        if ("gzip".equals(compress)) {
+            put.setHeader("compress_type", "gz");
+        }
+        else if ("lz4".equals(compress)) {
+            put.setHeader("compress_type", "lz4");
+        }
+        if (this.columns != null) {
+            put.setHeader("columns", String.join(",", this.columns));
+        }
+        put.setEntity(new ByteArrayEntity(body, 0, length));
+
+        try (CloseableHttpResponse response = httpClient.execute(put)) {
+            String loadResult = "";
+            if (response.getEntity() != null) {
+                loadResult = EntityUtils.toString(response.getEntity());
+            }
+            int statusCode = response.getStatusLine().getStatusCode();
+            // statusCode 200 just indicates that doris be service is ok, not stream load
+            // you should see the output content to find whether stream load is success
+            if (statusCode != 200) {
+                throw AddaxException.asAddaxException(
+                        DorisWriterErrorCode.WRITER_ERROR,
+                        String.format("Stream load failed, statusCode=%s load result=%s", statusCode, loadResult)
+                );
+            }
+            JSONObject result = JSON.parseObject(loadResult);
+            String status = result.getString("Status");
+            if (RESULT_SUCCESS.equals(status) || RESULT_PUBLISH_TIMEOUT.equals(status)) {
+                return true;
+            }
+            if (RESULT_LABEL_EXISTED.equals(status)) {
+                // the label has been used by an earlier attempt
+                String existingStatus = result.getString("ExistingJobStatus");
+                if (EXISTING_JOB_FINISHED.equals(existingStatus)) {
+                    return true;
+                }
+                if ("RUNNING".equals(existingStatus)) {
+                    return false;
+                }
+            }
+            throw AddaxException.asAddaxException(
+                    DorisWriterErrorCode.WRITER_ERROR,
+                    String.format("Stream load failed, load result=%s", loadResult)
+            );
+        }
+    }
+
+    private byte[] compress(byte[] data, int length)
+    {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(length / 4 + 64);
+        try (OutputStream out = "lz4".equals(compress) ? new LZ4FrameOutputStream(bos) : new GZIPOutputStream(bos)) {
+            out.write(data, 0, length);
+        }
+        catch (IOException e) {
+            throw AddaxException.asAddaxException(DorisWriterErrorCode.WRITER_ERROR, "Failed to compress the stream load data", e);
+        }
+        return bos.toByteArray();
+    }
+
+    @Override
+    public void close()
+    {
+        try {
+            httpClient.close();
+        }
+        catch (IOException e) {
+            LOG.warn("Failed to close http client: {}", e.getMessage());
+        }
+    }
+}
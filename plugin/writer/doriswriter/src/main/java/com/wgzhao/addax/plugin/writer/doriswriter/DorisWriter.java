@@ -26,6 +26,7 @@ import com.wgzhao.addax.common.util.Configuration;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.UUID;
 
 public class DorisWriter
         extends Writer
@@ -45,6 +46,9 @@ public class DorisWriter
             conn.getNecessaryValue(Key.TABLE, DorisWriterErrorCode.REQUIRED_VALUE);
             conn.getNecessaryValue(Key.ENDPOINT, DorisWriterErrorCode.REQUIRED_VALUE);
             conn.getNecessaryValue(Key.DATABASE, DorisWriterErrorCode.REQUIRED_VALUE);
+            // the same for all attempts of a task in this run, but differs between runs
+            this.originalConfig.set(DorisKey.LABEL_JOB_ID,
+                    Long.toString(System.currentTimeMillis(), 36) + "_" + UUID.randomUUID().toString().substring(0, 8));
         }
 
         @Override
@@ -85,7 +89,7 @@ public class DorisWriter
         public void init()
         {
             Configuration writerSliceConfig = getPluginJobConf();
-            this.DorisWriterTask = new DorisWriterTask(writerSliceConfig);
+            this.DorisWriterTask = new DorisWriterTask(writerSliceConfig, getTaskId());
             this.DorisWriterTask.init();
         }
 
@@ -109,7 +113,7 @@ public class DorisWriter
         @Override
         public void destroy()
         {
-            //
+            this.DorisWriterTask.destroy();
         }
     }
 }
@@ -19,85 +19,149 @@
 
 package com.wgzhao.addax.plugin.writer.doriswriter;
 
-import com.wgzhao.addax.common.base.Key;
+import com.alibaba.fastjson.JSON;
+import com.wgzhao.addax.common.base.Constant;
+import com.wgzhao.addax.common.element.Column;
 import com.wgzhao.addax.common.element.Record;
 import com.wgzhao.addax.common.exception.AddaxException;
 import com.wgzhao.addax.common.plugin.RecordReceiver;
 import com.wgzhao.addax.common.plugin.TaskPluginCollector;
 import com.wgzhao.addax.common.util.Configuration;
-import org.apache.commons.codec.binary.Base64;
-import org.apache.http.HttpHeaders;
-import org.apache.http.client.methods.CloseableHttpResponse;
-import org.apache.http.client.methods.HttpPut;
-import org.apache.http.entity.StringEntity;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.DefaultRedirectStrategy;
-import org.apache.http.impl.client.HttpClientBuilder;
-import org.apache.http.impl.client.HttpClients;
-import org.apache.http.util.EntityUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.IOException;
+import java.io.ByteArrayOutputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.CRC32;
 
+/**
+ * The records are encoded into byte buffers directly, a full buffer is handed over to the loader threads
+ * and the writer thread continues to fill the next free buffer, so reading and loading are pipelined.
+ * The number of buffers is maxInFlight + 1, which bounds both the memory usage and the concurrent loads.
+ * <p>
+ * The label of a batch is built from the job run, the task id, the batch sequence and the CRC32 of the batch,
+ * so a failed-over task which reads the same records again reuses the labels and Doris skips the batches
+ * already loaded by the earlier attempt. A batch whose content differs gets a new label and is loaded.
+ */
 public class DorisWriterTask
 {
     private static final Logger LOG = LoggerFactory.getLogger(DorisWriterTask.class);
+
+    private static final int DEFAULT_BATCH_SIZE = 1024;
+    private static final int DEFAULT_MAX_IN_FLIGHT = 1;
+    private static final int DEFAULT_MAX_RETRIES = 3;
+    private static final byte[] SEPARATOR_BYTES = DorisStreamLoader.SEPARATOR.getBytes(StandardCharsets.UTF_8);
+    private static final List<String> SUPPORTED_FORMAT = Arrays.asList("csv", "json");
+    private static final List<String> SUPPORTED_COMPRESS = Arrays.asList("none", "gzip", "lz4");
+
     private final Configuration configuration;
-    private String username;
-    private String password;
-    private String loadUrl;
     private List<String> column;
-    private static final String SEPARATOR = "|";
+    private byte[][] columnNameBytes;
     private int batchSize;
-    private HttpClientBuilder httpClientBuilder;
+    private int batchByteSize;
+    private boolean jsonFormat;
+    private String labelPrefix;
+    private final int taskId;
+    private long batchSequence = 0;
+    private final CRC32 crc32 = new CRC32();
+
+    private DorisStreamLoader loader;
+    private ExecutorService loadExecutor;
+    private BlockingQueue<LoadBuffer> freeBuffers;
+    private final AtomicReference<Throwable> loadError = new AtomicReference<>();
 
-    public DorisWriterTask(Configuration configuration) {this.configuration = configuration;}
+    public DorisWriterTask(Configuration configuration, int taskId)
+    {
+        this.configuration = configuration;
+        this.taskId = taskId;
+    }
 
     public void init()
     {
-        List<Object> connList = configuration.getList(Key.CONNECTION);
+        List<Object> connList = configuration.getList(DorisKey.CONNECTION);
         Configuration conn = Configuration.from(connList.get(0).toString());
-        String endpoint = conn.getString(Key.ENDPOINT);
-        String table = conn.getString(Key.TABLE);
-        String database = conn.getString(Key.DATABASE);
-        this.column = configuration.getList(Key.COLUMN, String.class);
+        String table = conn.getString(DorisKey.TABLE);
+        String database = conn.getString(DorisKey.DATABASE);
+        this.column = configuration.getList(DorisKey.COLUMN, String.class);
         // 如果 column 填写的是 * ，直接设置为null，方便后续判断
         if (this.column!= null && this.column.size() == 1 && "*".equals(this.column.get(0))) {
             this.column = null;
         }
-        this.batchSize = configuration.getInt(Key.BATCH_SIZE, 1024);
-        this.username = configuration.getString(Key.USERNAME);
-        this.password = configuration.getString(Key.PASSWORD, null);
-        this.loadUrl = String.format("%s/api/%s/%s/_stream_load", endpoint, database, table);
-        this.httpClientBuilder = HttpClients
-                .custom()
-                .setRedirectStrategy(new DefaultRedirectStrategy()
-                {
-                    @Override
-                    protected boolean isRedirectable(String method)
-                    {
-                        return true;
-                    }
-                });
-        LOG.info("connect DorisDB with {}", this.loadUrl);
+        this.batchSize = configuration.getInt(DorisKey.BATCH_SIZE, DEFAULT_BATCH_SIZE);
+        this.batchByteSize = configuration.getInt(DorisKey.BATCH_BYTE_SIZE, Constant.DEFAULT_BATCH_BYTE_SIZE);
+        String format = configuration.getString(DorisKey.FORMAT, "csv").toLowerCase();
+        String compress = configuration.getString(DorisKey.COMPRESS, "none").toLowerCase();
+        if (!SUPPORTED_FORMAT.contains(format) || !SUPPORTED_COMPRESS.contains(compress)) {
+            throw AddaxException.asAddaxException(DorisWriterErrorCode.ILLEGAL_VALUE,
+                    String.format("The format [%s] or compress [%s] is not supported, format should be one of %s, compress should be one of %s",
+                            format, compress, SUPPORTED_FORMAT, SUPPORTED_COMPRESS));
+        }
+        this.jsonFormat = "json".equals(format);
+        if (this.jsonFormat) {
+            if (this.column == null) {
+                throw AddaxException.asAddaxException(DorisWriterErrorCode.REQUIRED_VALUE,
+                        "The column names must be specified when the format is json");
+            }
+            if (!"none".equals(compress)) {
+                throw AddaxException.asAddaxException(DorisWriterErrorCode.ILLEGAL_VALUE,
+                        "Doris only supports compressing csv format data");
+            }
+            this.columnNameBytes = new byte[this.column.size()][];
+            for (int i = 0; i < this.column.size(); i++) {
+                this.columnNameBytes[i] = JSON.toJSONString(this.column.get(i)).getBytes(StandardCharsets.UTF_8);
+            }
+        }
+        this.labelPrefix = configuration.getString(DorisKey.LABEL_PREFIX, "addax_")
+                + configuration.getString(DorisKey.LABEL_JOB_ID, "0") + "_" + this.taskId + "_";
+        int maxInFlight = Math.max(configuration.getInt(DorisKey.MAX_IN_FLIGHT, DEFAULT_MAX_IN_FLIGHT), 1);
+        int maxRetries = configuration.getInt(DorisKey.MAX_RETRIES, DEFAULT_MAX_RETRIES);
+
+        this.loader = new DorisStreamLoader(parseEndpoints(conn), database, table,
+                configuration.getString(DorisKey.USERNAME), configuration.getString(DorisKey.PASSWORD, null),
+                this.column, format, compress, maxRetries, maxInFlight * 2);
+        this.loadExecutor = Executors.newFixedThreadPool(maxInFlight);
+        this.freeBuffers = new ArrayBlockingQueue<>(maxInFlight + 1);
+        for (int i = 0; i <= maxInFlight; i++) {
+            this.freeBuffers.add(new LoadBuffer());
+        }
     }
 
-    private String basicAuthHeader(String username, String password)
+    /*
+     * the endpoint can be a single url, a comma separated string or a list of urls
+     */
+    private static List<String> parseEndpoints(Configuration conn)
     {
-        String tokenEncode = username + ":" + password;
-        byte[] encoded = Base64.encodeBase64(tokenEncode.getBytes(StandardCharsets.UTF_8));
-        return "Basic " + new String(encoded);
+        Object endpoint = conn.get(DorisKey.ENDPOINT);
+        List<String> endpoints = new ArrayList<>();
+        if (endpoint instanceof List) {
+            for (Object e : (List<?>) endpoint) {
+                endpoints.add(e.toString());
+            }
+        }
+        else if (endpoint != null) {
+            endpoints.addAll(Arrays.asList(StringUtils.split(endpoint.toString(), ',')));
+        }
+        if (endpoints.isEmpty()) {
+            throw AddaxException.asAddaxException(DorisWriterErrorCode.REQUIRED_VALUE,
+                    "The parameter [" + DorisKey.ENDPOINT + "] is not set.");
+        }
+        return endpoints;
     }
 
     public void startWrite(RecordReceiver recordReceiver, TaskPluginCollector taskPluginCollector)
     {
         Record record;
-        int currSize = 0;
-        StringBuilder stringBuilder = new StringBuilder();
+        LoadBuffer buffer = takeBuffer();
         while ((record = recordReceiver.getFromReader()) != null) {
             int len = record.getColumnNumber();
             if (this.column != null && len != this.column.size()) {
@@ -106,69 +170,155 @@ public class DorisWriterTask
                         String.format("源字段数和目标字段数不匹配，源字段数为%s, 目标字段数为%s", len, this.column.size())
                 );
             }
-            StringBuilder oneRow = new StringBuilder();
-            for (int i = 0; i < len; i++) {
-                if (record.getColumn(i).getRawData() != null) {
-                    oneRow.append(record.getColumn(i).asString());
-                }
-                if (i < len - 1) {
-                    oneRow.append(SEPARATOR);
-                }
+            if (this.jsonFormat) {
+                appendJsonRow(buffer, record);
+            }
+            else {
+                appendCsvRow(buffer, record);
             }
-            oneRow.append("\n");
-            stringBuilder.append(oneRow);
-            currSize++;
-            if (currSize >= this.batchSize) {
-                stringBuilder.deleteCharAt(stringBuilder.length() - 1);
-                sendData(stringBuilder.toString());
-                currSize = 0;
-                stringBuilder.setLength(0);
+            buffer.rows++;
+            if (buffer.rows >= this.batchSize || buffer.size() >= this.batchByteSize) {
+                submit(buffer);
+                buffer = takeBuffer();
             }
         }
-        if (stringBuilder.length() > 0) {
-            sendData(stringBuilder.toString());
+        if (buffer.rows > 0) {
+            submit(buffer);
         }
+        waitForLoads();
     }
 
-    private void sendData(String content)
+    private void appendCsvRow(LoadBuffer buffer, Record record)
     {
-        try (CloseableHttpClient client = this.httpClientBuilder.build()) {
-            HttpPut put = new HttpPut(this.loadUrl);
-            StringEntity entity = new StringEntity(content, "UTF-8");
-            put.setHeader(HttpHeaders.EXPECT, "100-continue");
-            if (this.username != null && this.password != null) {
-                put.setHeader(HttpHeaders.AUTHORIZATION, basicAuthHeader(this.username, this.password));
+        if (buffer.rows > 0) {
+            buffer.write('\n');
+        }
+        for (int i = 0, len = record.getColumnNumber(); i < len; i++) {
+            if (i > 0) {
+                buffer.write(SEPARATOR_BYTES, 0, SEPARATOR_BYTES.length);
             }
-            put.setHeader("column_separator", SEPARATOR);
-            // the label header is optional, not necessary
-            // use label header can ensure at most once semantics
-            put.setHeader("label", UUID.randomUUID().toString());
-            if (this.column != null ) {
-                put.setHeader("columns", String.join(",", this.column));
+            Column col = record.getColumn(i);
+            if (col.getRawData() != null) {
+                byte[] value = col.asString().getBytes(StandardCharsets.UTF_8);
+                buffer.write(value, 0, value.length);
             }
-            put.setEntity(entity);
+        }
+    }
 
-            try (CloseableHttpResponse response = client.execute(put)) {
-                String loadResult = "";
-                if (response.getEntity() != null) {
-                    loadResult = EntityUtils.toString(response.getEntity());
-                }
-                int statusCode = response.getStatusLine().getStatusCode();
-                // statusCode 200 just indicates that doris be service is ok, not stream load
-                // you should see the output content to find whether stream load is success
-                if (statusCode != 200) {
-                    throw AddaxException.asAddaxException(
-                            DorisWriterErrorCode.WRITER_ERROR,
-                            String.format("Stream load failed, statusCode=%s load result=%s", statusCode, loadResult)
-                    );
+    private void appendJsonRow(LoadBuffer buffer, Record record)
+    {
+        buffer.write(buffer.rows > 0 ? ',' : '[');
+        buffer.write('{');
+        for (int i = 0, len = record.getColumnNumber(); i < len; i++) {
+            if (i > 0) {
+                buffer.write(',');
+            }
+            buffer.write(columnNameBytes[i], 0, columnNameBytes[i].length);
+            buffer.write(':');
+            Column col = record.getColumn(i);
+            byte[] value = col.getRawData() == null ? LoadBuffer.NULL_BYTES
+                    : JSON.toJSONString(col.asString()).getBytes(StandardCharsets.UTF_8);
+            buffer.write(value, 0, value.length);
+        }
+        buffer.write('}');
+    }
+
+    private void submit(LoadBuffer buffer)
+    {
+        checkLoadError();
+        if (this.jsonFormat) {
+            buffer.write(']');
+        }
+        crc32.reset();
+        crc32.update(buffer.getBuffer(), 0, buffer.size());
+        String label = this.labelPrefix + (batchSequence++) + "_" + Long.toHexString(crc32.getValue());
+        this.loadExecutor.submit(() -> {
+            try {
+                if (loadError.get() == null) {
+                    loader.load(label, buffer.getBuffer(), buffer.size(), buffer.rows);
                 }
             }
+            catch (Throwable e) {
+                loadError.compareAndSet(null, e);
+            }
+            finally {
+                buffer.clear();
+                freeBuffers.add(buffer);
+            }
+        });
+    }
+
+    private LoadBuffer takeBuffer()
+    {
+        try {
+            return this.freeBuffers.take();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw AddaxException.asAddaxException(DorisWriterErrorCode.WRITER_ERROR, "Interrupted while waiting for stream load", e);
+        }
+    }
+
+    private void waitForLoads()
+    {
+        this.loadExecutor.shutdown();
+        try {
+            while (!this.loadExecutor.awaitTermination(1, TimeUnit.SECONDS)) {
+                LOG.debug("waiting for the stream loads to finish");
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw AddaxException.asAddaxException(DorisWriterErrorCode.WRITER_ERROR, "Interrupted while waiting for stream load", e);
+        }
+        checkLoadError();
+    }
+
+    private void checkLoadError()
+    {
+        Throwable e = this.loadError.get();
+        if (e instanceof AddaxException) {
+            throw (AddaxException) e;
         }
-        catch (IOException e) {
-            throw AddaxException.asAddaxException(
-                    DorisWriterErrorCode.CONNECT_ERROR,
-                    String.format("Failed to connect Doris server with: %s, %s", this.loadUrl, e)
-            );
+        else if (e != null) {
+            throw AddaxException.asAddaxException(DorisWriterErrorCode.WRITER_ERROR, e);
+        }
+    }
+
+    public void destroy()
+    {
+        if (this.loadExecutor != null) {
+            this.loadExecutor.shutdownNow();
+        }
+        if (this.loader != null) {
+            this.loader.close();
+        }
+    }
+
+    /*
+     * A reusable byte buffer which exposes its backing array to avoid copying when sending
+     */
+    private static final class LoadBuffer
+            extends ByteArrayOutputStream
+    {
+        static final byte[] NULL_BYTES = "null".getBytes(StandardCharsets.UTF_8);
+
+        int rows = 0;
+
+        LoadBuffer()
+        {
+            super(64 * 1024);
+        }
+
+        byte[] getBuffer()
+        {
+            return this.buf;
+        }
+
+        void clear()
+        {
+            reset();
+            this.rows = 0;
         }
     }
 }
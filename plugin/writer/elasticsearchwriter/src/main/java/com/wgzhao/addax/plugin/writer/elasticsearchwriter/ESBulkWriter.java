@@ -0,0 +1,552 @@
+/*
+ *
+ *  * Licensed to the Apache Software Foundation (ASF) under one
+ *  * or more contributor license agreements.  See the NOTICE file
+ *  * distributed with this work for additional information
+ *  * regarding copyright ownership.  The ASF licenses this file
+ *  * to you under the Apache License, Version 2.0 (the
+ *  * "License"); you may not use this file except in compliance
+ *  * with the License.  You may obtain a copy of the License at
+ *  *
+ *  *   http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing,
+ *  * software distributed under the License is distributed on an
+ *  * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  * KIND, either express or implied.  See the License for the
+ *  * specific language governing permissions and limitations
+ *  * under the License.
+ *
+ */
+
+package com.wgzhao.addax.plugin.writer.elasticsearchwriter;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import com.wgzhao.addax.common.element.Column;
+import com.wgzhao.addax.common.element.Record;
+import com.wgzhao.addax.common.exception.AddaxException;
+import com.wgzhao.addax.common.plugin.RecordReceiver;
+import com.wgzhao.addax.common.plugin.TaskPluginCollector;
+import com.wgzhao.addax.common.statistics.jfr.JfrSupport;
+import com.wgzhao.addax.common.statistics.jfr.WriterFlushEvent;
+import com.wgzhao.addax.common.util.AsyncFailure;
+import com.wgzhao.addax.common.util.Configuration;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.entity.GzipCompressingEntity;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.util.EntityUtils;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.format.DateTimeFormat;
+import org.joda.time.format.DateTimeFormatter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 以 NDJSON 格式直接调用 _bulk 接口写入数据.
+ * <p>
+ * 记录直接序列化为 bulk 请求体，不再经过中间的 Map 和 Gson. 一个 bulk 按条数(batchSize)和字节数(batchByteSize)
+ * 两者中先达到的为准，最多同时有 concurrentBulks 个 bulk 请求在发送中.
+ * 重试时只重发失败的条目，遇到 429/503 等服务端过载的响应时按指数退避等待，并通知框架降低速度.
+ * <p>
+ * 配置了 id 列时，同一个 _id 的多个版本必须按记录的顺序写入，否则最终保留的版本是不确定的.
+ * 此时同时只有一个 bulk 在发送中，部分条目失败时从第一个失败的条目开始按原顺序重发其后的所有条目.
+ */
+public class ESBulkWriter
+{
+    private static final Logger LOG = LoggerFactory.getLogger(ESBulkWriter.class);
+
+    private static final long INITIAL_BACKOFF_MS = 1000L;
+    private static final long MAX_BACKOFF_MS = 60000L;
+
+    private final List<ESColumn> columnList;
+    private final List<ESFieldType> typeList;
+    private final List<DateTimeFormatter> dateFormatters;
+    private final List<DateTimeZone> dateZones;
+    private final String splitter;
+    private final int batchSize;
+    private final long batchByteSize;
+    private final int trySize;
+    private final boolean ignoreWriteError;
+    private final boolean ignoreParseError;
+    private final String bulkUrl;
+    private final String indexName;
+    private final String actionPrefix;
+    private final String authorization;
+    private final boolean compression;
+    // 有 id 列时需要保持写入顺序
+    private final boolean ordered;
+
+    private final CloseableHttpClient httpClient;
+    private final ExecutorService executor;
+    private final Semaphore inFlight;
+    private final AtomicLong writeSize = new AtomicLong(0);
+    private final StringBuilder sb = new StringBuilder(1024);
+
+    private TaskPluginCollector taskPluginCollector;
+    private final AsyncFailure failure = new AsyncFailure(ESWriterErrorCode.ES_INDEX_INSERT);
+
+    public ESBulkWriter(Configuration conf, List<ESColumn> columnList, List<ESFieldType> typeList)
+    {
+        this.columnList = columnList;
+        this.typeList = typeList;
+        this.dateFormatters = new ArrayList<>(columnList.size());
+        this.dateZones = new ArrayList<>(columnList.size());
+        for (ESColumn col : columnList) {
+            // 所有时区参考 http://www.joda.org/joda-time/timezones.html
+            DateTimeZone dtz = col.getTimezone() != null ? DateTimeZone.forID(col.getTimezone()) : DateTimeZone.getDefault();
+            dateZones.add(dtz);
+            dateFormatters.add(col.getFormat() != null ? DateTimeFormat.forPattern(col.getFormat()).withZone(dtz) : null);
+        }
+        this.splitter = ESKey.getSplitter(conf);
+        this.batchSize = ESKey.getBatchSize(conf);
+        this.batchByteSize = ESKey.getBatchByteSize(conf);
+        this.trySize = ESKey.getTrySize(conf);
+        this.ignoreWriteError = ESKey.isIgnoreWriteError(conf);
+        this.ignoreParseError = ESKey.isIgnoreParseError(conf);
+        this.compression = ESKey.isCompression(conf);
+
+        String endpoint = StringUtils.stripEnd(ESKey.getEndpoint(conf), "/");
+        this.bulkUrl = endpoint + "/_bulk";
+        // 显式指定了 type 时才在 action 中加入 _type，Elasticsearch 8 已经不再支持 type
+        this.indexName = ESKey.getIndexName(conf);
+        StringBuilder prefix = new StringBuilder("{\"index\":{\"_index\":");
+        appendString(prefix, indexName);
+        if (StringUtils.isNotBlank(conf.getString("indexType")) || StringUtils.isNotBlank(conf.getString("type"))) {
+            prefix.append(",\"_type\":");
+            appendString(prefix, ESKey.getTypeName(conf));
+        }
+        this.actionPrefix = prefix.toString();
+
+        String user = ESKey.getAccessID(conf);
+        String password = ESKey.getAccessKey(conf);
+        if (!("".equals(user) || "".equals(password))) {
+            this.authorization = "Basic " + Base64.getEncoder()
+                    .encodeToString((user + ":" + password).getBytes(StandardCharsets.UTF_8));
+        }
+        else {
+            this.authorization = null;
+        }
+
+        this.ordered = typeList.contains(ESFieldType.ID);
+        int concurrentBulks = this.ordered ? 1 : Math.max(1, ESKey.getConcurrentBulks(conf));
+        int timeout = ESKey.getTimeout(conf);
+        this.httpClient = HttpClients.custom()
+                .setMaxConnTotal(concurrentBulks * 2)
+                .setMaxConnPerRoute(concurrentBulks * 2)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectTimeout(30000)
+                        .setSocketTimeout(timeout)
+                        .build())
+                .build();
+        this.executor = Executors.newFixedThreadPool(concurrentBulks, AsyncFailure.daemonThreadFactory("es-bulk"));
+        this.inFlight = new Semaphore(concurrentBulks);
+        LOG.info("Write to {} with batchSize={}, batchByteSize={}, concurrentBulks={}, ordered={}.",
+                bulkUrl, batchSize, batchByteSize, concurrentBulks, ordered);
+    }
+
+    /**
+     * @return 成功写入的记录数
+     */
+    public long startWrite(RecordReceiver recordReceiver, TaskPluginCollector taskPluginCollector)
+    {
+        this.taskPluginCollector = taskPluginCollector;
+        Bulk bulk = new Bulk();
+        Record record;
+        try {
+            while ((record = recordReceiver.getFromReader()) != null) {
+                byte[] item = serialize(record);
+                if (item == null) {
+                    continue;
+                }
+                bulk.add(record, item);
+                if (bulk.size() >= batchSize || bulk.bytes >= batchByteSize) {
+                    submit(bulk);
+                    bulk = new Bulk();
+                }
+            }
+            if (bulk.size() > 0) {
+                submit(bulk);
+            }
+            executor.shutdown();
+            while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+                failure.check();
+            }
+            failure.check();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw AddaxException.asAddaxException(ESWriterErrorCode.ES_INDEX_INSERT, e);
+        }
+        return writeSize.get();
+    }
+
+    /**
+     * 停止发送线程并关闭连接，由 Task 的 destroy 调用
+     */
+    public void close()
+    {
+        executor.shutdownNow();
+        try {
+            httpClient.close();
+        }
+        catch (IOException e) {
+            LOG.warn("Failed to close http client: {}", e.getMessage());
+        }
+    }
+
+    private void submit(Bulk bulk)
+            throws InterruptedException
+    {
+        failure.check();
+        inFlight.acquire();
+        try {
+            executor.execute(() -> {
+                try {
+                    send(bulk);
+                }
+                catch (Throwable e) {
+                    failure.set(e);
+                }
+                finally {
+                    inFlight.release();
+                }
+            });
+        }
+        catch (RuntimeException e) {
+            inFlight.release();
+            throw e;
+        }
+    }
+
+    /*
+     * 发送一个 bulk，失败的条目在退避之后重发，直到全部成功或者超过重试次数
+     */
+    private void send(Bulk bulk)
+            throws InterruptedException
+    {
+        long backoff = INITIAL_BACKOFF_MS;
+        for (int attempt = 1; ; attempt++) {
+            String error;
+            try {
+                bulk = doSend(bulk);
+                if (bulk == null) {
+                    return;
+                }
+                error = String.format("%d items are rejected by the server", bulk.size());
+            }
+            catch (IOException e) {
+                error = e.getMessage();
+            }
+
+            if (failure.isFailed()) {
+                return;
+            }
+            if (attempt >= trySize) {
+                if (ignoreWriteError) {
+                    LOG.warn("重试[{}]次写入失败，忽略该错误，继续写入! {}", trySize, error);
+                    for (Record r : bulk.records) {
+                        taskPluginCollector.collectDirtyRecord(r, error);
+                    }
+                    return;
+                }
+                throw AddaxException.asAddaxException(ESWriterErrorCode.ES_INDEX_INSERT,
+                        String.format("Failed to write after retrying %d times: %s", trySize, error));
+            }
+            LOG.warn("Failed to write {} items (attempt {}/{}), retry after {}ms: {}",
+                    bulk.size(), attempt, trySize, backoff, error);
+            Thread.sleep(backoff);
+            backoff = Math.min(MAX_BACKOFF_MS, backoff * 2);
+        }
+    }
+
+    /*
+     * @return 需要重试的条目，全部成功时返回 null
+     */
+    private Bulk doSend(Bulk bulk)
+            throws IOException
+    {
+        HttpPost post = new HttpPost(bulkUrl);
+        HttpEntity entity = new ByteArrayEntity(bulk.toByteArray(), ContentType.create("application/x-ndjson", StandardCharsets.UTF_8));
+        post.setEntity(compression ? new GzipCompressingEntity(entity) : entity);
+        if (authorization != null) {
+            post.setHeader(HttpHeaders.AUTHORIZATION, authorization);
+        }
+
+        long startTime = System.currentTimeMillis();
+        WriterFlushEvent flushEvent = JfrSupport.beginWriterFlush("elasticsearchwriter", indexName, bulk.size(), bulk.bytes);
+        String body;
+        int status;
+        try (CloseableHttpResponse response = httpClient.execute(post)) {
+            status = response.getStatusLine().getStatusCode();
+            body = response.getEntity() == null ? "" : EntityUtils.toString(response.getEntity(), StandardCharsets.UTF_8);
+        }
+        JfrSupport.endWriterFlush(flushEvent, status / 100 == 2);
+        taskPluginCollector.reportLatency(System.currentTimeMillis() - startTime);
+
+        if (isRetryable(status)) {
+            // 整个请求被拒绝，服务端过载
+            taskPluginCollector.reportBackpressure();
+            return bulk;
+        }
+        if (status / 100 != 2) {
+            throw AddaxException.asAddaxException(ESWriterErrorCode.ES_INDEX_INSERT,
+                    String.format("response code: [%d] error :[%s]", status, body));
+        }
+
+        JSONObject result = JSON.parseObject(body);
+        if (!result.getBooleanValue("errors")) {
+            writeSize.addAndGet(bulk.size());
+            return null;
+        }
+
+        JSONArray items = result.getJSONArray("items");
+        Bulk retry = new Bulk();
+        boolean overloaded = false;
+        long succeed = 0;
+        for (int i = 0; i < items.size(); i++) {
+            if (ordered && retry.size() > 0) {
+                // 之后的条目可能是同一个 _id 更新的版本，需要在失败的条目之后重新写入
+                retry.add(bulk.records.get(i), bulk.items.get(i));
+                continue;
+            }
+            JSONObject item = items.getJSONObject(i).getJSONObject("index");
+            int itemStatus = item.getIntValue("status");
+            if (itemStatus / 100 == 2) {
+                succeed++;
+            }
+            else if (isRetryable(itemStatus)) {
+                overloaded = true;
+                retry.add(bulk.records.get(i), bulk.items.get(i));
+            }
+            else {
+                String error = String.format("status:[%d], error: %s", itemStatus, item.getString("error"));
+                if (itemStatus != 400) {
+                    // 400 BAD_REQUEST  如果非数据异常,请求异常,则不允许忽略
+                    throw AddaxException.asAddaxException(ESWriterErrorCode.ES_INDEX_INSERT, error);
+                }
+                if (!ignoreParseError) {
+                    // 如果用户选择不忽略解析错误,则抛异常,默认为忽略
+                    throw AddaxException.asAddaxException(ESWriterErrorCode.ES_INDEX_INSERT,
+                            error + ", config not ignoreParseError so throw this error");
+                }
+                taskPluginCollector.collectDirtyRecord(bulk.records.get(i), error);
+            }
+        }
+        writeSize.addAndGet(succeed);
+        if (overloaded) {
+            taskPluginCollector.reportBackpressure();
+        }
+        return retry.size() > 0 ? retry : null;
+    }
+
+    private static boolean isRetryable(int status)
+    {
+        // TOO_MANY_REQUESTS, BAD_GATEWAY, SERVICE_UNAVAILABLE, GATEWAY_TIMEOUT
+        return status == 429 || status == 502 || status == 503 || status == 504;
+    }
+
+    /*
+     * 将一条记录序列化为 bulk 中的一个条目(action 行 + source 行)，记录有误时返回 null
+     */
+    private byte[] serialize(Record record)
+    {
+        sb.setLength(0);
+        sb.append(actionPrefix);
+        boolean hasId = false;
+        for (int i = 0; i < record.getColumnNumber(); i++) {
+            if (typeList.get(i) == ESFieldType.ID) {
+                if (!hasId) {
+                    sb.append(",\"_id\":\"");
+                    hasId = true;
+                }
+                appendEscaped(sb, record.getColumn(i).asString());
+            }
+        }
+        if (hasId) {
+            sb.append('"');
+        }
+        sb.append("}}\n{");
+
+        boolean first = true;
+        for (int i = 0; i < record.getColumnNumber(); i++) {
+            Column column = record.getColumn(i);
+            ESColumn esColumn = columnList.get(i);
+            ESFieldType columnType = typeList.get(i);
+            if (columnType == ESFieldType.ID || column.getRawData() == null) {
+                continue;
+            }
+            if (!first) {
+                sb.append(',');
+            }
+            first = false;
+            appendString(sb, esColumn.getName());
+            sb.append(':');
+            try {
+                //如果是数组类型，那它传入的必是字符串类型
+                if (esColumn.isArray() != null && esColumn.isArray()) {
+                    sb.append('[');
+                    String[] values = column.asString().split(splitter);
+                    for (int j = 0; j < values.length; j++) {
+                        if (j > 0) {
+                            sb.append(',');
+                        }
+                        appendString(sb, columnType == ESFieldType.DATE ? formatDate(i, values[j]) : values[j]);
+                    }
+                    sb.append(']');
+                }
+                else {
+                    appendValue(i, columnType, column);
+                }
+            }
+            catch (Exception e) {
+                taskPluginCollector.collectDirtyRecord(record, String.format("类型转换失败 [%s:%s] exception: %s",
+                        esColumn.getName(), column, e));
+                return null;
+            }
+        }
+        sb.append("}\n");
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void appendValue(int index, ESFieldType columnType, Column column)
+    {
+        switch (columnType) {
+            case DATE:
+                if (column.getType() == Column.Type.DATE) {
+                    appendString(sb, new DateTime(column.asLong(), dateZones.get(index)).toString());
+                }
+                else {
+                    appendString(sb, formatDate(index, column.asString()));
+                }
+                break;
+            case BOOLEAN:
+                sb.append(column.asBoolean());
+                break;
+            case BYTE:
+            case LONG:
+            case INTEGER:
+            case SHORT:
+                sb.append(column.asBigInteger());
+                break;
+            case FLOAT:
+            case DOUBLE:
+                sb.append(column.asDouble());
+                break;
+            case BINARY:
+                appendString(sb, Base64.getEncoder().encodeToString(column.asBytes()));
+                break;
+            case NESTED:
+            case OBJECT:
+            case FLATTENED:
+            case GEO_SHAPE:
+                // 已经是 json 格式的字符串，原样写入
+                sb.append(column.asString());
+                break;
+            case KEYWORD:
+            case STRING:
+            case TEXT:
+            case IP:
+            case GEO_POINT:
+            default:
+                appendString(sb, column.asString());
+        }
+    }
+
+    private String formatDate(int index, String value)
+    {
+        DateTimeFormatter formatter = dateFormatters.get(index);
+        if (formatter == null) {
+            return value;
+        }
+        return formatter.parseDateTime(value).toString();
+    }
+
+    private static void appendString(StringBuilder sb, String s)
+    {
+        sb.append('"');
+        appendEscaped(sb, s);
+        sb.append('"');
+    }
+
+    private static void appendEscaped(StringBuilder sb, String s)
+    {
+        for (int i = 0, len = s.length(); i < len; i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    }
+                    else {
+                        sb.append(c);
+                    }
+            }
+        }
+    }
+
+    private static final class Bulk
+    {
+        final List<Record> records = new ArrayList<>();
+        final List<byte[]> items = new ArrayList<>();
+        long bytes = 0;
+
+        void add(Record record, byte[] item)
+        {
+            records.add(record);
+            items.add(item);
+            bytes += item.length;
+        }
+
+        int size()
+        {
+            return records.size();
+        }
+
+        byte[] toByteArray()
+        {
+            ByteArrayOutputStream out = new ByteArrayOutputStream((int) bytes);
+            for (byte[] item : items) {
+                out.write(item, 0, item.length);
+            }
+            return out.toByteArray();
+        }
+    }
+}
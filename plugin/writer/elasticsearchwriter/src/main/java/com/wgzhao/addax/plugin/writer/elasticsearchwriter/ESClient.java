@@ -28,7 +28,6 @@ import io.searchbox.client.JestClient;
 import io.searchbox.client.JestClientFactory;
 import io.searchbox.client.JestResult;
 import io.searchbox.client.config.HttpClientConfig;
-import io.searchbox.core.Bulk;
 import io.searchbox.indices.CreateIndex;
 import io.searchbox.indices.DeleteIndex;
 import io.searchbox.indices.IndicesExists;
@@ -210,12 +209,6 @@ public class ESClient
         return 600;
     }
 
-    public boolean isBulkResult(JestResult rst)
-    {
-        JsonObject jsonObject = rst.getJsonObject();
-        return jsonObject.has("items");
-    }
-
     public boolean alias(String indexName, String aliasName, boolean needClean)
             throws IOException
     {
@@ -250,20 +243,6 @@ public class ESClient
         return true;
     }
 
-    public JestResult bulkInsert(Bulk.Builder bulk, int trySize)
-            throws Exception
-    {
-        // es_rejected_execution_exception
-        // illegal_argument_exception
-        // cluster_block_exception
-        JestResult rst;
-        rst = jestClient.execute(bulk.build());
-        if (!rst.isSucceeded()) {
-            log.warn(rst.getErrorMessage());
-        }
-        return rst;
-    }
-
     /**
      * 关闭JestClient客户端
      */
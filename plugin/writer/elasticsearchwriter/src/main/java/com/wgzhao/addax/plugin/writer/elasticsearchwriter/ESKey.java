@@ -74,6 +74,16 @@ public final class ESKey
         return conf.getInt("batchSize", 1000);
     }
 
+    public static long getBatchByteSize(Configuration conf)
+    {
+        return conf.getLong("batchByteSize", 10 * 1024 * 1024L);
+    }
+
+    public static int getConcurrentBulks(Configuration conf)
+    {
+        return conf.getInt("concurrentBulks", 2);
+    }
+
     public static int getTrySize(Configuration conf)
     {
         return conf.getInt("trySize", 30);
@@ -19,24 +19,13 @@
 
 package com.wgzhao.addax.plugin.writer.elasticsearchwriter;
 
-import com.wgzhao.addax.common.element.Column;
-import com.wgzhao.addax.common.element.Record;
 import com.wgzhao.addax.common.exception.AddaxException;
 import com.wgzhao.addax.common.plugin.RecordReceiver;
 import com.wgzhao.addax.common.spi.Writer;
 import com.wgzhao.addax.common.util.Configuration;
-import com.wgzhao.addax.common.util.RetryUtil;
 import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.JSONObject;
 import com.alibaba.fastjson.TypeReference;
-import io.searchbox.client.JestResult;
-import io.searchbox.core.Bulk;
-import io.searchbox.core.BulkResult;
-import io.searchbox.core.Index;
-import org.joda.time.DateTime;
-import org.joda.time.DateTimeZone;
-import org.joda.time.format.DateTimeFormat;
-import org.joda.time.format.DateTimeFormatter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -45,7 +34,6 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.Callable;
 
 public class ESWriter
         extends Writer
@@ -250,27 +238,15 @@ public class ESWriter
     {
 
         private static final Logger log = LoggerFactory.getLogger(Task.class);
-        ESClient esClient = null;
         private Configuration conf;
         private List<ESFieldType> typeList;
         private List<ESColumn> columnList;
-
-        private int trySize;
-        private int batchSize;
-        private String index;
-        private String type;
-        private String splitter;
+        private ESBulkWriter bulkWriter;
 
         @Override
         public void init()
         {
             this.conf = super.getPluginJobConf();
-            index = ESKey.getIndexName(conf);
-            type = ESKey.getTypeName(conf);
-
-            trySize = ESKey.getTrySize(conf);
-            batchSize = ESKey.getBatchSize(conf);
-            splitter = ESKey.getSplitter(conf);
             columnList = JSON.parseObject(this.conf.getString(WRITE_COLUMNS), new TypeReference<List<ESColumn>>()
             {
             });
@@ -280,219 +256,17 @@ public class ESWriter
             for (ESColumn col : columnList) {
                 typeList.add(ESFieldType.getESFieldType(col.getType()));
             }
-
-            esClient = new ESClient();
-        }
-
-        @Override
-        public void prepare()
-        {
-            esClient.createClient(ESKey.getEndpoint(conf),
-                    ESKey.getAccessID(conf),
-                    ESKey.getAccessKey(conf),
-                    ESKey.isMultiThread(conf),
-                    ESKey.getTimeout(conf),
-                    ESKey.isCompression(conf),
-                    ESKey.isDiscovery(conf));
+            bulkWriter = new ESBulkWriter(this.conf, this.columnList, this.typeList);
         }
 
         @Override
         public void startWrite(RecordReceiver recordReceiver)
         {
-            List<Record> writerBuffer = new ArrayList<>(this.batchSize);
-            Record record;
-            long total = 0;
-            while ((record = recordReceiver.getFromReader()) != null) {
-                writerBuffer.add(record);
-                if (writerBuffer.size() >= this.batchSize) {
-                    total += doBatchInsert(writerBuffer);
-                    writerBuffer.clear();
-                }
-            }
-
-            if (!writerBuffer.isEmpty()) {
-                total += doBatchInsert(writerBuffer);
-                writerBuffer.clear();
-            }
+            long total = bulkWriter.startWrite(recordReceiver, getTaskPluginCollector());
 
             String msg = String.format("task end, write size :%d", total);
             getTaskPluginCollector().collectMessage("writeSize", String.valueOf(total));
             log.info(msg);
-            esClient.closeJestClient();
-        }
-
-        private String getDateStr(ESColumn esColumn, Column column)
-        {
-            DateTime date = null;
-            DateTimeZone dtz = DateTimeZone.getDefault();
-            if (esColumn.getTimezone() != null) {
-                // 所有时区参考 http://www.joda.org/joda-time/timezones.html
-                dtz = DateTimeZone.forID(esColumn.getTimezone());
-            }
-            if (column.getType() != Column.Type.DATE && esColumn.getFormat() != null) {
-                DateTimeFormatter formatter = DateTimeFormat.forPattern(esColumn.getFormat());
-                date = formatter.withZone(dtz).parseDateTime(column.asString());
-                return date.toString();
-            }
-            else if (column.getType() == Column.Type.DATE) {
-                date = new DateTime(column.asLong(), dtz);
-                return date.toString();
-            }
-            else {
-                return column.asString();
-            }
-        }
-
-        private long doBatchInsert(final List<Record> writerBuffer)
-        {
-            Map<String, Object> data = null;
-            final Bulk.Builder bulkAction = new Bulk.Builder().defaultIndex(this.index).defaultType(this.type);
-            for (Record record : writerBuffer) {
-                data = new HashMap<>();
-                String id = null;
-                for (int i = 0; i < record.getColumnNumber(); i++) {
-                    Column column = record.getColumn(i);
-                    String columnName = columnList.get(i).getName();
-                    ESFieldType columnType = typeList.get(i);
-                    //如果是数组类型，那它传入的必是字符串类型
-                    if (columnList.get(i).isArray() != null && columnList.get(i).isArray()) {
-                        String[] dataList = column.asString().split(splitter);
-                        if (!columnType.equals(ESFieldType.DATE)) {
-                            data.put(columnName, dataList);
-                        }
-                        else {
-                            for (int pos = 0; pos < dataList.length; pos++) {
-                                dataList[pos] = getDateStr(columnList.get(i), column);
-                            }
-                            data.put(columnName, dataList);
-                        }
-                    }
-                    else {
-                        switch (columnType) {
-                            case ID:
-                                if (id != null) {
-                                    id += record.getColumn(i).asString();
-                                }
-                                else {
-                                    id = record.getColumn(i).asString();
-                                }
-                                break;
-                            case DATE:
-                                try {
-                                    String dateStr = getDateStr(columnList.get(i), column);
-                                    data.put(columnName, dateStr);
-                                }
-                                catch (Exception e) {
-                                    getTaskPluginCollector().collectDirtyRecord(record, String.format("时间类型解析失败 [%s:%s] exception: %s", columnName, column.toString(), e.toString()));
-                                }
-                                break;
-                            case KEYWORD:
-                            case STRING:
-                            case TEXT:
-                            case IP:
-                            case GEO_POINT:
-                                data.put(columnName, column.asString());
-                                break;
-                            case BOOLEAN:
-                                data.put(columnName, column.asBoolean());
-                                break;
-                            case BYTE:
-                            case BINARY:
-                                data.put(columnName, column.asBytes());
-                                break;
-                            case LONG:
-                                data.put(columnName, column.asLong());
-                                break;
-                            case INTEGER:
-                                data.put(columnName, column.asBigInteger());
-                                break;
-                            case SHORT:
-                                data.put(columnName, column.asBigInteger());
-                                break;
-                            case FLOAT:
-                            case DOUBLE:
-                                data.put(columnName, column.asDouble());
-                                break;
-                            case NESTED:
-                            case OBJECT:
-                            case FLATTENED:
-                            case GEO_SHAPE:
-                                data.put(columnName, JSON.parse(column.asString()));
-                                break;
-                            default:
-                                getTaskPluginCollector().collectDirtyRecord(record, "类型错误:不支持的类型:" + columnType + " " + columnName);
-                        }
-                    }
-                }
-
-                if (id == null) {
-                    //id = UUID.randomUUID().toString()
-                    bulkAction.addAction(new Index.Builder(data).build());
-                }
-                else {
-                    bulkAction.addAction(new Index.Builder(data).id(id).build());
-                }
-            }
-
-            try {
-                return RetryUtil.executeWithRetry(new Callable<Integer>()
-                {
-                    @Override
-                    public Integer call()
-                            throws Exception
-                    {
-                        JestResult jestResult = esClient.bulkInsert(bulkAction, 1);
-                        if (jestResult.isSucceeded()) {
-                            return writerBuffer.size();
-                        }
-
-                        String msg = String.format("response code: [%d] error :[%s]", jestResult.getResponseCode(), jestResult.getErrorMessage());
-                        log.warn(msg);
-                        if (esClient.isBulkResult(jestResult)) {
-                            BulkResult brst = (BulkResult) jestResult;
-                            List<BulkResult.BulkResultItem> failedItems = brst.getFailedItems();
-                            for (BulkResult.BulkResultItem item : failedItems) {
-                                if (item.status != 400) {
-                                    // 400 BAD_REQUEST  如果非数据异常,请求异常,则不允许忽略
-                                    throw AddaxException.asAddaxException(ESWriterErrorCode.ES_INDEX_INSERT, String.format("status:[%d], error: %s", item.status, item.error));
-                                }
-                                else {
-                                    // 如果用户选择不忽略解析错误,则抛异常,默认为忽略
-                                    if (!ESKey.isIgnoreParseError(conf)) {
-                                        throw AddaxException.asAddaxException(ESWriterErrorCode.ES_INDEX_INSERT, String.format("status:[%d], error: %s, config not ignoreParseError so throw this error", item.status, item.error));
-                                    }
-                                }
-                            }
-
-                            List<BulkResult.BulkResultItem> items = brst.getItems();
-                            for (int idx = 0; idx < items.size(); ++idx) {
-                                BulkResult.BulkResultItem item = items.get(idx);
-                                if (item.error != null && !"".equals(item.error)) {
-                                    getTaskPluginCollector().collectDirtyRecord(writerBuffer.get(idx), String.format("status:[%d], error: %s", item.status, item.error));
-                                }
-                            }
-                            return writerBuffer.size() - brst.getFailedItems().size();
-                        }
-                        else {
-                            Integer status = esClient.getStatus(jestResult);
-                            if (status == 429) {
-                                //TOO_MANY_REQUESTS
-                                log.warn("server response too many requests, so auto reduce speed");
-                            }
-                            throw AddaxException.asAddaxException(ESWriterErrorCode.ES_INDEX_INSERT, jestResult.getErrorMessage());
-                        }
-                    }
-                }, trySize, 60000L, true);
-            }
-            catch (Exception e) {
-                if (ESKey.isIgnoreWriteError(this.conf)) {
-                    log.warn(String.format("重试[%d]次写入失败，忽略该错误，继续写入!", trySize));
-                }
-                else {
-                    throw AddaxException.asAddaxException(ESWriterErrorCode.ES_INDEX_INSERT, e);
-                }
-            }
-            return 0;
         }
 
         @Override
@@ -504,7 +278,9 @@ public class ESWriter
         @Override
         public void destroy()
         {
-            esClient.closeJestClient();
+            if (bulkWriter != null) {
+                bulkWriter.close();
+            }
         }
     }
 }
@@ -29,26 +29,12 @@ import com.wgzhao.addax.common.exception.AddaxException;
 import com.wgzhao.addax.common.plugin.RecordReceiver;
 import com.wgzhao.addax.common.plugin.TaskPluginCollector;
 import com.wgzhao.addax.common.util.Configuration;
-import org.apache.avro.Conversions;
-import org.apache.avro.LogicalTypes;
-import org.apache.avro.Schema;
-import org.apache.avro.generic.GenericData;
-import org.apache.avro.generic.GenericRecord;
-import org.apache.avro.generic.GenericRecordBuilder;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.tuple.MutablePair;
 import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.hive.common.type.HiveDecimal;
-import org.apache.hadoop.hive.ql.exec.vector.BytesColumnVector;
-import org.apache.hadoop.hive.ql.exec.vector.ColumnVector;
-import org.apache.hadoop.hive.ql.exec.vector.DecimalColumnVector;
-import org.apache.hadoop.hive.ql.exec.vector.DoubleColumnVector;
-import org.apache.hadoop.hive.ql.exec.vector.LongColumnVector;
-import org.apache.hadoop.hive.ql.exec.vector.TimestampColumnVector;
-import org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatch;
-import org.apache.hadoop.hive.serde2.io.HiveDecimalWritable;
 import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.io.compress.CompressionCodec;
@@ -62,20 +48,16 @@ import org.apache.hadoop.security.UserGroupInformation;
 import org.apache.orc.CompressionKind;
 import org.apache.orc.OrcFile;
 import org.apache.orc.TypeDescription;
-import org.apache.orc.Writer;
-import org.apache.parquet.avro.AvroParquetWriter;
-import org.apache.parquet.column.ParquetProperties;
 import org.apache.parquet.hadoop.ParquetWriter;
 import org.apache.parquet.hadoop.metadata.CompressionCodecName;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.math.BigDecimal;
-import java.nio.charset.StandardCharsets;
 import java.sql.Timestamp;
 import java.text.SimpleDateFormat;
-import java.util.ArrayList;
+import java.time.Instant;
+import java.time.ZoneId;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.Iterator;
@@ -96,8 +78,11 @@ public class HdfsHelper
     private boolean haveKerberos = false;
     private String kerberosKeytabFilePath;
     private String kerberosPrincipal;
-    private static final int DECIMAL_DEFAULT_PRECISION = 38;
-    private static final int DECIMAL_DEFAULT_SCALE = 10;
+    static final int DECIMAL_DEFAULT_PRECISION = 38;
+    static final int DECIMAL_DEFAULT_SCALE = 10;
+    // ORC 每个 VectorizedRowBatch 的行数，以及并行写入时每次交给写入线程的记录数
+    private static final int DEFAULT_BATCH_SIZE = 1024;
+    private static final int MB = 1024 * 1024;
 
     public static MutablePair<Text, Boolean> transportOneRecord(
             Record record, char fieldDelimiter, List<Configuration> columnsConfiguration, TaskPluginCollector taskPluginCollector)
@@ -202,79 +187,6 @@ public class HdfsHelper
         return transportResult;
     }
 
-    public static GenericRecord transportParRecord(
-            Record record, List<Configuration> columnsConfiguration,
-            TaskPluginCollector taskPluginCollector, GenericRecordBuilder builder)
-    {
-
-        int recordLength = record.getColumnNumber();
-        if (0 != recordLength) {
-            Column column;
-            for (int i = 0; i < recordLength; i++) {
-                column = record.getColumn(i);
-                String colname = columnsConfiguration.get(i).getString(Key.NAME);
-                String typename = columnsConfiguration.get(i).getString(Key.TYPE).toUpperCase();
-                if (column.getRawData() == null) {
-                    builder.set(colname, null);
-                }
-                else {
-                    String rowData = column.getRawData().toString();
-                    SupportHiveDataType columnType = SupportHiveDataType.valueOf(typename);
-                    //根据writer端类型配置做类型转换
-                    try {
-                        switch (columnType) {
-                            case INT:
-                            case INTEGER:
-                                builder.set(colname, Integer.valueOf(rowData));
-                                break;
-                            case LONG:
-                                builder.set(colname, column.asLong());
-                                break;
-                            case FLOAT:
-                                builder.set(colname, Float.valueOf(rowData));
-                                break;
-                            case DOUBLE:
-                                builder.set(colname, column.asDouble());
-                                break;
-                            case STRING:
-                                builder.set(colname, column.asString());
-                                break;
-                            case DECIMAL:
-                                builder.set(colname, new BigDecimal(column.asString()).setScale(columnsConfiguration.get(i).getInt(Key.SCALE), BigDecimal.ROUND_HALF_UP));
-                                break;
-                            case BOOLEAN:
-                                builder.set(colname, column.asBoolean());
-                                break;
-                            case BINARY:
-                                builder.set(colname, column.asBytes());
-                                break;
-                            case TIMESTAMP:
-                                builder.set(colname, column.asLong() / 1000);
-                                break;
-                            default:
-                                throw AddaxException
-                                        .asAddaxException(
-                                                HdfsWriterErrorCode.ILLEGAL_VALUE,
-                                                String.format(
-                                                        "您的配置文件中的列配置信息有误. 因为DataX 不支持数据库写入这种字段类型. 字段名:[%s], 字段类型:[%s]. 请修改表中该字段的类型或者不同步该字段.",
-                                                        columnsConfiguration.get(i).getString(Key.NAME),
-                                                        columnsConfiguration.get(i).getString(Key.TYPE)));
-                        }
-                    }
-                    catch (Exception e) {
-                        // warn: 此处认为脏数据
-                        String message = String.format(
-                                "字段类型转换错误：目标字段为[%s]类型，实际字段值为[%s].",
-                                columnsConfiguration.get(i).getString(Key.TYPE), column.getRawData());
-                        taskPluginCollector.collectDirtyRecord(record, message);
-                        break;
-                    }
-                }
-            }
-        }
-        return builder.build();
-    }
-
     public void getFileSystem(String defaultFS, Configuration taskConfig)
     {
         hadoopConf = new org.apache.hadoop.conf.Configuration();
@@ -571,184 +483,21 @@ public class HdfsHelper
 
     /*
      * 写Parquetfile类型文件
-     * 一个parquet文件的schema类似如下：
-     * {
-     *    "type":	"record",
-     *    "name":	"testFile",
-     *    "doc":	"test records",
-     *    "fields":
-     *      [{
-     *        "name":	"id",
-     *        "type":	["null", "int"]
-     *
-     *      },
-     *      {
-     *        "name":	"empName",
-     *        "type":	"string"
-     *      }
-     *    ]
-     *  }
-     * "null" 表示该字段允许为空
+     * 直接按列配置生成 Parquet schema，每个字段都是 optional 的，记录不再经过 Avro 的 GenericRecord 转换
      */
     public void parquetFileStartWrite(RecordReceiver lineReceiver, Configuration config, String fileName,
             TaskPluginCollector taskPluginCollector)
     {
-
         List<Configuration> columns = config.getListConfiguration(Key.COLUMN);
         String compress = config.getString(Key.COMPRESS, "UNCOMPRESSED").toUpperCase().trim();
         if ("NONE".equals(compress)) {
             compress = "UNCOMPRESSED";
         }
-        // construct parquet schema
-        Schema schema = generateParquetSchema(columns);
-
-        Path path = new Path(fileName);
-        LOG.info("write parquet file {}", fileName);
         CompressionCodecName codecName = CompressionCodecName.fromConf(compress);
+        int rowGroupSize = config.getInt(HdfsKey.ROW_GROUP_SIZE, ParquetWriter.DEFAULT_BLOCK_SIZE / MB) * MB;
 
-        GenericData decimalSupport = new GenericData();
-        decimalSupport.addLogicalTypeConversion(new Conversions.DecimalConversion());
-
-        try (ParquetWriter<GenericRecord> writer = AvroParquetWriter
-                .<GenericRecord>builder(path)
-                .withRowGroupSize(ParquetWriter.DEFAULT_BLOCK_SIZE)
-                .withPageSize(ParquetWriter.DEFAULT_PAGE_SIZE)
-                .withSchema(schema)
-                .withConf(hadoopConf)
-                .withCompressionCodec(codecName)
-                .withValidation(false)
-                .withDictionaryEncoding(false)
-                .withDataModel(decimalSupport)
-                .withWriterVersion(ParquetProperties.WriterVersion.PARQUET_1_0)
-                .build()) {
-
-            Record record;
-            while ((record = lineReceiver.getFromReader()) != null) {
-                GenericRecordBuilder builder = new GenericRecordBuilder(schema);
-                GenericRecord transportResult = transportParRecord(record, columns, taskPluginCollector, builder);
-                writer.write(transportResult);
-            }
-        }
-        catch (Exception e) {
-            LOG.error("写文件文件[{}]时发生IO异常,请检查您的网络是否正常！", fileName);
-            deleteDir(path.getParent());
-            throw AddaxException.asAddaxException(HdfsWriterErrorCode.Write_FILE_IO_ERROR, e);
-        }
-    }
-
-    private Schema generateParquetSchema(List<Configuration> columns)
-    {
-        List<Schema.Field> fields = new ArrayList<>();
-        String fieldName;
-        String type;
-        List<Schema> unionList = new ArrayList<>(2);
-        for (Configuration column : columns) {
-            unionList.clear();
-            fieldName = column.getString(Key.NAME);
-            type = column.getString(Key.TYPE).trim().toUpperCase();
-            unionList.add(Schema.create(Schema.Type.NULL));
-            switch (type) {
-                case "DECIMAL":
-                    Schema dec = LogicalTypes.decimal(column.getInt(Key.PRECISION, DECIMAL_DEFAULT_PRECISION), column.getInt(Key.SCALE, DECIMAL_DEFAULT_SCALE))
-                            .addToSchema(Schema.createFixed(fieldName, null, null, 16));
-                    unionList.add(dec);
-                    break;
-                case "DATE":
-                    Schema date = LogicalTypes.date().addToSchema(Schema.create(Schema.Type.INT));
-                    unionList.add(date);
-                    break;
-                case "TIMESTAMP":
-                    Schema ts = LogicalTypes.timestampMillis().addToSchema(Schema.create(Schema.Type.LONG));
-                    unionList.add(ts);
-                    break;
-                case "UUID":
-                    Schema uuid = LogicalTypes.uuid().addToSchema(Schema.create(Schema.Type.STRING));
-                    unionList.add(uuid);
-                    break;
-                case "BINARY":
-                    unionList.add(Schema.create(Schema.Type.BYTES));
-                    break;
-                default:
-                    // primi
-                    unionList.add(Schema.create(Schema.Type.valueOf(type)));
-                    break;
-            }
-            fields.add(new Schema.Field(fieldName, Schema.createUnion(unionList), null, (Object) null));
-        }
-        Schema schema = Schema.createRecord("datax", null, "parquet", false);
-        schema.setFields(fields);
-        return schema;
-    }
-
-    private void setRow(VectorizedRowBatch batch, int row, Record record, List<Configuration> columns, TaskPluginCollector taskPluginCollector)
-    {
-        for (int i = 0; i < columns.size(); i++) {
-            Configuration eachColumnConf = columns.get(i);
-            String type = eachColumnConf.getString(Key.TYPE).trim().toUpperCase();
-            SupportHiveDataType columnType;
-            ColumnVector col = batch.cols[i];
-            if (type.startsWith("DECIMAL")) {
-                columnType = SupportHiveDataType.DECIMAL;
-            }
-            else {
-                columnType = SupportHiveDataType.valueOf(type);
-            }
-            if (record.getColumn(i) == null || record.getColumn(i).getRawData() == null) {
-                col.isNull[row] = true;
-                col.noNulls = false;
-                continue;
-            }
-
-            try {
-                switch (columnType) {
-                    case TINYINT:
-                    case SMALLINT:
-                    case INT:
-                    case BIGINT:
-                    case BOOLEAN:
-                    case DATE:
-                        ((LongColumnVector) col).vector[row] = record.getColumn(i).asLong();
-                        break;
-                    case FLOAT:
-                    case DOUBLE:
-                        ((DoubleColumnVector) col).vector[row] = record.getColumn(i).asDouble();
-                        break;
-                    case DECIMAL:
-                        HiveDecimalWritable hdw = new HiveDecimalWritable();
-                        hdw.set(HiveDecimal.create(record.getColumn(i).asBigDecimal()).setScale(eachColumnConf.getInt(Key.SCALE), HiveDecimal.ROUND_HALF_UP));
-                        ((DecimalColumnVector) col).set(row, hdw);
-                        break;
-                    case TIMESTAMP:
-                        ((TimestampColumnVector) col).set(row, java.sql.Timestamp.valueOf(record.getColumn(i).asString()));
-                        break;
-                    case STRING:
-                    case VARCHAR:
-                    case CHAR:
-                        byte[] buffer = record.getColumn(i).getRawData().toString().getBytes(StandardCharsets.UTF_8);
-                        ((BytesColumnVector) col).setRef(row, buffer, 0, buffer.length);
-                        break;
-                    case BINARY:
-                        byte[] content = (byte[]) record.getColumn(i).getRawData();
-                        ((BytesColumnVector) col).setRef(row, content, 0, content.length);
-                        break;
-                    default:
-                        throw AddaxException
-                                .asAddaxException(
-                                        HdfsWriterErrorCode.ILLEGAL_VALUE,
-                                        String.format(
-                                                "您的配置文件中的列配置信息有误. 因为DataX 不支持数据库写入这种字段类型. 字段名:[%s], 字段类型:[%s]. 请修改表中该字段的类型或者不同步该字段.",
-                                                eachColumnConf.getString(Key.NAME),
-                                                eachColumnConf.getString(Key.TYPE)));
-                }
-            }
-            catch (Exception e) {
-                taskPluginCollector.collectDirtyRecord(record, e.getMessage());
-                throw AddaxException.asAddaxException(HdfsWriterErrorCode.ILLEGAL_VALUE,
-                        String.format("设置Orc数据行失败，源列类型: %s, 目的原始类型:%s, 目的列Hive类型: %s, 字段名称: %s, 源值: %s, 错误根源：\n %s",
-                                record.getColumn(i).getType(), columnType, eachColumnConf.getString(Key.TYPE), eachColumnConf.getString(Key.NAME),
-                                record.getColumn(i).getRawData(), e));
-            }
-        }
+        startWrite(lineReceiver, config, fileName, file ->
+                new ParquetRecordWriter(hadoopConf, file, columns, codecName, rowGroupSize, taskPluginCollector));
     }
 
     /*
@@ -770,26 +519,35 @@ public class HdfsHelper
             }
         }
         TypeDescription schema = TypeDescription.fromString("struct<" + joiner + ">");
-        try (Writer writer = OrcFile.createWriter(new Path(fileName),
-                OrcFile.writerOptions(conf)
-                        .setSchema(schema)
-                        .compress(CompressionKind.valueOf(compress)))) {
-            Record record;
-            VectorizedRowBatch batch = schema.createRowBatch(1024);
-            while ((record = lineReceiver.getFromReader()) != null) {
-                int row = batch.size++;
-                setRow(batch, row, record, columns, taskPluginCollector);
-                if (batch.size == batch.getMaxSize()) {
-                    writer.addRowBatch(batch);
-                    batch.reset();
-                }
-            }
-            if (batch.size != 0) {
-                writer.addRowBatch(batch);
-                batch.reset();
+        // 每一列的写入方式只解析一次
+        OrcColumnWriter[] columnWriters = columns.stream().map(OrcColumnWriter::of).toArray(OrcColumnWriter[]::new);
+        int batchSize = config.getInt(Key.BATCH_SIZE, DEFAULT_BATCH_SIZE);
+        Integer stripeSize = config.getInt(HdfsKey.STRIPE_SIZE);
+
+        startWrite(lineReceiver, config, fileName, file -> {
+            OrcFile.WriterOptions options = OrcFile.writerOptions(conf)
+                    .setSchema(schema)
+                    .compress(CompressionKind.valueOf(compress));
+            if (stripeSize != null) {
+                options.stripeSize((long) stripeSize * MB);
             }
+            return new OrcRecordWriter(fileSystem, file, schema, columnWriters, options, batchSize, taskPluginCollector);
+        });
+    }
+
+    /*
+     * 按 maxFileSize 切分文件，按 parallelFiles 并行写入
+     */
+    private void startWrite(RecordReceiver lineReceiver, Configuration config, String fileName, RollingFileWriter.Factory factory)
+    {
+        String suffix = getCompressFileSuffix(config.getString(Key.COMPRESS, "NONE").toUpperCase().trim());
+        long maxFileSize = config.getLong(HdfsKey.MAX_FILE_SIZE, 0L) * MB;
+        int parallelFiles = config.getInt(HdfsKey.PARALLEL_FILES, 1);
+        int batchSize = config.getInt(Key.BATCH_SIZE, DEFAULT_BATCH_SIZE);
+        try {
+            new RollingFileWriter(fileName, suffix, maxFileSize, parallelFiles, batchSize, factory).write(lineReceiver);
         }
-        catch (IOException e) {
+        catch (Exception e) {
             LOG.error("写文件文件[{}]时发生IO异常,请检查您的网络是否正常！", fileName);
             Path path = new Path(fileName);
             deleteDir(path.getParent());
@@ -797,6 +555,44 @@ public class HdfsHelper
         }
     }
 
+    static SupportHiveDataType getColumnType(Configuration columnConf)
+    {
+        String type = columnConf.getString(Key.TYPE).trim().toUpperCase();
+        if (type.startsWith("DECIMAL")) {
+            return SupportHiveDataType.DECIMAL;
+        }
+        try {
+            return SupportHiveDataType.valueOf(type);
+        }
+        catch (IllegalArgumentException e) {
+            throw unsupportedType(columnConf);
+        }
+    }
+
+    static AddaxException unsupportedType(Configuration columnConf)
+    {
+        return AddaxException.asAddaxException(
+                HdfsWriterErrorCode.ILLEGAL_VALUE,
+                String.format(
+                        "您的配置文件中的列配置信息有误. 因为DataX 不支持数据库写入这种字段类型. 字段名:[%s], 字段类型:[%s]. 请修改表中该字段的类型或者不同步该字段.",
+                        columnConf.getString(Key.NAME),
+                        columnConf.getString(Key.TYPE)));
+    }
+
+    // DATE 类型保存为 1970-01-01 以来的天数
+    static int toEpochDay(Column column)
+    {
+        return (int) Instant.ofEpochMilli(column.asDate().getTime()).atZone(ZoneId.systemDefault()).toLocalDate().toEpochDay();
+    }
+
+    static Timestamp toTimestamp(Column column)
+    {
+        if (column.getType() == Column.Type.DATE) {
+            return new Timestamp(column.asLong());
+        }
+        return Timestamp.valueOf(column.asString());
+    }
+
     /**
      * 根据不同压缩算法，返回对应的文件名后缀(包含点(.))
      *
@@ -0,0 +1,35 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.wgzhao.addax.plugin.writer.hdfswriter;
+
+import com.wgzhao.addax.common.base.Key;
+
+public class HdfsKey
+        extends Key
+{
+    // ORC stripe 大小，单位 MB
+    public static final String STRIPE_SIZE = "stripeSize";
+    // Parquet row group 大小，单位 MB
+    public static final String ROW_GROUP_SIZE = "rowGroupSize";
+    // 单个文件的最大大小，单位 MB，超过后切换到新文件，0 表示不切分
+    public static final String MAX_FILE_SIZE = "maxFileSize";
+    // 每个任务同时写入的文件数
+    public static final String PARALLEL_FILES = "parallelFiles";
+}
@@ -36,6 +36,7 @@ import org.slf4j.LoggerFactory;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
@@ -49,14 +50,16 @@ public class HdfsWriter
             extends Writer.Job
     {
         private static final Logger LOG = LoggerFactory.getLogger(Job.class);
-        private final HashSet<String> tmpFiles = new HashSet<>();//临时文件全路径
-        private final HashSet<String> endFiles = new HashSet<>();//最终文件全路径
+        // 临时文件和最终文件按顺序一一对应
+        private final HashSet<String> tmpFiles = new LinkedHashSet<>();//临时文件全路径
+        private final HashSet<String> endFiles = new LinkedHashSet<>();//最终文件全路径
         private Configuration writerSliceConfig = null;
         private String defaultFS;
         private String path;
         private String fileName;
         private String writeMode;
         private String compress;
+        private String tmpStorePath;
         private HdfsHelper hdfsHelper = null;
 
         public static final Set<String> SUPPORT_FORMAT = new HashSet<>(Arrays.asList("ORC", "PARQUET", "TEXT"));
@@ -175,6 +178,16 @@ public class HdfsWriter
                 }
             }
 
+            // file rolling check
+            if (this.writerSliceConfig.getInt(HdfsKey.PARALLEL_FILES, 1) < 1) {
+                throw AddaxException.asAddaxException(HdfsWriterErrorCode.ILLEGAL_VALUE,
+                        String.format("您配置的 %s 必须大于 0", HdfsKey.PARALLEL_FILES));
+            }
+            if ("TEXT".equals(fileType) && (this.writerSliceConfig.getLong(HdfsKey.MAX_FILE_SIZE, 0L) > 0
+                    || this.writerSliceConfig.getInt(HdfsKey.PARALLEL_FILES, 1) > 1)) {
+                LOG.warn("{} 和 {} 仅对 ORC 和 PARQUET 格式生效, TEXT 格式将忽略这两个配置项", HdfsKey.MAX_FILE_SIZE, HdfsKey.PARALLEL_FILES);
+            }
+
             //Kerberos check
             boolean haveKerberos = this.writerSliceConfig.getBool(Key.HAVE_KERBEROS, false);
             if (haveKerberos) {
@@ -237,11 +250,39 @@ public class HdfsWriter
             if ("overwrite".equals(writeMode)) {
                 hdfsHelper.deleteFiles(existFilePaths, false);
             }
+            collectRolledFiles();
             hdfsHelper.renameFile(this.tmpFiles, this.endFiles);
             // 删除临时目录
             hdfsHelper.deleteFiles(existFilePaths, true);
         }
 
+        /*
+         * 配置了 maxFileSize 或 parallelFiles 时，一个任务除了自己的文件外还可能写出多个以 "_序号" 结尾的文件，
+         * 临时目录只属于当前作业，其中不在 tmpFiles 中的文件都需要一起移动到目标目录
+         */
+        private void collectRolledFiles()
+        {
+            if (this.writerSliceConfig.getLong(HdfsKey.MAX_FILE_SIZE, 0L) <= 0
+                    && this.writerSliceConfig.getInt(HdfsKey.PARALLEL_FILES, 1) <= 1) {
+                return;
+            }
+            String tmpDir = defaultFS + tmpStorePath;
+            if (!hdfsHelper.isPathexists(tmpDir)) {
+                return;
+            }
+            Set<String> taskFiles = new HashSet<>();
+            for (String tmpFile : tmpFiles) {
+                taskFiles.add(new Path(tmpFile).getName());
+            }
+            for (Path p : hdfsHelper.hdfsDirList(tmpDir)) {
+                String name = p.getName();
+                if (!taskFiles.contains(name)) {
+                    this.tmpFiles.add(tmpDir + name);
+                    this.endFiles.add(defaultFS + this.path + name);
+                }
+            }
+        }
+
         @Override
         public void destroy()
         {
@@ -273,6 +314,7 @@ public class HdfsWriter
                 //最终影响到直接删除更高一层的目录，导致Hive数据出现问题。
                 storePath = storePath.replace('\\', '/');
             }
+            this.tmpStorePath = storePath;
             //最终存放路径
             String endStorePath = buildFilePath();
             if (endStorePath != null && endStorePath.contains("/")) {
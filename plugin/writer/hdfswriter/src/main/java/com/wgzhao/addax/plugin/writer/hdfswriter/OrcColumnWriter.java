@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.wgzhao.addax.plugin.writer.hdfswriter;
+
+import com.wgzhao.addax.common.base.Key;
+import com.wgzhao.addax.common.element.Column;
+import com.wgzhao.addax.common.util.Configuration;
+import org.apache.hadoop.hive.common.type.HiveDecimal;
+import org.apache.hadoop.hive.ql.exec.vector.BytesColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.ColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.DecimalColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.DoubleColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.LongColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.TimestampColumnVector;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 将一个字段的值写入 ORC 列向量的指定行.
+ * 写入方式在开始写文件前根据列配置确定，写入时不再解析列配置和判断类型.
+ */
+@FunctionalInterface
+interface OrcColumnWriter
+{
+    void write(ColumnVector vector, int row, Column column);
+
+    static OrcColumnWriter of(Configuration columnConf)
+    {
+        switch (HdfsHelper.getColumnType(columnConf)) {
+            case TINYINT:
+            case SMALLINT:
+            case INT:
+            case INTEGER:
+            case BIGINT:
+            case LONG:
+                return (vector, row, column) -> ((LongColumnVector) vector).vector[row] = column.asLong();
+            case BOOLEAN:
+                return (vector, row, column) -> ((LongColumnVector) vector).vector[row] = column.asBoolean() ? 1 : 0;
+            case DATE:
+                return (vector, row, column) -> ((LongColumnVector) vector).vector[row] = HdfsHelper.toEpochDay(column);
+            case FLOAT:
+            case DOUBLE:
+                return (vector, row, column) -> ((DoubleColumnVector) vector).vector[row] = column.asDouble();
+            case DECIMAL:
+                int scale = columnConf.getInt(Key.SCALE, HdfsHelper.DECIMAL_DEFAULT_SCALE);
+                return (vector, row, column) -> ((DecimalColumnVector) vector)
+                        .set(row, HiveDecimal.create(column.asBigDecimal()).setScale(scale, HiveDecimal.ROUND_HALF_UP));
+            case TIMESTAMP:
+                return (vector, row, column) -> ((TimestampColumnVector) vector).set(row, HdfsHelper.toTimestamp(column));
+            case STRING:
+            case VARCHAR:
+            case CHAR:
+                return (vector, row, column) -> {
+                    byte[] buffer = column.asString().getBytes(StandardCharsets.UTF_8);
+                    ((BytesColumnVector) vector).setRef(row, buffer, 0, buffer.length);
+                };
+            case BINARY:
+                return (vector, row, column) -> {
+                    byte[] content = column.asBytes();
+                    ((BytesColumnVector) vector).setRef(row, content, 0, content.length);
+                };
+            default:
+                throw HdfsHelper.unsupportedType(columnConf);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.wgzhao.addax.plugin.writer.hdfswriter;
+
+import com.wgzhao.addax.common.element.Column;
+import com.wgzhao.addax.common.element.Record;
+import com.wgzhao.addax.common.plugin.TaskPluginCollector;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.FilterFileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.permission.FsPermission;
+import org.apache.hadoop.hive.ql.exec.vector.ColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatch;
+import org.apache.hadoop.util.Progressable;
+import org.apache.orc.OrcFile;
+import org.apache.orc.TypeDescription;
+import org.apache.orc.Writer;
+
+import java.io.IOException;
+
+/**
+ * 写单个 ORC 文件.
+ * 记录按列写入 VectorizedRowBatch，batch 写满后交给 ORC Writer.
+ * 一行中任意一列转换失败时该行作为脏数据，不写入文件.
+ */
+class OrcRecordWriter
+        implements RollingFileWriter.FileWriter
+{
+    private final Writer writer;
+    private final VectorizedRowBatch batch;
+    private final OrcColumnWriter[] columnWriters;
+    private final TaskPluginCollector taskPluginCollector;
+    private final CountingFileSystem fileSystem;
+
+    OrcRecordWriter(FileSystem fs, String fileName, TypeDescription schema, OrcColumnWriter[] columnWriters,
+            OrcFile.WriterOptions options, int batchSize, TaskPluginCollector taskPluginCollector)
+            throws IOException
+    {
+        this.fileSystem = new CountingFileSystem(fs);
+        this.writer = OrcFile.createWriter(new Path(fileName), options.fileSystem(fileSystem));
+        this.batch = schema.createRowBatch(batchSize);
+        this.columnWriters = columnWriters;
+        this.taskPluginCollector = taskPluginCollector;
+    }
+
+    @Override
+    public void write(Record record)
+            throws IOException
+    {
+        int row = batch.size;
+        for (int i = 0; i < columnWriters.length; i++) {
+            ColumnVector vector = batch.cols[i];
+            Column column = record.getColumn(i);
+            if (column == null || column.getRawData() == null) {
+                vector.isNull[row] = true;
+                vector.noNulls = false;
+                continue;
+            }
+            try {
+                vector.isNull[row] = false;
+                columnWriters[i].write(vector, row, column);
+            }
+            catch (Exception e) {
+                taskPluginCollector.collectDirtyRecord(record, e,
+                        String.format("字段类型转换错误：第 %d 列，实际字段值为[%s].", i + 1, column.getRawData()));
+                return;
+            }
+        }
+        batch.size++;
+        if (batch.size == batch.getMaxSize()) {
+            writer.addRowBatch(batch);
+            batch.reset();
+        }
+    }
+
+    /**
+     * 已经写到文件中的字节数，内存中尚未写出的 stripe 不计算在内
+     */
+    @Override
+    public long getDataSize()
+            throws IOException
+    {
+        return fileSystem.getPos();
+    }
+
+    @Override
+    public void close()
+            throws IOException
+    {
+        if (batch.size != 0) {
+            writer.addRowBatch(batch);
+            batch.reset();
+        }
+        writer.close();
+    }
+
+    /*
+     * ORC Writer 不提供已写出的文件大小，这里记录它创建的输出流，从输出流获取当前位置
+     */
+    private static final class CountingFileSystem
+            extends FilterFileSystem
+    {
+        private volatile FSDataOutputStream out;
+
+        CountingFileSystem(FileSystem fs)
+        {
+            super(fs);
+        }
+
+        @Override
+        public FSDataOutputStream create(Path f, FsPermission permission, boolean overwrite, int bufferSize,
+                short replication, long blockSize, Progressable progress)
+                throws IOException
+        {
+            out = super.create(f, permission, overwrite, bufferSize, replication, blockSize, progress);
+            return out;
+        }
+
+        long getPos()
+                throws IOException
+        {
+            FSDataOutputStream stream = out;
+            return stream == null ? 0 : stream.getPos();
+        }
+    }
+}
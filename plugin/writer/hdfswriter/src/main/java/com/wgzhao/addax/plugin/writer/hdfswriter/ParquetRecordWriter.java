@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.wgzhao.addax.plugin.writer.hdfswriter;
+
+import com.wgzhao.addax.common.element.Record;
+import com.wgzhao.addax.common.plugin.TaskPluginCollector;
+import com.wgzhao.addax.common.util.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.parquet.column.ParquetProperties;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.hadoop.api.WriteSupport;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * 写单个 Parquet 文件
+ */
+class ParquetRecordWriter
+        implements RollingFileWriter.FileWriter
+{
+    private final RecordWriteSupport writeSupport;
+    private final ParquetWriter<Record> writer;
+    private final TaskPluginCollector taskPluginCollector;
+
+    ParquetRecordWriter(org.apache.hadoop.conf.Configuration conf, String fileName, List<Configuration> columns,
+            CompressionCodecName codecName, int rowGroupSize, TaskPluginCollector taskPluginCollector)
+            throws IOException
+    {
+        this.writeSupport = new RecordWriteSupport(columns);
+        this.writer = new Builder(new Path(fileName), writeSupport)
+                .withConf(conf)
+                .withRowGroupSize(rowGroupSize)
+                .withPageSize(ParquetWriter.DEFAULT_PAGE_SIZE)
+                .withCompressionCodec(codecName)
+                .withValidation(false)
+                .withDictionaryEncoding(false)
+                .withWriterVersion(ParquetProperties.WriterVersion.PARQUET_1_0)
+                .build();
+        this.taskPluginCollector = taskPluginCollector;
+    }
+
+    @Override
+    public void write(Record record)
+            throws IOException
+    {
+        try {
+            writeSupport.convert(record);
+        }
+        catch (Exception e) {
+            taskPluginCollector.collectDirtyRecord(record, e, "字段类型转换错误：" + e.getMessage());
+            return;
+        }
+        writer.write(record);
+    }
+
+    /**
+     * 已写出的字节数加上当前 row group 在内存中的大小
+     */
+    @Override
+    public long getDataSize()
+    {
+        return writer.getDataSize();
+    }
+
+    @Override
+    public void close()
+            throws IOException
+    {
+        writer.close();
+    }
+
+    private static final class Builder
+            extends ParquetWriter.Builder<Record, Builder>
+    {
+        private final WriteSupport<Record> writeSupport;
+
+        Builder(Path path, WriteSupport<Record> writeSupport)
+        {
+            super(path);
+            this.writeSupport = writeSupport;
+        }
+
+        @Override
+        protected Builder self()
+        {
+            return this;
+        }
+
+        @Override
+        protected WriteSupport<Record> getWriteSupport(org.apache.hadoop.conf.Configuration conf)
+        {
+            return writeSupport;
+        }
+    }
+}
@@ -0,0 +1,344 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.wgzhao.addax.plugin.writer.hdfswriter;
+
+import com.wgzhao.addax.common.base.Key;
+import com.wgzhao.addax.common.element.Column;
+import com.wgzhao.addax.common.element.Record;
+import com.wgzhao.addax.common.util.Configuration;
+import org.apache.parquet.hadoop.api.WriteSupport;
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.io.api.RecordConsumer;
+import org.apache.parquet.schema.LogicalTypeAnnotation;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName;
+import org.apache.parquet.schema.Types;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * 直接将 Record 写入 Parquet 的 WriteSupport，不需要先转换为 Avro 的 GenericRecord.
+ * <p>
+ * 一行数据先由 {@link #convert(Record)} 转换到每一列的缓存中，全部转换成功后再调用 ParquetWriter.write 写出，
+ * 避免转换失败时写出半行数据. 每个字段都是 optional 的，值为 null 时不写该字段.
+ */
+class RecordWriteSupport
+        extends WriteSupport<Record>
+{
+    // DECIMAL 类型以 16 字节的定长二进制保存，与之前 Avro 的写法保持一致
+    private static final int DECIMAL_BYTES = 16;
+
+    private final MessageType schema;
+    private final FieldWriter[] fields;
+    private RecordConsumer consumer;
+
+    RecordWriteSupport(List<Configuration> columns)
+    {
+        this.fields = new FieldWriter[columns.size()];
+        Types.MessageTypeBuilder builder = Types.buildMessage();
+        for (int i = 0; i < columns.size(); i++) {
+            fields[i] = createField(columns.get(i), i, builder);
+        }
+        this.schema = builder.named("addax");
+    }
+
+    MessageType getSchema()
+    {
+        return schema;
+    }
+
+    @Override
+    public WriteContext init(org.apache.hadoop.conf.Configuration configuration)
+    {
+        return new WriteContext(schema, Collections.emptyMap());
+    }
+
+    @Override
+    public void prepareForWrite(RecordConsumer recordConsumer)
+    {
+        this.consumer = recordConsumer;
+    }
+
+    /**
+     * 转换一行数据
+     *
+     * @param record 需要写入的记录
+     * @throws RuntimeException 任意一列转换失败
+     */
+    void convert(Record record)
+    {
+        for (FieldWriter field : fields) {
+            Column column = record.getColumn(field.index);
+            field.isNull = column == null || column.getRawData() == null;
+            if (!field.isNull) {
+                field.convert(column);
+            }
+        }
+    }
+
+    /*
+     * 写出最近一次 convert 的结果，参数 record 不再使用
+     */
+    @Override
+    public void write(Record record)
+    {
+        consumer.startMessage();
+        for (FieldWriter field : fields) {
+            if (!field.isNull) {
+                consumer.startField(field.name, field.index);
+                field.write(consumer);
+                consumer.endField(field.name, field.index);
+            }
+        }
+        consumer.endMessage();
+    }
+
+    private static FieldWriter createField(Configuration columnConf, int index, Types.MessageTypeBuilder builder)
+    {
+        String name = columnConf.getString(Key.NAME);
+        String type = columnConf.getString(Key.TYPE).trim().toUpperCase();
+        // 兼容之前按 Avro 类型名配置的 uuid 和 bytes
+        if ("UUID".equals(type)) {
+            builder.optional(PrimitiveTypeName.BINARY).as(LogicalTypeAnnotation.stringType()).named(name);
+            return new BinaryField(name, index, c -> Binary.fromString(c.asString()));
+        }
+        if ("BYTES".equals(type)) {
+            builder.optional(PrimitiveTypeName.BINARY).named(name);
+            return new BinaryField(name, index, c -> Binary.fromConstantByteArray(c.asBytes()));
+        }
+        switch (HdfsHelper.getColumnType(columnConf)) {
+            case TINYINT:
+                builder.optional(PrimitiveTypeName.INT32).as(LogicalTypeAnnotation.intType(8, true)).named(name);
+                return new IntField(name, index, c -> c.asLong().intValue());
+            case SMALLINT:
+                builder.optional(PrimitiveTypeName.INT32).as(LogicalTypeAnnotation.intType(16, true)).named(name);
+                return new IntField(name, index, c -> c.asLong().intValue());
+            case INT:
+            case INTEGER:
+                builder.optional(PrimitiveTypeName.INT32).named(name);
+                return new IntField(name, index, c -> c.asLong().intValue());
+            case DATE:
+                builder.optional(PrimitiveTypeName.INT32).as(LogicalTypeAnnotation.dateType()).named(name);
+                return new IntField(name, index, HdfsHelper::toEpochDay);
+            case BIGINT:
+            case LONG:
+                builder.optional(PrimitiveTypeName.INT64).named(name);
+                return new LongField(name, index, Column::asLong);
+            case TIMESTAMP:
+                builder.optional(PrimitiveTypeName.INT64)
+                        .as(LogicalTypeAnnotation.timestampType(true, LogicalTypeAnnotation.TimeUnit.MILLIS)).named(name);
+                return new LongField(name, index, c -> HdfsHelper.toTimestamp(c).getTime());
+            case FLOAT:
+                builder.optional(PrimitiveTypeName.FLOAT).named(name);
+                return new DoubleField(name, index, true);
+            case DOUBLE:
+                builder.optional(PrimitiveTypeName.DOUBLE).named(name);
+                return new DoubleField(name, index, false);
+            case BOOLEAN:
+                builder.optional(PrimitiveTypeName.BOOLEAN).named(name);
+                return new BooleanField(name, index);
+            case STRING:
+            case VARCHAR:
+            case CHAR:
+                builder.optional(PrimitiveTypeName.BINARY).as(LogicalTypeAnnotation.stringType()).named(name);
+                return new BinaryField(name, index, c -> Binary.fromString(c.asString()));
+            case BINARY:
+                builder.optional(PrimitiveTypeName.BINARY).named(name);
+                return new BinaryField(name, index, c -> Binary.fromConstantByteArray(c.asBytes()));
+            case DECIMAL:
+                int precision = columnConf.getInt(Key.PRECISION, HdfsHelper.DECIMAL_DEFAULT_PRECISION);
+                int scale = columnConf.getInt(Key.SCALE, HdfsHelper.DECIMAL_DEFAULT_SCALE);
+                builder.optional(PrimitiveTypeName.FIXED_LEN_BYTE_ARRAY).length(DECIMAL_BYTES)
+                        .as(LogicalTypeAnnotation.decimalType(scale, precision)).named(name);
+                return new BinaryField(name, index, c -> decimalToFixed(c.asBigDecimal(), scale));
+            default:
+                throw HdfsHelper.unsupportedType(columnConf);
+        }
+    }
+
+    /*
+     * 将 decimal 的非标度值按大端补齐到 16 个字节，高位用符号位填充
+     */
+    private static Binary decimalToFixed(BigDecimal value, int scale)
+    {
+        byte[] unscaled = value.setScale(scale, BigDecimal.ROUND_HALF_UP).unscaledValue().toByteArray();
+        if (unscaled.length > DECIMAL_BYTES) {
+            throw new IllegalArgumentException(String.format("decimal 值 [%s] 超出了 %d 字节的表示范围", value, DECIMAL_BYTES));
+        }
+        byte[] fixed = new byte[DECIMAL_BYTES];
+        byte pad = (byte) (unscaled[0] < 0 ? -1 : 0);
+        int offset = DECIMAL_BYTES - unscaled.length;
+        for (int i = 0; i < offset; i++) {
+            fixed[i] = pad;
+        }
+        System.arraycopy(unscaled, 0, fixed, offset, unscaled.length);
+        return Binary.fromConstantByteArray(fixed);
+    }
+
+    private abstract static class FieldWriter
+    {
+        final String name;
+        final int index;
+        boolean isNull;
+
+        FieldWriter(String name, int index)
+        {
+            this.name = name;
+            this.index = index;
+        }
+
+        abstract void convert(Column column);
+
+        abstract void write(RecordConsumer consumer);
+    }
+
+    private static final class IntField
+            extends FieldWriter
+    {
+        private final ToIntFunction<Column> converter;
+        private int value;
+
+        IntField(String name, int index, ToIntFunction<Column> converter)
+        {
+            super(name, index);
+            this.converter = converter;
+        }
+
+        @Override
+        void convert(Column column)
+        {
+            value = converter.applyAsInt(column);
+        }
+
+        @Override
+        void write(RecordConsumer consumer)
+        {
+            consumer.addInteger(value);
+        }
+    }
+
+    private static final class LongField
+            extends FieldWriter
+    {
+        private final ToLongFunction<Column> converter;
+        private long value;
+
+        LongField(String name, int index, ToLongFunction<Column> converter)
+        {
+            super(name, index);
+            this.converter = converter;
+        }
+
+        @Override
+        void convert(Column column)
+        {
+            value = converter.applyAsLong(column);
+        }
+
+        @Override
+        void write(RecordConsumer consumer)
+        {
+            consumer.addLong(value);
+        }
+    }
+
+    private static final class DoubleField
+            extends FieldWriter
+    {
+        private final boolean isFloat;
+        private double value;
+
+        DoubleField(String name, int index, boolean isFloat)
+        {
+            super(name, index);
+            this.isFloat = isFloat;
+        }
+
+        @Override
+        void convert(Column column)
+        {
+            value = column.asDouble();
+        }
+
+        @Override
+        void write(RecordConsumer consumer)
+        {
+            if (isFloat) {
+                consumer.addFloat((float) value);
+            }
+            else {
+                consumer.addDouble(value);
+            }
+        }
+    }
+
+    private static final class BooleanField
+            extends FieldWriter
+    {
+        private boolean value;
+
+        BooleanField(String name, int index)
+        {
+            super(name, index);
+        }
+
+        @Override
+        void convert(Column column)
+        {
+            value = column.asBoolean();
+        }
+
+        @Override
+        void write(RecordConsumer consumer)
+        {
+            consumer.addBoolean(value);
+        }
+    }
+
+    private static final class BinaryField
+            extends FieldWriter
+    {
+        private final Function<Column, Binary> converter;
+        private Binary value;
+
+        BinaryField(String name, int index, Function<Column, Binary> converter)
+        {
+            super(name, index);
+            this.converter = converter;
+        }
+
+        @Override
+        void convert(Column column)
+        {
+            value = converter.apply(column);
+        }
+
+        @Override
+        void write(RecordConsumer consumer)
+        {
+            consumer.addBinary(value);
+        }
+    }
+}
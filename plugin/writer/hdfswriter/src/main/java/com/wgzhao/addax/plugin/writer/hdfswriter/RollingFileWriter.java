@@ -0,0 +1,242 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.wgzhao.addax.plugin.writer.hdfswriter;
+
+import com.wgzhao.addax.common.element.Record;
+import com.wgzhao.addax.common.plugin.RecordReceiver;
+import com.wgzhao.addax.common.util.AsyncFailure;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 一个任务写出的一个或多个文件.
+ * <p>
+ * 文件大小达到 maxFileSize 后关闭当前文件，后续记录写入新文件，新文件名是在任务文件名的压缩后缀前加上 "_序号".
+ * parallelFiles 大于 1 时，读取线程把记录按批放入队列，由多个写入线程各自写自己的文件，
+ * 列式文件的编码和压缩可以在多个线程中同时进行.
+ */
+class RollingFileWriter
+{
+    private static final Logger LOG = LoggerFactory.getLogger(RollingFileWriter.class);
+
+    // 每写入多少条记录检查一次文件大小
+    private static final int SIZE_CHECK_INTERVAL = 1024;
+    private static final List<Record> EOF = Collections.emptyList();
+
+    interface FileWriter
+            extends Closeable
+    {
+        void write(Record record)
+                throws IOException;
+
+        long getDataSize()
+                throws IOException;
+    }
+
+    interface Factory
+    {
+        FileWriter create(String fileName)
+                throws IOException;
+    }
+
+    private final String fileName;
+    private final String suffix;
+    private final long maxFileSize;
+    private final int parallelFiles;
+    private final int batchSize;
+    private final Factory factory;
+
+    private final AtomicInteger fileIndex = new AtomicInteger(0);
+    private final AsyncFailure failure = new AsyncFailure(HdfsWriterErrorCode.Write_FILE_IO_ERROR);
+
+    /**
+     * @param fileName 任务的文件名，第一个文件使用该文件名
+     * @param suffix 压缩后缀，可以为 null
+     * @param maxFileSize 单个文件的最大字节数，小于等于 0 表示不切分
+     * @param parallelFiles 同时写入的文件数
+     * @param batchSize 并行写入时，每次交给写入线程的记录数
+     * @param factory 创建单个文件的 writer
+     */
+    RollingFileWriter(String fileName, String suffix, long maxFileSize, int parallelFiles, int batchSize, Factory factory)
+    {
+        this.fileName = fileName;
+        this.suffix = suffix;
+        this.maxFileSize = maxFileSize;
+        this.parallelFiles = Math.max(1, parallelFiles);
+        this.batchSize = Math.max(1, batchSize);
+        this.factory = factory;
+    }
+
+    /**
+     * 第 index 个文件的文件名，第 0 个文件就是任务的文件名
+     *
+     * @param fileName 任务的文件名
+     * @param suffix 压缩后缀，可以为 null
+     * @param index 文件序号
+     * @return 文件名
+     */
+    static String getFileName(String fileName, String suffix, int index)
+    {
+        if (index == 0) {
+            return fileName;
+        }
+        if (suffix != null && fileName.endsWith(suffix)) {
+            return fileName.substring(0, fileName.length() - suffix.length()) + "_" + index + suffix;
+        }
+        return fileName + "_" + index;
+    }
+
+    void write(RecordReceiver lineReceiver)
+            throws IOException, InterruptedException
+    {
+        // 第一个文件总是创建，即使没有数据，Job 在 post 阶段需要重命名该文件
+        Slot first = new Slot();
+        first.open();
+        if (parallelFiles == 1) {
+            try {
+                Record record;
+                while ((record = lineReceiver.getFromReader()) != null) {
+                    first.write(record);
+                }
+                first.close();
+            }
+            catch (IOException | RuntimeException e) {
+                first.closeQuietly();
+                throw e;
+            }
+            return;
+        }
+
+        BlockingQueue<List<Record>> queue = new ArrayBlockingQueue<>(parallelFiles * 2);
+        List<Thread> workers = new ArrayList<>(parallelFiles);
+        ThreadFactory threadFactory = AsyncFailure.daemonThreadFactory("hdfs-writer");
+        for (int i = 0; i < parallelFiles; i++) {
+            Slot slot = i == 0 ? first : new Slot();
+            Thread worker = threadFactory.newThread(() -> runWorker(slot, queue));
+            worker.start();
+            workers.add(worker);
+        }
+        try {
+            List<Record> batch = new ArrayList<>(batchSize);
+            Record record;
+            while ((record = lineReceiver.getFromReader()) != null) {
+                batch.add(record);
+                if (batch.size() >= batchSize) {
+                    failure.put(queue, batch);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (!batch.isEmpty()) {
+                failure.put(queue, batch);
+            }
+            for (int i = 0; i < parallelFiles; i++) {
+                failure.put(queue, EOF);
+            }
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            failure.check();
+        }
+        catch (InterruptedException | RuntimeException e) {
+            workers.forEach(Thread::interrupt);
+            throw e;
+        }
+    }
+
+    private void runWorker(Slot slot, BlockingQueue<List<Record>> queue)
+    {
+        try {
+            List<Record> batch;
+            while ((batch = queue.take()) != EOF) {
+                for (Record record : batch) {
+                    slot.write(record);
+                }
+            }
+            slot.close();
+        }
+        catch (Throwable e) {
+            slot.closeQuietly();
+            failure.set(e, queue);
+        }
+    }
+
+    /*
+     * 一个写入线程当前写的文件
+     */
+    private final class Slot
+    {
+        private FileWriter writer;
+        private String currentFile;
+        private long records;
+
+        void open()
+                throws IOException
+        {
+            currentFile = getFileName(fileName, suffix, fileIndex.getAndIncrement());
+            LOG.info("write to file : [{}]", currentFile);
+            writer = factory.create(currentFile);
+            records = 0;
+        }
+
+        void write(Record record)
+                throws IOException
+        {
+            if (writer == null) {
+                open();
+            }
+            writer.write(record);
+            records++;
+            if (maxFileSize > 0 && records % SIZE_CHECK_INTERVAL == 0 && writer.getDataSize() >= maxFileSize) {
+                LOG.info("The size of file [{}] reaches {} bytes, roll to a new file.", currentFile, maxFileSize);
+                close();
+            }
+        }
+
+        void close()
+                throws IOException
+        {
+            if (writer != null) {
+                FileWriter current = writer;
+                writer = null;
+                current.close();
+            }
+        }
+
+        void closeQuietly()
+        {
+            try {
+                close();
+            }
+            catch (Exception e) {
+                LOG.warn("Failed to close file [{}]: {}", currentFile, e.getMessage());
+            }
+        }
+    }
+}
@@ -34,4 +34,7 @@ public final class KuduConstant extends Constant
     public static final String INSERT_MODE = "upsert";
     public static final long DEFAULT_WRITE_BATCH_SIZE = 512L;
     public static final long DEFAULT_MUTATION_BUFFER_SPACE = 3072L;
+
+    public static final String MANUAL_FLUSH = "manual";
+    public static final String BACKGROUND_FLUSH = "background";
 }
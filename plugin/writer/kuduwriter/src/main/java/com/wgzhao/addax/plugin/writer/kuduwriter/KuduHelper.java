@@ -42,11 +42,6 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.SynchronousQueue;
-import java.util.concurrent.ThreadFactory;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
 
 public class KuduHelper
 {
@@ -81,51 +76,6 @@ public class KuduHelper
         }
     }
 
-    public static ThreadPoolExecutor createRowAddThreadPool(int coreSize)
-    {
-        return new ThreadPoolExecutor(coreSize,
-                coreSize,
-                60L,
-                TimeUnit.SECONDS,
-                new SynchronousQueue<Runnable>(),
-                new ThreadFactory()
-                {
-                    private final ThreadGroup group = System.getSecurityManager() == null ?
-                            Thread.currentThread().getThreadGroup() : System.getSecurityManager().getThreadGroup();
-                    private final AtomicInteger threadNumber = new AtomicInteger(1);
-
-                    @Override
-                    public Thread newThread(Runnable r)
-                    {
-                        Thread t = new Thread(group, r,
-                                "pool-kudu_rows_add-thread-" + threadNumber.getAndIncrement(),
-                                0);
-                        if (t.isDaemon()) {
-                            t.setDaemon(false);
-                        }
-                        if (t.getPriority() != Thread.NORM_PRIORITY) {
-                            t.setPriority(Thread.NORM_PRIORITY);
-                        }
-                        return t;
-                    }
-                }, new ThreadPoolExecutor.CallerRunsPolicy());
-    }
-
-    public static List<List<Configuration>> getColumnLists(List<Configuration> columns)
-    {
-        int quota = 8;
-        int num = (columns.size() - 1) / quota + 1;
-        int gap = columns.size() / num;
-        List<List<Configuration>> columnLists = new ArrayList<>(num);
-        for (int j = 0; j < num - 1; j++) {
-            List<Configuration> destList = new ArrayList<>(columns.subList(j * gap, (j + 1) * gap));
-            columnLists.add(destList);
-        }
-        List<Configuration> destList = new ArrayList<>(columns.subList(gap * (num - 1), columns.size()));
-        columnLists.add(destList);
-        return columnLists;
-    }
-
     public static boolean isTableExists(Configuration configuration)
     {
         String tableName = configuration.getString(KuduKey.KUDU_TABLE_NAME);
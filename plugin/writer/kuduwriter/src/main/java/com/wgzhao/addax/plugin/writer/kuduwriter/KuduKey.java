@@ -53,5 +53,7 @@ public class KuduKey
     public static final String WRITE_BATCH_SIZE = "batchSize";
 
     public static final String MUTATION_BUFFER_SPACE = "bufferSize";
+    // manual: 每 batchSize 条记录同步刷新一次; background: 由客户端在后台自动刷新
+    public static final String FLUSH_MODE = "flushMode";
     public static final String SKIP_FAIL = "skipFail";
 }
@@ -24,153 +24,260 @@ import com.wgzhao.addax.common.element.Record;
 import com.wgzhao.addax.common.exception.AddaxException;
 import com.wgzhao.addax.common.plugin.RecordReceiver;
 import com.wgzhao.addax.common.plugin.TaskPluginCollector;
-import com.wgzhao.addax.common.spi.Writer;
 import com.wgzhao.addax.common.util.Configuration;
-import org.apache.kudu.Type;
-import org.apache.kudu.client.Insert;
+import org.apache.kudu.ColumnSchema;
+import org.apache.kudu.Schema;
 import org.apache.kudu.client.KuduClient;
+import org.apache.kudu.client.KuduException;
 import org.apache.kudu.client.KuduSession;
 import org.apache.kudu.client.KuduTable;
+import org.apache.kudu.client.Operation;
+import org.apache.kudu.client.OperationResponse;
 import org.apache.kudu.client.PartialRow;
+import org.apache.kudu.client.RowError;
+import org.apache.kudu.client.RowErrorsAndOverflowStatus;
 import org.apache.kudu.client.SessionConfiguration;
-import org.apache.kudu.client.Upsert;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.math.BigDecimal;
 import java.sql.Date;
 import java.sql.Timestamp;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ThreadPoolExecutor;
 
 public class KuduWriterTask
-    extends Writer
 {
     private static final Logger LOG = LoggerFactory.getLogger(KuduWriterTask.class);
     public KuduClient kuduClient;
     public KuduSession session;
-    private List<Configuration> columns;
-    private List<List<Configuration>> columnLists;
-    private List<Map<String, Type>> needColumns;
-    private ThreadPoolExecutor pool;
-    private String encoding;
-    private Double batchSize;
-    private Boolean isUpsert;
-    private Boolean isSkipFail;
-    private KuduTable table;
-    private Integer primaryKeyIndexUntil;
-    private Configuration configuration;
+    private final List<Configuration> columns;
+    private final int batchSize;
+    private final boolean isUpsert;
+    private final boolean isSkipFail;
+    private final boolean isBackgroundFlush;
+    private final KuduTable table;
+    private final ColumnSetter[] setters;
 
     public KuduWriterTask(Configuration configuration)
     {
-        this.configuration = configuration;
-        columns = configuration.getListConfiguration(KuduKey.COLUMN);
-        columnLists = KuduHelper.getColumnLists(columns);
-        pool = KuduHelper.createRowAddThreadPool(columnLists.size());
-
-        this.encoding = configuration.getString(KuduKey.ENCODING);
-        this.batchSize = configuration.getDouble(KuduKey.WRITE_BATCH_SIZE);
+        this.columns = configuration.getListConfiguration(KuduKey.COLUMN);
+        this.batchSize = configuration.getInt(KuduKey.WRITE_BATCH_SIZE, (int) KuduConstant.DEFAULT_WRITE_BATCH_SIZE);
         this.isUpsert = !"insert".equalsIgnoreCase(configuration.getString(KuduKey.WRITE_MODE));
-        this.isSkipFail = configuration.getBool(KuduKey.SKIP_FAIL);
-        long mutationBufferSpace = configuration.getLong(KuduKey.MUTATION_BUFFER_SPACE);
+        this.isSkipFail = configuration.getBool(KuduKey.SKIP_FAIL, false);
+        String flushMode = configuration.getString(KuduKey.FLUSH_MODE, KuduConstant.MANUAL_FLUSH);
+        if (!KuduConstant.MANUAL_FLUSH.equalsIgnoreCase(flushMode) && !KuduConstant.BACKGROUND_FLUSH.equalsIgnoreCase(flushMode)) {
+            throw AddaxException.asAddaxException(KuduWriterErrorCode.ILLEGAL_VALUE,
+                    String.format("The flushMode [%s] is not supported, it should be %s or %s",
+                            flushMode, KuduConstant.MANUAL_FLUSH, KuduConstant.BACKGROUND_FLUSH));
+        }
+        this.isBackgroundFlush = KuduConstant.BACKGROUND_FLUSH.equalsIgnoreCase(flushMode);
+        // 手动刷新时，缓冲区至少要能容纳一个批次的数据，否则会出现 buffer full 的错误
+        int mutationBufferSpace = Math.max(configuration.getInt(KuduKey.MUTATION_BUFFER_SPACE,
+                (int) KuduConstant.DEFAULT_MUTATION_BUFFER_SPACE), this.batchSize);
 
         this.kuduClient = KuduHelper.getKuduClient(configuration);
         this.table = KuduHelper.getKuduTable(this.kuduClient,
                 configuration.getString(KuduKey.KUDU_TABLE_NAME));
+        this.setters = createSetters(this.table.getSchema(), KuduHelper.getColumnNames(this.columns));
 
         this.session = kuduClient.newSession();
-        session.setFlushMode(SessionConfiguration.FlushMode.MANUAL_FLUSH);
-        session.setMutationBufferSpace((int) mutationBufferSpace);
-//        this.primaryKeyIndexUntil = KuduHelper.getPrimaryKeyIndexUntil(columns);
-//        tableName = configuration.getString(Key.TABLE);
+        session.setFlushMode(this.isBackgroundFlush ? SessionConfiguration.FlushMode.AUTO_FLUSH_BACKGROUND
+                : SessionConfiguration.FlushMode.MANUAL_FLUSH);
+        session.setMutationBufferSpace(mutationBufferSpace);
     }
 
     public void startWriter(RecordReceiver lineReceiver, TaskPluginCollector taskPluginCollector)
     {
-        LOG.info("kuduwriter begin to write!");
+        LOG.info("kuduwriter begin to write with {} flush mode!", this.isBackgroundFlush ? "background" : "manual");
         Record record;
-        List<Configuration> columns = configuration.getListConfiguration(KuduKey.COLUMN);
-        List<String> columnNames = KuduHelper.getColumnNames(columns);
+        // 手动刷新模式下，记录当前批次的数据，用于将写入失败的行对应到原始记录
+        List<Record> batchRecords = new ArrayList<>(this.batchSize);
+        int applied = 0;
         while ((record = lineReceiver.getFromReader()) != null) {
             if (record.getColumnNumber() != columns.size()) {
                 throw AddaxException.asAddaxException(KuduWriterErrorCode.PARAMETER_NUM_ERROR,
                         " number of record fields:" + record.getColumnNumber()
                                 + " number of configuration fields:" + columns.size());
             }
-            Upsert upsert = table.newUpsert();
-            Insert insert = table.newInsert();
-            PartialRow row;
-            if (isUpsert) {
-                //覆盖更新
-                row = upsert.getRow();
-            }
-            else {
-                //增量更新
-                row = insert.getRow();
-            }
-            for (int i = 0; i < record.getColumnNumber(); i++) {
-                Column column = record.getColumn(i);
-                String name = columnNames.get(i);
-                if (column.getRawData() == null) {
-                    row.setNull(name);
-                    continue;
-                }
-                Type type = Type.getTypeForName(columns.get(i).getString(KuduKey.TYPE));
-                switch (type) {
-                    case INT8:
-                    case INT16:
-                    case INT32:
-                    case INT64:
-                        row.addInt(name, Integer.parseInt(column.asString()));
-                        break;
-                    case FLOAT:
-                    case DOUBLE:
-                        row.addDouble(name, column.asDouble());
-                        break;
-                    case STRING:
-                        row.addString(name, column.asString());
-                        break;
-                    case BOOL:
-                        row.addBoolean(name, column.asBoolean());
-                        break;
-                    case BINARY:
-                        row.addBinary(name, column.asBytes());
-                        break;
-                    case DECIMAL:
-                        row.addDecimal(name, new BigDecimal(column.asString()));
-                        break;
-                    case UNIXTIME_MICROS:
-                        row.addTimestamp(name, new Timestamp(column.asLong()));
-                        break;
-                    case DATE:
-                        row.addDate(name,
-                                (Date) new java.util.Date(column.asDate().getTime()));
-                        break;
-                    default:
-                        throw AddaxException.asAddaxException(
-                                KuduWriterErrorCode.ILLEGAL_VALUE, "The data type " + type + "is unsupported"
-                        );
-                }
-            } // end a row
+            Operation operation = isUpsert ? table.newUpsert() : table.newInsert();
+            PartialRow row = operation.getRow();
             try {
-                if (isUpsert) {
-                    session.apply(upsert);
-                }
-                else {
-                    session.apply(insert);
+                for (int i = 0; i < setters.length; i++) {
+                    Column column = record.getColumn(i);
+                    if (column.getRawData() == null) {
+                        row.setNull(setters[i].index);
+                    }
+                    else {
+                        setters[i].set(row, column);
+                    }
                 }
             }
             catch (Exception e) {
-                LOG.error("Record Write Failure!", e);
-                if (isSkipFail) {
-                    LOG.warn("Since you have configured \"skipFail\" to be true, this record will be skipped !");
-                    taskPluginCollector.collectDirtyRecord(record, e.getMessage());
-                }
-                else {
-                    throw AddaxException.asAddaxException(KuduWriterErrorCode.PUT_KUDU_ERROR, e.getMessage());
-                }
+                // 类型转换失败的记录作为脏数据
+                taskPluginCollector.collectDirtyRecord(record, e);
+                continue;
+            }
+
+            try {
+                session.apply(operation);
+            }
+            catch (KuduException e) {
+                throw AddaxException.asAddaxException(KuduWriterErrorCode.PUT_KUDU_ERROR, e);
+            }
+            if (!isBackgroundFlush) {
+                batchRecords.add(record);
+            }
+            if (++applied >= batchSize) {
+                flush(batchRecords, taskPluginCollector);
+                applied = 0;
+            }
+        }
+        if (isBackgroundFlush) {
+            // 等待后台写入全部完成，以便收集所有的错误
+            try {
+                session.flush();
+            }
+            catch (KuduException e) {
+                throw AddaxException.asAddaxException(KuduWriterErrorCode.PUT_KUDU_ERROR, e);
+            }
+        }
+        flush(batchRecords, taskPluginCollector);
+    }
+
+    /*
+     * 手动刷新模式下，同步写入当前批次并检查每一行的结果；
+     * 后台刷新模式下，数据由客户端在后台写入，这里只收集已经产生的错误
+     */
+    private void flush(List<Record> batchRecords, TaskPluginCollector taskPluginCollector)
+    {
+        if (isBackgroundFlush) {
+            RowErrorsAndOverflowStatus pendingErrors = session.getPendingErrors();
+            if (pendingErrors.isOverflowed()) {
+                LOG.warn("The error buffer of kudu session is overflowed, some row errors are discarded");
+            }
+            for (RowError rowError : pendingErrors.getRowErrors()) {
+                handleRowError(null, rowError, taskPluginCollector);
+            }
+            return;
+        }
+        if (batchRecords.isEmpty()) {
+            return;
+        }
+        List<OperationResponse> responses;
+        try {
+            responses = session.flush();
+        }
+        catch (KuduException e) {
+            throw AddaxException.asAddaxException(KuduWriterErrorCode.PUT_KUDU_ERROR, e);
+        }
+        // 手动刷新返回的结果与 apply 的顺序一致
+        for (int i = 0; i < responses.size(); i++) {
+            OperationResponse response = responses.get(i);
+            if (response.hasRowError()) {
+                handleRowError(i < batchRecords.size() ? batchRecords.get(i) : null, response.getRowError(), taskPluginCollector);
             }
         }
+        batchRecords.clear();
+    }
+
+    private void handleRowError(Record record, RowError rowError, TaskPluginCollector taskPluginCollector)
+    {
+        if (!isSkipFail) {
+            throw AddaxException.asAddaxException(KuduWriterErrorCode.PUT_KUDU_ERROR, rowError.toString());
+        }
+        if (record != null) {
+            taskPluginCollector.collectDirtyRecord(record, rowError.getErrorStatus().toString());
+        }
+        else {
+            LOG.warn("Since you have configured \"skipFail\" to be true, the failed row is skipped: {}", rowError);
+        }
+    }
+
+    /*
+     * 根据 Kudu 表的 schema 为每一列确定写入方式，避免每条记录都解析一次类型
+     */
+    private static ColumnSetter[] createSetters(Schema schema, List<String> columnNames)
+    {
+        ColumnSetter[] setters = new ColumnSetter[columnNames.size()];
+        for (int i = 0; i < columnNames.size(); i++) {
+            String name = columnNames.get(i);
+            int index;
+            try {
+                index = schema.getColumnIndex(name);
+            }
+            catch (IllegalArgumentException e) {
+                throw AddaxException.asAddaxException(KuduWriterErrorCode.ILLEGAL_VALUE,
+                        "The column " + name + " does not exist in the table", e);
+            }
+            ColumnSchema columnSchema = schema.getColumnByIndex(index);
+            switch (columnSchema.getType()) {
+                case INT8:
+                    setters[i] = new ColumnSetter(index, (row, idx, col) -> row.addByte(idx, col.asLong().byteValue()));
+                    break;
+                case INT16:
+                    setters[i] = new ColumnSetter(index, (row, idx, col) -> row.addShort(idx, col.asLong().shortValue()));
+                    break;
+                case INT32:
+                    setters[i] = new ColumnSetter(index, (row, idx, col) -> row.addInt(idx, col.asLong().intValue()));
+                    break;
+                case INT64:
+                    setters[i] = new ColumnSetter(index, (row, idx, col) -> row.addLong(idx, col.asLong()));
+                    break;
+                case FLOAT:
+                    setters[i] = new ColumnSetter(index, (row, idx, col) -> row.addFloat(idx, col.asDouble().floatValue()));
+                    break;
+                case DOUBLE:
+                    setters[i] = new ColumnSetter(index, (row, idx, col) -> row.addDouble(idx, col.asDouble()));
+                    break;
+                case STRING:
+                    setters[i] = new ColumnSetter(index, (row, idx, col) -> row.addString(idx, col.asString()));
+                    break;
+                case VARCHAR:
+                    setters[i] = new ColumnSetter(index, (row, idx, col) -> row.addVarchar(idx, col.asString()));
+                    break;
+                case BOOL:
+                    setters[i] = new ColumnSetter(index, (row, idx, col) -> row.addBoolean(idx, col.asBoolean()));
+                    break;
+                case BINARY:
+                    setters[i] = new ColumnSetter(index, (row, idx, col) -> row.addBinary(idx, col.asBytes()));
+                    break;
+                case DECIMAL:
+                    setters[i] = new ColumnSetter(index, (row, idx, col) -> row.addDecimal(idx, col.asBigDecimal()));
+                    break;
+                case UNIXTIME_MICROS:
+                    setters[i] = new ColumnSetter(index, (row, idx, col) -> row.addTimestamp(idx, new Timestamp(col.asDate().getTime())));
+                    break;
+                case DATE:
+                    setters[i] = new ColumnSetter(index, (row, idx, col) -> row.addDate(idx, new Date(col.asDate().getTime())));
+                    break;
+                default:
+                    throw AddaxException.asAddaxException(
+                            KuduWriterErrorCode.ILLEGAL_VALUE, "The data type " + columnSchema.getType() + " is unsupported"
+                    );
+            }
+        }
+        return setters;
+    }
+
+    private interface Setter
+    {
+        void set(PartialRow row, int index, Column column);
+    }
+
+    private static final class ColumnSetter
+    {
+        final int index;
+        final Setter setter;
+
+        ColumnSetter(int index, Setter setter)
+        {
+            this.index = index;
+            this.setter = setter;
+        }
+
+        void set(PartialRow row, Column column)
+        {
+            setter.set(row, index, column);
+        }
     }
 }
@@ -83,6 +83,10 @@ public class KeyConstant extends Key
      * 指定用来判断是否覆盖的 业务主键
      */
     public static final String UNIQUE_KEY = "replaceKey";
+    /**
+     * 同时执行的 bulk 写入数
+     */
+    public static final String CONCURRENT_BULKS = "concurrentBulks";
 
     private KeyConstant() {}
 
@@ -0,0 +1,282 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.wgzhao.addax.plugin.writer.mongodbwriter;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.WriteModel;
+import com.wgzhao.addax.common.element.Record;
+import com.wgzhao.addax.common.plugin.TaskPluginCollector;
+import com.wgzhao.addax.common.statistics.jfr.JfrSupport;
+import com.wgzhao.addax.common.statistics.jfr.WriterFlushEvent;
+import com.wgzhao.addax.common.util.AsyncFailure;
+import org.bson.BsonBinaryWriter;
+import org.bson.codecs.Encoder;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 以 bulkWrite 的方式写入 MongoDB.
+ * <p>
+ * 一个 bulk 按条数(batchSize)和 BSON 字节数(batchByteSize)两者中先达到的为准，
+ * 最多同时有 concurrentBulks 个 bulk 在服务端执行，写入线程可以在此期间继续组装下一个 bulk.
+ * 主键冲突(duplicate key)的文档作为脏数据记录，其余文档正常写入，不会导致整个 bulk 失败或重试.
+ * <p>
+ * 插入模式使用无序(unordered)写入. 替换模式下同一个 replaceKey 可能出现多次，必须按记录的顺序执行，
+ * 否则最终保留的版本是不确定的，因此替换模式使用有序(ordered)写入，并且同时只有一个 bulk 在执行.
+ */
+public class MongoBulkWriter
+{
+    private static final Logger LOG = LoggerFactory.getLogger(MongoBulkWriter.class);
+
+    // 单个文档的大小上限
+    private static final int MAX_DOCUMENT_BYTES = 16 * 1024 * 1024;
+    // 单个消息的大小上限为 48MB，预留命令本身的开销
+    private static final long MAX_BATCH_BYTES = 47L * 1000 * 1000;
+
+    // duplicate key 相关的错误码
+    private static final int DUPLICATE_KEY = 11000;
+    private static final int DUPLICATE_KEY_LEGACY = 11001;
+    private static final int DUPLICATE_KEY_CAPPED = 12582;
+
+    private final MongoCollection<BasicDBObject> collection;
+    private final String replaceKey;
+    private final int batchSize;
+    private final long batchByteSize;
+    private final TaskPluginCollector taskPluginCollector;
+    private final boolean ordered;
+
+    private final ExecutorService executor;
+    private final Semaphore inFlight;
+    private final AtomicLong writeSize = new AtomicLong(0);
+
+    private final Encoder<BasicDBObject> encoder;
+    private final BasicOutputBuffer sizeBuffer = new BasicOutputBuffer(4096);
+
+    private Bulk bulk = new Bulk();
+    private final AsyncFailure failure = new AsyncFailure(MongoDBWriterErrorCode.UNKNOWN_EXCEPTION);
+
+    /**
+     * @param collection 目标集合
+     * @param replaceKey 不为空时按该字段 upsert 替换文档，否则直接插入
+     * @param batchSize 每个 bulk 的最大文档数
+     * @param batchByteSize 每个 bulk 的最大字节数
+     * @param concurrentBulks 同时执行的 bulk 数，替换模式下固定为 1
+     * @param taskPluginCollector 用于收集脏数据
+     */
+    public MongoBulkWriter(MongoCollection<BasicDBObject> collection, String replaceKey, int batchSize,
+            long batchByteSize, int concurrentBulks, TaskPluginCollector taskPluginCollector)
+    {
+        this.collection = collection;
+        this.replaceKey = replaceKey;
+        this.batchSize = Math.max(1, batchSize);
+        this.batchByteSize = Math.max(1, Math.min(batchByteSize, MAX_BATCH_BYTES));
+        this.taskPluginCollector = taskPluginCollector;
+        this.encoder = collection.getCodecRegistry().get(BasicDBObject.class);
+        this.ordered = replaceKey != null;
+
+        int concurrency = this.ordered ? 1 : Math.max(1, concurrentBulks);
+        if (this.ordered && concurrentBulks > 1) {
+            LOG.info("The concurrentBulks is set to 1 in replace mode to keep the order of the documents with the same {}.", replaceKey);
+        }
+        this.executor = Executors.newFixedThreadPool(concurrency, AsyncFailure.daemonThreadFactory("mongo-bulk"));
+        this.inFlight = new Semaphore(concurrency);
+        LOG.info("Write to collection {} with batchSize={}, batchByteSize={}, concurrentBulks={}, ordered={}.",
+                collection.getNamespace(), this.batchSize, this.batchByteSize, concurrency, this.ordered);
+    }
+
+    /**
+     * 加入一个文档，当前 bulk 达到大小限制时提交执行
+     *
+     * @param record 原始记录，写入失败时作为脏数据
+     * @param document 需要写入的文档
+     * @throws InterruptedException 等待执行中的 bulk 时被中断
+     */
+    public void add(Record record, BasicDBObject document)
+            throws InterruptedException
+    {
+        int size = bsonSize(document);
+        if (size > MAX_DOCUMENT_BYTES) {
+            taskPluginCollector.collectDirtyRecord(record,
+                    String.format("The document size %d bytes exceeds the limit of %d bytes", size, MAX_DOCUMENT_BYTES));
+            return;
+        }
+        if (bulk.size() > 0 && bulk.bytes + size > batchByteSize) {
+            submit();
+        }
+        bulk.add(record, toModel(document), size);
+        if (bulk.size() >= batchSize) {
+            submit();
+        }
+    }
+
+    /**
+     * 提交剩余的文档并等待所有 bulk 执行完成
+     *
+     * @return 成功写入的文档数
+     * @throws InterruptedException 等待时被中断
+     */
+    public long finish()
+            throws InterruptedException
+    {
+        if (bulk.size() > 0) {
+            submit();
+        }
+        executor.shutdown();
+        while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+            failure.check();
+        }
+        failure.check();
+        return writeSize.get();
+    }
+
+    public void close()
+    {
+        executor.shutdownNow();
+    }
+
+    private WriteModel<BasicDBObject> toModel(BasicDBObject document)
+    {
+        if (replaceKey == null) {
+            return new InsertOneModel<>(document);
+        }
+        return new ReplaceOneModel<>(new BasicDBObject(replaceKey, document.get(replaceKey)), document,
+                new ReplaceOptions().upsert(true));
+    }
+
+    private int bsonSize(BasicDBObject document)
+    {
+        sizeBuffer.truncateToPosition(0);
+        try (BsonBinaryWriter writer = new BsonBinaryWriter(sizeBuffer)) {
+            encoder.encode(writer, document, EncoderContext.builder().build());
+        }
+        return sizeBuffer.getPosition();
+    }
+
+    private void submit()
+            throws InterruptedException
+    {
+        failure.check();
+        Bulk current = bulk;
+        bulk = new Bulk();
+        inFlight.acquire();
+        try {
+            executor.execute(() -> {
+                try {
+                    write(current);
+                }
+                catch (Throwable e) {
+                    failure.set(e);
+                }
+                finally {
+                    inFlight.release();
+                }
+            });
+        }
+        catch (RuntimeException e) {
+            inFlight.release();
+            throw e;
+        }
+    }
+
+    private void write(Bulk current)
+    {
+        long startTime = System.currentTimeMillis();
+        WriterFlushEvent flushEvent = JfrSupport.beginWriterFlush("mongodbwriter",
+                collection.getNamespace().getFullName(), current.size(), current.bytes);
+        boolean success = true;
+        int start = 0;
+        while (start < current.size()) {
+            List<WriteModel<BasicDBObject>> models = current.models.subList(start, current.size());
+            try {
+                collection.bulkWrite(models, new BulkWriteOptions().ordered(ordered));
+                writeSize.addAndGet(models.size());
+                break;
+            }
+            catch (MongoBulkWriteException e) {
+                success = false;
+                if (e.getWriteConcernError() != null || e.getWriteErrors().isEmpty()) {
+                    JfrSupport.endWriterFlush(flushEvent, false);
+                    throw e;
+                }
+                int failed = 0;
+                for (BulkWriteError error : e.getWriteErrors()) {
+                    if (!isDuplicateKey(error.getCode())) {
+                        JfrSupport.endWriterFlush(flushEvent, false);
+                        throw e;
+                    }
+                    taskPluginCollector.collectDirtyRecord(current.records.get(start + error.getIndex()), error.getMessage());
+                    failed++;
+                }
+                if (!ordered) {
+                    // 无序写入时，出错的文档不影响其他文档，只需要处理出错的部分
+                    writeSize.addAndGet(models.size() - failed);
+                    break;
+                }
+                // 有序写入在第一个出错的文档处停止，之前的文档已经写入，从出错的下一个文档继续
+                int index = e.getWriteErrors().get(0).getIndex();
+                writeSize.addAndGet(index);
+                start += index + 1;
+            }
+        }
+        JfrSupport.endWriterFlush(flushEvent, success);
+        taskPluginCollector.reportLatency(System.currentTimeMillis() - startTime);
+    }
+
+    private static boolean isDuplicateKey(int code)
+    {
+        return code == DUPLICATE_KEY || code == DUPLICATE_KEY_LEGACY || code == DUPLICATE_KEY_CAPPED;
+    }
+
+    private static final class Bulk
+    {
+        final List<Record> records = new ArrayList<>();
+        final List<WriteModel<BasicDBObject>> models = new ArrayList<>();
+        long bytes = 0;
+
+        void add(Record record, WriteModel<BasicDBObject> model, int size)
+        {
+            records.add(record);
+            models.add(model);
+            bytes += size;
+        }
+
+        int size()
+        {
+            return records.size();
+        }
+    }
+}
@@ -39,11 +39,10 @@ import com.mongodb.BasicDBObject;
 import com.mongodb.MongoClient;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
-import com.mongodb.client.model.BulkWriteOptions;
-import com.mongodb.client.model.ReplaceOneModel;
-import com.mongodb.client.model.UpdateOptions;
 import org.bson.Document;
 import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -90,6 +89,9 @@ public class MongoDBWriter
     public static class Task
             extends Writer.Task
     {
+        private static final Logger LOG = LoggerFactory.getLogger(Task.class);
+
+        private static final long DEFAULT_BATCH_BYTE_SIZE = 16L * 1024 * 1024;
 
         private Configuration writerSliceConfig;
 
@@ -166,206 +168,213 @@ public class MongoDBWriter
             }
             MongoDatabase db = mongoClient.getDatabase(database);
             MongoCollection<BasicDBObject> col = db.getCollection(this.collection, BasicDBObject.class);
-            List<Record> writerBuffer = new ArrayList<>(this.batchSize);
-            Record record;
-            while ((record = lineReceiver.getFromReader()) != null) {
-                writerBuffer.add(record);
-                if (writerBuffer.size() >= this.batchSize) {
-                    doBatchInsert(col, writerBuffer, mongodbColumnMeta);
-                    writerBuffer.clear();
+            MongoBulkWriter bulkWriter = new MongoBulkWriter(col, getReplaceKey(), this.batchSize,
+                    writerSliceConfig.getLong(KeyConstant.BATCH_BYTE_SIZE, DEFAULT_BATCH_BYTE_SIZE),
+                    writerSliceConfig.getInt(KeyConstant.CONCURRENT_BULKS, 2),
+                    super.getTaskPluginCollector());
+            try {
+                Record record;
+                while ((record = lineReceiver.getFromReader()) != null) {
+                    BasicDBObject data = convert(record, mongodbColumnMeta);
+                    if (data != null) {
+                        bulkWriter.add(record, data);
+                    }
                 }
+                long written = bulkWriter.finish();
+                LOG.info("{} documents have been written to collection {}.", written, this.collection);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw AddaxException.asAddaxException(MongoDBWriterErrorCode.UNKNOWN_EXCEPTION, e);
             }
-            if (!writerBuffer.isEmpty()) {
-                doBatchInsert(col, writerBuffer, mongodbColumnMeta);
-                writerBuffer.clear();
+            finally {
+                bulkWriter.close();
             }
         }
 
-        private void doBatchInsert(MongoCollection<BasicDBObject> collection, List<Record> writerBuffer, JSONArray columnMeta)
+        /*
+         * 如果存在重复的值覆盖，返回用来判断是否覆盖的业务主键，否则返回 null
+         */
+        private String getReplaceKey()
         {
+            if (this.writeMode != null &&
+                    this.writeMode.getString(KeyConstant.IS_REPLACE) != null &&
+                    KeyConstant.isValueTrue(this.writeMode.getString(KeyConstant.IS_REPLACE))) {
+                String uniqueKey = this.writeMode.getString(KeyConstant.UNIQUE_KEY);
+                if (isNullOrEmpty((uniqueKey))) {
+                    throw AddaxException.asAddaxException(MongoDBWriterErrorCode.ILLEGAL_VALUE,
+                            MongoDBWriterErrorCode.ILLEGAL_VALUE.getDescription());
+                }
+                return uniqueKey;
+            }
+            return null;
+        }
 
-            List<BasicDBObject> dataList = new ArrayList<>();
-
-            for (Record record : writerBuffer) {
-
-                BasicDBObject data = new BasicDBObject();
+        /*
+         * 将记录转换为文档，转换失败时作为脏数据记录并返回 null
+         */
+        private BasicDBObject convert(Record record, JSONArray columnMeta)
+        {
+            BasicDBObject data = new BasicDBObject();
 
-                for (int i = 0; i < record.getColumnNumber(); i++) {
+            for (int i = 0; i < record.getColumnNumber(); i++) {
 
-                    String type = columnMeta.getJSONObject(i).getString(KeyConstant.COLUMN_TYPE);
-                    //空记录处理
-                    if (isNullOrEmpty((record.getColumn(i)).asString())) {
-                        if (KeyConstant.isArrayType(type.toLowerCase())) {
-                            data.put(columnMeta.getJSONObject(i).getString(KeyConstant.COLUMN_NAME), new Object[0]);
-                        }
-                        else {
-                            data.put(columnMeta.getJSONObject(i).getString(KeyConstant.COLUMN_NAME), record.getColumn(i).asString());
-                        }
-                        continue;
+                String type = columnMeta.getJSONObject(i).getString(KeyConstant.COLUMN_TYPE);
+                //空记录处理
+                if (isNullOrEmpty((record.getColumn(i)).asString())) {
+                    if (KeyConstant.isArrayType(type.toLowerCase())) {
+                        data.put(columnMeta.getJSONObject(i).getString(KeyConstant.COLUMN_NAME), new Object[0]);
                     }
-                    if (Column.Type.INT.name().equalsIgnoreCase(type)) {
-                        //int是特殊类型, 其他类型按照保存时Column的类型进行处理
-                        try {
+                    else {
+                        data.put(columnMeta.getJSONObject(i).getString(KeyConstant.COLUMN_NAME), record.getColumn(i).asString());
+                    }
+                    continue;
+                }
+                if (Column.Type.INT.name().equalsIgnoreCase(type)) {
+                    //int是特殊类型, 其他类型按照保存时Column的类型进行处理
+                    try {
+                        data.put(columnMeta.getJSONObject(i).getString(KeyConstant.COLUMN_NAME),
+                                Integer.parseInt(
+                                        String.valueOf(record.getColumn(i).getRawData())));
+                    }
+                    catch (Exception e) {
+                        super.getTaskPluginCollector().collectDirtyRecord(record, e);
+                        return null;
+                    }
+                }
+                else if (record.getColumn(i) instanceof StringColumn) {
+                    //处理ObjectId和数组类型
+                    try {
+                        if (KeyConstant.isObjectIdType(type.toLowerCase())) {
                             data.put(columnMeta.getJSONObject(i).getString(KeyConstant.COLUMN_NAME),
-                                    Integer.parseInt(
-                                            String.valueOf(record.getColumn(i).getRawData())));
-                        }
-                        catch (Exception e) {
-                            super.getTaskPluginCollector().collectDirtyRecord(record, e);
+                                    new ObjectId(record.getColumn(i).asString()));
                         }
-                    }
-                    else if (record.getColumn(i) instanceof StringColumn) {
-                        //处理ObjectId和数组类型
-                        try {
-                            if (KeyConstant.isObjectIdType(type.toLowerCase())) {
-                                data.put(columnMeta.getJSONObject(i).getString(KeyConstant.COLUMN_NAME),
-                                        new ObjectId(record.getColumn(i).asString()));
+                        else if (KeyConstant.isArrayType(type.toLowerCase())) {
+                            String splitter = columnMeta.getJSONObject(i).getString(KeyConstant.COLUMN_SPLITTER);
+                            if (isNullOrEmpty((splitter))) {
+                                throw AddaxException.asAddaxException(MongoDBWriterErrorCode.ILLEGAL_VALUE,
+                                        MongoDBWriterErrorCode.ILLEGAL_VALUE.getDescription());
                             }
-                            else if (KeyConstant.isArrayType(type.toLowerCase())) {
-                                String splitter = columnMeta.getJSONObject(i).getString(KeyConstant.COLUMN_SPLITTER);
-                                if (isNullOrEmpty((splitter))) {
-                                    throw AddaxException.asAddaxException(MongoDBWriterErrorCode.ILLEGAL_VALUE,
-                                            MongoDBWriterErrorCode.ILLEGAL_VALUE.getDescription());
-                                }
-                                String itemType = columnMeta.getJSONObject(i).getString(KeyConstant.ITEM_TYPE);
-                                if (itemType != null && !itemType.isEmpty()) {
-                                    //如果数组指定类型不为空，将其转换为指定类型
-                                    String[] item = record.getColumn(i).asString().split(splitter);
-                                    if (itemType.equalsIgnoreCase(Column.Type.DOUBLE.name())) {
-                                        ArrayList<Double> list = new ArrayList<>();
-                                        for (String s : item) {
-                                            list.add(Double.parseDouble(s));
-                                        }
-                                        data.put(columnMeta.getJSONObject(i).getString(KeyConstant.COLUMN_NAME), list.toArray(new Double[0]));
-                                    }
-                                    else if (itemType.equalsIgnoreCase(Column.Type.INT.name())) {
-                                        ArrayList<Integer> list = new ArrayList<>();
-                                        for (String s : item) {
-                                            list.add(Integer.parseInt(s));
-                                        }
-                                        data.put(columnMeta.getJSONObject(i).getString(KeyConstant.COLUMN_NAME), list.toArray(new Integer[0]));
+                            String itemType = columnMeta.getJSONObject(i).getString(KeyConstant.ITEM_TYPE);
+                            if (itemType != null && !itemType.isEmpty()) {
+                                //如果数组指定类型不为空，将其转换为指定类型
+                                String[] item = record.getColumn(i).asString().split(splitter);
+                                if (itemType.equalsIgnoreCase(Column.Type.DOUBLE.name())) {
+                                    ArrayList<Double> list = new ArrayList<>();
+                                    for (String s : item) {
+                                        list.add(Double.parseDouble(s));
                                     }
-                                    else if (itemType.equalsIgnoreCase(Column.Type.LONG.name())) {
-                                        ArrayList<Long> list = new ArrayList<>();
-                                        for (String s : item) {
-                                            list.add(Long.parseLong(s));
-                                        }
-                                        data.put(columnMeta.getJSONObject(i).getString(KeyConstant.COLUMN_NAME), list.toArray(new Long[0]));
+                                    data.put(columnMeta.getJSONObject(i).getString(KeyConstant.COLUMN_NAME), list.toArray(new Double[0]));
+                                }
+                                else if (itemType.equalsIgnoreCase(Column.Type.INT.name())) {
+                                    ArrayList<Integer> list = new ArrayList<>();
+                                    for (String s : item) {
+                                        list.add(Integer.parseInt(s));
                                     }
-                                    else if (itemType.equalsIgnoreCase(Column.Type.BOOL.name())) {
-                                        ArrayList<Boolean> list = new ArrayList<>();
-                                        for (String s : item) {
-                                            list.add(Boolean.parseBoolean(s));
-                                        }
-                                        data.put(columnMeta.getJSONObject(i).getString(KeyConstant.COLUMN_NAME), list.toArray(new Boolean[0]));
+                                    data.put(columnMeta.getJSONObject(i).getString(KeyConstant.COLUMN_NAME), list.toArray(new Integer[0]));
+                                }
+                                else if (itemType.equalsIgnoreCase(Column.Type.LONG.name())) {
+                                    ArrayList<Long> list = new ArrayList<>();
+                                    for (String s : item) {
+                                        list.add(Long.parseLong(s));
                                     }
-                                    else if (itemType.equalsIgnoreCase(Column.Type.BYTES.name())) {
-                                        ArrayList<Byte> list = new ArrayList<>();
-                                        for (String s : item) {
-                                            list.add(Byte.parseByte(s));
-                                        }
-                                        data.put(columnMeta.getJSONObject(i).getString(KeyConstant.COLUMN_NAME), list.toArray(new Byte[0]));
+                                    data.put(columnMeta.getJSONObject(i).getString(KeyConstant.COLUMN_NAME), list.toArray(new Long[0]));
+                                }
+                                else if (itemType.equalsIgnoreCase(Column.Type.BOOL.name())) {
+                                    ArrayList<Boolean> list = new ArrayList<>();
+                                    for (String s : item) {
+                                        list.add(Boolean.parseBoolean(s));
                                     }
-                                    else {
-                                        data.put(columnMeta.getJSONObject(i).getString(KeyConstant.COLUMN_NAME), record.getColumn(i).asString().split(splitter));
+                                    data.put(columnMeta.getJSONObject(i).getString(KeyConstant.COLUMN_NAME), list.toArray(new Boolean[0]));
+                                }
+                                else if (itemType.equalsIgnoreCase(Column.Type.BYTES.name())) {
+                                    ArrayList<Byte> list = new ArrayList<>();
+                                    for (String s : item) {
+                                        list.add(Byte.parseByte(s));
                                     }
+                                    data.put(columnMeta.getJSONObject(i).getString(KeyConstant.COLUMN_NAME), list.toArray(new Byte[0]));
                                 }
                                 else {
                                     data.put(columnMeta.getJSONObject(i).getString(KeyConstant.COLUMN_NAME), record.getColumn(i).asString().split(splitter));
                                 }
                             }
-                            else if (type.toLowerCase().equalsIgnoreCase("json")) {
-                                //如果是json类型,将其进行转换
-                                Object mode = com.mongodb.util.JSON.parse(record.getColumn(i).asString());
-                                data.put(columnMeta.getJSONObject(i).getString(KeyConstant.COLUMN_NAME), JSON.toJSON(mode));
-                            }
                             else {
-                                data.put(columnMeta.getJSONObject(i).getString(KeyConstant.COLUMN_NAME), record.getColumn(i).asString());
+                                data.put(columnMeta.getJSONObject(i).getString(KeyConstant.COLUMN_NAME), record.getColumn(i).asString().split(splitter));
                             }
                         }
-                        catch (Exception e) {
-                            super.getTaskPluginCollector().collectDirtyRecord(record, e);
-                        }
-                    }
-                    else if (record.getColumn(i) instanceof LongColumn) {
-
-                        if (Column.Type.LONG.name().equalsIgnoreCase(type)) {
-                            data.put(columnMeta.getJSONObject(i).getString(KeyConstant.COLUMN_NAME), record.getColumn(i).asLong());
+                        else if (type.toLowerCase().equalsIgnoreCase("json")) {
+                            //如果是json类型,将其进行转换
+                            Object mode = com.mongodb.util.JSON.parse(record.getColumn(i).asString());
+                            data.put(columnMeta.getJSONObject(i).getString(KeyConstant.COLUMN_NAME), JSON.toJSON(mode));
                         }
                         else {
-                            super.getTaskPluginCollector().collectDirtyRecord(record, "record's [" + i + "] column's type should be: " + type);
+                            data.put(columnMeta.getJSONObject(i).getString(KeyConstant.COLUMN_NAME), record.getColumn(i).asString());
                         }
                     }
-                    else if (record.getColumn(i) instanceof DateColumn) {
+                    catch (Exception e) {
+                        super.getTaskPluginCollector().collectDirtyRecord(record, e);
+                        return null;
+                    }
+                }
+                else if (record.getColumn(i) instanceof LongColumn) {
 
-                        if (Column.Type.DATE.name().equalsIgnoreCase(type)) {
-                            data.put(columnMeta.getJSONObject(i).getString(KeyConstant.COLUMN_NAME),
-                                    record.getColumn(i).asDate());
-                        }
-                        else {
-                            super.getTaskPluginCollector().collectDirtyRecord(record, "record's [" + i + "] column's type should be: " + type);
-                        }
+                    if (Column.Type.LONG.name().equalsIgnoreCase(type)) {
+                        data.put(columnMeta.getJSONObject(i).getString(KeyConstant.COLUMN_NAME), record.getColumn(i).asLong());
+                    }
+                    else {
+                        super.getTaskPluginCollector().collectDirtyRecord(record, "record's [" + i + "] column's type should be: " + type);
+                        return null;
                     }
-                    else if (record.getColumn(i) instanceof DoubleColumn) {
+                }
+                else if (record.getColumn(i) instanceof DateColumn) {
 
-                        if (Column.Type.DOUBLE.name().equalsIgnoreCase(type)) {
-                            data.put(columnMeta.getJSONObject(i).getString(KeyConstant.COLUMN_NAME),
-                                    record.getColumn(i).asDouble());
-                        }
-                        else {
-                            super.getTaskPluginCollector().collectDirtyRecord(record, "record's [" + i + "] column's type should be: " + type);
-                        }
+                    if (Column.Type.DATE.name().equalsIgnoreCase(type)) {
+                        data.put(columnMeta.getJSONObject(i).getString(KeyConstant.COLUMN_NAME),
+                                record.getColumn(i).asDate());
+                    }
+                    else {
+                        super.getTaskPluginCollector().collectDirtyRecord(record, "record's [" + i + "] column's type should be: " + type);
+                        return null;
                     }
-                    else if (record.getColumn(i) instanceof BoolColumn) {
+                }
+                else if (record.getColumn(i) instanceof DoubleColumn) {
 
-                        if (Column.Type.BOOL.name().equalsIgnoreCase(type)) {
-                            data.put(columnMeta.getJSONObject(i).getString(KeyConstant.COLUMN_NAME),
-                                    record.getColumn(i).asBoolean());
-                        }
-                        else {
-                            super.getTaskPluginCollector().collectDirtyRecord(record, "record's [" + i + "] column's type should be: " + type);
-                        }
+                    if (Column.Type.DOUBLE.name().equalsIgnoreCase(type)) {
+                        data.put(columnMeta.getJSONObject(i).getString(KeyConstant.COLUMN_NAME),
+                                record.getColumn(i).asDouble());
                     }
-                    else if (record.getColumn(i) instanceof BytesColumn) {
+                    else {
+                        super.getTaskPluginCollector().collectDirtyRecord(record, "record's [" + i + "] column's type should be: " + type);
+                        return null;
+                    }
+                }
+                else if (record.getColumn(i) instanceof BoolColumn) {
 
-                        if (Column.Type.BYTES.name().equalsIgnoreCase(type)) {
-                            data.put(columnMeta.getJSONObject(i).getString(KeyConstant.COLUMN_NAME),
-                                    record.getColumn(i).asBytes());
-                        }
-                        else {
-                            super.getTaskPluginCollector().collectDirtyRecord(record, "record's [" + i + "] column's type should be: " + type);
-                        }
+                    if (Column.Type.BOOL.name().equalsIgnoreCase(type)) {
+                        data.put(columnMeta.getJSONObject(i).getString(KeyConstant.COLUMN_NAME),
+                                record.getColumn(i).asBoolean());
                     }
                     else {
-                        data.put(columnMeta.getJSONObject(i).getString(KeyConstant.COLUMN_NAME), record.getColumn(i).asString());
+                        super.getTaskPluginCollector().collectDirtyRecord(record, "record's [" + i + "] column's type should be: " + type);
+                        return null;
                     }
                 }
-                dataList.add(data);
-            }
+                else if (record.getColumn(i) instanceof BytesColumn) {
 
-            // 如果存在重复的值覆盖
-            if (this.writeMode != null &&
-                    this.writeMode.getString(KeyConstant.IS_REPLACE) != null &&
-                    KeyConstant.isValueTrue(this.writeMode.getString(KeyConstant.IS_REPLACE))) {
-                String uniqueKey = this.writeMode.getString(KeyConstant.UNIQUE_KEY);
-                if (!isNullOrEmpty((uniqueKey))) {
-                    List<ReplaceOneModel<BasicDBObject>> replaceOneModelList = new ArrayList<>();
-                    for (BasicDBObject data : dataList) {
-                        BasicDBObject query = new BasicDBObject();
-                        query.put(uniqueKey, data.get(uniqueKey));
-                        ReplaceOneModel<BasicDBObject> replaceOneModel = new ReplaceOneModel<>(query, data, new UpdateOptions().upsert(true));
-                        replaceOneModelList.add(replaceOneModel);
+                    if (Column.Type.BYTES.name().equalsIgnoreCase(type)) {
+                        data.put(columnMeta.getJSONObject(i).getString(KeyConstant.COLUMN_NAME),
+                                record.getColumn(i).asBytes());
+                    }
+                    else {
+                        super.getTaskPluginCollector().collectDirtyRecord(record, "record's [" + i + "] column's type should be: " + type);
+                        return null;
                     }
-                    collection.bulkWrite(replaceOneModelList, new BulkWriteOptions().ordered(false));
                 }
                 else {
-                    throw AddaxException.asAddaxException(MongoDBWriterErrorCode.ILLEGAL_VALUE,
-                            MongoDBWriterErrorCode.ILLEGAL_VALUE.getDescription());
+                    data.put(columnMeta.getJSONObject(i).getString(KeyConstant.COLUMN_NAME), record.getColumn(i).asString());
                 }
             }
-            else {
-                collection.insertMany(dataList);
-            }
+            return data;
         }
 
         @Override
@@ -382,7 +391,7 @@ public class MongoDBWriter
                 this.mongoClient = MongoUtil.initMongoClient(this.writerSliceConfig);
             }
             this.collection = writerSliceConfig.getString(KeyConstant.MONGO_COLLECTION_NAME);
-            this.batchSize = 1000;
+            this.batchSize = writerSliceConfig.getInt(KeyConstant.BATCH_SIZE, 1000);
             this.mongodbColumnMeta = JSON.parseArray(writerSliceConfig.getString(KeyConstant.MONGO_COLUMN));
             this.writeMode = JSON.parseObject(writerSliceConfig.getString(KeyConstant.WRITE_MODE));
         }
@@ -107,7 +107,7 @@ public class MysqlWriter
         public void startWrite(RecordReceiver recordReceiver)
         {
             this.commonRdbmsWriterTask.startWrite(recordReceiver, this.writerSliceConfig,
-                    super.getTaskPluginCollector());
+                    super.getTaskPluginCollector(), getTaskCheckpoint());
         }
 
         @Override
@@ -118,7 +118,7 @@ public class OracleWriter
         public void startWrite(RecordReceiver recordReceiver)
         {
             this.commonRdbmsWriterTask.startWrite(recordReceiver,
-                    this.writerSliceConfig, getTaskPluginCollector());
+                    this.writerSliceConfig, getTaskPluginCollector(), getTaskCheckpoint());
         }
 
         @Override
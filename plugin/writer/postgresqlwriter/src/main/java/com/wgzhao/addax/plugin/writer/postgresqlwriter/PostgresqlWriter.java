@@ -125,7 +125,7 @@ public class PostgresqlWriter
 
         public void startWrite(RecordReceiver recordReceiver)
         {
-            this.commonRdbmsWriterSlave.startWrite(recordReceiver, this.writerSliceConfig, super.getTaskPluginCollector());
+            this.commonRdbmsWriterSlave.startWrite(recordReceiver, this.writerSliceConfig, super.getTaskPluginCollector(), getTaskCheckpoint());
         }
 
         @Override
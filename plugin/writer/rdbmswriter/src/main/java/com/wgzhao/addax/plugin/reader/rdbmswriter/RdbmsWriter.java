@@ -113,7 +113,7 @@ public class RdbmsWriter
         public void startWrite(RecordReceiver recordReceiver)
         {
             this.commonRdbmsWriterSlave.startWrite(recordReceiver,
-                    this.writerSliceConfig, super.getTaskPluginCollector());
+                    this.writerSliceConfig, super.getTaskPluginCollector(), getTaskCheckpoint());
         }
 
         @Override
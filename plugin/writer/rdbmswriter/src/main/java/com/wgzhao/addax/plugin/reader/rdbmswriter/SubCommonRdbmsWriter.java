@@ -67,10 +67,10 @@ public class SubCommonRdbmsWriter
                     case Types.NVARCHAR:
                     case Types.LONGNVARCHAR:
                         if (null == column.getRawData()) {
-                            preparedStatement.setObject(columnIndex + 1, null);
+                            preparedStatement.setObject(columnIndex, null);
                         }
                         else {
-                            preparedStatement.setString(columnIndex + 1,
+                            preparedStatement.setString(columnIndex,
                                     column.asString());
                         }
                         break;
@@ -81,13 +81,13 @@ public class SubCommonRdbmsWriter
                     case Types.TINYINT:
                         String strLongValue = column.asString();
                         if (emptyAsNull && "".equals(strLongValue)) {
-                            preparedStatement.setObject(columnIndex + 1, null);
+                            preparedStatement.setObject(columnIndex, null);
                         }
                         else if (null == column.getRawData()) {
-                            preparedStatement.setObject(columnIndex + 1, null);
+                            preparedStatement.setObject(columnIndex, null);
                         }
                         else {
-                            preparedStatement.setLong(columnIndex + 1,
+                            preparedStatement.setLong(columnIndex,
                                     column.asLong());
                         }
                         break;
@@ -98,13 +98,13 @@ public class SubCommonRdbmsWriter
                     case Types.DOUBLE:
                         String strValue = column.asString();
                         if (emptyAsNull && "".equals(strValue)) {
-                            preparedStatement.setObject(columnIndex + 1, null);
+                            preparedStatement.setObject(columnIndex, null);
                         }
                         else if (null == column.getRawData()) {
-                            preparedStatement.setObject(columnIndex + 1, null);
+                            preparedStatement.setObject(columnIndex, null);
                         }
                         else {
-                            preparedStatement.setDouble(columnIndex + 1,
+                            preparedStatement.setDouble(columnIndex,
                                     column.asDouble());
                         }
                         break;
@@ -114,10 +114,10 @@ public class SubCommonRdbmsWriter
                         utilDate = column.asDate();
                         if (null != utilDate) {
                             sqlDate = new java.sql.Date(utilDate.getTime());
-                            preparedStatement.setDate(columnIndex + 1, sqlDate);
+                            preparedStatement.setDate(columnIndex, sqlDate);
                         }
                         else {
-                            preparedStatement.setNull(columnIndex + 1, Types.DATE);
+                            preparedStatement.setNull(columnIndex, Types.DATE);
                         }
                         break;
 
@@ -126,10 +126,10 @@ public class SubCommonRdbmsWriter
                         utilDate = column.asDate();
                         if (null != utilDate) {
                             sqlTime = new java.sql.Time(utilDate.getTime());
-                            preparedStatement.setTime(columnIndex + 1, sqlTime);
+                            preparedStatement.setTime(columnIndex, sqlTime);
                         }
                         else {
-                            preparedStatement.setNull(columnIndex + 1, Types.TIME);
+                            preparedStatement.setNull(columnIndex, Types.TIME);
                         }
                         break;
 
@@ -140,11 +140,11 @@ public class SubCommonRdbmsWriter
                         if (null != utilDate) {
                             sqlTimestamp = new java.sql.Timestamp(
                                     utilDate.getTime());
-                            preparedStatement.setTimestamp(columnIndex + 1,
+                            preparedStatement.setTimestamp(columnIndex,
                                     sqlTimestamp);
                         }
                         else {
-                            preparedStatement.setNull(columnIndex + 1,
+                            preparedStatement.setNull(columnIndex,
                                     Types.TIMESTAMP);
                         }
                         break;
@@ -154,21 +154,21 @@ public class SubCommonRdbmsWriter
                     case Types.BLOB:
                     case Types.LONGVARBINARY:
                         if (null == column.getRawData()) {
-                            preparedStatement.setObject(columnIndex + 1, null);
+                            preparedStatement.setObject(columnIndex, null);
                         }
                         else {
-                            preparedStatement.setBytes(columnIndex + 1,
+                            preparedStatement.setBytes(columnIndex,
                                     column.asBytes());
                         }
                         break;
 
                     case Types.BOOLEAN:
                         if (null == column.getRawData()) {
-                            preparedStatement.setNull(columnIndex + 1,
+                            preparedStatement.setNull(columnIndex,
                                     Types.BOOLEAN);
                         }
                         else {
-                            preparedStatement.setBoolean(columnIndex + 1,
+                            preparedStatement.setBoolean(columnIndex,
                                     column.asBoolean());
                         }
                         break;
@@ -177,19 +177,19 @@ public class SubCommonRdbmsWriter
                     // warn: bit(>1) -> Types.VARBINARY 可使用setBytes
                     case Types.BIT:
                         if (null == column.getRawData()) {
-                            preparedStatement.setObject(columnIndex + 1, null);
+                            preparedStatement.setObject(columnIndex, null);
                         }
                         else if (this.dataBaseType == DataBaseType.MySql) {
-                            preparedStatement.setBoolean(columnIndex + 1,
+                            preparedStatement.setBoolean(columnIndex,
                                     column.asBoolean());
                         }
                         else {
-                            preparedStatement.setString(columnIndex + 1,
+                            preparedStatement.setString(columnIndex,
                                     column.asString());
                         }
                         break;
                     default:
-                        preparedStatement.setObject(columnIndex + 1,
+                        preparedStatement.setObject(columnIndex,
                                 column.getRawData());
                         break;
                 }
@@ -198,9 +198,9 @@ public class SubCommonRdbmsWriter
                 throw new SQLException(String.format(
                         "类型转换错误:[%s] 字段名:[%s], 字段类型:[%d], 字段Java类型:[%s].",
                         column,
-                        this.resultSetMetaData.getLeft().get(columnIndex),
-                        this.resultSetMetaData.getMiddle().get(columnIndex),
-                        this.resultSetMetaData.getRight().get(columnIndex)));
+                        this.resultSetMetaData.getLeft().get(columnIndex - 1),
+                        this.resultSetMetaData.getMiddle().get(columnIndex - 1),
+                        this.resultSetMetaData.getRight().get(columnIndex - 1)));
             }
             return preparedStatement;
         }
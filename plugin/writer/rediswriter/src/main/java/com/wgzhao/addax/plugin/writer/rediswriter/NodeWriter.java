@@ -0,0 +1,191 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.wgzhao.addax.plugin.writer.rediswriter;
+
+import com.wgzhao.addax.common.exception.CommonErrorCode;
+import com.wgzhao.addax.common.util.AsyncFailure;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.Client;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.exceptions.JedisDataException;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 一个 Redis 节点的 pipeline 写入线程.
+ * <p>
+ * 读取线程将命令放入有界队列，本线程以 pipeline 方式发送，每 batchSize 条命令读取一次应答.
+ * 只有在目标 db 发生变化时才会发送 SELECT 命令.
+ */
+class NodeWriter
+        implements Runnable
+{
+    private static final Logger LOG = LoggerFactory.getLogger(NodeWriter.class);
+
+    private static final Command EOF = new Command(-1, 0, null);
+
+    private final String name;
+    private final Jedis jedis;
+    private final long batchSize;
+    private final BlockingQueue<Command> queue;
+    private final Thread thread;
+    private final AsyncFailure failure;
+
+    private int currentDb = 0;
+
+    NodeWriter(String name, Jedis jedis, long batchSize, int queueSize)
+    {
+        this.name = name;
+        this.jedis = jedis;
+        this.batchSize = batchSize;
+        this.queue = new ArrayBlockingQueue<>(queueSize);
+        this.thread = AsyncFailure.daemonThreadFactory("redis-writer-" + name).newThread(this);
+        this.failure = new AsyncFailure(CommonErrorCode.RUNTIME_ERROR, String.format("写入 Redis 节点 %s 失败", name));
+    }
+
+    void start()
+    {
+        thread.start();
+    }
+
+    /**
+     * 将命令放入队列，队列满时阻塞，写入线程失败时抛出异常
+     */
+    void send(Command command)
+            throws InterruptedException
+    {
+        failure.put(queue, command);
+    }
+
+    /**
+     * 发送完队列中剩余的命令并等待写入线程结束
+     */
+    void finish()
+            throws InterruptedException
+    {
+        send(EOF);
+        thread.join();
+        failure.check();
+    }
+
+    /**
+     * 中断并等待写入线程结束，未发送的命令被丢弃. 用于读取失败时，写入线程已经结束时不做任何事
+     */
+    void stop()
+    {
+        boolean interrupted = false;
+        thread.interrupt();
+        while (thread.isAlive()) {
+            try {
+                thread.join();
+            }
+            catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void run()
+    {
+        Client client = jedis.getClient();
+        long pending = 0;
+        try {
+            while (true) {
+                Command command = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (command == null) {
+                    // 读取端暂时没有数据，先把已经发送的命令的应答读回来
+                    if (pending > 0) {
+                        flushAndCheckReply(client, pending);
+                        pending = 0;
+                    }
+                    continue;
+                }
+                if (command == EOF) {
+                    break;
+                }
+                if (command.db >= 0 && command.db != currentDb) {
+                    client.select(command.db);
+                    currentDb = command.db;
+                    pending++;
+                }
+                command.action.accept(client);
+                pending += command.commands;
+                if (pending >= batchSize) {
+                    flushAndCheckReply(client, pending);
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                flushAndCheckReply(client, pending);
+            }
+        }
+        catch (InterruptedException e) {
+            // 由 stop 中断，直接退出
+            queue.clear();
+        }
+        catch (Throwable e) {
+            LOG.error("Failed to write to redis node {}: {}", name, e.getMessage());
+            failure.set(e, queue);
+        }
+    }
+
+    /**
+     * 发送并检查异常
+     *
+     * @param client redis client
+     * @param count 已发送但未读取应答的命令数
+     */
+    private static void flushAndCheckReply(Client client, long count)
+    {
+        List<Object> allReply = client.getMany((int) count);
+        for (Object o : allReply) {
+            if (o instanceof JedisDataException) {
+                throw (JedisDataException) o;
+            }
+        }
+    }
+
+    /**
+     * 发往某个 db 的一条或多条命令，db 小于 0 表示不需要切换 db(如 redis cluster)
+     */
+    static final class Command
+    {
+        final int db;
+        // action 中发送的命令数，用于读取对应数量的应答
+        final int commands;
+        final Consumer<Client> action;
+
+        Command(int db, int commands, Consumer<Client> action)
+        {
+            this.db = db;
+            this.commands = commands;
+            this.action = action;
+        }
+    }
+}
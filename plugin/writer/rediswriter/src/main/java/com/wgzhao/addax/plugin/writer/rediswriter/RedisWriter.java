@@ -21,6 +21,7 @@ package com.wgzhao.addax.plugin.writer.rediswriter;
 
 import com.wgzhao.addax.common.element.Column;
 import com.wgzhao.addax.common.element.Record;
+import com.wgzhao.addax.common.exception.CommonErrorCode;
 import com.wgzhao.addax.common.plugin.RecordReceiver;
 import com.wgzhao.addax.common.spi.Writer;
 import com.wgzhao.addax.common.util.Configuration;
@@ -29,18 +30,20 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import redis.clients.jedis.Client;
 import redis.clients.jedis.Jedis;
-import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.jedis.JedisCluster;
+import redis.clients.jedis.params.SetParams;
 import redis.clients.jedis.util.JedisClusterCRC16;
 
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 public class RedisWriter
         extends Writer
@@ -52,31 +55,70 @@ public class RedisWriter
 
         private static final Logger LOG = LoggerFactory.getLogger(Task.class);
         private static final AtomicBoolean FLUSH_FLAG = new AtomicBoolean(false);
+
+        private static final String MODE_RESTORE = "restore";
+        private static final String MODE_SET = "set";
+        private static final String MODE_HSET = "hset";
+        private static final String MODE_ZADD = "zadd";
+        private static final String MODE_RPUSH = "rpush";
+
         /**
-         * slot 对应cluster Redis 节点
+         * slot 对应cluster Redis 节点的写入线程
          */
-        private final Map<Integer, Jedis> cluster = new HashMap<>();
-        private final Map<Jedis, AtomicLong> nodeCounterMap = new HashMap<>();
+        private final NodeWriter[] slotWriters = new NodeWriter[JedisCluster.HASHSLOTS];
+        private final List<NodeWriter> nodeWriters = new ArrayList<>();
+        private final List<Jedis> nodes = new ArrayList<>();
         /**
          * 单机redis
          */
         private Jedis jedis;
+        private boolean isCluster;
         /**
          * 每次批量处理数量
          */
         private long batchSize = 1000L;
 
+        private String mode;
+        // 结构化写入模式的配置
+        private int[] keyIndexes;
+        private int[] fieldIndexes;
+        private byte[][] fieldNames;
+        private int valueIndex = -1;
+        private int scoreIndex = -1;
+        private String keyPrefix;
+        private String keyDelimiter;
+        private int db;
+        private long expire;
+
         @Override
         public void startWrite(RecordReceiver lineReceiver)
         {
-            Configuration pluginJobConf = this.getPluginJobConf();
-
-            boolean isCluster = pluginJobConf.getBool("redisCluster", false);
-            if (isCluster) {
-                this.clusterWrite(lineReceiver);
+            for (NodeWriter nodeWriter : nodeWriters) {
+                nodeWriter.start();
             }
-            else {
-                this.standaloneWrite(lineReceiver);
+            try {
+                Record fromReader;
+                while ((fromReader = lineReceiver.getFromReader()) != null) {
+                    if (MODE_RESTORE.equals(mode)) {
+                        restore(fromReader);
+                    }
+                    else {
+                        writeStructured(fromReader);
+                    }
+                }
+                for (NodeWriter nodeWriter : nodeWriters) {
+                    nodeWriter.finish();
+                }
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            }
+            finally {
+                // 读取或写入失败时写入线程仍在运行，需要停止，否则会一直等待新的命令
+                for (NodeWriter nodeWriter : nodeWriters) {
+                    nodeWriter.stop();
+                }
             }
         }
 
@@ -85,9 +127,11 @@ public class RedisWriter
         {
             Configuration pluginJobConf = this.getPluginJobConf();
             List connections = pluginJobConf.getList("connection");
-            boolean isCluster = pluginJobConf.getBool("redisCluster", false);
+            this.isCluster = pluginJobConf.getBool("redisCluster", false);
             int timeout = pluginJobConf.getInt("timeout", 60000);
             this.batchSize = pluginJobConf.getLong("batchSize", 1000L);
+            int queueSize = (int) Math.min(Integer.MAX_VALUE, this.batchSize * 4);
+            initMode(pluginJobConf);
             if (connections.isEmpty()) {
                 throw new RuntimeException("请添加redis 连接");
             }
@@ -96,12 +140,17 @@ public class RedisWriter
                 URI uri = URI.create(connection.get("uri").toString());
                 String host = uri.getHost();
                 int port = uri.getPort();
+                String auth = (String) connection.get("auth");
                 this.jedis = new Jedis(host, port, timeout, timeout);
+                if (StringUtils.isNotBlank(auth)) {
+                    this.jedis.auth(auth);
+                }
 
-                //如果是redis cluster,将获取cluster主机节点对应的slot槽
+                //如果是redis cluster,将获取cluster主机节点对应的slot槽，每个主节点使用一个独立的写入线程
                 if (isCluster) {
                     StringBuilder sb = new StringBuilder("\r\nRedis Cluster 节点分配\r\n");
                     List<Object> slots = this.jedis.clusterSlots();
+                    Map<String, NodeWriter> writerMap = new HashMap<>();
 
                     for (Object slot : slots) {
 
@@ -115,15 +164,23 @@ public class RedisWriter
 
                         String nodeHost = new String((byte[]) hostInfo.get(0));
                         Long nodePort = (Long) hostInfo.get(1);
-                        Jedis node = new Jedis(nodeHost, nodePort.intValue(), timeout, timeout);
+                        String nodeName = nodeHost + ":" + nodePort;
+                        NodeWriter nodeWriter = writerMap.get(nodeName);
+                        if (nodeWriter == null) {
+                            Jedis node = new Jedis(nodeHost, nodePort.intValue(), timeout, timeout);
+                            if (StringUtils.isNotBlank(auth)) {
+                                node.auth(auth);
+                            }
+                            nodes.add(node);
+                            nodeWriter = new NodeWriter(nodeName, node, batchSize, queueSize);
+                            writerMap.put(nodeName, nodeWriter);
+                            nodeWriters.add(nodeWriter);
+                        }
                         for (int i = start.intValue(); i <= end.intValue(); i++) {
-                            this.cluster.put(i, node);
+                            this.slotWriters[i] = nodeWriter;
                         }
 
-                        this.nodeCounterMap.put(node, new AtomicLong());
-                        sb.append(nodeHost)
-                                .append(":")
-                                .append(nodePort)
+                        sb.append(nodeName)
                                 .append("\t")
                                 .append("slot:")
                                 .append(start)
@@ -133,15 +190,79 @@ public class RedisWriter
                     LOG.info(sb.toString());
                 }
                 else {
-                    String auth = (String) connection.get("auth");
-                    if (StringUtils.isNotBlank(auth)) {
-                        this.jedis.auth(auth);
-                    }
+                    nodeWriters.add(new NodeWriter(host + ":" + port, this.jedis, batchSize, queueSize));
                 }
             }
             prepare();
         }
 
+        /*
+         * 解析写入模式. restore 模式写入 redisreader 读出的 dump 数据，其他模式从普通的列构造 key 和 value
+         */
+        private void initMode(Configuration conf)
+        {
+            this.mode = conf.getString("mode", MODE_RESTORE).toLowerCase();
+            if (MODE_RESTORE.equals(mode)) {
+                return;
+            }
+            if (!Arrays.asList(MODE_SET, MODE_HSET, MODE_ZADD, MODE_RPUSH).contains(mode)) {
+                throw new IllegalArgumentException(String.format("不支持的写入模式 [%s], 仅支持 restore, set, hset, zadd, rpush", mode));
+            }
+            List<String> columns = conf.getList("column", String.class);
+            if (columns == null || columns.isEmpty()) {
+                throw new IllegalArgumentException(String.format("写入模式为 %s 时, 必须配置 column", mode));
+            }
+            List<String> keyColumns = conf.getList("keyColumn", Collections.singletonList(columns.get(0)), String.class);
+            this.keyIndexes = indexesOf(columns, keyColumns);
+            this.keyPrefix = conf.getString("keyPrefix", "");
+            this.keyDelimiter = conf.getString("keyDelimiter", ":");
+            this.db = conf.getInt("db", 0);
+            this.expire = conf.getLong("expire", 0L);
+
+            List<Integer> others = new ArrayList<>();
+            for (int i = 0; i < columns.size(); i++) {
+                if (!keyColumns.contains(columns.get(i))) {
+                    others.add(i);
+                }
+            }
+            if (MODE_HSET.equals(mode)) {
+                // 除 key 之外的列都作为 hash 的 field
+                this.fieldIndexes = others.stream().mapToInt(Integer::intValue).toArray();
+                this.fieldNames = new byte[fieldIndexes.length][];
+                for (int i = 0; i < fieldIndexes.length; i++) {
+                    fieldNames[i] = columns.get(fieldIndexes[i]).getBytes(StandardCharsets.UTF_8);
+                }
+                return;
+            }
+            if (MODE_ZADD.equals(mode)) {
+                String scoreColumn = conf.getNecessaryValue("scoreColumn", CommonErrorCode.CONFIG_ERROR);
+                this.scoreIndex = indexesOf(columns, Collections.singletonList(scoreColumn))[0];
+                others.remove(Integer.valueOf(scoreIndex));
+            }
+            String valueColumn = conf.getString("valueColumn");
+            if (valueColumn != null) {
+                this.valueIndex = indexesOf(columns, Collections.singletonList(valueColumn))[0];
+            }
+            else if (!others.isEmpty()) {
+                this.valueIndex = others.get(0);
+            }
+            else {
+                throw new IllegalArgumentException(String.format("写入模式为 %s 时, 需要配置 valueColumn", mode));
+            }
+        }
+
+        private static int[] indexesOf(List<String> columns, List<String> names)
+        {
+            int[] indexes = new int[names.size()];
+            for (int i = 0; i < names.size(); i++) {
+                indexes[i] = columns.indexOf(names.get(i));
+                if (indexes[i] < 0) {
+                    throw new IllegalArgumentException(String.format("列 [%s] 不在 column 配置中", names.get(i)));
+                }
+            }
+            return indexes;
+        }
+
         /**
          * 判断是否携带格式化redis 数据库
          */
@@ -156,93 +277,131 @@ public class RedisWriter
 
         public void destroy()
         {
+            // 关闭连接之前先保证写入线程已经结束
+            for (NodeWriter nodeWriter : this.nodeWriters) {
+                nodeWriter.stop();
+            }
             if (this.jedis != null) {
                 this.jedis.close();
             }
 
-            this.nodeCounterMap.clear();
-            for (Jedis cJedis : new HashSet<>(this.cluster.values())) {
-                cJedis.close();
+            for (Jedis node : this.nodes) {
+                node.close();
             }
-
-            this.cluster.clear();
+            this.nodes.clear();
+            this.nodeWriters.clear();
         }
 
-        /**
-         * 单机或proxy 写入模式
-         *
-         * @param lineReceiver record
+        /*
+         * 写入 redisreader 读出的 dump 数据，列依次为 db, type, expire, key, value
          */
-        private void standaloneWrite(RecordReceiver lineReceiver)
+        private void restore(Record record)
+                throws InterruptedException
         {
-            AtomicLong counter = new AtomicLong(0L);
-            Client client = this.jedis.getClient();
-            Record fromReader;
-            while ((fromReader = lineReceiver.getFromReader()) != null) {
-                Column dbColumn = fromReader.getColumn(0);
-//                Column type = fromReader.getColumn(1)
-                Column expireColumn = fromReader.getColumn(2);
-                Column keyColumn = fromReader.getColumn(3);
-                Column valueColumn = fromReader.getColumn(4);
-                Long db = dbColumn.asLong();
-                long expire = expireColumn.asLong();
-                byte[] key = keyColumn.asBytes();
-                byte[] value = valueColumn.asBytes();
-                client.select(db.intValue());
-                restore(client, key, value, expire, counter);
-            }
-
-            if (counter.get() % this.batchSize != 0L) {
-                flushAndCheckReply(client);
+            int recordDb = record.getColumn(0).asLong().intValue();
+            long expireAt = record.getColumn(2).asLong();
+            byte[] key = record.getColumn(3).asBytes();
+            byte[] value = record.getColumn(4).asBytes();
+            if (expireAt > 0) {
+                send(key, recordDb, 2, client -> {
+                    client.restore(key, 0, value);
+                    client.expireAt(key, expireAt);
+                });
+            }
+            else {
+                send(key, recordDb, 1, client -> client.restore(key, 0, value));
             }
         }
 
-        /**
-         * redis cluster 集群写入
-         *
-         * @param lineReceiver record
-         */
-        private void clusterWrite(RecordReceiver lineReceiver)
+        private void writeStructured(Record record)
+                throws InterruptedException
         {
-
-            Record fromReader;
-            while ((fromReader = lineReceiver.getFromReader()) != null) {
-                Column expireColumn = fromReader.getColumn(2);
-                Column keyColumn = fromReader.getColumn(3);
-                Column valueColumn = fromReader.getColumn(4);
-                Long expire = expireColumn.asLong();
-                byte[] key = keyColumn.asBytes();
-                byte[] value = valueColumn.asBytes();
-                int slot = JedisClusterCRC16.getSlot(key);
-                Jedis node = this.cluster.get(slot);
-                Client client = node.getClient();
-                AtomicLong nodeCounter = nodeCounterMap.get(node);
-                restore(client, key, value, expire, nodeCounter);
-            }
-
-            for (Entry<Jedis, AtomicLong> entry : nodeCounterMap.entrySet()) {
-                AtomicLong nodeCounter = entry.getValue();
-                Jedis node = entry.getKey();
-                if (nodeCounter.get() % this.batchSize != 0L) {
-                    Client client = node.getClient();
-                    flushAndCheckReply(client);
+            StringBuilder sb = new StringBuilder(keyPrefix);
+            for (int i = 0; i < keyIndexes.length; i++) {
+                String part = record.getColumn(keyIndexes[i]).asString();
+                if (part == null) {
+                    getTaskPluginCollector().collectDirtyRecord(record, "key 列的值不能为空");
+                    return;
                 }
+                if (i > 0) {
+                    sb.append(keyDelimiter);
+                }
+                sb.append(part);
+            }
+            byte[] key = sb.toString().getBytes(StandardCharsets.UTF_8);
+            Consumer<Client> action;
+            try {
+                action = buildStructuredAction(record, key);
+            }
+            catch (Exception e) {
+                getTaskPluginCollector().collectDirtyRecord(record, e);
+                return;
+            }
+            if (action == null) {
+                getTaskPluginCollector().collectDirtyRecord(record, "value 列的值不能为空");
+                return;
+            }
+            if (expire > 0 && !MODE_SET.equals(mode)) {
+                Consumer<Client> write = action;
+                send(key, db, 2, client -> {
+                    write.accept(client);
+                    client.expire(key, expire);
+                });
+            }
+            else {
+                send(key, db, 1, action);
             }
         }
 
-        private void restore(Client client, byte[] key, byte[] value, long expire, AtomicLong currentCounter)
+        private Consumer<Client> buildStructuredAction(Record record, byte[] key)
         {
-
-            client.restore(key, 0, value);
-
-            if (expire > 0) {
-                client.expireAt(key, expire);
+            if (MODE_HSET.equals(mode)) {
+                Map<byte[], byte[]> hash = new HashMap<>(fieldIndexes.length * 2);
+                for (int i = 0; i < fieldIndexes.length; i++) {
+                    Column column = record.getColumn(fieldIndexes[i]);
+                    if (column.getRawData() != null) {
+                        hash.put(fieldNames[i], toBytes(column));
+                    }
+                }
+                return hash.isEmpty() ? null : client -> client.hset(key, hash);
+            }
+            Column valueColumn = record.getColumn(valueIndex);
+            if (valueColumn.getRawData() == null) {
+                return null;
             }
+            byte[] value = toBytes(valueColumn);
+            switch (mode) {
+                case MODE_SET:
+                    if (expire > 0) {
+                        SetParams params = SetParams.setParams().ex((int) expire);
+                        return client -> client.set(key, value, params);
+                    }
+                    return client -> client.set(key, value);
+                case MODE_ZADD:
+                    double score = record.getColumn(scoreIndex).asDouble();
+                    return client -> client.zadd(key, score, value);
+                default:
+                    return client -> client.rpush(key, value);
+            }
+        }
 
-            long count = currentCounter.incrementAndGet();
+        private static byte[] toBytes(Column column)
+        {
+            if (column.getType() == Column.Type.BYTES) {
+                return column.asBytes();
+            }
+            return column.asString().getBytes(StandardCharsets.UTF_8);
+        }
 
-            if (count % this.batchSize == 0L) {
-                flushAndCheckReply(client);
+        private void send(byte[] key, int keyDb, int commands, Consumer<Client> action)
+                throws InterruptedException
+        {
+            if (isCluster) {
+                // redis cluster 只有 db 0, 不需要切换
+                slotWriters[JedisClusterCRC16.getSlot(key)].send(new NodeWriter.Command(-1, commands, action));
+            }
+            else {
+                nodeWriters.get(0).send(new NodeWriter.Command(keyDb, commands, action));
             }
         }
 
@@ -253,13 +412,11 @@ public class RedisWriter
                     return;
                 }
 
-                boolean isCluster = getPluginJobConf().getBool("redisCluster", false);
-
                 if (isCluster) {
-                    for (Jedis cJedis : new HashSet<>(cluster.values())) {
-                        Client client = cJedis.getClient();
+                    for (Jedis node : nodes) {
+                        Client client = node.getClient();
                         LOG.info("格式化: {}: {}", client.getHost(), client.getPort());
-                        jedis.flushAll();
+                        node.flushAll();
                     }
                 }
                 else {
@@ -273,21 +430,6 @@ public class RedisWriter
                 FLUSH_FLAG.set(true);
             }
         }
-
-        /**
-         * 发送并检查异常
-         *
-         * @param client redis client
-         */
-        private void flushAndCheckReply(Client client)
-        {
-            List<Object> allReply = client.getObjectMultiBulkReply();
-            for (Object o : allReply) {
-                if (o instanceof JedisDataException) {
-                    throw (JedisDataException) o;
-                }
-            }
-        }
     }
 
     public static class Job
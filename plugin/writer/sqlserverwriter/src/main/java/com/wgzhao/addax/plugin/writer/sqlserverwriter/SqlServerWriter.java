@@ -111,7 +111,7 @@ public class SqlServerWriter
         public void startWrite(RecordReceiver recordReceiver)
         {
             this.commonRdbmsWriterTask.startWrite(recordReceiver,
-                    this.writerSliceConfig, getTaskPluginCollector());
+                    this.writerSliceConfig, getTaskPluginCollector(), getTaskCheckpoint());
         }
 
         @Override
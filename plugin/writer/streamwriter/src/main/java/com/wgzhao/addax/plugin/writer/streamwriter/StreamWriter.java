@@ -223,6 +223,12 @@ public class StreamWriter
                     throw AddaxException.asAddaxException(StreamWriterErrorCode.RUNTIME_EXCEPTION, e);
                 }
             }
+            else {
+                // 不输出时也要读完所有记录，否则读取端会因 channel 写满而阻塞，任务提前结束
+                while (recordReceiver.getFromReader() != null) {
+                    // discard
+                }
+            }
         }
 
         private void writeToFile(RecordReceiver recordReceiver, String path, String fileName,
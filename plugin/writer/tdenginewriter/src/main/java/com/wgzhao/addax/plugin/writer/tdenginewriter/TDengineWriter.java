@@ -148,7 +148,7 @@ public class TDengineWriter
 
         public void startWrite(RecordReceiver recordReceiver)
         {
-            this.commonRdbmsWriterTask.startWrite(recordReceiver, writerSliceConfig, getTaskPluginCollector());
+            this.commonRdbmsWriterTask.startWrite(recordReceiver, writerSliceConfig, getTaskPluginCollector(), getTaskCheckpoint());
         }
 
         @Override